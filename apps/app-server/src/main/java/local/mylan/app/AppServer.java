@@ -24,6 +24,7 @@ import local.mylan.service.api.DiscoveryService;
 import local.mylan.service.api.NavigationService;
 import local.mylan.service.api.NotificationService;
 import local.mylan.service.data.DataServiceProvider;
+import local.mylan.service.net.LocalShareSmbService;
 import local.mylan.service.net.NetworkDiscoveryService;
 import local.mylan.service.net.NetworkNavigationService;
 import local.mylan.service.rest.api.DiscoveryRestService;
@@ -55,6 +56,7 @@ final class AppServer {
     private NotificationService notificationService;
     private DiscoveryService discoveryService;
     private NavigationService navigationService;
+    private LocalShareSmbService smbService;
     private HttpServer server;
 
     AppServer(final Path confDir, final Path workDir) {
@@ -78,6 +80,8 @@ final class AppServer {
         // networking
         discoveryService = new NetworkDiscoveryService(confDir, notificationService);
         navigationService = new NetworkNavigationService(confDir, navResourceService, notificationService);
+        smbService = new LocalShareSmbService(confDir, navResourceService);
+        smbService.start();
 
         // rest endpoints
         final var userRestService = new DefaultUserRestService(userService);
@@ -125,6 +129,9 @@ final class AppServer {
         if (server != null) {
             server.stop();
         }
+        if (smbService != null) {
+            smbService.stop();
+        }
         if (dataServiceProvider != null) {
             try {
                 dataServiceProvider.close();
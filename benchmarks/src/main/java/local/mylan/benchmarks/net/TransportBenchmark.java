@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.net;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.net.api.NettyTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of large responses streamed over loopback using each of Netty transports.
+ * Each operation is a round in which every connection sends 1-byte request and receives the response
+ * of given size; throughput in bytes per second is operations per second multiplied by connections
+ * and response size. Transports not available on the host fail their trials, so the run may be limited
+ * to the ones supported using {@code -p transport=NIO,EPOLL}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+    private static final int CHUNK_SIZE = 65536;
+
+    @Param({"NIO", "EPOLL", "IO_URING"})
+    NettyTransport transport;
+
+    @Param({"1", "16"})
+    int connections;
+
+    @Param({"1048576", "16777216"})
+    int responseSize;
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private ByteBuf chunk;
+    private final List<Channel> channels = new ArrayList<>();
+    private volatile CountDownLatch roundLatch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (!transport.isAvailable()) {
+            throw new IllegalStateException(transport + " transport is not available");
+        }
+        chunk = PooledByteBufAllocator.DEFAULT.directBuffer(CHUNK_SIZE).writeZero(CHUNK_SIZE);
+        serverGroup = transport.newEventLoopGroup(0, Executors.defaultThreadFactory());
+        clientGroup = transport.newEventLoopGroup(0, Executors.defaultThreadFactory());
+
+        final var serverChannel = new ServerBootstrap()
+            .group(serverGroup)
+            .channel(transport.serverSocketChannelClass())
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(final Channel channel) {
+                    channel.pipeline().addLast(new ResponseStreamer());
+                }
+            })
+            .bind(InetAddress.getLoopbackAddress(), 0).syncUninterruptibly().channel();
+        final var address = (InetSocketAddress) serverChannel.localAddress();
+
+        final var bootstrap = new Bootstrap()
+            .group(clientGroup)
+            .channel(transport.socketChannelClass())
+            .handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(final Channel channel) {
+                    channel.pipeline().addLast(new ResponseReceiver());
+                }
+            });
+        for (int i = 0; i < connections; i++) {
+            channels.add(bootstrap.connect(address).syncUninterruptibly().channel());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channels.forEach(Channel::close);
+        channels.clear();
+        if (clientGroup != null) {
+            clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+        if (serverGroup != null) {
+            serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+        if (chunk != null) {
+            chunk.release();
+        }
+    }
+
+    @Benchmark
+    public void streamResponses() throws InterruptedException {
+        final var latch = new CountDownLatch(connections);
+        roundLatch = latch;
+        for (var channel : channels) {
+            channel.writeAndFlush(channel.alloc().buffer(1).writeByte(1));
+        }
+        if (!latch.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Responses are not received in time");
+        }
+    }
+
+    /**
+     * Writes the response of configured size per request. Chunks are slices of the same buffer,
+     * so the cost measured is the transport one, not the content generation.
+     */
+    private final class ResponseStreamer extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            ReferenceCountUtil.release(msg);
+            for (int remaining = responseSize; remaining > 0; remaining -= CHUNK_SIZE) {
+                ctx.write(chunk.retainedSlice(0, Math.min(remaining, CHUNK_SIZE)));
+            }
+            ctx.flush();
+        }
+    }
+
+    private final class ResponseReceiver extends ChannelInboundHandlerAdapter {
+        private long received;
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            received += ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+            if (received >= responseSize) {
+                received -= responseSize;
+                roundLatch.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.codec.Smb2CodecUtils;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.fscc.FileAction;
+import local.mylan.transport.smb.protocol.fscc.FileIdBothDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
+import local.mylan.transport.smb.protocol.smb2.Smb2AccessMask;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompletionFilterFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateAction;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2ImpersonationLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ShareAccessFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2ShareType;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures SMB2 message encoding and decoding for the commands of the file access path. Messages are
+ * encoded into (decoded from) the same pooled direct buffer, so the figures reflect the codec only.
+ *
+ * <p>Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the heap allocated per message (in bytes),
+ * which is expected to be limited to the message object itself and its decoded fields (file IDs, names).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    private static final Smb2Dialect DIALECT = Smb2Dialect.SMB3_1_1;
+    private static final UUID FILE_ID = new UUID(0x0102030405060708L, 0x1112131415161718L);
+    private static final String PATH = "\\\\server\\share";
+    private static final String NAME = "directory\\document.txt";
+    private static final int DATA_SIZE = 4096;
+    private static final int ENTRIES = 16;
+
+    @Param({"TREE_CONNECT", "CREATE", "CLOSE", "READ", "WRITE", "QUERY_DIRECTORY", "CHANGE_NOTIFY"})
+    String command;
+
+    private Smb2Request request;
+    private Smb2Response response;
+    private ByteBuf data;
+    private ByteBuf target;
+    private ByteBuf encodedRequest;
+    private ByteBuf encodedResponse;
+
+    @Setup
+    public void setup() {
+        data = Unpooled.directBuffer(DATA_SIZE).writeZero(DATA_SIZE);
+        request = request(command);
+        response = response(command);
+        response.header().setStatus(SmbError.STATUS_SUCCESS);
+        response.header().flags().set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true);
+        target = PooledByteBufAllocator.DEFAULT.directBuffer(DATA_SIZE * 2);
+        encodedRequest = PooledByteBufAllocator.DEFAULT.directBuffer(DATA_SIZE * 2);
+        Smb2CodecUtils.encodeRequest(request, encodedRequest, DIALECT);
+        encodedResponse = PooledByteBufAllocator.DEFAULT.directBuffer(DATA_SIZE * 2);
+        Smb2CodecUtils.encodeResponse(response, encodedResponse, DIALECT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        data.release();
+        target.release();
+        encodedRequest.release();
+        encodedResponse.release();
+    }
+
+    @Benchmark
+    public int encodeRequest() {
+        target.clear();
+        Smb2CodecUtils.encodeRequest(request, target, DIALECT);
+        return target.writerIndex();
+    }
+
+    @Benchmark
+    public Smb2Request decodeRequest() {
+        encodedRequest.readerIndex(0);
+        final var decoded = Smb2CodecUtils.decodeRequest(encodedRequest, DIALECT);
+        if (decoded instanceof Smb2WriteRequest write && write.data() != null) {
+            write.data().release();
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public int encodeResponse() {
+        target.clear();
+        Smb2CodecUtils.encodeResponse(response, target, DIALECT);
+        return target.writerIndex();
+    }
+
+    @Benchmark
+    public Smb2Response decodeResponse() {
+        encodedResponse.readerIndex(0);
+        final var decoded = Smb2CodecUtils.decodeResponse(encodedResponse, DIALECT);
+        if (decoded instanceof Smb2ReadResponse read && read.data() != null) {
+            read.data().release();
+        } else if (decoded instanceof Smb2QueryDirectoryResponse queryDir && queryDir.data() != null) {
+            queryDir.data().release();
+        }
+        return decoded;
+    }
+
+    private Smb2Request request(final String cmd) {
+        return switch (cmd) {
+            case "TREE_CONNECT" -> {
+                final var treeConnect = new Smb2TreeConnectRequest();
+                treeConnect.setFlags(new Flags<>());
+                treeConnect.setPath(PATH);
+                yield treeConnect;
+            }
+            case "CREATE" -> {
+                final var create = new Smb2CreateRequest();
+                create.setName(NAME);
+                create.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
+                create.setImpersonationLevel(Smb2ImpersonationLevel.Impersonation);
+                create.setDesiredAccess(new Flags<Smb2AccessMask>().set(Smb2AccessMask.FILE_READ_DATA, true));
+                create.setFileAttributes(new Flags<>());
+                create.setShareAccess(new Flags<Smb2ShareAccessFlags>()
+                    .set(Smb2ShareAccessFlags.FILE_SHARE_READ, true));
+                create.setCreateDisposition(Smb2CreateDisposition.FILE_OPEN);
+                create.setCreateOptions(new Flags<>());
+                yield create;
+            }
+            case "CLOSE" -> {
+                final var close = new Smb2CloseRequest();
+                close.setFlags(new Flags<>());
+                close.setFileId(FILE_ID);
+                yield close;
+            }
+            case "READ" -> {
+                final var read = new Smb2ReadRequest();
+                read.setFileId(FILE_ID);
+                read.setLength(DATA_SIZE);
+                yield read;
+            }
+            case "WRITE" -> {
+                final var write = new Smb2WriteRequest();
+                write.setFileId(FILE_ID);
+                write.setFlags(new Flags<>());
+                write.setData(data);
+                yield write;
+            }
+            case "QUERY_DIRECTORY" -> {
+                final var queryDir = new Smb2QueryDirectoryRequest();
+                queryDir.setFileId(FILE_ID);
+                queryDir.setFileInformationClass(FileInformationClass.FileIdBothDirectoryInformation);
+                queryDir.setFlags(new Flags<>());
+                queryDir.setOutputBufferLength(65536);
+                queryDir.setSearchPattern("*");
+                yield queryDir;
+            }
+            case "CHANGE_NOTIFY" -> {
+                final var notify = new Smb2ChangeNotifyRequest();
+                notify.setFlags(new Flags<>());
+                notify.setFileId(FILE_ID);
+                notify.setOutputBufferLength(65536);
+                notify.setCompletionFilter(new Flags<Smb2CompletionFilterFlags>()
+                    .set(Smb2CompletionFilterFlags.FILE_NOTIFY_CHANGE_FILE_NAME, true));
+                yield notify;
+            }
+            default -> throw new IllegalArgumentException("Unsupported command " + cmd);
+        };
+    }
+
+    private Smb2Response response(final String cmd) {
+        return switch (cmd) {
+            case "TREE_CONNECT" -> {
+                final var treeConnect = new Smb2TreeConnectResponse();
+                treeConnect.setShareType(Smb2ShareType.SMB2_SHARE_TYPE_DISK);
+                treeConnect.setShareFlags(new Flags<>());
+                treeConnect.setCapabilities(new Flags<>());
+                treeConnect.setMaxAccess(new Flags<>());
+                yield treeConnect;
+            }
+            case "CREATE" -> {
+                final var create = new Smb2CreateResponse();
+                create.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
+                create.setFlags(new Flags<>());
+                create.setCreateAction(Smb2CreateAction.FILE_OPENED);
+                create.setFileAttributes(new Flags<>());
+                create.setFileId(FILE_ID);
+                yield create;
+            }
+            case "CLOSE" -> {
+                final var close = new Smb2CloseResponse();
+                close.setFlags(new Flags<>());
+                close.setFileAttributes(new Flags<>());
+                yield close;
+            }
+            case "READ" -> {
+                final var read = new Smb2ReadResponse();
+                read.setData(data);
+                yield read;
+            }
+            case "WRITE" -> {
+                final var write = new Smb2WriteResponse();
+                write.setCount(DATA_SIZE);
+                yield write;
+            }
+            case "QUERY_DIRECTORY" -> {
+                final var queryDir = new Smb2QueryDirectoryResponse();
+                queryDir.setDecoded(directoryEntries());
+                yield queryDir;
+            }
+            case "CHANGE_NOTIFY" -> {
+                final var notify = new Smb2ChangeNotifyResponse();
+                notify.setChanges(List.of(new FileNotifyInformation(FileAction.FILE_ACTION_ADDED, NAME)));
+                yield notify;
+            }
+            default -> throw new IllegalArgumentException("Unsupported command " + cmd);
+        };
+    }
+
+    private static List<FileInformation> directoryEntries() {
+        final var entries = new FileInformation[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            final var entry = new FileIdBothDirectoryInformation();
+            entry.setFileName("document-" + i + ".txt");
+            entry.setFileAttributes(new Flags<>());
+            entry.setFileId(i + 1);
+            entries[i] = entry;
+        }
+        return List.of(entries);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.protocol.Smb2PacketCompressor;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionAlgorithm;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures message compression and decompression throughput on payloads of different nature. Throughput
+ * in bytes per second is operations per second multiplied by payload size; compressed size is reported
+ * as auxiliary counter, so the compression ratio can be used to tune the compression threshold.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    private static final int PREFIX_LENGTH = 112;
+
+    public enum Corpus {
+        TEXT, BINARY, SPARSE, RANDOM
+    }
+
+    @Param({"LZ77", "LZ77_HUFFMAN"})
+    Smb2CompressionAlgorithm algorithm;
+
+    @Param({"false", "true"})
+    boolean chained;
+
+    @Param({"TEXT", "BINARY", "SPARSE", "RANDOM"})
+    Corpus corpus;
+
+    @Param({"4096", "65536", "1048576"})
+    int payloadSize;
+
+    private Smb2PacketCompressor compressor;
+    private ByteBuf message;
+    private ByteBuf compressedMessage;
+    private ByteBuf output;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Ratio {
+        public long originalBytes;
+        public long compressedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        compressor = new Smb2PacketCompressor(algorithm, chained, chained, true, 0);
+        final var content = content(corpus, PREFIX_LENGTH + payloadSize);
+        message = PooledByteBufAllocator.DEFAULT.heapBuffer(content.length).writeBytes(content);
+        compressedMessage = PooledByteBufAllocator.DEFAULT.heapBuffer(content.length).writeBytes(content);
+        compressor.compress(compressedMessage, 0, PREFIX_LENGTH);
+        output = PooledByteBufAllocator.DEFAULT.heapBuffer(content.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        message.release();
+        compressedMessage.release();
+        output.release();
+    }
+
+    @Benchmark
+    public int compress(final Ratio ratio) {
+        // compression is performed in place, so the message is restored for each invocation
+        output.clear().writeBytes(message, 0, message.writerIndex());
+        compressor.compress(output, 0, PREFIX_LENGTH);
+        ratio.originalBytes += message.writerIndex();
+        ratio.compressedBytes += output.writerIndex();
+        return output.writerIndex();
+    }
+
+    @Benchmark
+    public int decompress() {
+        if (!Smb2PacketCompressor.isCompressed(compressedMessage)) {
+            // incompressible payload is sent as is
+            return compressedMessage.writerIndex();
+        }
+        final var decompressed = compressor.decompress(compressedMessage.duplicate());
+        try {
+            return decompressed.readableBytes();
+        } finally {
+            decompressed.release();
+        }
+    }
+
+    private static byte[] content(final Corpus corpus, final int length) {
+        final var random = new Random(0);
+        final var content = new byte[length];
+        switch (corpus) {
+            case TEXT -> {
+                // directory listing like text
+                final var text = new StringBuilder(length + 64);
+                while (text.length() < length) {
+                    text.append("document_").append(random.nextInt(10000)).append(".txt\t")
+                        .append(random.nextInt(1 << 20)).append("\t2026-01-").append(1 + random.nextInt(28))
+                        .append('\n');
+                }
+                System.arraycopy(text.toString().getBytes(StandardCharsets.US_ASCII), 0, content, 0, length);
+            }
+            case BINARY -> {
+                // class files of the runtime as a sample of executable content
+                var pos = 0;
+                for (var name : new String[]{"String", "Integer", "HashMap", "ArrayList", "Thread", "Class"}) {
+                    try (var in = Object.class.getResourceAsStream("/java/lang/" + name + ".class")) {
+                        final var bytes = in == null ? new byte[0] : in.readAllBytes();
+                        final var count = Math.min(bytes.length, length - pos);
+                        System.arraycopy(bytes, 0, content, pos, count);
+                        pos += count;
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                // repeat the collected content to the requested length
+                for (var i = pos; pos > 0 && i < length; i++) {
+                    content[i] = content[i % pos];
+                }
+            }
+            case SPARSE -> {
+                // mostly zero filled with random data islands
+                for (var i = 0; i < length; i += 4096) {
+                    final var island = new byte[Math.min(256, length - i)];
+                    random.nextBytes(island);
+                    System.arraycopy(island, 0, content, i, island.length);
+                }
+            }
+            case RANDOM -> random.nextBytes(content);
+            default -> throw new IllegalArgumentException();
+        }
+        return content;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.codec.Smb2CodecUtils;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketCipher;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCipher;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encrypted READ response processing (decryption and decoding) and encrypted WRITE request
+ * encoding throughput. Throughput in bytes per second is operations per second multiplied by payload size;
+ * the plain READ decoding is a baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncryptedReadBenchmark {
+    private static final long SESSION_ID = 0x1234L;
+
+    @Param({"AES_128_GCM", "AES_256_GCM", "AES_128_CCM"})
+    Smb2EncryptionCipher cipher;
+
+    @Param({"65536", "1048576"})
+    int payloadSize;
+
+    private Smb2PacketCipher clientCipher;
+    private ByteBuf payload;
+    private ByteBuf plainFrame;
+    private ByteBuf encryptedFrame;
+    private ByteBuf frame;
+    private ByteBuf output;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final var random = new Random(0);
+        final var clientToServerKey = new byte[cipher.keyLength()];
+        final var serverToClientKey = new byte[cipher.keyLength()];
+        random.nextBytes(clientToServerKey);
+        random.nextBytes(serverToClientKey);
+        clientCipher = new Smb2PacketCipher(cipher, clientToServerKey, serverToClientKey);
+        final var serverCipher = new Smb2PacketCipher(cipher, serverToClientKey, clientToServerKey);
+
+        final var content = new byte[payloadSize];
+        random.nextBytes(content);
+        payload = PooledByteBufAllocator.DEFAULT.directBuffer(payloadSize).writeBytes(content);
+
+        final var response = new Smb2ReadResponse();
+        response.header().setFlags(new Flags<>());
+        response.header().setSessionId(SESSION_ID);
+        response.setData(payload.retainedSlice());
+        plainFrame = PooledByteBufAllocator.DEFAULT.directBuffer(payloadSize + 256);
+        Smb2CodecUtils.encodeResponse(response, plainFrame, Smb2Dialect.SMB3_1_1);
+
+        encryptedFrame = PooledByteBufAllocator.DEFAULT.directBuffer(payloadSize + 256);
+        encryptedFrame.writeZero(Smb2PacketCipher.TRANSFORM_HEADER_LENGTH);
+        Smb2CodecUtils.encodeResponse(response, encryptedFrame, Smb2Dialect.SMB3_1_1);
+        serverCipher.encrypt(encryptedFrame, 0, SESSION_ID);
+        response.data().release();
+
+        frame = PooledByteBufAllocator.DEFAULT.directBuffer(encryptedFrame.capacity());
+        output = PooledByteBufAllocator.DEFAULT.directBuffer(payloadSize + 256);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetFrame() {
+        // decryption is performed in place, so the frame received is restored for each invocation
+        frame.clear().writeBytes(encryptedFrame, 0, encryptedFrame.writerIndex());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        payload.release();
+        plainFrame.release();
+        encryptedFrame.release();
+        frame.release();
+        output.release();
+    }
+
+    @Benchmark
+    public int plainRead() {
+        return decodeRead(plainFrame.duplicate());
+    }
+
+    @Benchmark
+    public int encryptedRead() {
+        final var decrypted = clientCipher.decrypt(frame);
+        try {
+            return decodeRead(decrypted);
+        } finally {
+            decrypted.release();
+        }
+    }
+
+    @Benchmark
+    public int encryptedWrite() {
+        final var request = new Smb2WriteRequest();
+        request.header().setFlags(new Flags<>());
+        request.header().setSessionId(SESSION_ID);
+        request.setFileId(UUID.randomUUID());
+        request.setFlags(new Flags<>());
+        request.setData(payload.duplicate());
+        output.clear().writeZero(Smb2PacketCipher.TRANSFORM_HEADER_LENGTH);
+        Smb2CodecUtils.encodeRequest(request, output, Smb2Dialect.SMB3_1_1);
+        clientCipher.encrypt(output, 0, SESSION_ID);
+        return output.writerIndex();
+    }
+
+    private static int decodeRead(final ByteBuf byteBuf) {
+        final var response = (Smb2ReadResponse) Smb2CodecUtils.decodeResponse(byteBuf, Smb2Dialect.SMB3_1_1);
+        final var length = response.data().readableBytes();
+        response.data().release();
+        return length;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.util.Arrays;
+import javax.crypto.Mac;
+
+/**
+ * Previous implementation of SMB2 message signing (message copy, single MAC instance guarded by lock),
+ * kept as a baseline for comparison.
+ */
+final class LegacyPacketSigner {
+    private static final int SIGNATURE_OFFSET = 48;
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final byte[] EMPTY_SIGNATURE = new byte[SIGNATURE_LENGTH];
+
+    private final Mac mac;
+
+    LegacyPacketSigner(final Mac mac) {
+        this.mac = mac;
+    }
+
+    void signOutbound(final ByteBuf byteBuf) {
+        byteBuf.setBytes(SIGNATURE_OFFSET, getSignature(byteBuf));
+    }
+
+    private byte[] getSignature(final ByteBuf byteBuf) {
+        final var bytes = ByteBufUtil.getBytes(byteBuf);
+        System.arraycopy(EMPTY_SIGNATURE, 0, bytes, SIGNATURE_OFFSET, SIGNATURE_LENGTH);
+        synchronized (mac) {
+            mac.reset();
+            mac.update(bytes);
+            final var signature = mac.doFinal();
+            return signature.length == SIGNATURE_LENGTH ? signature : Arrays.copyOf(signature, SIGNATURE_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Previous (synchronized) implementation of SMB2 message ID sequencer, kept as a baseline for comparison.
+ */
+final class LegacySequenceWindow {
+    private final AtomicLong nextMessageId = new AtomicLong(0);
+    private final AtomicLong maxMessageId = new AtomicLong(0);
+
+    synchronized Optional<Long> nextMessageId(final int charged) {
+        if (nextMessageId.get() <= maxMessageId.get()) {
+            return Optional.of(charged > 0 ? nextMessageId.getAndAdd(charged) : nextMessageId.getAndIncrement());
+        }
+        return Optional.empty();
+    }
+
+    void acceptGranted(final int granted) {
+        if (granted > 0) {
+            maxMessageId.addAndGet(granted);
+        }
+    }
+}
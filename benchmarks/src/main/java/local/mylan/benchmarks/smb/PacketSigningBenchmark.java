@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.SecurityUtils;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketSigner;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures SMB2 message signing and verification throughput. Signer is shared by all the threads
+ * as it is shared by all the event loops serving a session; messages reside in pooled direct buffers
+ * as they are received from network.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketSigningBenchmark {
+
+    @Param({"HMAC-SHA256", "AES-CMAC"})
+    String algorithm;
+
+    @Param({"65536", "1048576"})
+    int messageSize;
+
+    private Smb2PacketSigner signer;
+    private LegacyPacketSigner legacySigner;
+
+    @Setup
+    public void setup() {
+        final var key = new byte[16];
+        new Random(0).nextBytes(key);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionKey(key);
+        sessDetails.setSigningKey(key);
+        if ("AES-CMAC".equals(algorithm)) {
+            signer = new Smb2PacketSigner(Smb2Dialect.SMB3_0, sessDetails);
+            legacySigner = new LegacyPacketSigner(SecurityUtils.macInstance("AESCMAC", "AES", key));
+        } else {
+            signer = new Smb2PacketSigner(Smb2Dialect.SMB2_1, sessDetails);
+            legacySigner = new LegacyPacketSigner(SecurityUtils.macInstance("HMac-SHA256", key));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Message {
+        ByteBuf byteBuf;
+
+        @Setup(Level.Trial)
+        public void setup(final PacketSigningBenchmark benchmark) {
+            final var content = new byte[benchmark.messageSize];
+            new Random(1).nextBytes(content);
+            byteBuf = PooledByteBufAllocator.DEFAULT.directBuffer(content.length);
+            byteBuf.writeBytes(content);
+            benchmark.signer.signOutbound(byteBuf);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            byteBuf.release();
+        }
+    }
+
+    @Benchmark
+    public void sign(final Message message) {
+        signer.signOutbound(message.byteBuf);
+    }
+
+    @Benchmark
+    public boolean verify(final Message message) {
+        return signer.verifyInboundSignature(message.byteBuf);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void signParallel(final Message message) {
+        signer.signOutbound(message.byteBuf);
+    }
+
+    @Benchmark
+    public void legacySign(final Message message) {
+        legacySigner.signOutbound(message.byteBuf);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void legacySignParallel(final Message message) {
+        legacySigner.signOutbound(message.byteBuf);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.benchmarks.smb;
+
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.protocol.details.SequenceWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares synchronized and lock-free SMB2 message ID sequencers under contention. Caller threads reserve
+ * message IDs for outgoing requests, event-loop threads complete responses and return credits.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class SequenceWindowBenchmark {
+    private static final int INITIAL_CREDITS = 8192;
+
+    @Param({"1", "8"})
+    int charge;
+
+    private LegacySequenceWindow legacyWindow;
+    private SequenceWindow window;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        legacyWindow = new LegacySequenceWindow();
+        legacyWindow.acceptGranted(INITIAL_CREDITS);
+        window = new SequenceWindow();
+        window.acceptGranted(INITIAL_CREDITS);
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(6)
+    public Object legacyCaller() {
+        return legacyWindow.nextMessageId(charge);
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(2)
+    public void legacyEventLoop() {
+        legacyWindow.acceptGranted(charge);
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(6)
+    public long lockFreeCaller() {
+        final long messageId = window.nextMessageId(charge);
+        if (messageId != SequenceWindow.NO_MESSAGE_ID) {
+            // includes outstanding ID tracking cost, absent in legacy implementation
+            window.complete(messageId, charge);
+        }
+        return messageId;
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(2)
+    public void lockFreeEventLoop() {
+        window.acceptGranted(charge);
+    }
+}
@@ -34,6 +34,24 @@ public interface DeviceAccessor {
 
     NavDirectory listDirectory(Device device, HavingCredentials creds, String path);
 
+    /**
+     * Starts watching the directory for changes, so the directory content cached by the caller can be
+     * invalidated on change instead of expiring by time.
+     *
+     * @param device the device
+     * @param creds the credentials
+     * @param path the directory path
+     * @param onChange invoked when the directory content is changed
+     * @param onStop invoked once watching is terminated, either closed or failed (e.g. connection is lost),
+     *     changes occurred after are not reported
+     * @return watch handle, closing it stops watching; null if watching is not supported for the directory
+     */
+    @Nullable
+    default AutoCloseable watchDirectory(final Device device, final HavingCredentials creds, final String path,
+        final Runnable onChange, final Runnable onStop) {
+        return null;
+    }
+
     default void stop(){
     }
 }
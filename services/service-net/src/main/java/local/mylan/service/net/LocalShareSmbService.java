@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.service.net;
+
+import static java.util.stream.Collectors.toMap;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import local.mylan.common.utils.ConfUtils;
+import local.mylan.service.api.NavResourceService;
+import local.mylan.service.api.model.NavResourceShare;
+import local.mylan.transport.smb.SmbServer;
+import local.mylan.transport.smb.SmbServerConf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports the shared resources of local account over SMB2. Shares are resolved on tree connect,
+ * so the changes of shared resources take effect with no server restart.
+ */
+public class LocalShareSmbService {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalShareSmbService.class);
+
+    private final SmbServerConf conf;
+    private final NavResourceService navResourceService;
+    private final SmbServer server;
+
+    public LocalShareSmbService(final Path confDir, final NavResourceService navResourceService) {
+        this(ConfUtils.loadConfiguration(SmbServerConf.class, confDir), navResourceService);
+    }
+
+    public LocalShareSmbService(final SmbServerConf conf, final NavResourceService navResourceService) {
+        this.conf = conf;
+        this.navResourceService = navResourceService;
+        server = new SmbServer(conf, this::localShares);
+    }
+
+    public void start() {
+        if (conf.enabled()) {
+            try {
+                server.start();
+            } catch (IllegalStateException e) {
+                LOG.error("SMB server is not started", e);
+            }
+        } else {
+            LOG.info("SMB server is disabled");
+        }
+    }
+
+    public void stop() {
+        server.stop();
+    }
+
+    private Map<String, Path> localShares() {
+        final var localAccount = navResourceService.getLocalAccount();
+        if (localAccount == null) {
+            return Map.of();
+        }
+        return navResourceService.getAllSharedResources().stream()
+            .filter(share -> Objects.equals(share.getAccountId(), localAccount.getAccountId()))
+            .collect(toMap(NavResourceShare::getName, share -> Path.of(share.getPath()), (first, second) -> first));
+    }
+}
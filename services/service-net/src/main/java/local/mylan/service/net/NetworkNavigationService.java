@@ -20,19 +20,24 @@ import static java.util.stream.Collectors.toMap;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import local.mylan.common.utils.ConfUtils;
 import local.mylan.service.api.DeviceAccessor;
 import local.mylan.service.api.NavResourceService;
@@ -67,9 +72,12 @@ public final class NetworkNavigationService implements NavigationService {
         return byDevice == 0 ? CharSequence.compare(a.getUsername(), b.getUsername()) : byDevice;
     };
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
     private final NetworkNavigationServiceConf conf;
     private final Cache<NavKey, NavDirectory> navDirectoryCache;
+    private final boolean dirWatchEnabled;
+    // access ordered, the least recently used watches are closed first on limit exceeded
+    private final Map<NavKey, AutoCloseable> dirWatches = new LinkedHashMap<>(16, 0.75f, true);
 
     private final NavResourceService navResourceService;
     private final Set<String> pendingOnlineDeviceIdentifiers = ConcurrentHashMap.newKeySet();
@@ -90,15 +98,27 @@ public final class NetworkNavigationService implements NavigationService {
 
         this.navResourceService = navResourceService;
         this.conf = conf;
+        // delayed invalidations are irrelevant after stop
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         accessorsMap = accessors.stream().collect(toMap(DeviceAccessor::protocol, accr -> accr));
 
         notificationService.registerEventListener(DiscoveryDevicesEvent.class, this::onDiscovery);
         notificationService.registerEventListener(DeviceCrudEvent.class, this::onDeviceCrud);
         notificationService.registerEventListener(DeviceAccountCrudEvent.class, this::onDeviceAccountCrud);
 
+        // watched directories are invalidated on change, so these can be cached much longer
+        dirWatchEnabled = conf.dirCacheEnabled() && conf.dirWatchEnabled() && conf.dirWatchMaxCount() > 0;
         navDirectoryCache = CacheBuilder.newBuilder()
             .maximumSize(conf.dirCacheMaxSize())
-            .expireAfterWrite(Duration.ofSeconds(conf.dirCacheExpireSeconds()))
+            .expireAfterWrite(Duration.ofSeconds(
+                dirWatchEnabled ? conf.dirWatchCacheExpireSeconds() : conf.dirCacheExpireSeconds()))
+            .removalListener((RemovalListener<NavKey, NavDirectory>) notification -> {
+                // entry invalidated on change is to be re-read, the watch is kept
+                if (notification.getCause() != RemovalCause.EXPLICIT
+                    && notification.getCause() != RemovalCause.REPLACED) {
+                    unwatchDirectory(notification.getKey());
+                }
+            })
             .build();
         loadCaches();
         LOG.info("Initialized.");
@@ -307,7 +327,11 @@ public final class NetworkNavigationService implements NavigationService {
             final var key = new NavKey(account.getAccountId(),
                 path == null || path.isEmpty() || "/".equals(path) ? "" : path);
             try {
-                return copyDirectory(navDirectoryCache.get(key, () -> accessor.listDirectory(device, account, path)));
+                return copyDirectory(navDirectoryCache.get(key, () -> {
+                    // watch is started prior to listing, so changes made during listing are not missed
+                    watchDirectory(key, accessor, device, account, path);
+                    return accessor.listDirectory(device, account, path);
+                }));
             } catch (ExecutionException e) {
                 throw new IllegalStateException(e);
             }
@@ -315,6 +339,76 @@ public final class NetworkNavigationService implements NavigationService {
         return accessor.listDirectory(device, account, path);
     }
 
+    private void watchDirectory(final NavKey key, final DeviceAccessor accessor, final Device device,
+        final DeviceAccountWithCredentials account, final String path) {
+
+        if (!dirWatchEnabled) {
+            return;
+        }
+        synchronized (dirWatches) {
+            if (dirWatches.get(key) != null) {
+                return;
+            }
+        }
+        final var watchRef = new AtomicReference<AutoCloseable>();
+        AutoCloseable watch = null;
+        try {
+            watch = accessor.watchDirectory(device, account, path,
+                () -> navDirectoryCache.invalidate(key), () -> onWatchStop(key, watchRef.get()));
+        } catch (RuntimeException e) {
+            LOG.debug("Could not watch directory {}", path, e);
+        }
+        if (watch == null) {
+            // not watched entry expires as usual
+            executor.schedule(() -> navDirectoryCache.invalidate(key), conf.dirCacheExpireSeconds(), TimeUnit.SECONDS);
+            return;
+        }
+        watchRef.set(watch);
+        final var evicted = new ArrayList<AutoCloseable>();
+        synchronized (dirWatches) {
+            final var replaced = dirWatches.put(key, watch);
+            if (replaced != null) {
+                evicted.add(replaced);
+            }
+            final var it = dirWatches.values().iterator();
+            while (dirWatches.size() > conf.dirWatchMaxCount()) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        evicted.forEach(NetworkNavigationService::closeWatch);
+    }
+
+    /**
+     * Watch is stopped (closed or failed), the changes are no longer tracked, so the cached entry is dropped.
+     */
+    private void onWatchStop(final NavKey key, final AutoCloseable watch) {
+        synchronized (dirWatches) {
+            if (watch != null) {
+                dirWatches.remove(key, watch);
+            }
+        }
+        navDirectoryCache.invalidate(key);
+    }
+
+    private void unwatchDirectory(final NavKey key) {
+        final AutoCloseable watch;
+        synchronized (dirWatches) {
+            watch = dirWatches.remove(key);
+        }
+        closeWatch(watch);
+    }
+
+    private static void closeWatch(final AutoCloseable watch) {
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                LOG.debug("Error closing directory watch", e);
+            }
+        }
+    }
+
     private static NavDirectory copyDirectory(final NavDirectory dir) {
         final var subdirs = dir.getSubDirs() == null ? null :
             dir.getSubDirs().stream().map(sd -> new NavDirectory(sd.getName())).toList();
@@ -331,6 +425,12 @@ public final class NetworkNavigationService implements NavigationService {
     @Override
     public void stop() {
         executor.shutdown();
+        final List<AutoCloseable> watches;
+        synchronized (dirWatches) {
+            watches = List.copyOf(dirWatches.values());
+            dirWatches.clear();
+        }
+        watches.forEach(NetworkNavigationService::closeWatch);
         accessorsMap.values().forEach(DeviceAccessor::stop);
         navDirectoryCache.cleanUp();
         LOG.info("Stopped.");
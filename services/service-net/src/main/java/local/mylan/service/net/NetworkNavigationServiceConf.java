@@ -29,4 +29,17 @@ public @interface NetworkNavigationServiceConf {
 
     @ConfProperty("dir.cache.expire")
     long dirCacheExpireSeconds() default 600;
+
+    /**
+     * If enabled the directories cached are watched for changes, so the cache entry is invalidated on change.
+     * Watched entries are kept for {@link #dirWatchCacheExpireSeconds()}, others expire as usual.
+     */
+    @ConfProperty("dir.watch.enabled")
+    boolean dirWatchEnabled() default true;
+
+    @ConfProperty("dir.watch.max-count")
+    int dirWatchMaxCount() default 64;
+
+    @ConfProperty("dir.watch.cache-expire")
+    long dirWatchCacheExpireSeconds() default 14400;
 }
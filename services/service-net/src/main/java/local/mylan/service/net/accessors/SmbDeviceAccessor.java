@@ -17,10 +17,16 @@ package local.mylan.service.net.accessors;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import local.mylan.service.api.DeviceAccessor;
 import local.mylan.service.api.exceptions.NoConnectionException;
@@ -44,6 +50,10 @@ public class SmbDeviceAccessor implements DeviceAccessor {
     private final int connTimeout = 2;
     private final int sessTimeout = 5;
     private final int opTimeout = 60;
+    // NTLM keys are derived once per account, validations and reconnects reuse them;
+    // the cache is keyed by password digest, so no plaintext password is retained
+    private final Cache<CredentialsKey, UserCredentials> credentials = CacheBuilder.newBuilder()
+        .maximumSize(256).expireAfterAccess(1, TimeUnit.HOURS).build();
 
     public SmbDeviceAccessor(final Path confDir) {
         probeClient = new SmbClient(confDir);
@@ -80,7 +90,7 @@ public class SmbDeviceAccessor implements DeviceAccessor {
         try {
             final var conn = probeClient.connect(getInetAddress(device)).get(connTimeout, SECONDS);
             try {
-                final var session = conn.newSession(credentials(creds)).get(sessTimeout, SECONDS);
+                final var session = conn.newSession(hashedCredentials(creds)).get(sessTimeout, SECONDS);
                 session.close();
                 return DeviceAccountState.VALID;
             } catch (Exception e) {
@@ -99,14 +109,12 @@ public class SmbDeviceAccessor implements DeviceAccessor {
         final var sharePath = SmbUtils.sharePath(path);
         try {
             if (sharePath.shareName().isEmpty()) {
-                final var shareNames = session.shareNames(true).get(opTimeout, SECONDS);
+                final var shareNames = session.shareNames(false).get(opTimeout, SECONDS);
                 return SmbUtils.navDirFromShareNames(shareNames);
             }
             final var tree = session.getOrConnectTree(sharePath.shareName()).get(opTimeout, SECONDS);
-            final var open = tree.openFile(sharePath.subPath()).get(opTimeout, SECONDS);
             // FIXME limit by qty
-            final var files = open.queryDirectory().get(opTimeout, SECONDS);
-            open.close();
+            final var files = tree.listDirectory(sharePath.subPath()).get(opTimeout, SECONDS);
             return SmbUtils.navDirFromFileInfo(files);
 
         } catch (ExecutionException | TimeoutException | InterruptedException e) {
@@ -114,10 +122,31 @@ public class SmbDeviceAccessor implements DeviceAccessor {
         }
     }
 
+    @Override
+    public AutoCloseable watchDirectory(final Device device, final HavingCredentials creds, final String path,
+        final Runnable onChange, final Runnable onStop) {
+
+        final var sharePath = SmbUtils.sharePath(path);
+        if (sharePath.shareName().isEmpty()) {
+            // share list has no change notification
+            return null;
+        }
+        final var session = getSession(device, creds);
+        try {
+            final var tree = session.getOrConnectTree(sharePath.shareName()).get(opTimeout, SECONDS);
+            final var watch = tree.watchDirectory(sharePath.subPath(), false, changes -> onChange.run())
+                .get(opTimeout, SECONDS);
+            watch.closeFuture().addListener(onStop, MoreExecutors.directExecutor());
+            return watch;
+        } catch (ExecutionException | TimeoutException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private Session getSession(final Device device, final HavingCredentials creds) {
         try {
             final var conn = accessClient.getOrCreateConnection(getInetAddress(device)).get(connTimeout, SECONDS);
-            return conn.getOrCreateSession(credentials(creds)).get(sessTimeout, SECONDS);
+            return conn.getOrCreateSession(hashedCredentials(creds)).get(sessTimeout, SECONDS);
         } catch (ExecutionException e) {
             final var cause = e.getCause();
             if (cause instanceof SmbSessionSetupException || cause instanceof SmbAuthorizationException) {
@@ -131,7 +160,8 @@ public class SmbDeviceAccessor implements DeviceAccessor {
 
     @Override
     public void stop() {
-        accessClient.details().connections().forEach((id, conn) -> conn.close());
+        accessClient.close();
+        probeClient.close();
     }
 
     private static InetAddress getInetAddress(final Device device) {
@@ -141,17 +171,15 @@ public class SmbDeviceAccessor implements DeviceAccessor {
         return InetAddresses.forString(device.getIpAddresses().getFirst().getIpAddress());
     }
 
-    private static UserCredentials credentials(final HavingCredentials havingCredentials) {
-        return new UserCredentials() {
-            @Override
-            public String username() {
-                return havingCredentials.getUsername();
-            }
+    private UserCredentials hashedCredentials(final HavingCredentials havingCredentials) {
+        final var username = havingCredentials.getUsername();
+        final var password = havingCredentials.getPassword();
+        final var passwordDigest = password == null ? null
+            : Hashing.sha256().hashString(password, StandardCharsets.UTF_8).toString();
+        return credentials.asMap().computeIfAbsent(new CredentialsKey(username, passwordDigest),
+            key -> UserCredentials.hashed(username, null, password));
+    }
 
-            @Override
-            public String password() {
-                return havingCredentials.getPassword();
-            }
-        };
+    private record CredentialsKey(String username, String passwordDigest) {
     }
 }
@@ -36,6 +36,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
@@ -111,8 +113,12 @@ class NetworkNavigationServiceTest {
     DeviceAccessor accessor;
     @Mock
     NavResourceService navResourceService;
+    @Mock
+    AutoCloseable dirWatch;
     @Captor
     ArgumentCaptor<List<Device>> deviceListCaptor;
+    @Captor
+    ArgumentCaptor<Runnable> onChangeCaptor;
 
     TestNotificationService notificationService;
     NavigationService service;
@@ -317,4 +323,38 @@ class NetworkNavigationServiceTest {
         // TODO add shares and bookmarks identified
         assertNavDirectory(dir, result, DIR_PATH, Map.of(), Map.of());
     }
+
+    @Test
+    void readDirCachedUntilChanged() throws Exception {
+        // setup device, account etc
+        final var device = device(DEVICE_ID1, DEVICE_NAME1, SMB, List.of(IP1), null);
+        final var account = accountWithCreds(ACCOUNT_ID1, USER_ID1, DEVICE_ID1, USERNAME1, PASSWORD1, null);
+        doReturn(List.of(device)).when(navResourceService).getAllDevices();
+        doReturn(List.of(account)).when(navResourceService).getAllAccountsWithCredentials();
+
+        // accessor
+        doReturn(SMB).when(accessor).protocol();
+        doReturn(VALID).when(accessor).validateCredentials(device, account);
+        final var dir = new NavDirectory(List.of(new NavDirectory(SUBDIR1)), List.of());
+        doReturn(dir).when(accessor).listDirectory(device, account, DIR_PATH);
+        doReturn(dirWatch).when(accessor)
+            .watchDirectory(eq(device), eq(account), eq(DIR_PATH), onChangeCaptor.capture(), any());
+
+        // test
+        service = new NetworkNavigationService(navResourceService, notificationService, List.of(accessor), CONF);
+        service.readDeviceDirectoryByAccount(USER_ID1, ACCOUNT_ID1, DIR_PATH);
+        service.readDeviceDirectoryByAccount(USER_ID1, ACCOUNT_ID1, DIR_PATH);
+        verify(accessor, times(1)).listDirectory(device, account, DIR_PATH);
+
+        // change notified, directory is re-read using same watch
+        onChangeCaptor.getValue().run();
+        service.readDeviceDirectoryByAccount(USER_ID1, ACCOUNT_ID1, DIR_PATH);
+        verify(accessor, times(2)).listDirectory(device, account, DIR_PATH);
+        verify(accessor, times(1)).watchDirectory(eq(device), eq(account), eq(DIR_PATH), any(), any());
+
+        // watch is closed on service stop
+        service.stop();
+        service = null;
+        verify(dirWatch).close();
+    }
 }
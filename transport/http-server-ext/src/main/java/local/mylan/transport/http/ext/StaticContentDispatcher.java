@@ -19,7 +19,6 @@ import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpHeaderNames.ETAG;
 import static io.netty.handler.codec.http.HttpHeaderNames.IF_NONE_MATCH;
-import static io.netty.handler.codec.http.HttpHeaderNames.TRANSFER_ENCODING;
 import static io.netty.handler.codec.http.HttpHeaderValues.APPLICATION_OCTET_STREAM;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
@@ -34,17 +33,27 @@ import static local.mylan.transport.http.common.utils.ResponseUtils.unsupportedM
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.HttpChunkedInput;
-import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedNioFile;
 import io.netty.handler.stream.ChunkedStream;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -62,7 +71,7 @@ public class StaticContentDispatcher implements ContextDispatcher {
     private static final int CACHE_ITEM_MAX_LENGTH = 2048;
     private static final Duration CACHE_EXPIRES = Duration.ofMinutes(10);
     private static final ContentSource NO_CONTENT = new ContentSource(0, 0, "", "", null, null);
-    private static final int CHUNK_SIZE = 8192;
+    private static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
 
     protected final String contextPath;
     protected final String resourceBase;
@@ -70,6 +79,7 @@ public class StaticContentDispatcher implements ContextDispatcher {
     private final Cache<String, ContentSource> cache;
     private final Map<String, Map<String, String>> substituteMaps = new HashMap<>();
     private boolean checkFileUpdates;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
 
     public StaticContentDispatcher(final String contextPath, final String resourceBase) {
         this(contextPath, resourceBase, SourceType.CLASSPATH);
@@ -95,6 +105,19 @@ public class StaticContentDispatcher implements ContextDispatcher {
         checkFileUpdates = enabled;
     }
 
+    /**
+     * Sets the size of chunks the content is streamed with when it cannot be sent as a file region
+     * (TLS connections, classpath resources). Content not exceeding the chunk size is sent as a single piece.
+     *
+     * @param chunkSize chunk size in bytes
+     */
+    public void setChunkSize(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive, got " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
     @Override
     public String contextPath() {
         return contextPath;
@@ -139,29 +162,19 @@ public class StaticContentDispatcher implements ContextDispatcher {
         } else if (source.content() != null) {
             ctx.sendResponse(response.replace(Unpooled.wrappedBuffer(source.content)));
         } else if (source.streamProvider() != null) {
-            final var channelCtx = ctx.channelHandlerContext();
-            if (source.length() <= CHUNK_SIZE) {
+            if (source.length() <= chunkSize) {
                 // send as single piece
                 final var length = (int) source.length();
                 try (var in = source.streamProvider().getInputStream()) {
-                    final var buf = channelCtx.alloc().buffer((int) source.length());
+                    final var buf = ctx.channelHandlerContext().alloc().buffer(length);
                     buf.writeBytes(in, length);
                     ctx.sendResponse(response.replace(buf));
                 } catch (IOException e) {
-                    throw new IllegalStateException("Error reading resouece {}", e);
+                    throw new IllegalStateException("Error reading resource " + path, e);
                 }
             } else {
-                // send as chunk sequence
-                try {
-                    final var responseHeaders = new DefaultHttpResponse(ctx.protocolVersion(), OK, response.headers());
-                    responseHeaders.headers().set(TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
-                    final var chunkedInput = new HttpChunkedInput(
-                        new ChunkedStream(source.streamProvider.getInputStream(), CHUNK_SIZE));
-                    channelCtx.write(responseHeaders);
-                    sendNextChunk(channelCtx, chunkedInput, path, 0);
-                } catch (Exception e) {
-                    throw new IllegalStateException("Error building stream for resource" + path, e);
-                }
+                final var responseHeaders = new DefaultHttpResponse(ctx.protocolVersion(), OK, response.headers());
+                sendLargeContent(ctx.channelHandlerContext(), responseHeaders, source, path);
             }
         } else {
             throw new IllegalStateException("No content found for resource " + path);
@@ -242,26 +255,56 @@ public class StaticContentDispatcher implements ContextDispatcher {
         return "%s-%s".formatted(Long.toHexString(modified), Long.toHexString(length));
     }
 
-    private static void sendNextChunk(final ChannelHandlerContext channelCtx, final HttpChunkedInput chunkedInput,
-        final String resourcePath, int chunkCount) {
-        try {
-            final var nextChunk = chunkedInput.readChunk(channelCtx.alloc());
-            if (nextChunk == null) {
-                LOG.debug("Chunked file transfer completed for resource {}.", resourcePath);
-                chunkedInput.close();
+    /**
+     * Sends the content exceeding chunk size. Plain TCP responses from file system are sent as file region,
+     * so the data is transferred by the kernel (sendfile) with no copy to user space. Otherwise the content
+     * is streamed by {@link ChunkedWriteHandler}, which reads the next chunk only when the channel is writable,
+     * so the memory used per response is limited by the channel write buffer regardless of the content length.
+     */
+    private void sendLargeContent(final ChannelHandlerContext channelCtx, final HttpResponse responseHeaders,
+        final ContentSource source, final String path) {
+
+        final var file = type == SourceType.FILE_SYSTEM ? new File(resourceBase + path) : null;
+        final ChannelFuture future;
+        if (file != null && channelCtx.pipeline().get(SslHandler.class) == null) {
+            channelCtx.write(responseHeaders);
+            channelCtx.write(new DefaultFileRegion(file, 0, source.length()));
+            future = channelCtx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            final ChunkedInput<ByteBuf> input;
+            try {
+                input = file != null ? chunkedFile(file, source.length())
+                    : new ChunkedStream(source.streamProvider().getInputStream(), chunkSize);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error building stream for resource " + path, e);
+            }
+            if (channelCtx.pipeline().get(ChunkedWriteHandler.class) == null) {
+                channelCtx.pipeline().addBefore(channelCtx.name(), null, new ChunkedWriteHandler());
+            }
+            channelCtx.write(responseHeaders);
+            future = channelCtx.writeAndFlush(new HttpChunkedInput(input));
+        }
+        future.addListener(result -> {
+            if (result.isSuccess()) {
+                LOG.debug("Content transfer completed for resource {}", path);
             } else {
-                LOG.trace("Sending chunk {} for resource {}", chunkCount, resourcePath);
-                channelCtx.writeAndFlush(nextChunk).addListener(future -> {
-                    if (future.isSuccess()) {
-                        sendNextChunk(channelCtx, chunkedInput, resourcePath, chunkCount + 1);
-                    } else {
-                        LOG.error("Sending chunk failed for resource {}", resourcePath, future.cause());
-                        chunkedInput.close();
-                    }
-                });
+                LOG.warn("Content transfer failed for resource {}", path, result.cause());
+                channelCtx.close();
             }
-        } catch (Exception e) {
-            LOG.error("Exception processing chunk for resource {}", resourcePath, e);
+        });
+    }
+
+    /**
+     * Returns the file content input bounded by the length cached, so the data sent matches Content-Length
+     * even if the file was appended after the content source was loaded.
+     */
+    private ChunkedInput<ByteBuf> chunkedFile(final File file, final long length) throws IOException {
+        final var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ChunkedNioFile(channel, 0, length, chunkSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
         }
     }
 
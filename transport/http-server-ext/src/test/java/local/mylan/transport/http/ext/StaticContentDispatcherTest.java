@@ -15,6 +15,7 @@
  */
 package local.mylan.transport.http.ext;
 
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpHeaderNames.ETAG;
 import static io.netty.handler.codec.http.HttpHeaderNames.IF_NONE_MATCH;
 import static io.netty.handler.codec.http.HttpHeaderValues.APPLICATION_OCTET_STREAM;
@@ -27,17 +28,31 @@ import static local.mylan.transport.http.common.HttpTestUtils.httpRequest;
 import static local.mylan.transport.http.common.HttpTestUtils.setupChannel;
 import static local.mylan.transport.http.ext.StaticContentDispatcher.SourceType.FILE_SYSTEM;
 
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import javax.net.ssl.SSLContext;
 import local.mylan.transport.http.common.HttpTestUtils;
 import local.mylan.transport.http.common.api.ContextDispatcher;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -50,6 +65,10 @@ class StaticContentDispatcherTest {
     private static final byte[] TEXT_FILE_CONTENT = "text content".getBytes(UTF_8);
     private static final String BIN_FILE_NAME = "test-file.bin";
     private static final byte[] BIN_FILE_CONTENT = "bin content".getBytes(UTF_8);
+    private static final String LARGE_FILE_NAME = "large-file.bin";
+    private static final byte[] LARGE_FILE_CONTENT = new byte[300_000];
+    private static final String LARGE_CLASSPATH_FILE_NAME = "large-file.txt";
+    private static final int CHUNK_SIZE = 1024;
 
     private static final Map<String, String> SUBSTITUTE_MAP = Map.of("${test}", "T", "http://replace-me", "/replaced");
     private static final String SUBSTITUTE_FILE_NAME = "substitute.txt";
@@ -72,6 +91,8 @@ class StaticContentDispatcherTest {
         Files.write(contentDir.resolve(TEXT_FILE_NAME), TEXT_FILE_CONTENT);
         Files.write(contentDir.resolve(BIN_FILE_NAME), BIN_FILE_CONTENT);
         Files.write(contentDir.resolve(SUBSTITUTE_FILE_NAME), SUBSTITUTE_FILE_CONTENT);
+        new Random(0).nextBytes(LARGE_FILE_CONTENT);
+        Files.write(contentDir.resolve(LARGE_FILE_NAME), LARGE_FILE_CONTENT);
         classpathDispatcher = new StaticContentDispatcher(CONTEXT_PATH, CLASSPATH_PATH);
         filesystemDispatcher = new StaticContentDispatcher(CONTEXT_PATH, contentDir.toString(), FILE_SYSTEM);
     }
@@ -106,6 +127,97 @@ class StaticContentDispatcherTest {
         assertResponse(response2, HttpResponseStatus.NOT_MODIFIED);
     }
 
+    @Test
+    void fetchLargeFileAsRegion() throws Exception {
+        final var channel = setupChannel(filesystemDispatcher);
+        channel.writeInbound(httpRequest(GET, CONTEXT_PATH + '/' + LARGE_FILE_NAME));
+        channel.checkException();
+
+        // plain TCP response: headers, file region, last content
+        final var response = Assertions.assertInstanceOf(HttpResponse.class, channel.readOutbound());
+        Assertions.assertEquals(HttpResponseStatus.OK, response.status());
+        Assertions.assertEquals(LARGE_FILE_CONTENT.length, response.headers().getInt(CONTENT_LENGTH));
+        final var region = Assertions.assertInstanceOf(FileRegion.class, channel.readOutbound());
+        final var out = new ByteArrayOutputStream();
+        try (var target = Channels.newChannel(out)) {
+            while (region.transferred() < region.count()) {
+                region.transferTo(target, region.transferred());
+            }
+        } finally {
+            region.release();
+        }
+        Assertions.assertArrayEquals(LARGE_FILE_CONTENT, out.toByteArray());
+        Assertions.assertInstanceOf(LastHttpContent.class, channel.readOutbound());
+    }
+
+    @Test
+    void fetchLargeFileOverTls() throws Exception {
+        final var fileName = "growing-file.bin";
+        final var content = Arrays.copyOf(LARGE_FILE_CONTENT, 100_000);
+        Files.write(contentDir.resolve(fileName), content);
+        final var dispatcher = new StaticContentDispatcher(CONTEXT_PATH, contentDir.toString(), FILE_SYSTEM);
+        dispatcher.setChunkSize(CHUNK_SIZE);
+
+        // file content is streamed in chunks as it can't be sent as file region over TLS
+        Assertions.assertArrayEquals(content, fetchChunked(tlsChannel(dispatcher), fileName));
+
+        // the file is appended after its length is cached, the content sent is bounded by Content-Length
+        Files.write(contentDir.resolve(fileName), new byte[50_000], StandardOpenOption.APPEND);
+        Assertions.assertArrayEquals(content, fetchChunked(tlsChannel(dispatcher), fileName));
+    }
+
+    @Test
+    void fetchLargeClasspathResource() throws Exception {
+        final var expected = Files.readAllBytes(
+            Path.of(getClass().getResource(CLASSPATH_PATH + '/' + LARGE_CLASSPATH_FILE_NAME).toURI()));
+        final var dispatcher = new StaticContentDispatcher(CONTEXT_PATH, CLASSPATH_PATH);
+        dispatcher.setChunkSize(CHUNK_SIZE);
+
+        // classpath resource is streamed in chunks
+        Assertions.assertArrayEquals(expected, fetchChunked(setupChannel(dispatcher), LARGE_CLASSPATH_FILE_NAME));
+    }
+
+    private static EmbeddedChannel tlsChannel(final StaticContentDispatcher dispatcher) throws Exception {
+        final var channel = setupChannel(dispatcher);
+        // only the presence of TLS handler matters, it's placed after dispatching handler so the
+        // response is not encrypted
+        final var engine = SSLContext.getDefault().createSSLEngine();
+        engine.setUseClientMode(false);
+        final var sslHandler = new SslHandler(engine);
+        sslHandler.setHandshakeTimeoutMillis(0);
+        channel.pipeline().addLast(sslHandler);
+        return channel;
+    }
+
+    private static byte[] fetchChunked(final EmbeddedChannel channel, final String fileName) {
+        channel.writeInbound(httpRequest(GET, CONTEXT_PATH + '/' + fileName));
+        channel.checkException();
+
+        // headers, content chunks, last content
+        final var response = Assertions.assertInstanceOf(HttpResponse.class, channel.readOutbound());
+        Assertions.assertEquals(HttpResponseStatus.OK, response.status());
+        final var length = response.headers().getInt(CONTENT_LENGTH);
+        final var out = new ByteArrayOutputStream();
+        var chunks = 0;
+        while (true) {
+            final var chunk = Assertions.assertInstanceOf(HttpContent.class, channel.readOutbound());
+            try {
+                final var bytes = ByteBufUtil.getBytes(chunk.content());
+                Assertions.assertTrue(bytes.length <= CHUNK_SIZE);
+                out.writeBytes(bytes);
+                chunks++;
+            } finally {
+                chunk.release();
+            }
+            if (chunk instanceof LastHttpContent) {
+                break;
+            }
+        }
+        Assertions.assertTrue(chunks > 1);
+        Assertions.assertEquals(length, out.size());
+        return out.toByteArray();
+    }
+
     @ParameterizedTest
     @MethodSource("dispatchers")
     void notFound(final ContextDispatcher dispatcher) {
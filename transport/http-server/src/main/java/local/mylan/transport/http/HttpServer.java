@@ -22,22 +22,16 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollChannelOption;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollServerSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioChannelOption;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerKeepAliveHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import java.nio.file.Path;
 import java.util.concurrent.ThreadFactory;
-import jdk.net.ExtendedSocketOptions;
 import local.mylan.common.utils.ConfUtils;
 import local.mylan.transport.http.common.api.RequestDispatcher;
+import local.mylan.transport.net.api.NettyTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,40 +53,22 @@ public final class HttpServer {
     public void start() {
         final var bootstrap = new ServerBootstrap();
 
-        if (Epoll.isAvailable()) {
-            parrentGroup = new EpollEventLoopGroup(config.parentGroupThreads(),
-                threadFactory(config.parentGroupName()));
-            childGroup = new EpollEventLoopGroup(config.childGroupThreads(),
-                threadFactory(config.childGroupName()));
-            bootstrap.channel(EpollServerSocketChannel.class);
-            if (config.tcpKeepAliveEnabled()) {
-                bootstrap.childOption(ChannelOption.SO_KEEPALIVE, Boolean.TRUE);
-                bootstrap.childOption(EpollChannelOption.TCP_KEEPIDLE, config.tcpKeepAliveIdleTime());
-                bootstrap.childOption(EpollChannelOption.TCP_KEEPCNT, config.tcpKeepAliveRetransmissionCount());
-                bootstrap.childOption(EpollChannelOption.TCP_KEEPINTVL, config.tcpKeepAliveRetransmissionInterval());
-            }
-        } else {
-            parrentGroup = new NioEventLoopGroup(config.parentGroupThreads(),
-                threadFactory(config.parentGroupName()));
-            childGroup = new NioEventLoopGroup(config.childGroupThreads(),
-                threadFactory(config.childGroupName()));
-            bootstrap.channel(NioServerSocketChannel.class);
-            if (config.tcpKeepAliveEnabled()) {
-                bootstrap.childOption(ChannelOption.SO_KEEPALIVE, Boolean.TRUE);
-                bootstrap.childOption(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE),
-                    config.tcpKeepAliveIdleTime());
-                bootstrap.childOption(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE),
-                    config.tcpKeepAliveRetransmissionCount());
-                bootstrap.childOption(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE),
-                    config.tcpKeepAliveRetransmissionInterval());
-            }
+        final var transport = NettyTransport.select(config.transport());
+        parrentGroup = transport.newEventLoopGroup(config.parentGroupThreads(),
+            threadFactory(config.parentGroupName()));
+        childGroup = transport.newEventLoopGroup(config.childGroupThreads(),
+            threadFactory(config.childGroupName()));
+        bootstrap.channel(transport.serverSocketChannelClass());
+        if (config.tcpKeepAliveEnabled()) {
+            transport.setChildKeepAlive(bootstrap, config.tcpKeepAliveIdleTime(),
+                config.tcpKeepAliveRetransmissionCount(), config.tcpKeepAliveRetransmissionInterval());
         }
         bootstrap.group(parrentGroup, childGroup);
         bootstrap.option(ChannelOption.SO_BACKLOG, config.backlogSize());
         bootstrap.childHandler(channelInitializer(sslContext, dispatcher, config.maxContentLength()));
         final int bindPort = sslContext != null ? config.tlsPort() : config.tcpPort();
         bootstrap.bind(bindPort);
-        LOG.info("HTTP server started at port {}", bindPort);
+        LOG.info("HTTP server started at port {} using {} transport", bindPort, transport);
     }
 
     public void stop() {
@@ -121,6 +97,7 @@ public final class HttpServer {
                     new HttpServerCodec(),
                     new HttpObjectAggregator(maxContentLength),
                     new HttpServerKeepAliveHandler(),
+                    new ChunkedWriteHandler(),
                     new DispatcherHandler(dispatcher)
                 );
             }
@@ -17,6 +17,7 @@ package local.mylan.transport.http;
 
 import local.mylan.common.annotations.conf.ConfFile;
 import local.mylan.common.annotations.conf.ConfProperty;
+import local.mylan.transport.net.api.NettyTransport;
 
 @ConfFile("http-server.conf")
 public @interface HttpServerConfig {
@@ -33,6 +34,10 @@ public @interface HttpServerConfig {
     @ConfProperty("netty.child-group.max-threads")
     int childGroupThreads() default 0;
 
+    // io_uring, epoll, nio or auto (the most preferred transport available)
+    @ConfProperty("netty.transport")
+    String transport() default NettyTransport.AUTO;
+
     @ConfProperty("backlog.size")
     int backlogSize() default 1024;
 
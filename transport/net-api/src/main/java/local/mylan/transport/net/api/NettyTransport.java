@@ -0,0 +1,228 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.net.api;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.IoHandlerFactory;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollIoHandler;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.uring.IoUring;
+import io.netty.channel.uring.IoUringChannelOption;
+import io.netty.channel.uring.IoUringIoHandler;
+import io.netty.channel.uring.IoUringServerSocketChannel;
+import io.netty.channel.uring.IoUringSocketChannel;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import jdk.net.ExtendedSocketOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Netty transport shared by client and server bootstraps. Constants are declared in order of preference:
+ * io_uring (batched submission, least syscalls per operation), epoll, then NIO which is available everywhere.
+ * Native transports are only available on Linux, with the native library present on the classpath.
+ */
+public enum NettyTransport {
+    IO_URING {
+        @Override
+        public boolean isAvailable() {
+            return IoUring.isAvailable();
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return IoUring.unavailabilityCause();
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return IoUringIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return IoUringSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+            return IoUringServerSocketChannel.class;
+        }
+
+        @Override
+        Map<ChannelOption<Integer>, Integer> keepAliveOptions(final int idleTime, final int count, final int interval) {
+            return Map.of(IoUringChannelOption.TCP_KEEPIDLE, idleTime, IoUringChannelOption.TCP_KEEPCNT, count,
+                IoUringChannelOption.TCP_KEEPINTVL, interval);
+        }
+    },
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return Epoll.unavailabilityCause();
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return EpollIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        Map<ChannelOption<Integer>, Integer> keepAliveOptions(final int idleTime, final int count, final int interval) {
+            return Map.of(EpollChannelOption.TCP_KEEPIDLE, idleTime, EpollChannelOption.TCP_KEEPCNT, count,
+                EpollChannelOption.TCP_KEEPINTVL, interval);
+        }
+    },
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return null;
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return NioIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        Map<ChannelOption<Integer>, Integer> keepAliveOptions(final int idleTime, final int count, final int interval) {
+            return Map.of(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), idleTime,
+                NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), count,
+                NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), interval);
+        }
+    };
+
+    /**
+     * Configuration value selecting the most preferred transport available.
+     */
+    public static final String AUTO = "auto";
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyTransport.class);
+
+    public abstract boolean isAvailable();
+
+    abstract Throwable unavailabilityCause();
+
+    abstract IoHandlerFactory ioHandlerFactory();
+
+    public abstract Class<? extends SocketChannel> socketChannelClass();
+
+    public abstract Class<? extends ServerSocketChannel> serverSocketChannelClass();
+
+    abstract Map<ChannelOption<Integer>, Integer> keepAliveOptions(int idleTime, int count, int interval);
+
+    public EventLoopGroup newEventLoopGroup(final int threads, final ThreadFactory threadFactory) {
+        return new MultiThreadIoEventLoopGroup(threads, threadFactory, ioHandlerFactory());
+    }
+
+    /**
+     * Enables TCP keepalive for client connections.
+     *
+     * @param bootstrap client bootstrap
+     * @param idleTime idle time (seconds) before the first keepalive probe is sent
+     * @param count number of unacknowledged probes before the connection is dropped
+     * @param interval interval (seconds) between the probes
+     */
+    public void setKeepAlive(final Bootstrap bootstrap, final int idleTime, final int count, final int interval) {
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, Boolean.TRUE);
+        keepAliveOptions(idleTime, count, interval).forEach(bootstrap::option);
+    }
+
+    /**
+     * Enables TCP keepalive for accepted connections.
+     *
+     * @param bootstrap server bootstrap
+     * @param idleTime idle time (seconds) before the first keepalive probe is sent
+     * @param count number of unacknowledged probes before the connection is dropped
+     * @param interval interval (seconds) between the probes
+     */
+    public void setChildKeepAlive(final ServerBootstrap bootstrap, final int idleTime, final int count,
+        final int interval) {
+        bootstrap.childOption(ChannelOption.SO_KEEPALIVE, Boolean.TRUE);
+        keepAliveOptions(idleTime, count, interval).forEach(bootstrap::childOption);
+    }
+
+    /**
+     * Selects the transport by configured name ({@code io_uring}, {@code epoll}, {@code nio} or {@code auto}).
+     * If the transport requested is not available on the host, the most preferred available one is used instead.
+     *
+     * @param name transport name, case-insensitive; null or blank is treated as {@code auto}
+     * @return transport selected
+     */
+    public static NettyTransport select(final String name) {
+        if (name != null && !name.isBlank() && !AUTO.equalsIgnoreCase(name.trim())) {
+            try {
+                final var requested = valueOf(name.trim().toUpperCase(Locale.ROOT));
+                if (requested.isAvailable()) {
+                    return requested;
+                }
+                LOG.warn("Transport {} is not available, the default is used", requested,
+                    requested.unavailabilityCause());
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unknown transport '{}', the default is used", name);
+            }
+        }
+        for (var transport : values()) {
+            if (transport.isAvailable()) {
+                return transport;
+            }
+        }
+        return NIO;
+    }
+}
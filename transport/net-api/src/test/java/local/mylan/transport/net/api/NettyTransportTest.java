@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.net.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class NettyTransportTest {
+    private static final NettyTransport BEST_AVAILABLE = Arrays.stream(NettyTransport.values())
+        .filter(NettyTransport::isAvailable).findFirst().orElseThrow();
+
+    @ParameterizedTest
+    @EnumSource(NettyTransport.class)
+    void selectRequested(final NettyTransport transport) {
+        // requested but unavailable transport falls back to the best available one
+        final var expected = transport.isAvailable() ? transport : BEST_AVAILABLE;
+        assertEquals(expected, NettyTransport.select(transport.name()));
+        assertEquals(expected, NettyTransport.select(" " + transport.name().toLowerCase(Locale.ROOT) + " "));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"auto", "AUTO", "", " ", "unknown", "nio2"})
+    void selectDefault(final String name) {
+        assertEquals(BEST_AVAILABLE, NettyTransport.select(name));
+    }
+
+    @Test
+    void selectNull() {
+        assertEquals(BEST_AVAILABLE, NettyTransport.select(null));
+        assertEquals(NettyTransport.NIO, NettyTransport.select("nio"));
+    }
+
+    @Test
+    void nioKeepAlive() {
+        final var bootstrap = new Bootstrap();
+        NettyTransport.NIO.setKeepAlive(bootstrap, 60, 5, 10);
+        final var options = bootstrap.config().options();
+        assertEquals(Boolean.TRUE, options.get(ChannelOption.SO_KEEPALIVE));
+
+        // each of the keepalive parameters is set to its own socket option
+        final var keepAlive = options.entrySet().stream()
+            .filter(entry -> !ChannelOption.SO_KEEPALIVE.equals(entry.getKey()))
+            .collect(Collectors.toMap(entry -> entry.getKey().name(), Map.Entry::getValue));
+        assertEquals(Map.of("TCP_KEEPIDLE", 60, "TCP_KEEPCOUNT", 5, "TCP_KEEPINTERVAL", 10), keepAlive);
+    }
+}
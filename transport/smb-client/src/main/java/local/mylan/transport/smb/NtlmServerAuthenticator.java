@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_128;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_56;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_ALWAYS_SIGN;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_ANONIMOUS;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_EXTENDED_SESSION_SECURITY;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_KEY_EXCHANGE;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_NTLM;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_SEAL;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_SIGN;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_TARGET_INFO;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_NEGOTIATE_UNICODE;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_REQUEST_TARGET;
+import static local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags.NTLMSSP_TARGET_TYPE_SERVER;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Locale;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.details.NtlmMessageSignature;
+import local.mylan.transport.smb.protocol.flows.NtlmAuthMechanism;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionResponseFlags;
+import local.mylan.transport.smb.protocol.spnego.MechListMIC;
+import local.mylan.transport.smb.protocol.spnego.MechType;
+import local.mylan.transport.smb.protocol.spnego.NegState;
+import local.mylan.transport.smb.protocol.spnego.NegTokenResp;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtChallengeResponse;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmAuthenticateMessage;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmAvPairs;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmChallengeMessage;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateFlags;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateMessage;
+
+/**
+ * Server side of NTLM authentication. Addresses MS-NLMP (#3.2.5 Server Receive Message).
+ *
+ * <p>Only the user configured is authenticated (NTLM v2 response is verified against the password). Anonymous
+ * logons are accepted as null session if guest access is allowed, other users are accepted as guest only if
+ * explicitly enabled, otherwise they are rejected. The session key is derived for the user configured only,
+ * guest and anonymous sessions are neither signed nor encrypted.
+ */
+final class NtlmServerAuthenticator {
+    private static final int NT_PROOF_LENGTH = 16;
+    private static final int NTLM_V1_RESPONSE_LENGTH = 24;
+    private static final byte[] MECH_LIST_ENCODED = NtlmAuthMechanism.mechListEncoded(MechType.NTLMSSP);
+    private static final byte[] SERVER_SIGN_MAGIC_CONSTANT =
+        "session key to server-to-client signing key magic constant\u0000".getBytes(US_ASCII);
+    private static final byte[] SERVER_SEAL_MAGIC_CONSTANT =
+        "session key to server-to-client sealing key magic constant\u0000".getBytes(US_ASCII);
+
+    private final SmbServerConf conf;
+    private byte[] serverChallenge;
+    private Flags<NtlmNegotiateFlags> negFlags;
+    private byte[] exportedSessionKey;
+
+    NtlmServerAuthenticator(final SmbServerConf conf) {
+        this.conf = conf;
+    }
+
+    boolean challengeSent() {
+        return serverChallenge != null;
+    }
+
+    /**
+     * Returns the key obtained by authentication (ExportedSessionKey).
+     *
+     * @return session key, null if user is not authenticated or authenticated as guest or anonymous
+     */
+    byte[] sessionKey() {
+        return exportedSessionKey;
+    }
+
+    /**
+     * Builds the CHALLENGE message in response to client NEGOTIATE message.
+     * Addresses MS-NLMP (#3.2.5.1.1 Server Receives a NEGOTIATE_MESSAGE from the Client).
+     *
+     * @param negotiateMsg client NEGOTIATE message
+     * @return token to be sent to the client
+     */
+    NegTokenResp challenge(final NtlmNegotiateMessage negotiateMsg) {
+        final var requested = negotiateMsg.negotiateFlags();
+        serverChallenge = SecurityUtils.nonce(8);
+
+        final var serverName = conf.serverName().toUpperCase(Locale.ROOT);
+        final var targetInfo = new NtlmAvPairs();
+        targetInfo.setNetbiosComputerName(serverName);
+        targetInfo.setNetbiosDomainName(serverName);
+        targetInfo.setDnsComputerName(serverName.toLowerCase(Locale.ROOT));
+        targetInfo.setDnsDomainName(serverName.toLowerCase(Locale.ROOT));
+        targetInfo.setTimestamp(Utils.filetimeFromUnixMillis(System.currentTimeMillis()));
+
+        negFlags = new Flags<NtlmNegotiateFlags>()
+            .set(NTLMSSP_NEGOTIATE_UNICODE, true)
+            .set(NTLMSSP_REQUEST_TARGET, true)
+            .set(NTLMSSP_NEGOTIATE_NTLM, true)
+            .set(NTLMSSP_NEGOTIATE_ALWAYS_SIGN, true)
+            .set(NTLMSSP_TARGET_TYPE_SERVER, true)
+            .set(NTLMSSP_NEGOTIATE_EXTENDED_SESSION_SECURITY, true)
+            .set(NTLMSSP_NEGOTIATE_TARGET_INFO, true)
+            .set(NTLMSSP_NEGOTIATE_SIGN, requested.get(NTLMSSP_NEGOTIATE_SIGN))
+            .set(NTLMSSP_NEGOTIATE_KEY_EXCHANGE, requested.get(NTLMSSP_NEGOTIATE_KEY_EXCHANGE))
+            .set(NTLMSSP_NEGOTIATE_128, requested.get(NTLMSSP_NEGOTIATE_128))
+            .set(NTLMSSP_NEGOTIATE_56, requested.get(NTLMSSP_NEGOTIATE_56))
+            .set(NTLMSSP_NEGOTIATE_ANONIMOUS, conf.guestAccess() && requested.get(NTLMSSP_NEGOTIATE_ANONIMOUS));
+        final var msg = new NtlmChallengeMessage();
+        msg.setNegotiateFlags(new Flags<>(negFlags.asIntValue()));
+        msg.setTargetName(serverName);
+        msg.setServerChallenge(serverChallenge);
+        msg.setTargetInfo(targetInfo);
+
+        final var token = new NegTokenResp();
+        token.setState(NegState.ACCEPT_INCOMPLETE);
+        token.setSupportedMech(MechType.NTLMSSP);
+        token.setMechToken(msg);
+        return token;
+    }
+
+    /**
+     * Validates client AUTHENTICATE message. Addresses MS-NLMP
+     * (#3.2.5.1.2 Server Receives an AUTHENTICATE_MESSAGE from the Client).
+     *
+     * @param authMsg client AUTHENTICATE message
+     * @return session flags if user is authenticated (IS_GUEST or IS_NULL set if accepted as guest
+     *     or anonymous), null if authentication failed
+     */
+    Flags<Smb2SessionResponseFlags> authenticate(final NtlmAuthenticateMessage authMsg) {
+        final var userName = authMsg.userName();
+        final var ntResponse = authMsg.ntChallengeResponse();
+        if ((userName == null || userName.isEmpty()) && ntResponse == null) {
+            return conf.guestAccess()
+                ? new Flags<Smb2SessionResponseFlags>().set(Smb2SessionResponseFlags.SMB2_SESSION_FLAG_IS_NULL, true)
+                : null;
+        }
+        if (!conf.username().isEmpty() && conf.username().equalsIgnoreCase(userName)) {
+            // known user is not downgraded to guest if password does not match
+            return verifyNtlmV2(authMsg, ntResponse) ? new Flags<>() : null;
+        }
+        return conf.guestAccess() && conf.unknownUserAsGuest()
+            ? new Flags<Smb2SessionResponseFlags>().set(Smb2SessionResponseFlags.SMB2_SESSION_FLAG_IS_GUEST, true)
+            : null;
+    }
+
+    /**
+     * Verifies NTProofStr of NTLM v2 response. Addresses MS-NLMP (#3.3.2 NTLM v2 Authentication).
+     * NTLM v1 responses are rejected.
+     */
+    private boolean verifyNtlmV2(final NtlmAuthenticateMessage authMsg, final NtChallengeResponse ntResponse) {
+        if (serverChallenge == null
+            || !(ntResponse instanceof NtChallengeResponse.EncodedNtChallengeResponse encoded)
+            || encoded.bytes().length <= NTLM_V1_RESPONSE_LENGTH) {
+            return false;
+        }
+        final var bytes = encoded.bytes();
+        final var ntProofStr = Arrays.copyOf(bytes, NT_PROOF_LENGTH);
+        final var clientChallenge = Arrays.copyOfRange(bytes, NT_PROOF_LENGTH, bytes.length);
+        final var responseKeyNt = SecurityUtils.ntOwfV2(SecurityUtils.ntOwfV1(conf.password()),
+            authMsg.userName(), authMsg.domainName());
+        final var expected = SecurityUtils.hmacMd5(responseKeyNt, serverChallenge, clientChallenge);
+        if (!MessageDigest.isEqual(expected, ntProofStr)) {
+            return false;
+        }
+        // MS-NLMP (#3.4.5.1 KXKEY): key exchange key is the session base key for NTLM v2
+        final var keyExchangeKey = SecurityUtils.hmacMd5(responseKeyNt, ntProofStr);
+        final var encryptedKey = authMsg.encryptedRandomSessionKey();
+        exportedSessionKey = negFlags.get(NTLMSSP_NEGOTIATE_KEY_EXCHANGE)
+            && (negFlags.get(NTLMSSP_NEGOTIATE_SIGN) || negFlags.get(NTLMSSP_NEGOTIATE_SEAL))
+            && encryptedKey != null && encryptedKey.length == 16
+            ? SecurityUtils.rc4(keyExchangeKey, encryptedKey) : keyExchangeKey;
+        return true;
+    }
+
+    /**
+     * Builds mechListMIC proving the server has the same session key as the client. Addresses MS-NLMP
+     * (#3.4.4.2 With Extended Session Security) and RFC 4178 (#5 Processing of mechListMIC).
+     *
+     * @return mechListMIC, null if no session key is obtained
+     */
+    MechListMIC mechListMIC() {
+        if (exportedSessionKey == null) {
+            return null;
+        }
+        if (!negFlags.get(NTLMSSP_NEGOTIATE_SIGN)) {
+            // MS-NLMP (#3.4.4.3 Without NTLMSSP_NEGOTIATE_SIGN)
+            return new NtlmMessageSignature(new byte[8], 0);
+        }
+        final var seqNumBytes = new byte[4]; // sequence number 0
+        final var checksum = Arrays.copyOf(SecurityUtils.hmacMd5(
+            SecurityUtils.md5(exportedSessionKey, SERVER_SIGN_MAGIC_CONSTANT), seqNumBytes, MECH_LIST_ENCODED), 8);
+        return new NtlmMessageSignature(negFlags.get(NTLMSSP_NEGOTIATE_KEY_EXCHANGE)
+            ? SecurityUtils.rc4(SecurityUtils.md5(exportedSessionKey, SERVER_SEAL_MAGIC_CONSTANT), checksum)
+            : checksum, 0);
+    }
+}
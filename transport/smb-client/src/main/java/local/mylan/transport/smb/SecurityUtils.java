@@ -15,6 +15,8 @@
  */
 package local.mylan.transport.smb;
 
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+
 import io.netty.buffer.Unpooled;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
@@ -22,6 +24,8 @@ import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.zip.CRC32;
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
@@ -42,6 +46,11 @@ public final class SecurityUtils {
     private static final int R = 32;
     private static final int L_ENC_BYTES = 4;
 
+    // digest and mac instances are reused per thread, the provider lookup and instantiation
+    // cost more than hashing of short inputs (NTLM keys and challenges) itself
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Mac>> MACS = ThreadLocal.withInitial(HashMap::new);
+
     private SecurityUtils() {
         // utility class
     }
@@ -71,10 +80,31 @@ public final class SecurityUtils {
         return digest("MD5", items);
     }
 
+    public static byte[] sha512(final byte[]... items) {
+        return digest("SHA-512", items);
+    }
+
     public static byte[] hmacMd5(final byte[] key, final byte[]... items) {
         return mac("HMac-MD5", key, items);
     }
 
+    /**
+     * Computes NT one-way function of the password. Addresses MS-NLMP (#3.3.1 NTLM v1 Authentication).
+     */
+    public static byte[] ntOwfV1(final String password) {
+        return md4((password == null ? "" : password).getBytes(UTF_16LE));
+    }
+
+    /**
+     * Computes NTLM v2 one-way function from NTOWFv1 value, so the password is not required.
+     * Addresses MS-NLMP (#3.3.2 NTLM v2 Authentication).
+     */
+    public static byte[] ntOwfV2(final byte[] ntOwfV1, final String username, final String domain) {
+        return hmacMd5(ntOwfV1,
+            (username == null ? "" : username).toUpperCase().getBytes(UTF_16LE),
+            (domain == null ? "" : domain).getBytes(UTF_16LE));
+    }
+
     public static byte[] rc4(final byte[] key, final byte[]... items) {
         return cipher("RC4", key, items);
     }
@@ -84,7 +114,8 @@ public final class SecurityUtils {
     }
 
     private static byte[] digest(final String algoritm, final byte[]... items) {
-        final var digest = digestInstance(algoritm);
+        final var digest = DIGESTS.get().computeIfAbsent(algoritm, SecurityUtils::digestInstance);
+        digest.reset();
         for (var item : items) {
             digest.update(item);
         }
@@ -92,7 +123,12 @@ public final class SecurityUtils {
     }
 
     private static byte[] mac(final String algoritm, final byte[] key, final byte[]... items) {
-        final var mac = macInstance(algoritm, key);
+        final var mac = MACS.get().computeIfAbsent(algoritm, SecurityUtils::newMacInstance);
+        try {
+            mac.init(new SecretKeySpec(key, algoritm));
+        } catch (InvalidKeyException e) {
+            throw new SmbException("Invalid mac key", e);
+        }
         for (var item : items) {
             mac.update(item);
         }
@@ -133,6 +169,14 @@ public final class SecurityUtils {
         }
     }
 
+    private static Mac newMacInstance(final String algorithm) {
+        try {
+            return Mac.getInstance(algorithm, BC);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SmbException("Invalid mac algorithm", e);
+        }
+    }
+
     public static Mac macInstance(final String algorithm, final byte[] key) {
         return macInstance(algorithm, algorithm, key);
     }
@@ -147,6 +191,26 @@ public final class SecurityUtils {
         }
     }
 
+    /**
+     * Returns cipher of the platform default provider. It's preferred for AES-GCM being backed by
+     * hardware intrinsics and operating direct buffers without copying to heap.
+     */
+    public static Cipher platformCipherInstance(final String algorithm) {
+        try {
+            return Cipher.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new SmbException("Invalid cipher algorithm", e);
+        }
+    }
+
+    public static Cipher cipherInstance(final String algorithm) {
+        try {
+            return Cipher.getInstance(algorithm, BC);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new SmbException("Invalid cipher algorithm", e);
+        }
+    }
+
     private static Cipher cipherInstance(final String algorithm, final String keyAlgorithm,
         final int mode, final byte[] key) {
 
@@ -199,7 +263,7 @@ public final class SecurityUtils {
         final var fixedInputBuf = Unpooled.wrappedBuffer(fixedInput);
         System.arraycopy(label, 0, fixedInput, 0, label.length);
         System.arraycopy(context, 0, fixedInput, label.length + 1, context.length);
-        fixedInput[fixedInput.length - 1] = (byte) l;
+        fixedInputBuf.setInt(fixedInput.length - 4, l);
 
         final var kdfGen = new KDFCounterBytesGenerator(new HMac(new SHA256Digest()));
         kdfGen.init(new KDFCounterParameters(key, fixedInput, 32));
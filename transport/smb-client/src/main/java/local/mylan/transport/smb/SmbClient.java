@@ -18,23 +18,55 @@ package local.mylan.transport.smb;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.Inet4Address;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.net.api.NettyTransport;
+import local.mylan.transport.smb.exceptions.SmbException;
 import local.mylan.transport.smb.protocol.details.Client;
 import local.mylan.transport.smb.protocol.details.ClientDetails;
 import local.mylan.transport.smb.protocol.details.Connection;
+import local.mylan.transport.smb.protocol.details.Session;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class SmbClient implements Client {
+    private static final Logger LOG = LoggerFactory.getLogger(SmbClient.class);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 500;
     private final ClientDetails clientDetails = new ClientDetails();
     private final SmbClientConf clientConf;
     private final AtomicInteger nextConnectionId = new AtomicInteger(0);
+    private final Map<SocketAddress, ListenableFuture<Connection>> connectionRegistry = new ConcurrentHashMap<>();
+    private final Set<ListenableFuture<Connection>> connecting = ConcurrentHashMap.newKeySet();
+    private final Set<Timeout> reconnectRetries = ConcurrentHashMap.newKeySet();
+    private Bootstrap bootstrap;
+    private Timer requestTimer;
+    private volatile boolean closing;
 
     public SmbClient() {
         this((Path) null);
@@ -63,6 +95,7 @@ public class SmbClient implements Client {
         clientDetails.setEncryptionSupported(clientConf.encryptionSupported());
         clientDetails.setCompressionSupported(clientConf.compressionSupported());
         clientDetails.setChainedCompressionSupported(clientConf.chainedCompressionSupported());
+        clientDetails.setCompressAllRequests(clientConf.compressAllRequests());
         clientDetails.setRdmaTransformSupported(clientConf.rdmaTransformSupported());
         clientDetails.setDisableEncryptionOverSecureTransport(clientConf.disableEncryptionOverSecureTransport());
         clientDetails.setSigningCapabilitiesSupported(clientConf.signingCapabilitiesSupported());
@@ -81,13 +114,19 @@ public class SmbClient implements Client {
     @Override
     public ListenableFuture<Connection> connect(final SocketAddress address) {
         final var connection = new SmbClientConnection(nextConnectionId.incrementAndGet(), this);
-        return connection.connect(address);
+        return track(connection.connect(address));
     }
 
     @VisibleForTesting
     ListenableFuture<Connection> connect(final Channel channel) {
         final var connection = new SmbClientConnection(nextConnectionId.incrementAndGet(), this);
-        return connection.connect(channel);
+        return track(connection.connect(channel));
+    }
+
+    private ListenableFuture<Connection> track(final ListenableFuture<Connection> connectFuture) {
+        connecting.add(connectFuture);
+        connectFuture.addListener(() -> connecting.remove(connectFuture), MoreExecutors.directExecutor());
+        return connectFuture;
     }
 
     @Override
@@ -97,8 +136,259 @@ public class SmbClient implements Client {
 
     @Override
     public ListenableFuture<Connection> getOrCreateConnection(final SocketAddress address) {
-        final var existing = clientDetails.connections().values().stream()
-            .filter(conn -> address.equals(conn.details().socketAddress())).findAny().orElse(null);
-        return existing == null ? connect(address) : Futures.immediateFuture(existing);
+        requireNonNull(address);
+        while (true) {
+            final var existing = connectionRegistry.get(address);
+            if (existing != null) {
+                if (!existing.isDone() || isActive(existing)) {
+                    return existing;
+                }
+                // connection failed or closed
+                connectionRegistry.remove(address, existing);
+                continue;
+            }
+            // single-flight: only the caller registered the placeholder initiates the connection
+            final var placeholder = SettableFuture.<Connection>create();
+            if (connectionRegistry.putIfAbsent(address, placeholder) == null) {
+                Futures.addCallback(placeholder, new FutureCallback<Connection>() {
+                    @Override
+                    public void onSuccess(final Connection connection) {
+                        connection.closeFuture().addListener(() -> connectionRegistry.remove(address, placeholder),
+                            MoreExecutors.directExecutor());
+                    }
+
+                    @Override
+                    public void onFailure(final Throwable cause) {
+                        connectionRegistry.remove(address, placeholder);
+                    }
+                }, MoreExecutors.directExecutor());
+                placeholder.setFuture(connect(address));
+                return placeholder;
+            }
+        }
+    }
+
+    /**
+     * Re-establishes the sessions of the connection lost over new connection to the same server address.
+     * Failed connection attempt is repeated after the delay growing with each attempt, sessions are failed
+     * to reconnect once the attempts are exhausted.
+     *
+     * @param address server address
+     * @param sessions sessions to reconnect
+     */
+    void reconnect(final SocketAddress address, final List<SmbClientSession> sessions) {
+        reconnect(address, sessions, 1);
+    }
+
+    private void reconnect(final SocketAddress address, final List<SmbClientSession> sessions, final int attempt) {
+        if (closing) {
+            final var cause = new SmbException("Client is closed");
+            sessions.forEach(session -> session.abortReconnect(cause));
+            return;
+        }
+        Futures.addCallback(getOrCreateConnection(address), new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(final Connection connection) {
+                if (connection instanceof SmbClientConnection clientConnection) {
+                    sessions.forEach(clientConnection::reconnectSession);
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                if (attempt < clientConf.reconnectMaxAttempts() && scheduleReconnect(address, sessions, attempt)) {
+                    LOG.debug("Reconnect attempt {} to {} failed", attempt, address, cause);
+                    return;
+                }
+                sessions.forEach(session -> session.abortReconnect(cause));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private synchronized boolean scheduleReconnect(final SocketAddress address,
+        final List<SmbClientSession> sessions, final int attempt) {
+
+        if (closing) {
+            return false;
+        }
+        final var retry = requestTimer().newTimeout(timeout -> {
+            reconnectRetries.remove(timeout);
+            reconnect(address, sessions, attempt + 1);
+        }, (long) clientConf.reconnectDelayMillis() * attempt, TimeUnit.MILLISECONDS);
+        reconnectRetries.add(retry);
+        return true;
+    }
+
+    /**
+     * Binds the session to additional connections using the server network interfaces discovered.
+     * Addresses MS-SMB2 (#3.2.4.2.3 Authenticating the User, #3.2.4.20.10 Application Requests Querying
+     * Server's Network Interfaces).
+     *
+     * @param session the session to bind
+     * @return future completing with number of channels bound
+     */
+    ListenableFuture<Integer> bindChannels(final Session session) {
+        final var sessDetails = session.details();
+        final var primary = sessDetails.connection();
+        if (!primary.details().supportsMultiChannel() || sessDetails.anonymous() || sessDetails.guest()
+            || !(primary.details().socketAddress() instanceof InetSocketAddress primaryAddress)) {
+            return Futures.immediateFuture(0);
+        }
+        final var limit = clientConf.multichannelMaxChannels() - sessDetails.channels().size();
+        if (limit <= 0) {
+            return Futures.immediateFuture(0);
+        }
+        return Futures.transformAsync(session.queryNetworkInterfaces(), interfaces -> {
+            final var bindFutures = channelAddresses(interfaces, primaryAddress, limit).stream()
+                .map(address -> bindChannel(session, address)).toList();
+            return Futures.whenAllComplete(bindFutures).call(() -> (int) bindFutures.stream()
+                .filter(future -> !future.isCancelled() && Futures.getUnchecked(future)).count(),
+                MoreExecutors.directExecutor());
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Boolean> bindChannel(final Session session, final InetSocketAddress address) {
+        final var connectFuture = connect(address);
+        final var bindFuture = Futures.transformAsync(connectFuture,
+            connection -> Futures.transform(connection.bindSession(session), bound -> Boolean.TRUE,
+                MoreExecutors.directExecutor()), MoreExecutors.directExecutor());
+        return Futures.catchingAsync(bindFuture, Exception.class, cause -> {
+            LOG.debug("Channel binding to {} failed", address, cause);
+            if (connectFuture.isDone() && !connectFuture.isCancelled()) {
+                try {
+                    Futures.getDone(connectFuture).close();
+                } catch (ExecutionException e) {
+                    // connection was not established
+                }
+            }
+            return Futures.immediateFuture(Boolean.FALSE);
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Selects addresses for additional channels. Interfaces of same address family as primary connection are
+     * taken in link speed descending order, each interface gets a channel first, then RSS capable interfaces
+     * get extra channels round by round until the limit is reached.
+     */
+    @VisibleForTesting
+    static List<InetSocketAddress> channelAddresses(final List<Smb2NetworkInterfaceInfo> interfaces,
+        final InetSocketAddress primary, final int limit) {
+
+        final var ipv4 = primary.getAddress() instanceof Inet4Address;
+        final var candidates = interfaces.stream()
+            .filter(info -> info.address() != null && (info.address() instanceof Inet4Address) == ipv4)
+            .filter(info -> !info.address().isLinkLocalAddress())
+            .sorted(Comparator.comparingLong(Smb2NetworkInterfaceInfo::linkSpeed).reversed())
+            .toList();
+        final var result = new ArrayList<InetSocketAddress>();
+        // primary connection already occupies one channel on its interface
+        var primaryCounted = false;
+        for (var round = 0; result.size() < limit; round++) {
+            final var added = result.size();
+            for (var info : candidates) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (round > 0 && !info.rssCapable()) {
+                    continue;
+                }
+                if (!primaryCounted && info.address().equals(primary.getAddress())) {
+                    primaryCounted = true;
+                    continue;
+                }
+                result.add(new InetSocketAddress(info.address(), primary.getPort()));
+            }
+            if (result.size() == added && (round > 0 || !primaryCounted)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isActive(final ListenableFuture<Connection> future) {
+        try {
+            return Futures.getDone(future).isActive();
+        } catch (ExecutionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> close() {
+        synchronized (this) {
+            closing = true;
+        }
+        // reconnect retries scheduled are executed right away, so the sessions awaiting are failed
+        for (var retry : List.copyOf(reconnectRetries)) {
+            if (retry.cancel()) {
+                reconnectRetries.remove(retry);
+                try {
+                    retry.task().run(retry);
+                } catch (Exception e) {
+                    LOG.warn("Error aborting reconnect", e);
+                }
+            }
+        }
+        // connections being established use the timer and the event loop group, these are closed once completed
+        return Futures.whenAllComplete(List.copyOf(connecting)).callAsync(() -> {
+            final var closeFutures = clientDetails.connections().values().stream().map(Connection::close).toList();
+            return Futures.whenAllComplete(closeFutures).callAsync(this::shutdownGroup,
+                MoreExecutors.directExecutor());
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Returns new bootstrap instance sharing the event loop group with all the connections of the client.
+     * The group is created on first use.
+     */
+    synchronized Bootstrap newBootstrap() {
+        if (bootstrap == null) {
+            bootstrap = bootstrapTemplate();
+        }
+        return bootstrap.clone();
+    }
+
+    /**
+     * Returns the timer tracking request deadlines of all the connections of the client. Hashed wheel timer
+     * is used as the deadlines are many, short-lived and mostly cancelled before expiry, so the precision
+     * of timer tick is enough. The timer is created on first use.
+     */
+    synchronized Timer requestTimer() {
+        if (requestTimer == null) {
+            requestTimer = new HashedWheelTimer(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat(clientConf.groupName() + "-timer-%d").build(), 100, TimeUnit.MILLISECONDS);
+        }
+        return requestTimer;
+    }
+
+    private Bootstrap bootstrapTemplate() {
+        final var template = new Bootstrap();
+        final var threadFactory = new ThreadFactoryBuilder().setNameFormat(clientConf.groupName() + "-%d")
+            .build();
+        final var maxThreads = clientConf.groupThreads();
+        final var transport = NettyTransport.select(clientConf.transport());
+        template.group(transport.newEventLoopGroup(maxThreads, threadFactory));
+        template.channel(transport.socketChannelClass());
+        if (clientConf.tcpKeepAliveEnabled()) {
+            transport.setKeepAlive(template, clientConf.tcpKeepAliveIdleTime(),
+                clientConf.tcpKeepAliveRetransmissionCount(), clientConf.tcpKeepAliveRetransmissionInterval());
+        }
+        return template;
+    }
+
+    private synchronized ListenableFuture<Void> shutdownGroup() {
+        if (requestTimer != null) {
+            requestTimer.stop();
+            requestTimer = null;
+        }
+        if (bootstrap == null) {
+            return Futures.immediateFuture(null);
+        }
+        final var future = SettableFuture.<Void>create();
+        // connections are closed already, so no quiet period is awaited
+        bootstrap.config().group().shutdownGracefully(0, SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+            .addListener(result -> future.set(null));
+        bootstrap = null;
+        return future;
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.buffer.ByteBuf;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import local.mylan.transport.smb.protocol.details.DirectoryReader;
+import local.mylan.transport.smb.protocol.details.FileStreamReader;
+import local.mylan.transport.smb.protocol.details.OpenDetails;
+import local.mylan.transport.smb.protocol.details.OpenFile;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+
+/**
+ * Open file served by the cached handle (see {@link SmbClientHandleCache}). Operations are delegated to the open
+ * the handle belongs to, failed operation invalidates the cache entry. Close releases the handle, so it may
+ * remain open for further reuse.
+ */
+final class SmbClientCachedOpenFile implements OpenFile {
+
+    private final OpenFile open;
+    private final SmbClientHandleCache cache;
+    private final SmbClientHandleCache.Entry entry;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    SmbClientCachedOpenFile(final OpenFile open, final SmbClientHandleCache cache,
+        final SmbClientHandleCache.Entry entry) {
+
+        this.open = requireNonNull(open);
+        this.cache = requireNonNull(cache);
+        this.entry = requireNonNull(entry);
+    }
+
+    @Override
+    public OpenDetails details() {
+        return open.details();
+    }
+
+    @Override
+    public ListenableFuture<OpenFile> create() {
+        return Futures.immediateFuture(this);
+    }
+
+    @Override
+    public ListenableFuture<List<FileInformation>> queryDirectory() {
+        return invalidateOnFailure(open.queryDirectory());
+    }
+
+    @Override
+    public ListenableFuture<List<FileInformation>> queryDirectory(final String searchPattern,
+        final FileInformationClass fic, final int maxRead) {
+        return invalidateOnFailure(open.queryDirectory(searchPattern, fic, maxRead));
+    }
+
+    @Override
+    public DirectoryReader readDirectory(final String searchPattern, final FileInformationClass fic) {
+        return open.readDirectory(searchPattern, fic);
+    }
+
+    @Override
+    public ListenableFuture<ByteBuf> read(final long offset, final int length) {
+        return invalidateOnFailure(open.read(offset, length));
+    }
+
+    @Override
+    public FileStreamReader readStream(final long offset, final long length) {
+        return open.readStream(offset, length);
+    }
+
+    @Override
+    public FileStreamReader readStream(final long offset, final long length, final int windowSize) {
+        return open.readStream(offset, length, windowSize);
+    }
+
+    @Override
+    public ListenableFuture<Long> write(final long offset, final ByteBuf data) {
+        return invalidateOnFailure(open.write(offset, data));
+    }
+
+    @Override
+    public ListenableFuture<Void> close() {
+        return released.compareAndSet(false, true) ? cache.release(entry) : Futures.immediateVoidFuture();
+    }
+
+    private <T> ListenableFuture<T> invalidateOnFailure(final ListenableFuture<T> future) {
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(final T result) {
+                // no action
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                cache.invalidate(entry);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+}
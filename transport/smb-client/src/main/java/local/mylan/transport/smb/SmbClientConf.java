@@ -17,6 +17,7 @@ package local.mylan.transport.smb;
 
 import local.mylan.common.annotations.conf.ConfFile;
 import local.mylan.common.annotations.conf.ConfProperty;
+import local.mylan.transport.net.api.NettyTransport;
 import local.mylan.transport.smb.protocol.Smb2Dialect;
 
 @ConfFile("smb-client.conf")
@@ -28,6 +29,10 @@ public @interface SmbClientConf {
     @ConfProperty("netty.group.max-threads")
     int groupThreads() default 0;
 
+    // io_uring, epoll, nio or auto (the most preferred transport available)
+    @ConfProperty("netty.transport")
+    String transport() default NettyTransport.AUTO;
+
     @ConfProperty("tcp.keepalive.enabled")
     boolean tcpKeepAliveEnabled() default true;
 
@@ -49,7 +54,7 @@ public @interface SmbClientConf {
     boolean requireMessageSigning() default false;
 
     @ConfProperty("smb.client.encryption-supported")
-    boolean encryptionSupported() default false;
+    boolean encryptionSupported() default true;
 
     @ConfProperty("smb.client.compression-supported")
     boolean compressionSupported() default false;
@@ -57,6 +62,9 @@ public @interface SmbClientConf {
     @ConfProperty("smb.client.chained-compression-supported")
     boolean chainedCompressionSupported() default false;
 
+    @ConfProperty("smb.client.compress-all-requests")
+    boolean compressAllRequests() default false;
+
     @ConfProperty("smb.client.rdma-transform-supported")
     boolean rdmaTransformSupported() default false;
 
@@ -72,6 +80,18 @@ public @interface SmbClientConf {
     @ConfProperty("smb.client.server-notifiaction-supported")
     boolean serverToClientNotificationsSupported() default false;
 
+    @ConfProperty("smb.client.large-mtu-supported")
+    boolean largeMtuSupported() default true;
+
+    @ConfProperty("smb.client.multichannel-supported")
+    boolean multichannelSupported() default true;
+
+    @ConfProperty("smb.client.leasing-supported")
+    boolean leasingSupported() default true;
+
+    @ConfProperty("smb.client.directory-leasing-supported")
+    boolean directoryLeasingSupported() default true;
+
     // Connection Details
 
     @ConfProperty("smb.client.connection-timout")
@@ -83,10 +103,70 @@ public @interface SmbClientConf {
     @ConfProperty("smb.client.setup-request-credits")
     int setupCreditsRequest() default 512;
 
+    @ConfProperty("smb.client.max-request-credits")
+    int maxCreditsRequest() default 128;
+
+    @ConfProperty("smb.client.pending-request-timeout")
+    int pendingRequestTimeoutMillis() default 30000;
+
+    @ConfProperty("smb.client.request-timeout")
+    int requestTimeoutMillis() default 60000;
+
+    @ConfProperty("smb.client.read.window-size")
+    int readWindowSize() default 8;
+
+    @ConfProperty("smb.client.write.window-size")
+    int writeWindowSize() default 8;
+
+    @ConfProperty("smb.client.query-directory.buffer-size")
+    int queryDirectoryBufferSize() default 262144;
+
+    @ConfProperty("smb.client.multichannel.max-channels")
+    int multichannelMaxChannels() default 4;
+
+    @ConfProperty("smb.client.share-cache.ttl")
+    int shareCacheTtlMillis() default 60000;
+
+    @ConfProperty("smb.client.lease-cache.max-entries")
+    int leaseCacheMaxEntries() default 256;
+
+    @ConfProperty("smb.client.handle-cache.max-entries")
+    int handleCacheMaxEntries() default 32;
+
+    @ConfProperty("smb.client.handle-cache.idle-timeout")
+    int handleIdleTimeoutMillis() default 30000;
+
+    @ConfProperty("smb.client.tree-connect.idle-timeout")
+    int treeConnectIdleTimeoutMillis() default 60000;
+
+    @ConfProperty("smb.client.session.idle-timeout")
+    int sessionIdleTimeoutMillis() default 90000;
+
+    @ConfProperty("smb.client.idle-reaper.interval")
+    int idleReaperIntervalMillis() default 5000;
+
+    @ConfProperty("smb.client.durable-handles-supported")
+    boolean durableHandlesSupported() default true;
+
+    @ConfProperty("smb.client.durable-handle.timeout")
+    int durableHandleTimeoutMillis() default 60000;
+
+    @ConfProperty("smb.client.reconnect-enabled")
+    boolean reconnectEnabled() default true;
+
+    @ConfProperty("smb.client.reconnect.max-attempts")
+    int reconnectMaxAttempts() default 3;
+
+    @ConfProperty("smb.client.reconnect.delay")
+    int reconnectDelayMillis() default 1000;
+
+    @ConfProperty("smb.client.compression.threshold")
+    int compressionThreshold() default 4096;
+
     @ConfProperty("smb.client.dialect.min")
     Smb2Dialect smbDialectMin() default Smb2Dialect.SMB2_0_2;
 
     @ConfProperty("smb.client.dialect.max")
-    Smb2Dialect smbDialectMax() default Smb2Dialect.SMB3_0;
+    Smb2Dialect smbDialectMax() default Smb2Dialect.SMB3_1_1;
 
 }
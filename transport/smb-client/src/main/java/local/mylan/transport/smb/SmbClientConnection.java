@@ -20,29 +20,20 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
 import io.netty.channel.MessageSizeEstimator;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollChannelOption;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioChannelOption;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.ScheduledFuture;
 import java.net.SocketAddress;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import jdk.net.ExtendedSocketOptions;
 import local.mylan.transport.smb.handler.Smb2ClientCodec;
 import local.mylan.transport.smb.handler.Smb2ClientHandler;
 import local.mylan.transport.smb.handler.codec.NtlmCodecUtils;
@@ -68,18 +59,35 @@ public class SmbClientConnection implements Connection {
     private final Smb2ClientHandler handler;
     private final SettableFuture<Void> closeFuture = SettableFuture.create();
 
-    private EventLoopGroup group;
     private Channel nettyChannel;
+    private ScheduledFuture<?> idleReaper;
+    private volatile boolean closing;
 
     SmbClientConnection(final int connectionId, final SmbClient client) {
         this.client = client;
         connDetails = new ConnectionDetails(client.details().clientGuid(), connectionId);
-        handler = new Smb2ClientHandler(client.details(), connDetails);
+        handler = new Smb2ClientHandler(client.details(), connDetails, client.requestTimer());
         configure();
     }
 
     private void configure() {
         connDetails.setSetupCreditsRequest(client.conf().setupCreditsRequest());
+        connDetails.setMaxCreditsRequest(client.conf().maxCreditsRequest());
+        connDetails.setPendingRequestTimeoutMillis(client.conf().pendingRequestTimeoutMillis());
+        connDetails.setRequestTimeoutMillis(client.conf().requestTimeoutMillis());
+        connDetails.setShareCacheTtlMillis(client.conf().shareCacheTtlMillis());
+        connDetails.setReadWindowSize(client.conf().readWindowSize());
+        connDetails.setWriteWindowSize(client.conf().writeWindowSize());
+        connDetails.setQueryDirectoryBufferSize(client.conf().queryDirectoryBufferSize());
+        connDetails.setCompressionThreshold(client.conf().compressionThreshold());
+        connDetails.setLeaseCacheSize(client.conf().leaseCacheMaxEntries());
+        connDetails.setHandleCacheSize(client.conf().handleCacheMaxEntries());
+        connDetails.setHandleIdleTimeoutMillis(client.conf().handleIdleTimeoutMillis());
+        connDetails.setTreeConnectIdleTimeoutMillis(client.conf().treeConnectIdleTimeoutMillis());
+        connDetails.setSessionIdleTimeoutMillis(client.conf().sessionIdleTimeoutMillis());
+        connDetails.setDurableHandleTimeoutMillis(
+            client.conf().durableHandlesSupported() ? client.conf().durableHandleTimeoutMillis() : -1);
+        connDetails.setGlobalFiles(client.details().globalFiles());
         connDetails.setClientSecurityMode(new Flags<Smb2NegotiateFlags>()
             .set(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_ENABLED, client.details().signingCapabilitiesSupported())
             .set(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_REQUIRED, client.details().requireMessageSigning())
@@ -87,11 +95,12 @@ public class SmbClientConnection implements Connection {
         connDetails.setClientCapabilities(new Flags<Smb2CapabilitiesFlags>()
             // TODO use values from configuration
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_DFS, false)
-            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LEASING, false)
-            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LARGE_MTU, false)
-            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_MULTI_CHANNEL, false)
+            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LEASING, client.conf().leasingSupported())
+            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LARGE_MTU, client.conf().largeMtuSupported())
+            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_MULTI_CHANNEL, client.conf().multichannelSupported())
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_PERSISTENT_HANDLES, false)
-            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_DIRECTORY_LEASING, false)
+            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_DIRECTORY_LEASING,
+                client.conf().leasingSupported() && client.conf().directoryLeasingSupported())
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_ENCRYPTION, client.details().encryptionSupported())
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_NOTIFICATIONS,
                 client.details().serverToClientNotificationsSupported()));
@@ -109,7 +118,7 @@ public class SmbClientConnection implements Connection {
 
     ListenableFuture<Connection> connect(final SocketAddress address) {
         final var future = newConnectionFuture();
-        newBootstrap()
+        client.newBootstrap()
             .handler(newChannelInitializer())
             .connect(address).addListener(result -> {
                 if (result.cause() != null) {
@@ -131,6 +140,7 @@ public class SmbClientConnection implements Connection {
                 connDetails.setSocketAddress(socketAddress);
                 LOG.debug("Connected #{} to {} --> Dialect: {}",
                     connDetails.connectionId(), connDetails.socketAddress(), connDetails.dialect().identifier());
+                scheduleIdleReaper();
             }
 
             @Override
@@ -203,35 +213,27 @@ public class SmbClientConnection implements Connection {
         };
     }
 
-    private Bootstrap newBootstrap() {
-        final var bootstrap = new Bootstrap();
-        final var threadFactory = new ThreadFactoryBuilder().setNameFormat(client.conf().groupName() + "-%d")
-            .build();
-        final var maxThreads = client.conf().groupThreads();
-        if (Epoll.isAvailable()) {
-            group = new EpollEventLoopGroup(maxThreads, threadFactory);
-            bootstrap.channel(EpollSocketChannel.class);
-            if (client.conf().tcpKeepAliveEnabled()) {
-                bootstrap.option(ChannelOption.SO_KEEPALIVE, Boolean.TRUE);
-                bootstrap.option(EpollChannelOption.TCP_KEEPIDLE, client.conf().tcpKeepAliveIdleTime());
-                bootstrap.option(EpollChannelOption.TCP_KEEPCNT, client.conf().tcpKeepAliveRetransmissionCount());
-                bootstrap.option(EpollChannelOption.TCP_KEEPINTVL, client.conf().tcpKeepAliveRetransmissionInterval());
-            }
-        } else {
-            final var group = new NioEventLoopGroup(maxThreads, threadFactory);
-            bootstrap.channel(NioSocketChannel.class);
-            bootstrap.group(group);
-            if (client.conf().tcpKeepAliveEnabled()) {
-                bootstrap.option(ChannelOption.SO_KEEPALIVE, Boolean.TRUE);
-                bootstrap.option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE),
-                    client.conf().tcpKeepAliveIdleTime());
-                bootstrap.option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT),
-                    client.conf().tcpKeepAliveRetransmissionCount());
-                bootstrap.option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL),
-                    client.conf().tcpKeepAliveRetransmissionInterval());
+    private void scheduleIdleReaper() {
+        final var interval = client.conf().idleReaperIntervalMillis();
+        if (interval > 0) {
+            idleReaper = nettyChannel.eventLoop()
+                .scheduleWithFixedDelay(this::reapIdle, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Releases idle handles, tree connects and sessions established over this connection.
+     * The connection itself is closed by idle state handler.
+     */
+    private void reapIdle() {
+        final var now = System.nanoTime();
+        for (var session : List.copyOf(connDetails.sessions().values())) {
+            if (session instanceof SmbClientSession clientSession && session.details().connection() == this
+                && clientSession.reapIdle(now)) {
+                LOG.debug("Closing idle session {} on connection #{}", session.details().sessionId(),
+                    connDetails.connectionId());
             }
         }
-        return bootstrap;
     }
 
     @Override
@@ -273,8 +275,21 @@ public class SmbClientConnection implements Connection {
 
     @Override
     public ListenableFuture<Session> bindSession(final Session session) {
-        // FIXME set session id to previousSessionId
-        return setupSession(session.details());
+        if (!(session instanceof SmbClientSession clientSession)) {
+            return Futures.immediateFailedFuture(
+                new IllegalArgumentException("Session of unsupported type " + session.getClass()));
+        }
+        return clientSession.bind(this, handler, newAuthMechInstance(session.details()));
+    }
+
+    /**
+     * Re-establishes the session of the connection lost over this connection.
+     *
+     * @param session the session to reconnect
+     * @return future completing with the session re-established
+     */
+    ListenableFuture<Session> reconnectSession(final SmbClientSession session) {
+        return session.reconnect(this, handler, newAuthMechInstance(session.details()));
     }
 
     private SessionDetails newSessionDetails(final Consumer<SessionDetails> configurator) {
@@ -286,7 +301,37 @@ public class SmbClientConnection implements Connection {
 
     private ListenableFuture<Session> setupSession(final SessionDetails sessDetails) {
         final var session = new SmbClientSession(sessDetails, handler);
-        return session.setup(newAuthMechInstance(sessDetails));
+        final var future = session.setup(newAuthMechInstance(sessDetails));
+        if (client.conf().multichannelSupported() && client.conf().multichannelMaxChannels() > 1) {
+            Futures.addCallback(future, new FutureCallback<Session>() {
+                @Override
+                public void onSuccess(final Session result) {
+                    bindChannels(result);
+                }
+
+                @Override
+                public void onFailure(final Throwable cause) {
+                    // reported by session setup caller
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        return future;
+    }
+
+    private void bindChannels(final Session session) {
+        Futures.addCallback(client.bindChannels(session), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(final Integer bound) {
+                if (bound > 0) {
+                    LOG.debug("Session {} is bound to {} additional channel(s)", session.details().sessionId(), bound);
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                LOG.debug("Session {} channels binding failed", session.details().sessionId(), cause);
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     private static AuthMechanism newAuthMechInstance(final SessionDetails sessDetails) {
@@ -305,10 +350,12 @@ public class SmbClientConnection implements Connection {
 
     @Override
     public ListenableFuture<Void> close() {
+        closing = true;
         if (nettyChannel != null && nettyChannel.isActive()) {
-            // try closing all the sessions
+            // try closing all the sessions established over this connection, bound sessions remain
             Futures.whenAllComplete(
-                connDetails.sessions().values().stream().map(Session::close).toList()
+                connDetails.sessions().values().stream().filter(session -> session.details().connection() == this)
+                    .map(Session::close).toList()
             ).run(() -> handler.finish().addListener(() -> {
                     nettyChannel.close().addListener(future -> closeFuture.set(null));
                 }, MoreExecutors.directExecutor()
@@ -320,12 +367,30 @@ public class SmbClientConnection implements Connection {
     }
 
     private void onClose() {
-        if (group != null) {
-            group.shutdownGracefully();
+        if (idleReaper != null) {
+            idleReaper.cancel(false);
         }
+        // sessions in use are re-established if the connection was lost unexpectedly, requests are held
+        // until then, so it's done before the outstanding requests are failed
+        final var lost = closing || !client.conf().reconnectEnabled() || connDetails.socketAddress() == null
+            ? List.<SmbClientSession>of() : connDetails.sessions().values().stream()
+            .filter(session -> session instanceof SmbClientSession && session.details().connection() == this
+                && !session.details().treeConnects().isEmpty())
+            .map(SmbClientSession.class::cast).toList();
+        lost.forEach(SmbClientSession::beginReconnect);
         if (client.details().connections().remove(connDetails.connectionId()) != null) {
             LOG.debug("Disconnected #{} from {}", connDetails.connectionId(), connDetails.socketAddress());
         }
+        connDetails.sessions().values().forEach(session -> {
+            if (session instanceof SmbClientSession clientSession) {
+                clientSession.removeChannel(this);
+            }
+        });
         closeFuture.set(null);
+        if (!lost.isEmpty()) {
+            LOG.debug("Connection #{} to {} is lost, reconnecting {} session(s)", connDetails.connectionId(),
+                connDetails.socketAddress(), lost.size());
+            client.reconnect(connDetails.socketAddress(), lost);
+        }
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.UUID;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.details.DirectoryReader;
+import local.mylan.transport.smb.protocol.flows.ClientQueryDirectoryPageFlow;
+import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.fscc.DirectoryPage;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+
+/**
+ * Directory reader. Each page is a single QUERY_DIRECTORY response, no request is sent until the page is asked
+ * for, so the entries are not accumulated regardless of directory size. Pages are returned undecoded (as views
+ * over response buffers). Pages requested while previous one is still in flight are chained, so they are returned
+ * in enumeration order.
+ */
+public class SmbClientDirectoryReader implements DirectoryReader {
+
+    private final RequestSender sender;
+    private final UUID fileId;
+    private final FileInformationClass fic;
+    private final String searchPattern;
+    private final int outputBufferLength;
+
+    private ListenableFuture<DirectoryPage> last;
+    private boolean started;
+    private boolean endOfDirectory;
+    private boolean closed;
+
+    SmbClientDirectoryReader(final RequestSender sender, final UUID fileId, final FileInformationClass fic,
+        final String searchPattern, final int outputBufferLength) {
+
+        this.sender = requireNonNull(sender);
+        this.fileId = requireNonNull(fileId);
+        this.fic = requireNonNull(fic);
+        this.searchPattern = requireNonNull(searchPattern);
+        this.outputBufferLength = outputBufferLength;
+    }
+
+    @Override
+    public synchronized ListenableFuture<DirectoryPage> next() {
+        if (closed) {
+            return Futures.immediateFailedFuture(new SmbException("Reader is closed"));
+        }
+        final var previous = last;
+        last = previous == null || previous.isDone() ? requestPage()
+            : Futures.transformAsync(previous, ignored -> requestPage(), MoreExecutors.directExecutor());
+        return last;
+    }
+
+    private synchronized ListenableFuture<DirectoryPage> requestPage() {
+        if (closed) {
+            return Futures.immediateFailedFuture(new SmbException("Reader is closed"));
+        }
+        if (endOfDirectory) {
+            return Futures.immediateFuture(DirectoryPage.empty(fic));
+        }
+        // handle may be reused (cached), first page restarts the enumeration
+        final var flow = new ClientQueryDirectoryPageFlow(sender, fileId, fic, searchPattern, outputBufferLength,
+            !started);
+        started = true;
+        flow.start();
+        return Futures.transform(flow.completeFuture(), this::acceptPage, MoreExecutors.directExecutor());
+    }
+
+    private synchronized DirectoryPage acceptPage(final DirectoryPage page) {
+        if (closed) {
+            page.close();
+            throw new SmbException("Reader is closed");
+        }
+        endOfDirectory = page.isEmpty();
+        return page;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (last != null) {
+            last.cancel(false);
+        }
+    }
+}
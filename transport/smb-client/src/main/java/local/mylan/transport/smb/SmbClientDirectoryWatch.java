@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.List;
+import java.util.function.Consumer;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.DirectoryWatch;
+import local.mylan.transport.smb.protocol.details.OpenDetails;
+import local.mylan.transport.smb.protocol.flows.ClientChangeNotifyFlow;
+import local.mylan.transport.smb.protocol.flows.ClientOpenCloseFlow;
+import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompletionFilterFlags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Directory watch. Addresses MS-SMB2 (#3.2.4.18 Application Requests Change Notifications for a Directory).
+ *
+ * <p>The directory handle is dedicated to the watch (not registered as tree connect open), so it isn't reused
+ * or closed by other operations. Server keeps tracking the changes since the first CHANGE_NOTIFY request
+ * on the handle, so changes occurred while the next request is being issued are not lost.
+ */
+class SmbClientDirectoryWatch implements DirectoryWatch {
+    private static final Logger LOG = LoggerFactory.getLogger(SmbClientDirectoryWatch.class);
+    private static final int SINGLE_CREDIT_BUFFER_LENGTH = 65536;
+
+    private final SettableFuture<Void> closeFuture = SettableFuture.create();
+    private final OpenDetails openDetails;
+    private final RequestSender sender;
+    private final boolean watchTree;
+    private final int outputBufferLength;
+    private final Consumer<List<FileNotifyInformation>> listener;
+
+    SmbClientDirectoryWatch(final OpenDetails openDetails, final RequestSender sender,
+        final ConnectionDetails connDetails, final boolean watchTree,
+        final Consumer<List<FileNotifyInformation>> listener) {
+
+        this.openDetails = requireNonNull(openDetails);
+        this.sender = requireNonNull(sender);
+        this.watchTree = watchTree;
+        this.listener = requireNonNull(listener);
+        // notification list is small, there is no reason to occupy more than single credit
+        outputBufferLength = connDetails.maxTransactSize() > 0
+            ? Math.min(SINGLE_CREDIT_BUFFER_LENGTH, connDetails.maxTransactSize()) : SINGLE_CREDIT_BUFFER_LENGTH;
+    }
+
+    ListenableFuture<DirectoryWatch> start() {
+        final var open = new SmbClientOpenFile(openDetails, sender);
+        return Futures.transform(open.create(), opened -> {
+            openDetails.treeConnect().details().opens().remove(openDetails.fileName(), opened);
+            requestChanges();
+            return this;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void requestChanges() {
+        if (closeFuture.isDone()) {
+            return;
+        }
+        final var flow = new ClientChangeNotifyFlow(sender, openDetails.fileId(), completionFilter(), watchTree,
+            outputBufferLength);
+        flow.start();
+        Futures.addCallback(flow.completeFuture(), new FutureCallback<List<FileNotifyInformation>>() {
+            @Override
+            public void onSuccess(final List<FileNotifyInformation> changes) {
+                if (closeFuture.isDone()) {
+                    return;
+                }
+                notifyListener(changes);
+                requestChanges();
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                if (!closeFuture.isDone()) {
+                    LOG.debug("Watching directory {} stopped", openDetails.fileName(), cause);
+                    close();
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void notifyListener(final List<FileNotifyInformation> changes) {
+        try {
+            listener.accept(changes);
+        } catch (RuntimeException e) {
+            LOG.warn("Directory {} change listener failed", openDetails.fileName(), e);
+        }
+    }
+
+    private static Flags<Smb2CompletionFilterFlags> completionFilter() {
+        // changes affecting the directory listing content
+        return new Flags<Smb2CompletionFilterFlags>()
+            .set(Smb2CompletionFilterFlags.FILE_NOTIFY_CHANGE_FILE_NAME, true)
+            .set(Smb2CompletionFilterFlags.FILE_NOTIFY_CHANGE_DIR_NAME, true)
+            .set(Smb2CompletionFilterFlags.FILE_NOTIFY_CHANGE_ATTRIBUTES, true)
+            .set(Smb2CompletionFilterFlags.FILE_NOTIFY_CHANGE_SIZE, true)
+            .set(Smb2CompletionFilterFlags.FILE_NOTIFY_CHANGE_LAST_WRITE, true);
+    }
+
+    @Override
+    public ListenableFuture<Void> closeFuture() {
+        return closeFuture;
+    }
+
+    @Override
+    public void close() {
+        // pending CHANGE_NOTIFY is completed by server with STATUS_NOTIFY_CLEANUP on handle close
+        if (closeFuture.set(null) && openDetails.fileId() != null) {
+            new ClientOpenCloseFlow(openDetails.fileId(), sender).start();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.FileStreamReader;
+import local.mylan.transport.smb.protocol.flows.ClientReadFlow;
+import local.mylan.transport.smb.protocol.flows.RequestSender;
+
+/**
+ * Pipelined file reader. Keeps up to window size READ requests outstanding (limited by credits available),
+ * chunks are returned in offset order regardless of the responses order.
+ */
+public class SmbClientFileStreamReader implements FileStreamReader {
+    private static final int SINGLE_CREDIT_READ_SIZE = 65536;
+
+    private final RequestSender sender;
+    private final ConnectionDetails connDetails;
+    private final UUID fileId;
+    private final long endOffset;
+    private final int chunkSize;
+    private final int windowSize;
+    private final Deque<ListenableFuture<ByteBuf>> chunks = new ArrayDeque<>();
+
+    private long nextOffset;
+    private boolean endOfFile;
+    private boolean closed;
+
+    SmbClientFileStreamReader(final RequestSender sender, final ConnectionDetails connDetails, final UUID fileId,
+        final long offset, final long length, final int windowSize) {
+
+        this.sender = requireNonNull(sender);
+        this.connDetails = requireNonNull(connDetails);
+        this.fileId = requireNonNull(fileId);
+        nextOffset = offset;
+        endOffset = length < 0 ? Long.MAX_VALUE : offset + length;
+        chunkSize = maxReadSize(connDetails);
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    static int maxReadSize(final ConnectionDetails connDetails) {
+        final var maxReadSize = connDetails.maxReadSize() > 0 ? connDetails.maxReadSize() : SINGLE_CREDIT_READ_SIZE;
+        return connDetails.supportsMultiCredit() ? maxReadSize : Math.min(maxReadSize, SINGLE_CREDIT_READ_SIZE);
+    }
+
+    @Override
+    public synchronized ListenableFuture<ByteBuf> next() {
+        if (closed) {
+            return Futures.immediateFailedFuture(new SmbException("Reader is closed"));
+        }
+        fillWindow();
+        final var next = chunks.poll();
+        if (next == null) {
+            return Futures.immediateFuture(Unpooled.EMPTY_BUFFER);
+        }
+        fillWindow();
+        return next;
+    }
+
+    private void fillWindow() {
+        final var charge = connDetails.supportsMultiCredit() ? ClientReadFlow.creditCharge(chunkSize) : 1;
+        while (!closed && !endOfFile && nextOffset < endOffset && chunks.size() < windowSize) {
+            // first request is sent anyway, others only if there are enough credits
+            // to avoid them stuck in pending state
+            if (!chunks.isEmpty() && sender.creditsAvailable() < charge) {
+                return;
+            }
+            final var length = (int) Math.min(chunkSize, endOffset - nextOffset);
+            final var offset = nextOffset;
+            nextOffset += length;
+            sendRead(offset, length);
+        }
+    }
+
+    private void sendRead(final long offset, final int length) {
+        final var flow = new ClientReadFlow(sender, fileId, offset, length, connDetails.supportsMultiCredit());
+        Futures.addCallback(flow.completeFuture(), new FutureCallback<>() {
+            @Override
+            public void onSuccess(final ByteBuf data) {
+                synchronized (SmbClientFileStreamReader.this) {
+                    if (data.readableBytes() < length) {
+                        // short read means end of file reached
+                        endOfFile = true;
+                    }
+                    // credits are granted with response, so more requests can be sent
+                    fillWindow();
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                synchronized (SmbClientFileStreamReader.this) {
+                    endOfFile = true;
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        // enqueue before start, the response may be handled within same call
+        chunks.add(flow.completeFuture());
+        flow.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (var chunk : chunks) {
+            Futures.addCallback(chunk, new FutureCallback<>() {
+                @Override
+                public void onSuccess(final ByteBuf data) {
+                    data.release();
+                }
+
+                @Override
+                public void onFailure(final Throwable cause) {
+                    // ignore
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        chunks.clear();
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.FileDetails;
+import local.mylan.transport.smb.protocol.details.OpenDetails;
+import local.mylan.transport.smb.protocol.details.OpenFile;
+import local.mylan.transport.smb.protocol.flows.ClientOpenCloseFlow;
+import local.mylan.transport.smb.protocol.flows.ClientOpenCreateFlow;
+import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.fscc.FileAttributeFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2AccessMask;
+import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseStateFlags;
+
+/**
+ * Open handle cache of a tree connect, handles are indexed by path and desired access.
+ *
+ * <p>Only read-only opens of existing files are cached. Handle is shared by concurrent users (reference counted),
+ * directory handle is not shared as enumeration state is held by server per open. When the last user releases
+ * the handle it is kept open for reuse only if the server granted a lease with HANDLE caching, so others
+ * are not blocked by an idle handle: the lease break invalidates the entry and the handle is closed as soon
+ * as it's no longer in use. Idle handles are closed on idle timeout (see {@link #reapIdle(long)}) or when
+ * cache size limit is exceeded. Entry is also invalidated if an operation over the handle fails.
+ *
+ * <p>On SMB 3.x cached handles are requested durable, so these survive the connection loss and are re-established
+ * once the tree is reconnected (see {@link #reconnect(RequestSender, BiConsumer)}).
+ */
+final class SmbClientHandleCache {
+    private static final int READ_ONLY_ACCESS = Smb2AccessMask.FILE_READ_DATA.mask()
+        | Smb2AccessMask.FILE_READ_EA.mask() | Smb2AccessMask.FILE_EXECUTE.mask()
+        | Smb2AccessMask.FILE_READ_ATTRIBUTES.mask() | Smb2AccessMask.READ_CONTROL.mask()
+        | Smb2AccessMask.SYNCHRONIZE.mask() | Smb2AccessMask.GENERIC_READ.mask()
+        | Smb2AccessMask.GENERIC_EXECUTE.mask();
+
+    private final SmbClientTreeConnect treeConnect;
+    private final ConnectionDetails connDetails;
+    private final Map<HandleKey, Entry> entries = new HashMap<>();
+
+    private record HandleKey(String path, int access) {
+    }
+
+    /**
+     * Cached handle. Fields are guarded by the cache instance.
+     */
+    final class Entry {
+        private final HandleKey key;
+        private final OpenDetails openDetails;
+        private final FileDetails leasedFile;
+        private final SettableFuture<OpenFile> openFuture = SettableFuture.create();
+        private OpenFile open;
+        private int refCount;
+        private long lastUsed;
+        private boolean retained;
+        private boolean invalid;
+
+        private Entry(final HandleKey key, final OpenDetails openDetails, final FileDetails leasedFile) {
+            this.key = key;
+            this.openDetails = openDetails;
+            this.leasedFile = leasedFile;
+        }
+    }
+
+    SmbClientHandleCache(final SmbClientTreeConnect treeConnect, final ConnectionDetails connDetails) {
+        this.treeConnect = requireNonNull(treeConnect);
+        this.connDetails = requireNonNull(connDetails);
+    }
+
+    /**
+     * Checks if the open may be served by the cache: caching is enabled, existing file is opened for read
+     * with no lease requested by the caller.
+     */
+    boolean isCacheable(final OpenDetails openDetails) {
+        return connDetails.handleCacheSize() > 0 && openDetails.lease() == null
+            && openDetails.createDisposition() == Smb2CreateDisposition.FILE_OPEN
+            && (openDetails.desiredAccess().asIntValue() & ~READ_ONLY_ACCESS) == 0;
+    }
+
+    /**
+     * Returns the open file served by cached handle. The handle is opened if there is no cached one
+     * available, or if there is no room in cache the uncached open is returned.
+     *
+     * @param openDetails open parameters
+     * @return future of open file, the file is expected to be closed by the caller to release the handle
+     */
+    ListenableFuture<OpenFile> acquire(final OpenDetails openDetails) {
+        final var key = new HandleKey(openDetails.fileName().toLowerCase(Locale.ROOT),
+            openDetails.desiredAccess().asIntValue());
+        final Entry entry;
+        synchronized (this) {
+            final var cached = entries.get(key);
+            if (cached != null && isShareable(cached)) {
+                if (cached.refCount++ == 0 && cached.leasedFile != null) {
+                    // handle is in use, lease break should not close it
+                    cached.leasedFile.releaseHandle();
+                }
+                cached.lastUsed = System.nanoTime();
+                return Futures.immediateFuture(new SmbClientCachedOpenFile(cached.open, this, cached));
+            }
+            if (cached != null || !ensureCapacity()) {
+                // handle exists but cannot be shared yet, or all the cached handles are in use
+                return new SmbClientOpenFile(openDetails, treeConnect).create();
+            }
+            entry = new Entry(key, openDetails, requestLease(openDetails));
+            if (entry.leasedFile != null) {
+                requestDurability(openDetails);
+            }
+            entry.refCount = 1;
+            entry.lastUsed = System.nanoTime();
+            entries.put(key, entry);
+        }
+        final var create = new SmbClientOpenFile(openDetails, treeConnect).create();
+        Futures.addCallback(create, new FutureCallback<OpenFile>() {
+            @Override
+            public void onSuccess(final OpenFile opened) {
+                onOpened(entry, opened);
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                synchronized (SmbClientHandleCache.this) {
+                    entries.remove(entry.key, entry);
+                }
+                entry.openFuture.setException(cause);
+            }
+        }, MoreExecutors.directExecutor());
+        return entry.openFuture;
+    }
+
+    private void onOpened(final Entry entry, final OpenFile opened) {
+        final var granted = entry.openDetails.lease();
+        // handle is tracked by the cache, not by tree connect open table
+        treeConnect.details().opens().remove(entry.openDetails.fileName(), opened);
+        synchronized (this) {
+            entry.open = opened;
+            if (entry.leasedFile != null && granted != null
+                && granted.leaseState().get(Smb2LeaseStateFlags.SMB2_LEASE_HANDLE_CACHING)) {
+                entry.leasedFile.setBreakListener(() -> onLeaseBroken(entry));
+                connDetails.globalFiles().put(entry.leasedFile.leaseKey(), entry.leasedFile);
+                entry.retained = true;
+            }
+        }
+        entry.openFuture.set(new SmbClientCachedOpenFile(opened, this, entry));
+    }
+
+    /**
+     * Handle in use is shared only if it's open already and it's not a directory one.
+     */
+    private static boolean isShareable(final Entry entry) {
+        if (entry.invalid || entry.open == null) {
+            return false;
+        }
+        if (entry.refCount == 0) {
+            return true;
+        }
+        final var attributes = entry.openDetails.fileAttributes();
+        return attributes != null && !attributes.get(FileAttributeFlags.FILE_ATTRIBUTE_DIRECTORY);
+    }
+
+    /**
+     * Requests READ and HANDLE caching lease for the handle to be cached. Addresses MS-SMB2
+     * (#3.2.4.3.8 Requesting a Lease on a File or a Directory).
+     */
+    private FileDetails requestLease(final OpenDetails openDetails) {
+        if (!connDetails.supportsFileLeasing() || !connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB2_1)
+            || connDetails.clientCapabilities() == null
+            || !connDetails.clientCapabilities().get(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LEASING)) {
+            return null;
+        }
+        final var file = new FileDetails(openDetails.fileName(), treeConnect, UUID.randomUUID());
+        final var lease = new Smb2CreateLeaseContext();
+        lease.setLeaseKey(file.leaseKey());
+        lease.setLeaseState(new Flags<Smb2LeaseStateFlags>()
+            .set(Smb2LeaseStateFlags.SMB2_LEASE_READ_CACHING, true)
+            .set(Smb2LeaseStateFlags.SMB2_LEASE_HANDLE_CACHING, true));
+        lease.setLeaseFlags(new Flags<>());
+        lease.setV2(connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0));
+        openDetails.setLease(lease);
+        return file;
+    }
+
+    /**
+     * Requests the durable open, the HANDLE caching lease requested is the prerequisite. Addresses MS-SMB2
+     * (#3.2.4.3.6 Requesting a Durable Open).
+     */
+    private void requestDurability(final OpenDetails openDetails) {
+        if (connDetails.durableHandleTimeoutMillis() >= 0 && connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)) {
+            openDetails.setCreateGuid(UUID.randomUUID());
+            openDetails.setDurableTimeout(connDetails.durableHandleTimeoutMillis());
+        }
+    }
+
+    /**
+     * Releases the handle by one of its users. Handle not retained under the lease is closed when released
+     * by the last user.
+     *
+     * @param entry cache entry
+     * @return future of handle close, immediate if handle remains open
+     */
+    ListenableFuture<Void> release(final Entry entry) {
+        synchronized (this) {
+            entry.lastUsed = System.nanoTime();
+            if (--entry.refCount > 0) {
+                return Futures.immediateVoidFuture();
+            }
+            if (entry.retained && !entry.invalid) {
+                // idle handle is closed by lease break flow if the server asks for it
+                entry.leasedFile.retainHandle(entry.openDetails.fileId());
+                return Futures.immediateVoidFuture();
+            }
+            entries.remove(entry.key, entry);
+            entry.invalid = true;
+            forget(entry);
+        }
+        return closeHandle(entry.openDetails.fileId());
+    }
+
+    /**
+     * Invalidates the entry on HANDLE caching lease break. Idle handle is closed by the lease break flow
+     * once the break is acknowledged, handle in use is closed when released by the last user.
+     */
+    private synchronized void onLeaseBroken(final Entry entry) {
+        // lease is removed from client tables by the lease break flow
+        entry.invalid = true;
+        entries.remove(entry.key, entry);
+    }
+
+    /**
+     * Excludes the entry from reuse. Handle is closed immediately if it's not in use, otherwise when released
+     * by the last user.
+     *
+     * @param entry cache entry
+     */
+    void invalidate(final Entry entry) {
+        final UUID fileId;
+        synchronized (this) {
+            if (entry.invalid) {
+                return;
+            }
+            entry.invalid = true;
+            entries.remove(entry.key, entry);
+            if (entry.refCount > 0 || entry.open == null) {
+                return;
+            }
+            fileId = forget(entry);
+        }
+        closeHandle(fileId);
+    }
+
+    /**
+     * Closes the handles not used for longer than idle timeout.
+     *
+     * @param now current time (nanos)
+     * @return number of handles remaining cached
+     */
+    int reapIdle(final long now) {
+        final var idleNanos = connDetails.handleIdleTimeoutMillis() * 1_000_000L;
+        final var closing = new ArrayList<UUID>();
+        final int remaining;
+        synchronized (this) {
+            for (var entry : List.copyOf(entries.values())) {
+                if (entry.refCount == 0 && entry.open != null && now - entry.lastUsed >= idleNanos) {
+                    entries.remove(entry.key);
+                    entry.invalid = true;
+                    closing.add(forget(entry));
+                }
+            }
+            remaining = entries.size();
+        }
+        closing.forEach(this::closeHandle);
+        return remaining;
+    }
+
+    /**
+     * Re-establishes durable handles after the connection loss, the other handles are dropped as these were
+     * closed by the server. Entry of the handle failed to be re-established is invalidated. Addresses MS-SMB2
+     * (#3.2.4.4 Re-establishing a Durable Open).
+     *
+     * @param sender request sender of the tree connect re-established
+     * @param remap consumer of previous and new file id of each handle re-established
+     * @return future completing when all the handles are processed
+     */
+    ListenableFuture<Void> reconnect(final RequestSender sender, final BiConsumer<UUID, UUID> remap) {
+        final var durable = new ArrayList<Entry>();
+        synchronized (this) {
+            for (var entry : List.copyOf(entries.values())) {
+                if (entry.open != null && !entry.invalid && entry.openDetails.durable()) {
+                    if (entry.refCount == 0 && entry.retained) {
+                        // idle handle is retained again once re-established
+                        entry.leasedFile.releaseHandle();
+                    }
+                    durable.add(entry);
+                } else {
+                    entries.remove(entry.key);
+                    entry.invalid = true;
+                    forget(entry);
+                }
+            }
+        }
+        return Futures.whenAllComplete(durable.stream().map(entry -> reopen(entry, sender, remap)).toList())
+            .call(() -> null, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Void> reopen(final Entry entry, final RequestSender sender,
+        final BiConsumer<UUID, UUID> remap) {
+
+        final var previousId = entry.openDetails.fileId();
+        final var flow = new ClientOpenCreateFlow(entry.open, sender);
+        flow.start();
+        final var reopened = Futures.catching(flow.completeFuture(), Exception.class, cause -> null,
+            MoreExecutors.directExecutor());
+        return Futures.transform(reopened, open -> {
+            treeConnect.details().opens().remove(entry.openDetails.fileName(), entry.open);
+            synchronized (this) {
+                if (open == null) {
+                    // handle is lost, the one in use fails on next operation
+                    entries.remove(entry.key, entry);
+                    entry.invalid = true;
+                    forget(entry);
+                    return null;
+                }
+                if (entry.refCount == 0 && entry.retained && !entry.invalid) {
+                    entry.leasedFile.retainHandle(entry.openDetails.fileId());
+                }
+            }
+            remap.accept(previousId, entry.openDetails.fileId());
+            return null;
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Drops all the entries with no handle closed, these are closed by the server on tree disconnect.
+     */
+    synchronized void clear() {
+        for (var entry : entries.values()) {
+            entry.invalid = true;
+            forget(entry);
+        }
+        entries.clear();
+    }
+
+    synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Makes room for new entry evicting the least recently used idle handles.
+     *
+     * @return true if there is room for new entry
+     */
+    private boolean ensureCapacity() {
+        final var excess = entries.size() - connDetails.handleCacheSize() + 1;
+        if (excess <= 0) {
+            return true;
+        }
+        final var evicted = entries.values().stream()
+            .filter(entry -> entry.refCount == 0 && entry.open != null)
+            .sorted(Comparator.comparingLong(entry -> entry.lastUsed))
+            .limit(excess).toList();
+        for (var entry : evicted) {
+            entries.remove(entry.key);
+            entry.invalid = true;
+            closeHandle(forget(entry));
+        }
+        return evicted.size() == excess;
+    }
+
+    /**
+     * Removes the lease of the entry from client tables.
+     *
+     * @return file id of idle handle to be closed, null if the handle is in use or it was closed already
+     *     by lease break flow
+     */
+    private UUID forget(final Entry entry) {
+        if (!entry.retained) {
+            return entry.refCount > 0 ? null : entry.openDetails.fileId();
+        }
+        connDetails.globalFiles().remove(entry.leasedFile.leaseKey(), entry.leasedFile);
+        return entry.refCount > 0 ? null : entry.leasedFile.releaseHandle();
+    }
+
+    private ListenableFuture<Void> closeHandle(final UUID fileId) {
+        if (fileId == null) {
+            return Futures.immediateVoidFuture();
+        }
+        treeConnect.forgetFileId(fileId);
+        final var flow = new ClientOpenCloseFlow(fileId, treeConnect);
+        flow.start();
+        return flow.completeFuture();
+    }
+}
@@ -17,12 +17,20 @@ package local.mylan.transport.smb;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.netty.buffer.ByteBuf;
 import java.util.List;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.DirectoryReader;
+import local.mylan.transport.smb.protocol.details.FileStreamReader;
 import local.mylan.transport.smb.protocol.details.OpenDetails;
 import local.mylan.transport.smb.protocol.details.OpenFile;
 import local.mylan.transport.smb.protocol.flows.ClientOpenCloseFlow;
+import local.mylan.transport.smb.protocol.flows.ClientCompoundQueryDirectoryFlow;
 import local.mylan.transport.smb.protocol.flows.ClientOpenCreateFlow;
 import local.mylan.transport.smb.protocol.flows.ClientQueryDirectoryFlow;
+import local.mylan.transport.smb.protocol.flows.ClientReadFlow;
+import local.mylan.transport.smb.protocol.flows.ClientWriteFlow;
 import local.mylan.transport.smb.protocol.flows.RequestSender;
 import local.mylan.transport.smb.protocol.fscc.FileInformation;
 import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
@@ -58,11 +66,69 @@ public class SmbClientOpenFile implements OpenFile {
     public ListenableFuture<List<FileInformation>> queryDirectory(final String searchPattern,
         final FileInformationClass fic, final int maxRead) {
 
-        final var flow = new ClientQueryDirectoryFlow(sender, details.fileId(), fic, searchPattern, maxRead);
+        final var flow = new ClientQueryDirectoryFlow(sender, details.fileId(), fic, searchPattern, maxRead,
+            ClientCompoundQueryDirectoryFlow.outputBufferLength(connectionDetails()));
         flow.start();
         return flow.completeFuture();
     }
 
+    @Override
+    public DirectoryReader readDirectory(final String searchPattern, final FileInformationClass fic) {
+        return new SmbClientDirectoryReader(sender, details.fileId(), fic, searchPattern,
+            ClientCompoundQueryDirectoryFlow.outputBufferLength(connectionDetails()));
+    }
+
+    @Override
+    public ListenableFuture<ByteBuf> read(final long offset, final int length) {
+        final var connDetails = connectionDetails();
+        final var readLength = Math.min(length, SmbClientFileStreamReader.maxReadSize(connDetails));
+        final var flow = new ClientReadFlow(sender, details.fileId(), offset, readLength,
+            connDetails.supportsMultiCredit());
+        flow.start();
+        return flow.completeFuture();
+    }
+
+    @Override
+    public FileStreamReader readStream(final long offset, final long length) {
+        return readStream(offset, length, connectionDetails().readWindowSize() * channelCount());
+    }
+
+    @Override
+    public FileStreamReader readStream(final long offset, final long length, final int windowSize) {
+        return new SmbClientFileStreamReader(sender, connectionDetails(), details.fileId(), offset, length,
+            windowSize);
+    }
+
+    @Override
+    public ListenableFuture<Long> write(final long offset, final ByteBuf data) {
+        final ConnectionDetails connDetails;
+        try {
+            connDetails = connectionDetails();
+        } catch (SmbException e) {
+            data.release();
+            return Futures.immediateFailedFuture(e);
+        }
+        final var flow = new ClientWriteFlow(sender, connDetails, details.fileId(), offset, data,
+            connDetails.writeWindowSize() * channelCount());
+        flow.start();
+        return flow.completeFuture();
+    }
+
+    private ConnectionDetails connectionDetails() {
+        if (details.fileId() == null || details.treeConnect() == null) {
+            throw new SmbException("File is not open");
+        }
+        return details.treeConnect().details().session().details().connection().details();
+    }
+
+    /**
+     * Returns number of channels session is bound to, the window is scaled accordingly so each channel
+     * is kept busy.
+     */
+    private int channelCount() {
+        return Math.max(1, details.treeConnect().details().session().details().channels().size());
+    }
+
     @Override
     public ListenableFuture<Void> close() {
         if (details.fileId() == null) {
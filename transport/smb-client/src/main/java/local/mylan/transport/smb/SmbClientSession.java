@@ -22,31 +22,54 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.details.ChannelDetails;
+import local.mylan.transport.smb.protocol.details.Connection;
 import local.mylan.transport.smb.protocol.details.Session;
 import local.mylan.transport.smb.protocol.details.SessionDetails;
-import local.mylan.transport.smb.protocol.details.ShareDetails;
 import local.mylan.transport.smb.protocol.details.TreeConnect;
 import local.mylan.transport.smb.protocol.flows.AuthMechanism;
-import local.mylan.transport.smb.protocol.flows.ClientEnumerateSharesFlow;
 import local.mylan.transport.smb.protocol.flows.ClientLogoffFlow;
+import local.mylan.transport.smb.protocol.flows.ClientQueryNetworkInterfacesFlow;
 import local.mylan.transport.smb.protocol.flows.ClientSessionSetupFlow;
 import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
 import local.mylan.transport.smb.protocol.srvs.SrvsShareInfo;
 import local.mylan.transport.smb.protocol.srvs.SrvsShareType;
 
+/**
+ * Client session. The session may be bound to multiple connections (channels), READ and WRITE requests
+ * are spread across the channels, the other requests are sent via the connection session was established over.
+ *
+ * <p>If the connection is lost unexpectedly the session is re-established over the new connection to the same
+ * server, requests are held until then (see {@link #reconnect(Connection, RequestSender, AuthMechanism)}).
+ */
 public final class SmbClientSession implements Session, RequestSender {
+    private static final int MAX_INTERFACES_OUTPUT = 65536;
 
     private final SessionDetails sessDetails;
-    private final RequestSender requestSender;
+    private final AtomicInteger nextChannel = new AtomicInteger();
+    private final SmbClientSrvsvcChannel srvsvcChannel = new SmbClientSrvsvcChannel(this);
+    private volatile RequestSender requestSender;
+    private volatile Channel[] channels;
+    private volatile long lastUsed = System.nanoTime();
+    private volatile SettableFuture<Session> reconnectFuture;
+
+    private record Channel(Connection connection, RequestSender sender) {
+    }
 
     SmbClientSession(final SessionDetails sessDetails, final RequestSender requestSender) {
         this.sessDetails = requireNonNull(sessDetails);
         this.requestSender = requireNonNull(requestSender);
         requireNonNull(sessDetails.connection(), "missing connection in session details");
+        channels = new Channel[]{new Channel(sessDetails.connection(), requestSender)};
     }
 
     @Override
@@ -57,77 +80,233 @@ public final class SmbClientSession implements Session, RequestSender {
     ListenableFuture<Session> setup(final AuthMechanism authMech) {
         final var setupFlow = new ClientSessionSetupFlow(this, this, authMech);
         setupFlow.start();
-        return setupFlow.completeFuture();
+        return Futures.transform(setupFlow.completeFuture(), session -> {
+            addPrimaryChannel();
+            return session;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void addPrimaryChannel() {
+        final var channel = new ChannelDetails();
+        channel.setConnection(sessDetails.connection());
+        channel.setSigningKey(sessDetails.signingKey());
+        addChannel(channel, requestSender);
+    }
+
+    /**
+     * Holds the requests until the session and its tree connects are re-established, invoked on the connection
+     * loss.
+     */
+    synchronized void beginReconnect() {
+        if (reconnectFuture != null && !reconnectFuture.isDone()) {
+            return;
+        }
+        reconnectFuture = SettableFuture.create();
+        for (var treeConnect : sessDetails.treeConnects().values()) {
+            if (treeConnect instanceof SmbClientTreeConnect clientTreeConnect) {
+                clientTreeConnect.beginReconnect();
+            }
+        }
+    }
+
+    /**
+     * Re-establishes the session over new connection after the connection loss. New session is set up with
+     * the previous session id provided, so the server expires the previous one, then the tree connects
+     * and durable handles are re-established. Addresses MS-SMB2 (#3.2.4.2.3 Authenticating the User,
+     * #3.2.4.4 Re-establishing a Durable Open).
+     *
+     * @param connection new connection to the server
+     * @param sender request sender of the connection
+     * @param authMech authentication mechanism, new authentication of the session user is performed
+     * @return future completing with this session when the session is re-established
+     */
+    ListenableFuture<Session> reconnect(final Connection connection, final RequestSender sender,
+        final AuthMechanism authMech) {
+
+        beginReconnect();
+        final var future = reconnectFuture;
+        synchronized (this) {
+            sessDetails.setPreviousSessionId(sessDetails.sessionId());
+            sessDetails.setSessionId(null);
+            sessDetails.setConnection(connection);
+            sessDetails.channels().clear();
+            channels = new Channel[]{new Channel(connection, sender)};
+            requestSender = sender;
+        }
+        final ClientSessionSetupFlow setupFlow;
+        try {
+            setupFlow = new ClientSessionSetupFlow(this, this::sendNow, authMech);
+        } catch (RuntimeException e) {
+            abortReconnect(e);
+            return future;
+        }
+        setupFlow.start();
+        Futures.addCallback(setupFlow.completeFuture(), new FutureCallback<Session>() {
+            @Override
+            public void onSuccess(final Session session) {
+                sessDetails.setPreviousSessionId(null);
+                addPrimaryChannel();
+                future.set(session);
+                // requests held by tree connects are sent when these are re-established
+                for (var treeConnect : List.copyOf(sessDetails.treeConnects().values())) {
+                    if (treeConnect instanceof SmbClientTreeConnect clientTreeConnect) {
+                        clientTreeConnect.reconnect();
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                abortReconnect(cause);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Fails the session reconnect, requests held are sent and failed over the connection lost.
+     *
+     * @param cause the failure cause
+     */
+    void abortReconnect(final Throwable cause) {
+        for (var treeConnect : List.copyOf(sessDetails.treeConnects().values())) {
+            if (treeConnect instanceof SmbClientTreeConnect clientTreeConnect) {
+                clientTreeConnect.abortReconnect(cause);
+            }
+        }
+        sessDetails.treeConnects().clear();
+        final var future = reconnectFuture;
+        if (future != null) {
+            future.setException(cause);
+        }
+    }
+
+    /**
+     * Binds the session to another connection. Addresses MS-SMB2 (#3.2.4.2.3 Authenticating the User).
+     *
+     * @param connection the connection to bind the session to
+     * @param sender request sender of the connection
+     * @param authMech authentication mechanism, new authentication of the session user is performed
+     * @return future completing with this session when binding is complete
+     */
+    ListenableFuture<Session> bind(final Connection connection, final RequestSender sender,
+        final AuthMechanism authMech) {
+
+        final var channel = new ChannelDetails();
+        channel.setConnection(connection);
+        final var bindFlow = new ClientSessionSetupFlow(this, channel, sender, authMech);
+        bindFlow.start();
+        return Futures.transform(bindFlow.completeFuture(), session -> {
+            addChannel(channel, sender);
+            return session;
+        }, MoreExecutors.directExecutor());
+    }
+
+    synchronized void addChannel(final ChannelDetails channel, final RequestSender sender) {
+        final var connection = channel.connection();
+        if (sessDetails.channels().stream().noneMatch(existing -> existing.connection() == connection)) {
+            sessDetails.channels().add(channel);
+        }
+        if (Arrays.stream(channels).noneMatch(existing -> existing.connection() == connection)) {
+            final var updated = Arrays.copyOf(channels, channels.length + 1);
+            updated[channels.length] = new Channel(connection, sender);
+            channels = updated;
+        }
+    }
+
+    synchronized void removeChannel(final Connection connection) {
+        sessDetails.channels().removeIf(channel -> channel.connection() == connection);
+        if (connection != sessDetails.connection()) {
+            channels = Arrays.stream(channels).filter(channel -> channel.connection() != connection)
+                .toArray(Channel[]::new);
+        }
     }
 
     @Override
     public void send(final Smb2Request request, final Consumer<Smb2Response> callback) {
+        final var pending = reconnectFuture;
+        if (pending != null && !pending.isDone()) {
+            pending.addListener(() -> send(request, callback), MoreExecutors.directExecutor());
+            return;
+        }
+        sendNow(request, callback);
+    }
+
+    private void sendNow(final Smb2Request request, final Consumer<Smb2Response> callback) {
         final var sessionId = sessDetails.sessionId();
         request.header().setSessionId(sessionId == null ? 0 : sessionId);
-        requestSender.send(request, callback);
+        lastUsed = System.nanoTime();
+        channelSender(request).send(request, callback);
     }
 
-    @Override
-    public ListenableFuture<List<SrvsShareInfo>> enumerateShares() {
-        final var resultFuture = SettableFuture.<List<SrvsShareInfo>>create();
-        Futures.addCallback(
-            new SmbClientTreeConnect("IPC$", this, this).connect(),
-            new FutureCallback<TreeConnect>() {
-                @Override
-                public void onSuccess(final TreeConnect treeConnect) {
-                    final var enumSharesFlow = new ClientEnumerateSharesFlow(
-                        sessDetails.connection().details().serverName(), (RequestSender) treeConnect);
-                    Futures.addCallback(enumSharesFlow.completeFuture(), new FutureCallback<List<SrvsShareInfo>>() {
-                        @Override
-                        public void onSuccess(final List<SrvsShareInfo> infos) {
-                            treeConnect.disconnect().addListener(
-                                () -> resultFuture.set(infos),
-                                MoreExecutors.directExecutor());
-                        }
-
-                        @Override
-                        public void onFailure(final Throwable failure) {
-                            resultFuture.setException(failure);
-                        }
-                    }, MoreExecutors.directExecutor());
-                    enumSharesFlow.start();
-                }
-
-                @Override
-                public void onFailure(final Throwable failure) {
-                    resultFuture.setException(failure);
+    /**
+     * Selects the channel for the request. READ and WRITE requests go to the channel having most credits
+     * available (equal credits are resolved round-robin), so the data transfer is spread across the connections
+     * proportionally to the server grants per connection.
+     */
+    private RequestSender channelSender(final Smb2Request request) {
+        final var current = channels;
+        if (current.length < 2 || !(request instanceof Smb2ReadRequest || request instanceof Smb2WriteRequest)) {
+            return requestSender;
+        }
+        final var start = Math.floorMod(nextChannel.getAndIncrement(), current.length);
+        var selected = requestSender;
+        var maxAvailable = -1L;
+        for (int i = 0; i < current.length; i++) {
+            final var channel = current[(start + i) % current.length];
+            if (channel.connection().isActive()) {
+                final var available = channel.sender().creditsAvailable();
+                if (available > maxAvailable) {
+                    maxAvailable = available;
+                    selected = channel.sender();
                 }
-            }, MoreExecutors.directExecutor());
-        return resultFuture;
+            }
+        }
+        return selected;
     }
 
     @Override
-    public ListenableFuture<List<String>> shareNames(final boolean forceFetch) {
-        final var serverShares = sessDetails.connection().details().server().shares();
-        if (!forceFetch && !serverShares.isEmpty()) {
-            return Futures.immediateFuture(serverShares.stream().map(ShareDetails::pathName).toList());
+    public long creditsAvailable() {
+        final var current = channels;
+        if (current.length < 2) {
+            return requestSender.creditsAvailable();
         }
-
-        final var resultFuture = SettableFuture.<List<String>>create();
-        Futures.addCallback(enumerateShares(), new FutureCallback<List<SrvsShareInfo>>() {
-            @Override
-            public void onSuccess(final List<SrvsShareInfo> infos) {
-                final var shareNames = infos.stream().filter(
-                    info -> info.type().type() == SrvsShareType.SType.STYPE_DISKTREE
-                        && !info.type().special() && !info.type().temporary()
-                ).map(SrvsShareInfo::netName).toList();
-                sessDetails.connection().details().server().setShares(
-                    shareNames.stream().map(ShareDetails::new).toList());
-                resultFuture.set(List.copyOf(shareNames));
+        var available = 0L;
+        for (var channel : current) {
+            if (channel.connection().isActive()) {
+                available += channel.sender().creditsAvailable();
             }
+        }
+        return available;
+    }
 
-            @Override
-            public void onFailure(final Throwable throwable) {
-                resultFuture.setException(throwable);
-            }
+    @Override
+    public ListenableFuture<List<SrvsShareInfo>> enumerateShares() {
+        return srvsvcChannel.enumerateShares(sessDetails.connection().details().serverName());
+    }
+
+    @Override
+    public ListenableFuture<List<Smb2NetworkInterfaceInfo>> queryNetworkInterfaces() {
+        final var maxTransactSize = sessDetails.connection().details().maxTransactSize();
+        final var maxOutput = maxTransactSize > 0 ? Math.min(maxTransactSize, MAX_INTERFACES_OUTPUT)
+            : MAX_INTERFACES_OUTPUT;
+        return Futures.transformAsync(new SmbClientTreeConnect("IPC$", this, this).connect(), treeConnect -> {
+            final var flow = new ClientQueryNetworkInterfacesFlow((RequestSender) treeConnect, maxOutput);
+            flow.start();
+            return Futures.transformAsync(flow.completeFuture(),
+                infos -> Futures.transform(treeConnect.disconnect(), ignored -> infos, MoreExecutors.directExecutor()),
+                MoreExecutors.directExecutor());
         }, MoreExecutors.directExecutor());
+    }
 
-        return resultFuture;
+    @Override
+    public ListenableFuture<List<String>> shareNames(final boolean forceFetch) {
+        final var connDetails = sessDetails.connection().details();
+        return connDetails.server().shareNames(forceFetch, connDetails.shareCacheTtlMillis(),
+            () -> Futures.transform(enumerateShares(), infos -> infos.stream().filter(
+                info -> info.type().type() == SrvsShareType.SType.STYPE_DISKTREE
+                    && !info.type().special() && !info.type().temporary()
+            ).map(SrvsShareInfo::netName).toList(), MoreExecutors.directExecutor()));
     }
 
     @Override
@@ -139,8 +318,30 @@ public final class SmbClientSession implements Session, RequestSender {
         return new SmbClientTreeConnect(name, this, this).connect();
     }
 
+    /**
+     * Reaps idle tree connects, then closes the session if there was no activity for longer than idle timeout
+     * and no tree connect remains.
+     *
+     * @param now current time (nanos)
+     * @return true if the session is being closed
+     */
+    boolean reapIdle(final long now) {
+        for (var treeConnect : List.copyOf(sessDetails.treeConnects().values())) {
+            if (treeConnect instanceof SmbClientTreeConnect clientTreeConnect) {
+                clientTreeConnect.reapIdle(now);
+            }
+        }
+        final var timeout = sessDetails.connection().details().sessionIdleTimeoutMillis();
+        if (timeout <= 0 || !sessDetails.treeConnects().isEmpty() || now - lastUsed < timeout * 1_000_000L) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
     @Override
     public ListenableFuture<Void> close() {
+        srvsvcChannel.close();
         if (sessDetails.sessionId() != null && sessDetails.connection() != null) {
             final var logoffFlow = new ClientLogoffFlow(sessDetails.sessionId(), sessDetails.connection().details(),
                 this);
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import local.mylan.transport.smb.protocol.details.TreeConnect;
+import local.mylan.transport.smb.protocol.flows.ClientEnumerateSharesFlow;
+import local.mylan.transport.smb.protocol.flows.ClientSrvsvcBindFlow;
+import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareInfo;
+
+/**
+ * Server Service (SRVSVC) RPC channel of a session. IPC$ tree connect, SRVSVC pipe and its DCE/RPC binding
+ * are established on first call and kept for subsequent ones, so the RPC call costs a single round trip
+ * when the channel is ready. Calls are sent sequentially. If a call fails the binding is dropped, the call
+ * over previously established binding is retried once with a new one (pipe may be closed by server).
+ */
+final class SmbClientSrvsvcChannel {
+
+    private final SmbClientSession session;
+    private ListenableFuture<Binding> binding;
+    private ListenableFuture<?> lastCall = Futures.immediateVoidFuture();
+
+    private record Binding(TreeConnect treeConnect, UUID fileId, AtomicInteger callIds) {
+    }
+
+    SmbClientSrvsvcChannel(final SmbClientSession session) {
+        this.session = session;
+    }
+
+    synchronized ListenableFuture<List<SrvsShareInfo>> enumerateShares(final String serverName) {
+        // RPC calls over the pipe are not concurrent, next call starts when previous one completes
+        final var call = Futures.whenAllComplete(lastCall)
+            .callAsync(() -> enumerateShares(serverName, true), MoreExecutors.directExecutor());
+        lastCall = call;
+        return call;
+    }
+
+    private ListenableFuture<List<SrvsShareInfo>> enumerateShares(final String serverName, final boolean retry) {
+        final ListenableFuture<Binding> current;
+        final boolean established;
+        synchronized (this) {
+            // binding kept from the previous call, completion state doesn't tell if it was just made
+            established = binding != null;
+            current = binding();
+        }
+        final var result = Futures.transformAsync(current, bound -> {
+            final var flow = new ClientEnumerateSharesFlow(serverName, bound.fileId(), bound.callIds(),
+                (RequestSender) bound.treeConnect());
+            flow.start();
+            return flow.completeFuture();
+        }, MoreExecutors.directExecutor());
+        return Futures.catchingAsync(result, Exception.class, failure -> {
+            reset(current);
+            return retry && established ? enumerateShares(serverName, false)
+                : Futures.immediateFailedFuture(failure);
+        }, MoreExecutors.directExecutor());
+    }
+
+    private synchronized ListenableFuture<Binding> binding() {
+        if (binding == null) {
+            final var callIds = new AtomicInteger();
+            binding = Futures.transformAsync(session.getOrConnectTree("IPC$"), treeConnect -> {
+                final var flow = new ClientSrvsvcBindFlow((RequestSender) treeConnect, callIds);
+                flow.start();
+                return Futures.transform(flow.completeFuture(),
+                    fileId -> new Binding(treeConnect, fileId, callIds), MoreExecutors.directExecutor());
+            }, MoreExecutors.directExecutor());
+        }
+        return binding;
+    }
+
+    private synchronized void reset(final ListenableFuture<Binding> failed) {
+        if (binding == failed) {
+            binding = null;
+        }
+    }
+
+    /**
+     * Drops the binding. Pipe handle and tree connect are invalidated by the server on session logoff.
+     */
+    synchronized void close() {
+        binding = null;
+    }
+}
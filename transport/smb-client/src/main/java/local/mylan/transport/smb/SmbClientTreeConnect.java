@@ -17,24 +17,50 @@ package local.mylan.transport.smb;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.DirectoryWatch;
+import local.mylan.transport.smb.protocol.details.FileDetails;
 import local.mylan.transport.smb.protocol.details.OpenDetails;
 import local.mylan.transport.smb.protocol.details.OpenFile;
 import local.mylan.transport.smb.protocol.details.Session;
 import local.mylan.transport.smb.protocol.details.SessionDetails;
 import local.mylan.transport.smb.protocol.details.TreeConnect;
 import local.mylan.transport.smb.protocol.details.TreeConnectDetails;
+import local.mylan.transport.smb.protocol.flows.ClientCompoundQueryDirectoryFlow;
+import local.mylan.transport.smb.protocol.flows.ClientOpenCloseFlow;
 import local.mylan.transport.smb.protocol.flows.ClientTreeConnectFlow;
 import local.mylan.transport.smb.protocol.flows.ClientTreeDisconnectFlow;
 import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
 import local.mylan.transport.smb.protocol.smb2.Smb2AccessMask;
+import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateOptionsFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseStateFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2ShareAccessFlags;
 
 public class SmbClientTreeConnect implements TreeConnect, RequestSender {
@@ -42,6 +68,12 @@ public class SmbClientTreeConnect implements TreeConnect, RequestSender {
     private final TreeConnectDetails details;
     private final SessionDetails sessDetails;
     private final RequestSender sender;
+    private final SmbClientHandleCache handleCache;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    // file ids of durable handles re-established after reconnect, previous -> current
+    private final Map<UUID, UUID> fileIdRemap = new ConcurrentHashMap<>();
+    private volatile long lastUsed = System.nanoTime();
+    private volatile SettableFuture<Void> reconnectFuture;
 
     public SmbClientTreeConnect(final String shareName, final Session session, final RequestSender sender) {
         details = new TreeConnectDetails();
@@ -53,6 +85,7 @@ public class SmbClientTreeConnect implements TreeConnect, RequestSender {
         details.setSharePath(
             "\\\\%s\\%s".formatted(requireNonNull(sessDetails.connection().details().serverName()), shareName));
         this.sender = sender;
+        handleCache = new SmbClientHandleCache(this, sessDetails.connection().details());
     }
 
     @Override
@@ -68,43 +101,350 @@ public class SmbClientTreeConnect implements TreeConnect, RequestSender {
 
     @Override
     public ListenableFuture<Void> disconnect() {
+        // handles kept open are closed by server on tree disconnect
+        for (var file : List.copyOf(details.leasedFiles().values())) {
+            file.releaseHandle();
+            forget(file);
+        }
+        handleCache.clear();
         final var flow = new ClientTreeDisconnectFlow(this, this);
         flow.start();
         return flow.completeFuture();
     }
 
+    /**
+     * Holds the requests until the tree connect is re-established, invoked on the connection loss.
+     */
+    synchronized void beginReconnect() {
+        if (reconnectFuture == null || reconnectFuture.isDone()) {
+            reconnectFuture = SettableFuture.create();
+        }
+    }
+
+    /**
+     * Re-establishes the tree connect over the session reconnected, then the durable handles are reclaimed.
+     * Directory leases and the other handles are dropped as these were closed by the server along with
+     * the previous session. Requests held are sent once complete, READ requests over the durable handles
+     * are sent with the file id remapped.
+     *
+     * @return future completing when the tree connect is re-established
+     */
+    ListenableFuture<Void> reconnect() {
+        beginReconnect();
+        final var future = reconnectFuture;
+        dropHandles();
+        final RequestSender direct = this::sendNow;
+        final var flow = new ClientTreeConnectFlow(this, direct);
+        flow.start();
+        future.setFuture(Futures.transformAsync(flow.completeFuture(),
+            connected -> handleCache.reconnect(direct, this::remapFileId), MoreExecutors.directExecutor()));
+        return future;
+    }
+
+    /**
+     * Fails the tree connect reconnect, requests held are sent and failed over the connection lost.
+     *
+     * @param cause the failure cause
+     */
+    void abortReconnect(final Throwable cause) {
+        dropHandles();
+        handleCache.clear();
+        final var future = reconnectFuture;
+        if (future != null) {
+            future.setException(cause);
+        }
+    }
+
+    private void dropHandles() {
+        for (var file : List.copyOf(details.leasedFiles().values())) {
+            file.releaseHandle();
+            forget(file);
+        }
+        details.opens().clear();
+    }
+
+    private void remapFileId(final UUID previous, final UUID current) {
+        // requests referring the handle re-established earlier are remapped to the current one
+        fileIdRemap.replaceAll((original, remapped) -> remapped.equals(previous) ? current : remapped);
+        fileIdRemap.put(previous, current);
+    }
+
+    void forgetFileId(final UUID fileId) {
+        fileIdRemap.values().removeIf(fileId::equals);
+    }
+
     @Override
     public ListenableFuture<OpenFile> openFile(final String path) {
+        final var openDetails = new OpenDetails();
+        openDetails.setFileName(path);
+        return openFile(openDetails);
+    }
+
+    @Override
+    public ListenableFuture<OpenFile> openFile(final OpenDetails openDetails) {
+        final var path = openDetails.fileName();
+        final var name = path == null || path.isEmpty() ? "." : path;
+        openDetails.setFileName(name);
+        applyDefaults(openDetails);
+        return handleCache.isCacheable(openDetails) ? handleCache.acquire(openDetails)
+            : new SmbClientOpenFile(openDetails, this).create();
+    }
+
+    /**
+     * Closes the idle handles and disconnects the tree connect if there was no activity for longer than idle
+     * timeout and there is neither request outstanding nor handle open.
+     *
+     * @param now current time (nanos)
+     * @return true if the tree connect is being disconnected
+     */
+    boolean reapIdle(final long now) {
+        final var remaining = handleCache.reapIdle(now);
+        final var timeout = sessDetails.connection().details().treeConnectIdleTimeoutMillis();
+        if (timeout <= 0 || remaining > 0 || outstanding.get() > 0 || !details.opens().isEmpty()
+            || now - lastUsed < timeout * 1_000_000L) {
+            return false;
+        }
+        disconnect();
+        return true;
+    }
+
+    @Override
+    public ListenableFuture<List<FileInformation>> listDirectory(final String path) {
         final var name = path == null || path.isEmpty() ? "." : path;
-        final var opened = details.opens().get(name);
-        if (opened != null) {
-            return Futures.immediateFuture(opened);
+        if (!leaseCacheEnabled()) {
+            final var openDetails = newDirectoryOpenDetails(name);
+            final var flow = new ClientCompoundQueryDirectoryFlow(this, openDetails,
+                FileInformationClass.FileDirectoryInformation, "*",
+                ClientCompoundQueryDirectoryFlow.outputBufferLength(sessDetails.connection().details()));
+            flow.start();
+            return Futures.transformAsync(flow.completeFuture(),
+                files -> files == null ? enumerateDirectory(name) : Futures.immediateFuture(files),
+                MoreExecutors.directExecutor());
         }
-        final var openDetails = defaultOpenDetails(name);
-        return new SmbClientOpenFile(openDetails, this).create();
+        final var file = details.leasedFiles().computeIfAbsent(name, key -> {
+            final var leased = new FileDetails(key, this, UUID.randomUUID());
+            sessDetails.connection().details().globalFiles().put(leased.leaseKey(), leased);
+            return leased;
+        });
+        final var cached = file.directoryEntries();
+        return cached == null ? listLeasedDirectory(file) : Futures.immediateFuture(cached);
+    }
+
+    @Override
+    public ListenableFuture<FileInformation> fileInformation(final String path) {
+        final var separator = path.lastIndexOf('\\');
+        final var parent = separator < 0 ? "" : path.substring(0, separator);
+        final var name = path.substring(separator + 1);
+        return Futures.transform(listDirectory(parent),
+            files -> files.stream()
+                .filter(info -> info instanceof FileDirectoryInformation dirInfo
+                    && name.equalsIgnoreCase(dirInfo.fileName()))
+                .findFirst().orElse(null),
+            MoreExecutors.directExecutor());
     }
 
-    private OpenDetails defaultOpenDetails(final String name) {
+    @Override
+    public ListenableFuture<DirectoryWatch> watchDirectory(final String path, final boolean watchTree,
+        final Consumer<List<FileNotifyInformation>> listener) {
+
+        final var openDetails = new OpenDetails();
+        openDetails.setFileName(path == null || path.isEmpty() ? "." : path);
+        openDetails.setCreateOptions(new Flags<Smb2CreateOptionsFlags>()
+            .set(Smb2CreateOptionsFlags.FILE_DIRECTORY_FILE, true));
+        // long living handle should not prevent others from modifying or removing the directory
+        openDetails.setShareAccess(new Flags<Smb2ShareAccessFlags>()
+            .set(Smb2ShareAccessFlags.FILE_SHARE_READ, true)
+            .set(Smb2ShareAccessFlags.FILE_SHARE_WRITE, true)
+            .set(Smb2ShareAccessFlags.FILE_SHARE_DELETE, true));
+        applyDefaults(openDetails);
+        return new SmbClientDirectoryWatch(openDetails, this, sessDetails.connection().details(), watchTree,
+            listener).start();
+    }
+
+    private boolean leaseCacheEnabled() {
+        final var connection = sessDetails.connection();
+        final var connDetails = connection.details();
+        return connDetails.leaseCacheSize() > 0 && connection.isActive()
+            && connDetails.supportsDirectoryLeasing() && connDetails.clientCapabilities() != null
+            && connDetails.clientCapabilities().get(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_DIRECTORY_LEASING);
+    }
+
+    /**
+     * Lists the directory requesting READ and HANDLE caching lease. The entries are cached if the lease
+     * is granted and not broken while the listing was in progress. The handle is kept open as long as
+     * the lease grants HANDLE caching, otherwise the server would release the lease on handle close.
+     * Addresses MS-SMB2 (#3.2.4.3.8 Requesting a Lease on a File or a Directory).
+     */
+    private ListenableFuture<List<FileInformation>> listLeasedDirectory(final FileDetails file) {
+        final var connDetails = sessDetails.connection().details();
+        final var breakCount = file.breakCount();
+        final var lease = new Smb2CreateLeaseContext();
+        lease.setLeaseKey(file.leaseKey());
+        lease.setLeaseState(new Flags<Smb2LeaseStateFlags>()
+            .set(Smb2LeaseStateFlags.SMB2_LEASE_READ_CACHING, true)
+            .set(Smb2LeaseStateFlags.SMB2_LEASE_HANDLE_CACHING, true));
+        lease.setLeaseFlags(new Flags<>());
+        lease.setV2(connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0));
+        final var openDetails = newDirectoryOpenDetails(file.fileName());
+        openDetails.setLease(lease);
+        final var flow = new ClientCompoundQueryDirectoryFlow(this, openDetails,
+            FileInformationClass.FileDirectoryInformation, "*",
+            ClientCompoundQueryDirectoryFlow.outputBufferLength(connDetails), true);
+        flow.start();
+        Futures.addCallback(flow.completeFuture(), new FutureCallback<List<FileInformation>>() {
+            @Override
+            public void onSuccess(final List<FileInformation> files) {
+                final var granted = openDetails.lease();
+                if (granted != null && details.leasedFiles().get(file.fileName()) == file
+                    && granted.leaseState().get(Smb2LeaseStateFlags.SMB2_LEASE_HANDLE_CACHING)
+                    && file.cacheDirectoryEntries(files, granted.leaseState(), granted.epoch(), breakCount)
+                    && file.retainHandle(openDetails.fileId())) {
+                    evictLeasedFiles(connDetails);
+                    return;
+                }
+                closeHandle(openDetails.fileId());
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                closeHandle(openDetails.fileId());
+            }
+        }, MoreExecutors.directExecutor());
+        return flow.completeFuture();
+    }
+
+    /**
+     * Releases the least recently accessed leases if number of leased files exceeds the cache size.
+     */
+    private void evictLeasedFiles(final ConnectionDetails connDetails) {
+        final var excess = details.leasedFiles().size() - connDetails.leaseCacheSize();
+        if (excess <= 0) {
+            return;
+        }
+        details.leasedFiles().values().stream()
+            .sorted(Comparator.comparingLong(FileDetails::lastAccessTime))
+            .limit(excess).toList()
+            .forEach(file -> {
+                forget(file);
+                closeHandle(file.releaseHandle());
+            });
+    }
+
+    private void forget(final FileDetails file) {
+        details.leasedFiles().remove(file.fileName(), file);
+        sessDetails.connection().details().globalFiles().remove(file.leaseKey(), file);
+    }
+
+    private void closeHandle(final UUID fileId) {
+        if (fileId != null) {
+            new ClientOpenCloseFlow(fileId, this).start();
+        }
+    }
+
+    private OpenDetails newDirectoryOpenDetails(final String name) {
         final var openDetails = new OpenDetails();
-        openDetails.setTreeConnect(this);
         openDetails.setFileName(name);
-        openDetails.setCreateOptions(new Flags<>());
-        openDetails.setFileAttributes(new Flags<>());
-        openDetails.setDesiredAccess(new Flags<Smb2AccessMask>()
+        applyDefaults(openDetails);
+        return openDetails;
+    }
+
+    private ListenableFuture<List<FileInformation>> enumerateDirectory(final String path) {
+        return Futures.transformAsync(openFile(path),
+            open -> Futures.transformAsync(open.queryDirectory(),
+                files -> Futures.transform(open.close(), ignored -> files, MoreExecutors.directExecutor()),
+                MoreExecutors.directExecutor()),
+            MoreExecutors.directExecutor());
+    }
+
+    private void applyDefaults(final OpenDetails openDetails) {
+        openDetails.setTreeConnect(this);
+        if (openDetails.createOptions() == null) {
+            openDetails.setCreateOptions(new Flags<>());
+        }
+        if (openDetails.fileAttributes() == null) {
+            openDetails.setFileAttributes(new Flags<>());
+        }
+        if (openDetails.desiredAccess() == null) {
+            openDetails.setDesiredAccess(new Flags<Smb2AccessMask>()
                 .set(Smb2AccessMask.FILE_READ_DATA, true)
                 .set(Smb2AccessMask.FILE_READ_ATTRIBUTES, true));
-        openDetails.setShareAccess(new Flags<Smb2ShareAccessFlags>()
-            .set(Smb2ShareAccessFlags.FILE_SHARE_READ, true));
-        openDetails.setCreateDisposition(Smb2CreateDisposition.FILE_OPEN);
-        openDetails.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
-        return openDetails;
+        }
+        if (openDetails.shareAccess() == null) {
+            openDetails.setShareAccess(new Flags<Smb2ShareAccessFlags>()
+                .set(Smb2ShareAccessFlags.FILE_SHARE_READ, true));
+        }
+        if (openDetails.createDisposition() == null) {
+            openDetails.setCreateDisposition(Smb2CreateDisposition.FILE_OPEN);
+        }
+        if (openDetails.opLockLevel() == null) {
+            openDetails.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
+        }
     }
 
     @Override
     public void send(final Smb2Request request, final Consumer<Smb2Response> callback) {
+        final var pending = reconnectFuture;
+        if (pending != null && !pending.isDone()) {
+            pending.addListener(() -> send(request, callback), MoreExecutors.directExecutor());
+            return;
+        }
+        if (request instanceof Smb2ReadRequest read) {
+            final var remapped = read.fileId() == null ? null : fileIdRemap.get(read.fileId());
+            if (remapped != null) {
+                read.setFileId(remapped);
+            }
+            sendNow(read, response -> replayOnReconnect(read, response, callback));
+            return;
+        }
+        sendNow(request, callback);
+    }
+
+    /**
+     * Holds the READ failed due to connection loss until the tree connect is re-established, then the request
+     * is sent again. READ is idempotent, so long-running streams continue transparently over durable handles.
+     */
+    private void replayOnReconnect(final Smb2ReadRequest read, final Smb2Response response,
+        final Consumer<Smb2Response> callback) {
+
+        final var pending = reconnectFuture;
+        if (response.header().status() != SmbError.STATUS_CONNECTION_DISCONNECTED
+            || pending == null || pending.isDone()) {
+            callback.accept(response);
+            return;
+        }
+        Futures.addCallback(pending, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(final Void result) {
+                send(read, callback);
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                callback.accept(response);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void sendNow(final Smb2Request request, final Consumer<Smb2Response> callback) {
         if (details.treeConnectId() != null) {
             request.header().setTreeId(details.treeConnectId());
         }
-        sender.send(request, callback);
+        lastUsed = System.nanoTime();
+        // callback of compound request is invoked per each compounded request, or once on connection loss,
+        // so the request is counted once
+        outstanding.incrementAndGet();
+        final var completed = new AtomicBoolean();
+        sender.send(request, response -> {
+            if (completed.compareAndSet(false, true)) {
+                outstanding.decrementAndGet();
+            }
+            lastUsed = System.nanoTime();
+            callback.accept(response);
+        });
+    }
+
+    @Override
+    public long creditsAvailable() {
+        return sender.creditsAvailable();
     }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.function.Supplier;
+import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.net.api.NettyTransport;
+import local.mylan.transport.smb.handler.Smb2ServerCodec;
+import local.mylan.transport.smb.handler.Smb2ServerHandler;
+import local.mylan.transport.smb.protocol.details.ServerConnectionDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only SMB2/SMB3 file server exporting local directories as disk shares.
+ *
+ * <p>Shares are provided by supplier as share name to directory path map, the supplier is invoked on each
+ * tree connect, so the shares added or removed are served without restart. File system operations are
+ * performed by I/O threads, the requests of each connection are processed sequentially.
+ */
+public final class SmbServer {
+    private static final Logger LOG = LoggerFactory.getLogger(SmbServer.class);
+    // file key of Unix file systems is (dev=<hex>,ino=<decimal>)
+    private static final Pattern INODE_PATTERN = Pattern.compile("ino=(\\d+)");
+
+    private final SmbServerConf conf;
+    private final Supplier<Map<String, Path>> shares;
+    private final UUID serverGuid = UUID.randomUUID();
+    private final long startTime = Utils.filetimeFromUnixMillis(System.currentTimeMillis());
+    private final Map<Path, Long> fileIds = new ConcurrentHashMap<>();
+    private final AtomicLong lastFileId = new AtomicLong();
+    private EventLoopGroup parentGroup;
+    private EventLoopGroup childGroup;
+    private ExecutorService ioExecutor;
+    private Channel serverChannel;
+
+    public SmbServer(final Path confDir, final Supplier<Map<String, Path>> shares) {
+        this(ConfUtils.loadConfiguration(SmbServerConf.class, confDir), shares);
+    }
+
+    public SmbServer(final SmbServerConf conf, final Supplier<Map<String, Path>> shares) {
+        this.conf = requireNonNull(conf);
+        this.shares = requireNonNull(shares);
+    }
+
+    SmbServerConf conf() {
+        return conf;
+    }
+
+    UUID serverGuid() {
+        return serverGuid;
+    }
+
+    long startTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the root directory of the share.
+     *
+     * @param name share name, case-insensitive
+     * @return directory path, null if no share with such name
+     */
+    Path share(final String name) {
+        for (var entry : shares.get().entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the file identifier unique within the file system. Addresses MS-FSCC
+     * (#2.4.20 FileInternalInformation): the inode number is used if exposed by the file key,
+     * otherwise the identifier is assigned to the path sequentially and kept while the server runs.
+     *
+     * @param path file path
+     * @param attributes file attributes
+     * @return 64-bit file identifier
+     */
+    long fileId(final Path path, final BasicFileAttributes attributes) {
+        final var fileKey = attributes.fileKey();
+        if (fileKey != null) {
+            final var matcher = INODE_PATTERN.matcher(fileKey.toString());
+            if (matcher.find()) {
+                try {
+                    return Long.parseUnsignedLong(matcher.group(1));
+                } catch (NumberFormatException e) {
+                    LOG.debug("Unexpected file key {} of {}", fileKey, path, e);
+                }
+            }
+        }
+        return fileIds.computeIfAbsent(path.toAbsolutePath().normalize(), key -> lastFileId.incrementAndGet());
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @throws IllegalStateException if neither user nor guest access is configured
+     */
+    public synchronized void start() {
+        if (conf.username().isEmpty() && !conf.guestAccess()) {
+            throw new IllegalStateException(
+                "SMB server requires either smb.server.username to be set or smb.server.guest-access enabled");
+        }
+        final var bootstrap = new ServerBootstrap();
+        final var transport = NettyTransport.select(conf.transport());
+        parentGroup = transport.newEventLoopGroup(conf.parentGroupThreads(), threadFactory(conf.parentGroupName()));
+        childGroup = transport.newEventLoopGroup(conf.childGroupThreads(), threadFactory(conf.childGroupName()));
+        bootstrap.channel(transport.serverSocketChannelClass());
+        if (conf.tcpKeepAliveEnabled()) {
+            transport.setChildKeepAlive(bootstrap, conf.tcpKeepAliveIdleTime(),
+                conf.tcpKeepAliveRetransmissionCount(), conf.tcpKeepAliveRetransmissionInterval());
+        }
+        ioExecutor = Executors.newFixedThreadPool(Math.max(1, conf.ioThreads()),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat(conf.childGroupName() + "-io-%d").build());
+        bootstrap.group(parentGroup, childGroup);
+        bootstrap.option(ChannelOption.SO_BACKLOG, conf.backlogSize());
+        bootstrap.childHandler(new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(final Channel channel) {
+                final var details = new ServerConnectionDetails();
+                final var connection = new SmbServerConnection(SmbServer.this, ioExecutor, details);
+                channel.pipeline().addLast(new Smb2ServerCodec(details), new Smb2ServerHandler(connection));
+                channel.closeFuture().addListener(future -> connection.close());
+            }
+        });
+        serverChannel = bootstrap.bind(conf.tcpPort()).syncUninterruptibly().channel();
+        LOG.info("SMB server started at {} using {} transport", serverChannel.localAddress(), transport);
+    }
+
+    /**
+     * Returns the address the server is listening on.
+     *
+     * @return local address, null if server is not started
+     */
+    public synchronized SocketAddress localAddress() {
+        return serverChannel == null ? null : serverChannel.localAddress();
+    }
+
+    public synchronized void stop() {
+        LOG.info("Shutting down SMB server");
+        if (serverChannel != null) {
+            serverChannel.close();
+            serverChannel = null;
+        }
+        if (childGroup != null) {
+            childGroup.shutdownGracefully();
+        }
+        if (parentGroup != null) {
+            parentGroup.shutdownGracefully();
+        }
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+        }
+    }
+
+    private static ThreadFactory threadFactory(final String namePrefix) {
+        return new ThreadFactoryBuilder().setNameFormat(namePrefix + "-%d").build();
+    }
+}
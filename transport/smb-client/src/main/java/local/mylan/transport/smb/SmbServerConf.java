@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import local.mylan.common.annotations.conf.ConfFile;
+import local.mylan.common.annotations.conf.ConfProperty;
+import local.mylan.transport.net.api.NettyTransport;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+
+@ConfFile("smb-server.conf")
+public @interface SmbServerConf {
+
+    @ConfProperty("smb.server.enabled")
+    boolean enabled() default false;
+
+    @ConfProperty("netty.parent-group.name")
+    String parentGroupName() default "smb-server-parent";
+
+    @ConfProperty("netty.parent-group.max-threads")
+    int parentGroupThreads() default 1;
+
+    @ConfProperty("netty.child-group.name")
+    String childGroupName() default "smb-server-child";
+
+    @ConfProperty("netty.child-group.max-threads")
+    int childGroupThreads() default 0;
+
+    // io_uring, epoll, nio or auto (the most preferred transport available)
+    @ConfProperty("netty.transport")
+    String transport() default NettyTransport.AUTO;
+
+    @ConfProperty("backlog.size")
+    int backlogSize() default 128;
+
+    @ConfProperty("tcp.keepalive.enabled")
+    boolean tcpKeepAliveEnabled() default true;
+
+    @ConfProperty("tcp.keepalive.idle.time")
+    int tcpKeepAliveIdleTime() default 7200;
+
+    @ConfProperty("tcp.keepalive.retransmission.count")
+    int tcpKeepAliveRetransmissionCount() default 8;
+
+    @ConfProperty("tcp.keepalive.retransmission.interval")
+    int tcpKeepAliveRetransmissionInterval() default 75;
+
+    @ConfProperty("tcp.port")
+    int tcpPort() default 445;
+
+    @ConfProperty("smb.server.name")
+    String serverName() default "MYLAN";
+
+    @ConfProperty("smb.server.io.max-threads")
+    int ioThreads() default 8;
+
+    @ConfProperty("smb.server.max-read-size")
+    int maxReadSize() default 8388608;
+
+    @ConfProperty("smb.server.max-transact-size")
+    int maxTransactSize() default 1048576;
+
+    @ConfProperty("smb.server.max-credits-granted")
+    int maxCreditsGranted() default 512;
+
+    @ConfProperty("smb.server.dialect.min")
+    Smb2Dialect smbDialectMin() default Smb2Dialect.SMB2_0_2;
+
+    @ConfProperty("smb.server.dialect.max")
+    Smb2Dialect smbDialectMax() default Smb2Dialect.SMB3_1_1;
+
+    // messages of authenticated (non-guest) sessions are signed even if the client does not require it
+    @ConfProperty("smb.server.signing-required")
+    boolean signingRequired() default true;
+
+    // anonymous (null session) logon; server refuses to start if no user is configured and guest access is off
+    @ConfProperty("smb.server.guest-access")
+    boolean guestAccess() default false;
+
+    // users other than configured one are logged on as guest instead of being rejected, requires guest access
+    @ConfProperty("smb.server.unknown-user-as-guest")
+    boolean unknownUserAsGuest() default false;
+
+    @ConfProperty("smb.server.username")
+    String username() default "";
+
+    @ConfProperty("smb.server.password")
+    String password() default "";
+}
@@ -0,0 +1,863 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2PacketSigner;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ServerConnectionDetails;
+import local.mylan.transport.smb.protocol.flows.ServerRequestDispatcher;
+import local.mylan.transport.smb.protocol.fscc.FileAttributeFlags;
+import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileIdFullDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.smb2.Smb2AccessMask;
+import local.mylan.transport.smb.protocol.smb2.Smb2CancelRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateAction;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateOptionsFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2EchoRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2EchoResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2HashAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2LogoffRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2LogoffResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2PreauthIntegrityCapabilities;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ShareType;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningCapabilities;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2UnsupportedRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import local.mylan.transport.smb.protocol.spnego.MechType;
+import local.mylan.transport.smb.protocol.spnego.NegState;
+import local.mylan.transport.smb.protocol.spnego.NegTokenInit;
+import local.mylan.transport.smb.protocol.spnego.NegTokenResp;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmAuthenticateMessage;
+import local.mylan.transport.smb.protocol.spnego.ntlm.NtlmNegotiateMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server side of SMB2/SMB3 connection exporting local directories as read-only disk shares. Addresses MS-SMB2
+ * (#3.3.5 Processing Events and Sequencing Rules) for NEGOTIATE, SESSION_SETUP (NTLM), TREE_CONNECT, CREATE,
+ * QUERY_DIRECTORY, READ and CLOSE requests, other requests are replied with an error.
+ *
+ * <p>Requests of the connection are processed one by one on I/O thread, so the related operations of
+ * compound chain observe the result of preceding ones and the connection state requires no synchronization.
+ * READ data is not copied, the response carries the file region which is sent directly from the file,
+ * unless the response is signed.
+ *
+ * <p>Sessions of the user configured are signed if either side requires signing, the packet signers are
+ * shared with the codec via connection details. Encryption is not supported.
+ */
+final class SmbServerConnection implements ServerRequestDispatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(SmbServerConnection.class);
+    private static final int SINGLE_CREDIT_SIZE = 65536;
+    private static final long ALLOCATION_UNIT = 4096;
+    private static final int SALT_LENGTH = 32;
+    private static final int HASH_LENGTH = 64;
+    private static final List<Smb2AccessMask> WRITE_ACCESS = List.of(
+        Smb2AccessMask.FILE_WRITE_DATA, Smb2AccessMask.FILE_APPEND_DATA, Smb2AccessMask.FILE_WRITE_EA,
+        Smb2AccessMask.FILE_WRITE_ATTRIBUTES, Smb2AccessMask.DELETE, Smb2AccessMask.WRITE_DAC,
+        Smb2AccessMask.WRITE_OWNER, Smb2AccessMask.GENERIC_WRITE, Smb2AccessMask.GENERIC_ALL);
+
+    private final SmbServer server;
+    private final SmbServerConf conf;
+    private final Executor executor;
+    private final ServerConnectionDetails details;
+    private final Map<Long, ServerSession> sessions = new HashMap<>();
+
+    private Smb2Dialect dialect;
+    private Flags<Smb2NegotiateFlags> clientSecurityMode;
+    private Smb2SigningAlgorithm signingAlgorithm;
+    private byte[] negotiateRequestBytes;
+    private Smb2NegotiateResponse negotiateResponse;
+    private byte[] preauthIntegrityHash;
+    private boolean signResponse;
+    private long lastSessionId;
+    private int lastTreeId;
+    private boolean closed;
+
+    // MS-SMB2 (#3.3.5.2.7.2 Handling Compounded Related Requests)
+    private long relatedSessionId;
+    private int relatedTreeId;
+    private UUID relatedFileId;
+
+    SmbServerConnection(final SmbServer server, final Executor ioExecutor, final ServerConnectionDetails details) {
+        this.server = server;
+        this.details = details;
+        conf = server.conf();
+        executor = MoreExecutors.newSequentialExecutor(ioExecutor);
+    }
+
+    @Override
+    public ListenableFuture<Smb2Response> dispatch(final Smb2Request request) {
+        return Futures.submit(() -> process(request), executor);
+    }
+
+    /**
+     * Releases the opens of the connection. Invoked when the channel is closed.
+     */
+    void close() {
+        try {
+            executor.execute(this::releaseAll);
+        } catch (RejectedExecutionException e) {
+            // I/O executor is shut down already (server stopped), no request is processed anymore
+            releaseAll();
+        }
+    }
+
+    private void releaseAll() {
+        closed = true;
+        sessions.values().forEach(ServerSession::close);
+        sessions.clear();
+    }
+
+    private Smb2Response process(final Smb2Request request) {
+        try {
+            if (closed) {
+                return null;
+            }
+            final var response = switch (request) {
+                // rejected by codec, e.g. signature verification failed
+                case Smb2UnsupportedRequest unsupported when unsupported.status() != null ->
+                    error(request, unsupported.status());
+                case Smb2NegotiateRequest negotiate -> negotiate(negotiate);
+                case Smb2SessionSetupRequest sessionSetup -> sessionSetup(sessionSetup);
+                case Smb2EchoRequest echo -> signIfSigned(echo, new Smb2EchoResponse());
+                // no asynchronous operations to cancel, CANCEL request has no response
+                case Smb2CancelRequest cancel -> null;
+                default -> sessionRequest(request);
+            };
+            if (response != null) {
+                grantCredits(request.header(), response.header());
+            }
+            return response;
+        } finally {
+            if (request instanceof Smb2WriteRequest write && write.data() != null) {
+                write.data().release();
+            }
+        }
+    }
+
+    /**
+     * Grants the credits requested up to configured limit. Addresses MS-SMB2 (#3.3.1.2 Algorithm for the
+     * Granting of Credits). At least the credits charged are granted, so the client never runs out of credits.
+     */
+    private void grantCredits(final Smb2Header requestHeader, final Smb2Header responseHeader) {
+        final var charge = Math.max(1, requestHeader.creditCharge());
+        final var requested = Math.max(charge, requestHeader.creditRequest());
+        responseHeader.setCreditResponse(Math.min(requested, Math.max(1, conf.maxCreditsGranted())));
+    }
+
+    /**
+     * Selects the dialect. Addresses MS-SMB2 (#3.3.5.4 Receiving an SMB2 NEGOTIATE Request).
+     */
+    private Smb2Response negotiate(final Smb2NegotiateRequest request) {
+        final var selected = Smb2Dialect.negotiateDialects(conf.smbDialectMin(), conf.smbDialectMax())
+            .reversed().stream()
+            .filter(request.dialects()::contains)
+            .findFirst().orElse(null);
+        if (selected == null) {
+            return error(request, SmbError.STATUS_NOT_SUPPORTED);
+        }
+        final var response = new Smb2NegotiateResponse();
+        if (selected == Smb2Dialect.SMB3_1_1) {
+            final var negotiateContexts = negotiateContexts(request);
+            if (negotiateContexts == null) {
+                return error(request, SmbError.STATUS_INVALID_PARAMETER);
+            }
+            response.setNegotiateContexts(negotiateContexts);
+            // preauth integrity hash of the connection is calculated once the response is encoded
+            negotiateRequestBytes = request.messageBytes();
+            negotiateResponse = response;
+        }
+        dialect = selected;
+        details.setDialect(selected);
+        clientSecurityMode = request.securityMode() == null ? new Flags<>() : request.securityMode();
+        final var multiCredit = selected.equalsOrHigher(Smb2Dialect.SMB2_1);
+        response.setDialectRevision(selected);
+        response.setSecurityMode(new Flags<Smb2NegotiateFlags>()
+            .set(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_ENABLED, true)
+            .set(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_REQUIRED, conf.signingRequired()));
+        response.setCapabilities(
+            new Flags<Smb2CapabilitiesFlags>().set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LARGE_MTU, multiCredit));
+        response.setMaxTransactSize(maxSize(conf.maxTransactSize()));
+        response.setMaxReadSize(maxSize(conf.maxReadSize()));
+        response.setMaxWriteSize(SINGLE_CREDIT_SIZE); // shares are read-only
+        response.setSystemTime(Utils.filetimeFromUnixMillis(System.currentTimeMillis()));
+        response.setServerStartTime(server.startTime());
+        response.setServerGuid(server.serverGuid());
+        final var token = new NegTokenInit();
+        token.setMechTypes(List.of(MechType.NTLMSSP));
+        response.setToken(token);
+        return response;
+    }
+
+    /**
+     * Builds SMB 3.1.1 negotiate contexts of the response. Addresses MS-SMB2 (#3.3.5.4): SHA-512 preauth
+     * integrity is required, the signing algorithm is the first one of client preference list.
+     *
+     * @return negotiate contexts, null if request has no valid preauth integrity context
+     */
+    private List<Smb2NegotiateContext> negotiateContexts(final Smb2NegotiateRequest request) {
+        final var requestCtxs = request.negotiateContexts() == null
+            ? List.<Smb2NegotiateContext>of() : request.negotiateContexts();
+        final var sha512 = requestCtxs.stream()
+            .filter(Smb2PreauthIntegrityCapabilities.class::isInstance)
+            .map(Smb2PreauthIntegrityCapabilities.class::cast)
+            .anyMatch(preauth -> preauth.hashAlgorithms() != null
+                && preauth.hashAlgorithms().contains(Smb2HashAlgorithm.SHA_512));
+        if (!sha512 || request.messageBytes() == null) {
+            return null;
+        }
+        final var result = new ArrayList<Smb2NegotiateContext>();
+        result.add(new Smb2PreauthIntegrityCapabilities(List.of(Smb2HashAlgorithm.SHA_512),
+            SecurityUtils.nonce(SALT_LENGTH)));
+        final var signing = requestCtxs.stream()
+            .filter(Smb2SigningCapabilities.class::isInstance)
+            .map(Smb2SigningCapabilities.class::cast)
+            .findFirst().orElse(null);
+        // AES-CMAC is used if signing algorithm is not negotiated
+        signingAlgorithm = signing == null || signing.signingAlgorithms() == null ? Smb2SigningAlgorithm.AES_CMAC
+            : signing.signingAlgorithms().stream().filter(Objects::nonNull).findFirst()
+                .orElse(Smb2SigningAlgorithm.AES_CMAC);
+        if (signing != null) {
+            result.add(new Smb2SigningCapabilities(List.of(signingAlgorithm)));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Returns the preauth integrity hash of the connection: H(H(0 || NegotiateRequest) || NegotiateResponse).
+     * Addresses MS-SMB2 (#3.3.5.4).
+     */
+    private byte[] preauthIntegrityHash() {
+        if (preauthIntegrityHash == null) {
+            preauthIntegrityHash = SecurityUtils.sha512(
+                SecurityUtils.sha512(new byte[HASH_LENGTH], requireNonNull(negotiateRequestBytes)),
+                requireNonNull(negotiateResponse.messageBytes(), "negotiate response is not encoded"));
+            negotiateRequestBytes = null;
+            negotiateResponse = null;
+        }
+        return preauthIntegrityHash;
+    }
+
+    private int maxSize(final int configured) {
+        // MS-SMB2 (#3.3.5.4): SMB 2.0.2 has no multi-credit requests, so the size is limited to 64 KiB
+        return dialect.equalsOrHigher(Smb2Dialect.SMB2_1) ? configured : Math.min(configured, SINGLE_CREDIT_SIZE);
+    }
+
+    /**
+     * Authenticates the user. Addresses MS-SMB2 (#3.3.5.5 Receiving an SMB2 SESSION_SETUP Request).
+     */
+    private Smb2Response sessionSetup(final Smb2SessionSetupRequest request) {
+        if (dialect == null) {
+            return error(request, SmbError.STATUS_ACCESS_DENIED);
+        }
+        final ServerSession session;
+        if (request.header().sessionId() == 0) {
+            session = new ServerSession(++lastSessionId, new NtlmServerAuthenticator(conf));
+            sessions.put(session.id, session);
+            if (dialect == Smb2Dialect.SMB3_1_1) {
+                session.preauthIntegrityHash = preauthIntegrityHash();
+            }
+        } else {
+            session = sessions.get(request.header().sessionId());
+            if (session == null) {
+                return error(request, SmbError.STATUS_USER_SESSION_DELETED);
+            }
+        }
+        if (dialect == Smb2Dialect.SMB3_1_1) {
+            session.updatePreauthIntegrityHash(request);
+        }
+        final var mechToken = switch (request.token()) {
+            case NegTokenInit init -> init.mechToken();
+            case NegTokenResp resp -> resp.mechToken();
+            case null, default -> null;
+        };
+        if (mechToken instanceof NtlmNegotiateMessage negotiateMsg) {
+            final var response = new Smb2SessionSetupResponse();
+            response.header().setStatus(SmbError.STATUS_MORE_PROCESSING_REQUIRED);
+            response.header().setSessionId(session.id);
+            response.setSessionFlags(new Flags<>());
+            response.setToken(session.authenticator.challenge(negotiateMsg));
+            // non-final response is the input for preauth integrity hash
+            session.lastResponse = dialect == Smb2Dialect.SMB3_1_1 ? response : null;
+            return response;
+        }
+        if (mechToken instanceof NtlmAuthenticateMessage authMsg && session.authenticator.challengeSent()) {
+            final var sessionFlags = session.authenticator.authenticate(authMsg);
+            if (sessionFlags != null) {
+                session.established = true;
+                LOG.debug("Session {} established for user '{}'", session.id, authMsg.userName());
+                final var token = new NegTokenResp();
+                token.setState(NegState.ACCEPT_COMPLETED);
+                token.setMechListMIC(session.authenticator.mechListMIC());
+                final var response = new Smb2SessionSetupResponse();
+                response.header().setSessionId(session.id);
+                response.setSessionFlags(sessionFlags);
+                response.setToken(token);
+                final var sessionKey = session.authenticator.sessionKey();
+                if (sessionKey != null) {
+                    assignPacketSigner(session, request, sessionKey);
+                    // final response of SMB 3.1.1 is always signed, it proves the preauth integrity
+                    response.header().flags().set(Smb2Flags.SMB2_FLAGS_SIGNED,
+                        dialect == Smb2Dialect.SMB3_1_1 || session.signingRequired);
+                }
+                return response;
+            }
+            LOG.info("Logon failure for user '{}'", authMsg.userName());
+        }
+        // MS-SMB2 (#3.3.5.5.3): session is removed on authentication failure
+        sessions.remove(session.id);
+        session.close();
+        final var response = error(request, SmbError.STATUS_LOGON_FAILURE);
+        response.header().setSessionId(session.id);
+        return response;
+    }
+
+    /**
+     * Derives the signing key of the session and assigns the packet signer. Addresses MS-SMB2
+     * (#3.3.5.5.3 Handling GSS-API Authentication).
+     */
+    private void assignPacketSigner(final ServerSession session, final Smb2SessionSetupRequest request,
+        final byte[] sessionKey) {
+
+        final var key = sessionKey.length == 16 ? sessionKey : Arrays.copyOf(sessionKey, 16);
+        final var signingKey = Smb2PacketSigner.deriveSigningKey(dialect, key, session.preauthIntegrityHash);
+        details.packetSigners().put(session.id, new Smb2PacketSigner(dialect, signingAlgorithm, signingKey));
+        session.signingRequired = conf.signingRequired()
+            || clientSecurityMode.get(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_REQUIRED)
+            || request.securityMode() != null
+            && request.securityMode().get(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_REQUIRED);
+    }
+
+    private Smb2Response sessionRequest(final Smb2Request request) {
+        final var related = request.header().flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS);
+        final var sessionId = related ? relatedSessionId : request.header().sessionId();
+        final var session = sessions.get(sessionId);
+        if (session == null || !session.established) {
+            return error(request, SmbError.STATUS_USER_SESSION_DELETED);
+        }
+        if (session.signingRequired && !request.header().isSigned()) {
+            // MS-SMB2 (#3.3.5.2.4 Verifying the Signature)
+            return error(request, SmbError.STATUS_ACCESS_DENIED);
+        }
+        relatedSessionId = sessionId;
+        // MS-SMB2 (#3.3.4.1.1 Signing the Message): response is signed if the request is
+        signResponse = details.packetSigners().containsKey(sessionId)
+            && (session.signingRequired || request.header().isSigned());
+        final var response = switch (request) {
+            case Smb2LogoffRequest logoff -> {
+                sessions.remove(sessionId);
+                session.close();
+                yield new Smb2LogoffResponse();
+            }
+            case Smb2TreeConnectRequest treeConnect -> treeConnect(session, treeConnect);
+            default -> treeRequest(session, request, related);
+        };
+        if (signResponse) {
+            response.header().setSessionId(sessionId);
+            response.header().flags().set(Smb2Flags.SMB2_FLAGS_SIGNED, true);
+        }
+        return response;
+    }
+
+    private Smb2Response signIfSigned(final Smb2Request request, final Smb2Response response) {
+        if (request.header().isSigned() && details.packetSigners().containsKey(request.header().sessionId())) {
+            response.header().setSessionId(request.header().sessionId());
+            response.header().flags().set(Smb2Flags.SMB2_FLAGS_SIGNED, true);
+        }
+        return response;
+    }
+
+    /**
+     * Connects the share. Addresses MS-SMB2 (#3.3.5.7 Receiving an SMB2 TREE_CONNECT Request).
+     */
+    private Smb2Response treeConnect(final ServerSession session, final Smb2TreeConnectRequest request) {
+        // path is \\server\share
+        final var path = request.path() == null ? "" : request.path();
+        final var root = shareRoot(path.substring(path.lastIndexOf('\\') + 1));
+        if (root == null) {
+            return error(request, SmbError.STATUS_BAD_NETWORK_NAME);
+        }
+        final var tree = new ServerTree(++lastTreeId, root, new HashMap<>());
+        session.trees.put(tree.id(), tree);
+        final var response = new Smb2TreeConnectResponse();
+        response.header().setTreeId(tree.id());
+        response.setShareType(Smb2ShareType.SMB2_SHARE_TYPE_DISK);
+        response.setShareFlags(new Flags<>());
+        response.setCapabilities(new Flags<>());
+        response.setMaxAccess(new Flags<Smb2AccessMask>()
+            .set(Smb2AccessMask.FILE_READ_DATA, true)
+            .set(Smb2AccessMask.FILE_READ_EA, true)
+            .set(Smb2AccessMask.FILE_EXECUTE, true)
+            .set(Smb2AccessMask.FILE_READ_ATTRIBUTES, true)
+            .set(Smb2AccessMask.READ_CONTROL, true)
+            .set(Smb2AccessMask.SYNCHRONIZE, true));
+        return response;
+    }
+
+    private Path shareRoot(final String shareName) {
+        final var path = server.share(shareName);
+        if (path == null) {
+            return null;
+        }
+        try {
+            final var realPath = path.toRealPath();
+            return Files.isDirectory(realPath) ? realPath : null;
+        } catch (IOException e) {
+            LOG.warn("Share {} directory {} is not accessible", shareName, path, e);
+            return null;
+        }
+    }
+
+    private Smb2Response treeRequest(final ServerSession session, final Smb2Request request, final boolean related) {
+        final var treeId = related ? relatedTreeId : request.header().treeId();
+        final var tree = session.trees.get(treeId);
+        if (tree == null) {
+            return error(request, SmbError.STATUS_NETWORK_NAME_DELETED);
+        }
+        relatedTreeId = treeId;
+        return switch (request) {
+            case Smb2TreeDisconnectRequest disconnect -> {
+                session.trees.remove(treeId);
+                tree.close();
+                yield new Smb2TreeDisconnectResponse();
+            }
+            case Smb2CreateRequest create -> create(tree, create);
+            case Smb2CloseRequest close -> close(tree, close);
+            case Smb2QueryDirectoryRequest queryDirectory -> queryDirectory(tree, queryDirectory);
+            case Smb2ReadRequest read -> read(tree, read);
+            // shares are read-only
+            case Smb2WriteRequest write -> error(request, SmbError.STATUS_ACCESS_DENIED);
+            default -> error(request, SmbError.STATUS_NOT_SUPPORTED);
+        };
+    }
+
+    private UUID fileId(final Smb2Header header, final UUID fileId) {
+        return header.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS)
+            && Smb2CompoundRequest.RELATED_FILE_ID.equals(fileId) ? relatedFileId : fileId;
+    }
+
+    /**
+     * Opens the file or directory. Addresses MS-SMB2 (#3.3.5.9 Receiving an SMB2 CREATE Request).
+     */
+    private Smb2Response create(final ServerTree tree, final Smb2CreateRequest request) {
+        relatedFileId = null;
+        final var disposition = request.createDisposition();
+        final var access = request.desiredAccess() == null ? new Flags<Smb2AccessMask>() : request.desiredAccess();
+        if (WRITE_ACCESS.stream().anyMatch(access::get)
+            || disposition != Smb2CreateDisposition.FILE_OPEN && disposition != Smb2CreateDisposition.FILE_OPEN_IF) {
+            return error(request, SmbError.STATUS_ACCESS_DENIED);
+        }
+        final var path = resolve(tree.root(), request.name());
+        if (path == null) {
+            return error(request, SmbError.STATUS_OBJECT_PATH_SYNTAX_BAD);
+        }
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!path.toRealPath().startsWith(tree.root())) {
+                // symbolic link pointing outside the share
+                return error(request, SmbError.STATUS_ACCESS_DENIED);
+            }
+        } catch (NoSuchFileException e) {
+            if (disposition == Smb2CreateDisposition.FILE_OPEN_IF) {
+                return error(request, SmbError.STATUS_ACCESS_DENIED);
+            }
+            return error(request, Files.isDirectory(path.getParent())
+                ? SmbError.STATUS_OBJECT_NAME_NOT_FOUND : SmbError.STATUS_OBJECT_PATH_NOT_FOUND);
+        } catch (IOException e) {
+            return error(request, SmbError.STATUS_ACCESS_DENIED);
+        }
+        final var options = request.createOptions() == null
+            ? new Flags<Smb2CreateOptionsFlags>() : request.createOptions();
+        if (options.get(Smb2CreateOptionsFlags.FILE_DIRECTORY_FILE) && !attributes.isDirectory()) {
+            return error(request, SmbError.STATUS_NOT_A_DIRECTORY);
+        }
+        if (options.get(Smb2CreateOptionsFlags.FILE_NON_DIRECTORY_FILE) && attributes.isDirectory()) {
+            return error(request, SmbError.STATUS_FILE_IS_A_DIRECTORY);
+        }
+        final SmbServerOpen open;
+        try {
+            open = new SmbServerOpen(path, attributes,
+                attributes.isDirectory() ? null : FileChannel.open(path, StandardOpenOption.READ));
+        } catch (IOException e) {
+            return error(request, SmbError.STATUS_ACCESS_DENIED);
+        }
+        final var fileId = UUID.randomUUID();
+        tree.opens().put(fileId, open);
+        relatedFileId = fileId;
+
+        final var response = new Smb2CreateResponse();
+        response.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
+        response.setFlags(new Flags<>());
+        response.setCreateAction(Smb2CreateAction.FILE_OPENED);
+        response.setCreationTime(filetime(attributes.creationTime()));
+        response.setLastAccessTime(filetime(attributes.lastAccessTime()));
+        response.setLastWriteTime(filetime(attributes.lastModifiedTime()));
+        response.setChangeTime(filetime(attributes.lastModifiedTime()));
+        response.setAllocationSize(allocationSize(attributes));
+        response.setEndOfFile(endOfFile(attributes));
+        response.setFileAttributes(fileAttributes(path, attributes));
+        response.setFileId(fileId);
+        return response;
+    }
+
+    /**
+     * Resolves the path relative to share root. Addresses MS-SMB2 (#3.3.5.9): the name is relative to the share,
+     * with no leading separator; references to parent directory and alternate data streams are rejected.
+     */
+    private static Path resolve(final Path root, final String name) {
+        var path = root;
+        if (name == null) {
+            return path;
+        }
+        try {
+            for (var element : name.split("\\\\")) {
+                if (element.isEmpty() || ".".equals(element)) {
+                    continue;
+                }
+                if ("..".equals(element) || element.indexOf(':') >= 0 || element.indexOf('/') >= 0) {
+                    return null;
+                }
+                path = path.resolve(element);
+            }
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Closes the open. Addresses MS-SMB2 (#3.3.5.10 Receiving an SMB2 CLOSE Request).
+     */
+    private Smb2Response close(final ServerTree tree, final Smb2CloseRequest request) {
+        final var open = tree.opens().remove(fileId(request.header(), request.fileId()));
+        if (open == null) {
+            return error(request, SmbError.STATUS_FILE_CLOSED);
+        }
+        open.release();
+        final var postQuery = request.flags() != null
+            && request.flags().get(Smb2CloseFlags.SMB2_CLOSE_FLAG_POSTQUERY_ATTRIB);
+        final var response = new Smb2CloseResponse();
+        response.setFlags(new Flags<Smb2CloseFlags>().set(Smb2CloseFlags.SMB2_CLOSE_FLAG_POSTQUERY_ATTRIB, postQuery));
+        if (postQuery) {
+            final var attributes = open.attributes();
+            response.setCreationTime(filetime(attributes.creationTime()));
+            response.setLastAccessTime(filetime(attributes.lastAccessTime()));
+            response.setLastWriteTime(filetime(attributes.lastModifiedTime()));
+            response.setChangeTime(filetime(attributes.lastModifiedTime()));
+            response.setAllocationSize(allocationSize(attributes));
+            response.setEndOfFile(endOfFile(attributes));
+            response.setFileAttributes(fileAttributes(open.path(), attributes));
+        } else {
+            response.setFileAttributes(new Flags<>());
+        }
+        return response;
+    }
+
+    /**
+     * Enumerates directory entries. Addresses MS-SMB2 (#3.3.5.18 Receiving an SMB2 QUERY_DIRECTORY Request).
+     */
+    private Smb2Response queryDirectory(final ServerTree tree, final Smb2QueryDirectoryRequest request) {
+        final var open = tree.opens().get(fileId(request.header(), request.fileId()));
+        if (open == null) {
+            return error(request, SmbError.STATUS_FILE_CLOSED);
+        }
+        if (!open.isDirectory()) {
+            return error(request, SmbError.STATUS_INVALID_PARAMETER);
+        }
+        final var fic = request.fileInformationClass();
+        final var fixedLength = switch (fic) {
+            case FileDirectoryInformation -> 64;
+            case FileIdFullDirectoryInformation -> 80;
+            case FileIdBothDirectoryInformation -> 104;
+            case null, default -> 0;
+        };
+        if (fixedLength == 0) {
+            return error(request, SmbError.STATUS_INVALID_INFO_CLASS);
+        }
+        final var flags = request.flags() == null ? new Flags<Smb2QueryDirectoryFlags>() : request.flags();
+        final var restart = open.entries() == null || flags.get(Smb2QueryDirectoryFlags.SMB2_RESTART_SCANS)
+            || flags.get(Smb2QueryDirectoryFlags.SMB2_REOPEN);
+        if (restart) {
+            final var pattern = request.searchPattern() == null || request.searchPattern().isEmpty()
+                ? "*" : request.searchPattern();
+            try {
+                open.restartEnumeration(pattern, listEntries(open.path(), pattern));
+            } catch (IOException e) {
+                return error(request, SmbError.STATUS_ACCESS_DENIED);
+            }
+        }
+        final var entries = open.entries();
+        final var result = new ArrayList<FileInformation>();
+        var position = open.position();
+        var length = 0;
+        while (position < entries.size()) {
+            final var info = fileInformation(fic, entries.get(position));
+            if (info == null) {
+                // removed since listed
+                position++;
+                continue;
+            }
+            final var entryLength = (fixedLength + info.fileName().length() * 2 + 7) & ~7;
+            if (length + entryLength > request.outputBufferLength()) {
+                if (result.isEmpty()) {
+                    return error(request, SmbError.STATUS_BUFFER_TOO_SMALL);
+                }
+                break;
+            }
+            result.add(info);
+            length += entryLength;
+            position++;
+            if (flags.get(Smb2QueryDirectoryFlags.SMB2_RETURN_SINGLE_ENTRY)) {
+                break;
+            }
+        }
+        open.setPosition(position);
+        if (result.isEmpty()) {
+            // no match for the pattern is reported on first query only, "*" matches empty directory
+            return error(request, restart && !"*".equals(open.searchPattern())
+                ? SmbError.STATUS_NO_SUCH_FILE : SmbError.STATUS_NO_MORE_FILES);
+        }
+        final var response = new Smb2QueryDirectoryResponse();
+        response.setDecoded(result);
+        return response;
+    }
+
+    private static List<Path> listEntries(final Path directory, final String pattern) throws IOException {
+        final var matcher = wildcardMatcher(pattern);
+        try (var stream = Files.list(directory)) {
+            return stream.filter(path -> matcher.test(path.getFileName().toString())).sorted().toList();
+        }
+    }
+
+    /**
+     * Builds file name matcher. Addresses MS-FSA (#2.1.4.4 Algorithm for Determining if a FileName Is in
+     * an Expression), DOS wildcards are treated as regular ones, the match is case-insensitive.
+     */
+    private static Predicate<String> wildcardMatcher(final String pattern) {
+        if ("*".equals(pattern) || "*.*".equals(pattern)) {
+            return name -> true;
+        }
+        final var regex = new StringBuilder();
+        for (var ch : pattern.toCharArray()) {
+            switch (ch) {
+                case '*', '<' -> regex.append(".*");
+                case '?', '>' -> regex.append('.');
+                case '"' -> regex.append("\\.");
+                default -> regex.append(Pattern.quote(String.valueOf(ch)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)
+            .asMatchPredicate();
+    }
+
+    private FileDirectoryInformation fileInformation(final FileInformationClass fic, final Path path) {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        final var info = (FileDirectoryInformation) fic.newInstance();
+        info.setFileName(path.getFileName().toString());
+        info.setCreationTime(filetime(attributes.creationTime()));
+        info.setLastAccessTime(filetime(attributes.lastAccessTime()));
+        info.setLastWriteTime(filetime(attributes.lastModifiedTime()));
+        info.setChangeTime(filetime(attributes.lastModifiedTime()));
+        info.setEndOfFile(endOfFile(attributes));
+        info.setAllocationSize(allocationSize(attributes));
+        info.setFileAttributes(fileAttributes(path, attributes));
+        if (info instanceof FileIdFullDirectoryInformation idFull) {
+            idFull.setFileId(server.fileId(path, attributes));
+        }
+        return info;
+    }
+
+    /**
+     * Reads the file. Addresses MS-SMB2 (#3.3.5.12 Receiving an SMB2 READ Request).
+     */
+    private Smb2Response read(final ServerTree tree, final Smb2ReadRequest request) {
+        final var open = tree.opens().get(fileId(request.header(), request.fileId()));
+        if (open == null) {
+            return error(request, SmbError.STATUS_FILE_CLOSED);
+        }
+        if (open.isDirectory()) {
+            return error(request, SmbError.STATUS_INVALID_DEVICE_REQUEST);
+        }
+        if (request.offset() < 0 || request.length() < 0 || request.length() > maxSize(conf.maxReadSize())) {
+            return error(request, SmbError.STATUS_INVALID_PARAMETER);
+        }
+        final long size;
+        try {
+            size = open.size();
+        } catch (IOException e) {
+            LOG.warn("Cannot get size of {}", open.path(), e);
+            return error(request, SmbError.STATUS_UNSUCCESSFUL);
+        }
+        if (request.offset() >= size) {
+            return error(request, SmbError.STATUS_END_OF_FILE);
+        }
+        final var length = Math.min(request.length(), size - request.offset());
+        if (length < request.minimumCount()) {
+            return error(request, SmbError.STATUS_END_OF_FILE);
+        }
+        final var response = new Smb2ReadResponse();
+        if (signResponse) {
+            // signature covers the data, so it's read into memory instead of being sent from the file
+            try {
+                response.setData(open.read(request.offset(), (int) length));
+            } catch (IOException e) {
+                LOG.warn("Cannot read {}", open.path(), e);
+                return error(request, SmbError.STATUS_UNSUCCESSFUL);
+            }
+        } else {
+            response.setDataRegion(open.region(request.offset(), length));
+        }
+        return response;
+    }
+
+    private static Smb2Response error(final Smb2Request request, final SmbError status) {
+        final var response = new Smb2ErrorResponse(request.header().command());
+        response.header().setStatus(status);
+        return response;
+    }
+
+    private static long filetime(final FileTime time) {
+        return Utils.filetimeFromUnixMillis(time.toMillis());
+    }
+
+    private static long endOfFile(final BasicFileAttributes attributes) {
+        return attributes.isDirectory() ? 0 : attributes.size();
+    }
+
+    private static long allocationSize(final BasicFileAttributes attributes) {
+        return (endOfFile(attributes) + ALLOCATION_UNIT - 1) / ALLOCATION_UNIT * ALLOCATION_UNIT;
+    }
+
+    private static Flags<FileAttributeFlags> fileAttributes(final Path path, final BasicFileAttributes attributes) {
+        final var fileName = path.getFileName() == null ? "" : path.getFileName().toString();
+        return new Flags<FileAttributeFlags>()
+            .set(FileAttributeFlags.FILE_ATTRIBUTE_DIRECTORY, attributes.isDirectory())
+            .set(FileAttributeFlags.FILE_ATTRIBUTE_ARCHIVE, !attributes.isDirectory())
+            // shares are read-only
+            .set(FileAttributeFlags.FILE_ATTRIBUTE_READONLY, !attributes.isDirectory())
+            .set(FileAttributeFlags.FILE_ATTRIBUTE_HIDDEN, fileName.startsWith("."));
+    }
+
+    private static final class ServerSession {
+        final long id;
+        final NtlmServerAuthenticator authenticator;
+        final Map<Integer, ServerTree> trees = new HashMap<>();
+        boolean established;
+        boolean signingRequired;
+        byte[] preauthIntegrityHash;
+        Smb2SessionSetupResponse lastResponse;
+
+        ServerSession(final long id, final NtlmServerAuthenticator authenticator) {
+            this.id = id;
+            this.authenticator = authenticator;
+        }
+
+        /**
+         * Updates preauth integrity hash with preceding non-final response and the request.
+         * Addresses MS-SMB2 (#3.3.5.5 Receiving an SMB2 SESSION_SETUP Request).
+         */
+        void updatePreauthIntegrityHash(final Smb2SessionSetupRequest request) {
+            if (preauthIntegrityHash == null) {
+                return;
+            }
+            if (lastResponse != null) {
+                preauthIntegrityHash = SecurityUtils.sha512(preauthIntegrityHash,
+                    requireNonNull(lastResponse.messageBytes(), "session setup response is not encoded"));
+                lastResponse = null;
+            }
+            preauthIntegrityHash = SecurityUtils.sha512(preauthIntegrityHash,
+                requireNonNull(request.messageBytes(), "session setup request is missing"));
+        }
+
+        void close() {
+            trees.values().forEach(ServerTree::close);
+            trees.clear();
+        }
+    }
+
+    private record ServerTree(int id, Path root, Map<UUID, SmbServerOpen> opens) {
+
+        void close() {
+            opens.values().forEach(SmbServerOpen::release);
+            opens.clear();
+        }
+    }
+}
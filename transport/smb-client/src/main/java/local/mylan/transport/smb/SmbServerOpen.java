@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Open of a file or directory served by {@link SmbServer}. Addresses MS-SMB2 (#3.3.1.10 Per Open).
+ *
+ * <p>The open is reference counted: the reference held by the tree connect is released on CLOSE, each READ
+ * data region in flight holds its own reference, so the file channel is closed only after the last region
+ * is transferred. Directory open keeps the enumeration state of QUERY_DIRECTORY requests.
+ */
+final class SmbServerOpen extends AbstractReferenceCounted {
+    private static final Logger LOG = LoggerFactory.getLogger(SmbServerOpen.class);
+
+    private final Path path;
+    private final BasicFileAttributes attributes;
+    private final FileChannel fileChannel;
+
+    private String searchPattern;
+    private List<Path> entries;
+    private int position;
+
+    SmbServerOpen(final Path path, final BasicFileAttributes attributes, final FileChannel fileChannel) {
+        this.path = path;
+        this.attributes = attributes;
+        this.fileChannel = fileChannel;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    BasicFileAttributes attributes() {
+        return attributes;
+    }
+
+    boolean isDirectory() {
+        return fileChannel == null;
+    }
+
+    long size() throws IOException {
+        return fileChannel.size();
+    }
+
+    /**
+     * Returns the region of the file to be transferred to the channel without copying. The region holds
+     * a reference to the open until it's released by the channel.
+     *
+     * @param offset file position
+     * @param length region length
+     * @return file region
+     */
+    FileRegion region(final long offset, final long length) {
+        retain();
+        return new DefaultFileRegion(fileChannel, offset, length) {
+            @Override
+            protected void deallocate() {
+                // file channel is shared by the regions, it's closed with the open
+                SmbServerOpen.this.release();
+            }
+        };
+    }
+
+    /**
+     * Reads the data of the file into heap buffer. Used when the content is to be signed, so the file region
+     * cannot be sent as is.
+     *
+     * @param offset file position
+     * @param length data length
+     * @return buffer with the data, no release required
+     * @throws IOException if file read fails or the file is truncated
+     */
+    ByteBuf read(final long offset, final int length) throws IOException {
+        final var bytes = new byte[length];
+        final var buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file " + path);
+            }
+        }
+        return Unpooled.wrappedBuffer(bytes);
+    }
+
+    String searchPattern() {
+        return searchPattern;
+    }
+
+    List<Path> entries() {
+        return entries;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void setPosition(final int position) {
+        this.position = position;
+    }
+
+    /**
+     * Starts new directory enumeration.
+     *
+     * @param newSearchPattern search pattern
+     * @param newEntries directory entries
+     */
+    void restartEnumeration(final String newSearchPattern, final List<Path> newEntries) {
+        searchPattern = newSearchPattern;
+        entries = newEntries;
+        position = 0;
+    }
+
+    @Override
+    protected void deallocate() {
+        if (fileChannel == null) {
+            return;
+        }
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            LOG.warn("Error closing file {}", path, e);
+        }
+    }
+
+    @Override
+    public SmbServerOpen touch(final Object hint) {
+        return this;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.exceptions;
+
+import java.io.Serial;
+
+public class SmbCompressionException extends SmbException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public SmbCompressionException(final String message) {
+        super(message);
+    }
+
+    public SmbCompressionException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
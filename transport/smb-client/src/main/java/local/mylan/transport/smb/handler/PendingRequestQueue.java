@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+
+/**
+ * Queue of requests awaiting credits. Requests are grouped by session and tree connect, groups are served
+ * in round-robin order, so a single busy flow (e.g. file streaming) does not starve the others.
+ * Order of requests within a group is preserved. Not thread safe, expected to be used within event loop.
+ *
+ * <p>A group whose first request charges more credits than available is skipped, so the requests of other
+ * groups are not blocked by it. Total credit charge of requests queued is tracked for credit requests.
+ */
+final class PendingRequestQueue {
+
+    private final Map<GroupKey, Deque<PendingRequest>> groups = new LinkedHashMap<>();
+    private int size;
+    private long creditCharge;
+
+    void add(final PendingRequest pending) {
+        final var header = pending.request().header();
+        groups.computeIfAbsent(new GroupKey(header.sessionId(), header.treeId()), key -> new ArrayDeque<>())
+            .add(pending);
+        size++;
+        creditCharge += creditCharge(pending.request());
+    }
+
+    PendingRequest peek() {
+        final var it = groups.values().iterator();
+        return it.hasNext() ? it.next().peek() : null;
+    }
+
+    PendingRequest poll() {
+        final var it = groups.entrySet().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        return poll(it.next());
+    }
+
+    /**
+     * Retrieves the first request of the first group (in round-robin order) which can be sent with
+     * the credits available.
+     *
+     * @param creditsAvailable number of credits available
+     * @return pending request, null if there is no request fitting the credits
+     */
+    PendingRequest poll(final long creditsAvailable) {
+        for (var entry : groups.entrySet()) {
+            if (creditCharge(entry.getValue().peek().request()) <= creditsAvailable) {
+                return poll(entry);
+            }
+        }
+        return null;
+    }
+
+    private PendingRequest poll(final Map.Entry<GroupKey, Deque<PendingRequest>> entry) {
+        final var pending = entry.getValue().poll();
+        // rotate the group to the end of the queue
+        groups.remove(entry.getKey());
+        if (!entry.getValue().isEmpty()) {
+            groups.put(entry.getKey(), entry.getValue());
+        }
+        size--;
+        creditCharge -= creditCharge(pending.request());
+        return pending;
+    }
+
+    List<PendingRequest> removeExpired(final long timestamp) {
+        final var expired = new ArrayList<PendingRequest>();
+        final var it = groups.values().iterator();
+        while (it.hasNext()) {
+            final var group = it.next();
+            while (!group.isEmpty() && group.peek().timestamp() <= timestamp) {
+                expired.add(group.poll());
+            }
+            if (group.isEmpty()) {
+                it.remove();
+            }
+        }
+        size -= expired.size();
+        for (var pending : expired) {
+            creditCharge -= creditCharge(pending.request());
+        }
+        return expired;
+    }
+
+    long oldestTimestamp() {
+        long oldest = Long.MAX_VALUE;
+        for (var group : groups.values()) {
+            oldest = Math.min(oldest, group.peek().timestamp());
+        }
+        return oldest;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns total credit charge of the requests queued.
+     *
+     * @return number of credits required to send all the requests
+     */
+    long creditCharge() {
+        return creditCharge;
+    }
+
+    /**
+     * Returns the number of credits the request consumes, at least one.
+     *
+     * @param request request (single or compound)
+     * @return credit charge
+     */
+    static int creditCharge(final Smb2Request request) {
+        return request instanceof Smb2CompoundRequest compound
+            ? compound.creditCharge() : Math.max(1, request.header().creditCharge());
+    }
+
+    record PendingRequest(Smb2Request request, Consumer<Smb2Response> callback, long timestamp) {
+    }
+
+    private record GroupKey(long sessionId, int treeId) {
+    }
+}
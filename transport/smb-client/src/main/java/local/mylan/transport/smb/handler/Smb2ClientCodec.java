@@ -16,45 +16,212 @@
 package local.mylan.transport.smb.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.util.List;
+import local.mylan.transport.smb.exceptions.SmbException;
 import local.mylan.transport.smb.handler.codec.Smb2CodecUtils;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketCipher;
+import local.mylan.transport.smb.protocol.Smb2PacketCompressor;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class Smb2ClientCodec extends Smb2Codec<Smb2Response, Smb2Request> {
     private static final Logger LOG = LoggerFactory.getLogger(Smb2ClientCodec.class);
+    private static final int HEADER_LENGTH = 64;
+    private static final int WRITE_DATA_OFFSET = HEADER_LENGTH + 48; // header + WRITE request fixed part
     private final ConnectionDetails details;
 
     public Smb2ClientCodec(final ConnectionDetails details) {
+        super(Smb2Request.class);
         this.details = details;
     }
 
     @Override
     void encode(final Smb2Request request, final ByteBuf byteBuf) {
         try {
-            final var startPos = byteBuf.writerIndex();
-            Smb2CodecUtils.encodeRequest(request, byteBuf, details.dialect());
-            final var signer = details.packetSigners().get(request.header().sessionId());
-            if (signer != null) {
-                signer.signOutbound(byteBuf.slice(startPos, byteBuf.writerIndex() - startPos));
+            // encrypted message is not signed, whole compound chain is encrypted as single message
+            final var cipher = outboundCipher(request);
+            final var transformPos = byteBuf.writerIndex();
+            if (cipher != null) {
+                byteBuf.writeZero(Smb2PacketCipher.TRANSFORM_HEADER_LENGTH);
+            }
+            final var msgPos = byteBuf.writerIndex();
+            if (request instanceof Smb2CompoundRequest compound) {
+                final var requests = compound.requests();
+                for (int i = 0; i < requests.size(); i++) {
+                    encodeMessage(requests.get(i), byteBuf, i < requests.size() - 1, cipher == null);
+                }
+            } else {
+                encodeMessage(request, byteBuf, false, cipher == null);
+            }
+            // compression is applied to signed message, encryption is applied to compressed one
+            final var compressor = outboundCompressor(request);
+            if (compressor != null) {
+                compressor.compress(byteBuf, msgPos,
+                    request instanceof Smb2WriteRequest ? WRITE_DATA_OFFSET : HEADER_LENGTH);
+            }
+            if (cipher != null) {
+                cipher.encrypt(byteBuf, transformPos, request.header().sessionId());
             }
         } catch (Exception e) {
             LOG.error("Error encoding request {}", request, e);
         }
     }
 
+    /**
+     * Returns the cipher if message is to be encrypted. Addresses MS-SMB2 (#3.2.4.1.8 Encrypting the Message).
+     */
+    private Smb2PacketCipher outboundCipher(final Smb2Request request) {
+        if (details.packetCiphers().isEmpty() || request.header().command() == Smb2Command.SMB2_SESSION_SETUP) {
+            return null;
+        }
+        final var cipher = details.packetCiphers().get(request.header().sessionId());
+        return cipher != null && cipher.requiresEncryption(request.header().treeId()) ? cipher : null;
+    }
+
+    /**
+     * Returns the compressor if message is to be compressed. Addresses MS-SMB2 (#3.1.4.4 Compressing the Message).
+     */
+    private Smb2PacketCompressor outboundCompressor(final Smb2Request request) {
+        final var compressor = details.packetCompressor();
+        if (compressor == null || request.header().command() == Smb2Command.SMB2_SESSION_SETUP) {
+            return null;
+        }
+        if (compressor.compressAll()) {
+            return compressor;
+        }
+        return request instanceof Smb2WriteRequest
+            && compressor.requiresCompression(request.header().sessionId(), request.header().treeId())
+            ? compressor : null;
+    }
+
+    private void encodeMessage(final Smb2Request request, final ByteBuf byteBuf, final boolean hasNext,
+        final boolean sign) {
+
+        final var compressor = details.packetCompressor();
+        if (compressor != null && request instanceof Smb2ReadRequest read && read.flags() != null
+            && compressor.requiresCompression(read.header().sessionId(), read.header().treeId())) {
+            // MS-SMB2 (#3.2.4.6 Application Requests Reading from a File or Named Pipe)
+            read.flags().set(Smb2ReadFlags.SMB2_READFLAG_REQUEST_COMPRESSED, true);
+        }
+        final var startPos = byteBuf.writerIndex();
+        Smb2CodecUtils.encodeRequest(request, byteBuf, details.dialect());
+        if (hasNext) {
+            // padding is a part of signed message
+            Smb2CodecUtils.chainNextCommand(byteBuf, startPos);
+        }
+        final var signer = sign ? details.packetSigners().get(request.header().sessionId()) : null;
+        if (signer != null) {
+            signer.signOutbound(byteBuf.slice(startPos, byteBuf.writerIndex() - startPos));
+        }
+        // messages preceding session authentication are the input for preauth integrity hash
+        if (request instanceof Smb2NegotiateRequest negotiateRequest
+            && negotiateRequest.dialects().contains(Smb2Dialect.SMB3_1_1)) {
+            negotiateRequest.setMessageBytes(messageBytes(byteBuf, startPos));
+        } else if (request instanceof Smb2SessionSetupRequest sessionSetupRequest
+            && details.dialect().equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
+            sessionSetupRequest.setMessageBytes(messageBytes(byteBuf, startPos));
+        }
+    }
+
+    @Override
+    void decodeFrame(final ByteBuf frame, final List<Object> list) {
+        if (Smb2PacketCompressor.isCompressed(frame)) {
+            decodeCompressed(frame, list, true);
+            return;
+        }
+        if (!Smb2PacketCipher.isTransformed(frame)) {
+            super.decodeFrame(frame, list);
+            return;
+        }
+        final var sessionId = Smb2PacketCipher.sessionId(frame);
+        final var cipher = details.packetCiphers().get(sessionId);
+        if (cipher == null) {
+            throw new SmbException("Encrypted message for unknown session " + sessionId);
+        }
+        final var decrypted = cipher.decrypt(frame);
+        try {
+            // decrypted messages are authenticated already, no signature verification required
+            if (Smb2PacketCompressor.isCompressed(decrypted)) {
+                decodeCompressed(decrypted, list, false);
+            } else {
+                decodeMessages(decrypted, this::decodeMessage, list);
+            }
+        } finally {
+            decrypted.release();
+        }
+    }
+
+    /**
+     * Decodes compressed message. Addresses MS-SMB2 (#2.2.42 SMB2 COMPRESSION_TRANSFORM_HEADER).
+     */
+    private void decodeCompressed(final ByteBuf frame, final List<Object> list, final boolean verify) {
+        final var compressor = details.packetCompressor();
+        if (compressor == null) {
+            throw new SmbException("Compressed message received while compression is not negotiated");
+        }
+        final var decompressed = compressor.decompress(frame);
+        try {
+            // signature is calculated over uncompressed message
+            decodeMessages(decompressed, verify ? this::decode : this::decodeMessage, list);
+        } finally {
+            decompressed.release();
+        }
+    }
+
     @Override
     Smb2Response decode(final ByteBuf byteBuf) {
+        if (!details.packetSigners().isEmpty()) {
+            final var header = Smb2CodecUtils.decodeResponseHeader(byteBuf, details.dialect());
+            final var signer = details.packetSigners().get(header.sessionId());
+            // interim response of async operation carries no data, MS-SMB2 (#3.2.5.1.3 Verifying the Signature);
+            // session setup response is verified by the flow, binding response is signed with the channel key
+            if (signer != null && header.status() != SmbError.STATUS_PENDING
+                && header.command() != Smb2Command.SMB2_SESSION_SETUP
+                && !signer.verifyInboundSignature(byteBuf.slice())) {
+                // message content is discarded, the request awaiting is completed with error
+                LOG.warn("Discarding {} response (message id {}) due to signature verification failure",
+                    header.command(), header.messageId());
+                final var response = new Smb2ErrorResponse(header);
+                response.header().setStatus(SmbError.STATUS_INVALID_SIGNATURE);
+                response.header().setCreditResponse(0); // credits granted are not trusted
+                return response;
+            }
+        }
+        return decodeMessage(byteBuf);
+    }
+
+    private Smb2Response decodeMessage(final ByteBuf byteBuf) {
         final var startPos = byteBuf.readerIndex();
-        final var length = byteBuf.readableBytes();
         final var response = Smb2CodecUtils.decodeResponse(byteBuf, details.dialect());
-        final var signer = details.packetSigners().get(response.header().sessionId());
-        if (signer != null) {
-            // TODO handle verification result
-            signer.verifyInboundSignature(byteBuf.slice(startPos, length));
+        // MS-SMB2 (#3.2.5.2 Receiving an SMB2 NEGOTIATE Response, #3.2.5.3 Receiving an SMB2 SESSION_SETUP Response)
+        if (response instanceof Smb2NegotiateResponse negotiateResponse
+            && negotiateResponse.dialectRevision() == Smb2Dialect.SMB3_1_1) {
+            negotiateResponse.setMessageBytes(messageBytes(byteBuf, startPos));
+        } else if (response instanceof Smb2SessionSetupResponse sessionSetupResponse
+            && details.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)) {
+            // SMB 3.x final response signature is verified against the message bytes
+            sessionSetupResponse.setMessageBytes(messageBytes(byteBuf, startPos));
         }
         return response;
     }
+
+    private static byte[] messageBytes(final ByteBuf byteBuf, final int startPos) {
+        return ByteBufUtil.getBytes(byteBuf, startPos, byteBuf.writerIndex() - startPos);
+    }
 }
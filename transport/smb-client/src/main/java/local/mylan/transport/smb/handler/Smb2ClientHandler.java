@@ -20,36 +20,56 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.handler.PendingRequestQueue.PendingRequest;
 import local.mylan.transport.smb.protocol.Smb2Command;
 import local.mylan.transport.smb.protocol.Smb2Dialect;
 import local.mylan.transport.smb.protocol.Smb2Header;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.details.ClientDetails;
 import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.SequenceWindow;
 import local.mylan.transport.smb.protocol.flows.ClientFlow;
+import local.mylan.transport.smb.protocol.flows.ClientLeaseBreakFlow;
 import local.mylan.transport.smb.protocol.flows.ClientNegotiationFlow;
 import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.smb2.Smb2CancelRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakNotification;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class Smb2ClientHandler extends ChannelDuplexHandler implements RequestSender {
     private static final Logger LOG = LoggerFactory.getLogger(Smb2ClientHandler.class);
+    private static final long UNSOLICITED_MESSAGE_ID = -1L;
 
+    private final ClientDetails clientDetails;
     private final ConnectionDetails connDetails;
     private final ClientFlow<Void> negotiationFlow;
-    private final Map<Long, Consumer<Smb2Response>> callbacks = new ConcurrentHashMap<>();
-    private final Queue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final Timer requestTimer;
+    // requests awaiting response by message id, accessed within event loop only
+    private final LongObjectHashMap<OutstandingRequest> outstanding = new LongObjectHashMap<>();
+    private final PendingRequestQueue pendingRequests = new PendingRequestQueue();
     private ChannelHandlerContext ctx;
+    private ScheduledFuture<?> expiryTask;
 
-    public Smb2ClientHandler(final ClientDetails clientDetails, final ConnectionDetails connDetails) {
+    public Smb2ClientHandler(final ClientDetails clientDetails, final ConnectionDetails connDetails,
+        final Timer requestTimer) {
+        this.clientDetails = clientDetails;
         this.connDetails = connDetails;
+        this.requestTimer = requestTimer;
         negotiationFlow = new ClientNegotiationFlow(clientDetails, connDetails, this);
     }
 
@@ -63,14 +83,66 @@ public class Smb2ClientHandler extends ChannelDuplexHandler implements RequestSe
         negotiationFlow.start();
     }
 
+    /**
+     * Completes requests awaiting response or credits with an error, so the flows (including long-running
+     * ones like change notification) are not left pending forever. Addresses MS-SMB2 (#3.2.7.1 Handling
+     * a Network Disconnect).
+     */
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+        // compounded requests share the callback, it's invoked once
+        final var callbacks = new LinkedHashSet<Consumer<Smb2Response>>();
+        for (var request : outstanding.values()) {
+            request.cancelTimeout();
+            if (!request.timedOut) {
+                callbacks.add(request.callback);
+            }
+        }
+        outstanding.clear();
+        callbacks.forEach(callback -> callback.accept(disconnectedResponse(null)));
+        for (var pending : pendingRequests.removeExpired(Long.MAX_VALUE)) {
+            connDetails.pendingRequests().remove(pending.request());
+            if (pending.callback() != null) {
+                pending.callback().accept(disconnectedResponse(pending.request().header().command()));
+            }
+        }
+        super.channelInactive(ctx);
+    }
+
+    private static Smb2Response disconnectedResponse(final Smb2Command command) {
+        return errorResponse(command, SmbError.STATUS_CONNECTION_DISCONNECTED);
+    }
+
+    private static Smb2Response errorResponse(final Smb2Command command, final SmbError status) {
+        final var response = new Smb2ErrorResponse(command);
+        response.header().setStatus(status);
+        return response;
+    }
+
     @Override
     public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
         if (msg instanceof Smb2Response response) {
+            if (response.header() instanceof Smb2Header header && header.messageId() == UNSOLICITED_MESSAGE_ID) {
+                processUnsolicited(response);
+                return;
+            }
+            if (response.header() instanceof Smb2Header header && header.status() == SmbError.STATUS_PENDING) {
+                processInterim(header);
+                return;
+            }
             processInbound(response);
             if (response.header() instanceof Smb2Header header) {
-                final var callback = callbacks.remove(header.messageId());
-                if (callback != null) {
-                    callback.accept(response);
+                final var request = outstanding.remove(header.messageId());
+                if (request != null) {
+                    request.cancelTimeout();
+                    if (request.timedOut) {
+                        // caller was notified on timeout already
+                        LOG.debug("Response {} (message id {}) of timed out request discarded with status {}",
+                            header.command(), header.messageId(), header.status());
+                        discard(response);
+                    } else {
+                        request.callback.accept(response);
+                    }
                     return;
                 }
             }
@@ -92,51 +164,305 @@ public class Smb2ClientHandler extends ChannelDuplexHandler implements RequestSe
         final Consumer<Smb2Response> callback) {
 
         final var header = request.header();
-        if (header.flags() == null) {
-            header.setFlags(new Flags<>());
-        }
-        if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB2_1)) {
-            header.setCreditRequest(header.command() == Smb2Command.SMB2_SESSION_SETUP
-                ? connDetails.setupCreditsRequest() : 1);
-        }
-        if (header.creditCharge() > 0) {
-            if (connDetails.dialect() == Smb2Dialect.SMB2_0_2) {
-                header.setCreditCharge(0); // should not be used in SMB 2.0.2
-            } else {
-                header.setCreditRequest(header.creditCharge());
+        if (!ctx.channel().isActive()) {
+            // connection is lost, the request is failed immediately rather than on expiration
+            if (callback != null) {
+                callback.accept(disconnectedResponse(header.command()));
+            }
+            return;
+        }
+        normalizeHeader(header);
+        if (request instanceof Smb2CompoundRequest compound) {
+            for (var part : compound.requests()) {
+                normalizeHeader(part.header());
+                part.header().setSessionId(header.sessionId());
+                part.header().setTreeId(header.treeId());
             }
         }
-        final var messageIdOpt = connDetails.sequenceWindow().nextMessageId(header.creditCharge());
-        if (messageIdOpt.isEmpty()) {
-            LOG.warn("Message {} wasn't sent and moved to pending state due to luck of credits", header.command());
+        // requests already waiting for credits go first
+        drainPending();
+        final var messageId = pendingRequests.isEmpty() ? nextMessageId(request) : SequenceWindow.NO_MESSAGE_ID;
+        if (messageId == SequenceWindow.NO_MESSAGE_ID) {
             connDetails.pendingRequests().add(request);
             pendingRequests.add(new PendingRequest(request, callback, System.currentTimeMillis()));
-            // TODO schedule processing pending requests
+            // sent right away if credits are available and its group is not blocked by a larger request
+            drainPending();
+            if (connDetails.pendingRequests().contains(request)) {
+                LOG.debug("Message {} wasn't sent and moved to pending state due to lack of credits",
+                    header.command());
+                scheduleExpiry(connDetails.pendingRequestTimeoutMillis());
+            }
             return;
         }
-        header.setMessageId(messageIdOpt.get());
-        callbacks.put(header.messageId(), callback);
+        writeRequest(request, callback, messageId);
+    }
+
+    private void normalizeHeader(final Smb2Header header) {
+        if (header.creditCharge() > 0 && connDetails.dialect() == Smb2Dialect.SMB2_0_2) {
+            header.setCreditCharge(0); // should not be used in SMB 2.0.2
+        }
+    }
+
+    private long nextMessageId(final Smb2Request request) {
+        return connDetails.sequenceWindow().nextMessageId(PendingRequestQueue.creditCharge(request));
+    }
+
+    private void writeRequest(final Smb2Request request, final Consumer<Smb2Response> callback,
+        final long messageId) {
+
+        if (request instanceof Smb2CompoundRequest compound) {
+            // message IDs of compounded requests are sequential within reserved range
+            var partMessageId = messageId;
+            for (var part : compound.requests()) {
+                prepareHeader(part.header(), callback, partMessageId);
+                partMessageId += Math.max(1, part.header().creditCharge());
+            }
+        } else {
+            prepareHeader(request.header(), callback, messageId);
+        }
+        // compounded requests share the deadline, it's tracked by the first one
+        final var tracked = outstanding.get(messageId);
+        if (tracked != null) {
+            scheduleTimeout(tracked);
+        }
         ctx.writeAndFlush(request);
     }
 
+    private void prepareHeader(final Smb2Header header, final Consumer<Smb2Response> callback,
+        final long messageId) {
+
+        // credit request is defined for all the dialects, while the charge is for SMB 2.1+ only; SMB 2.0.2 server
+        // grants no more than requested, so compound requests consuming multiple credits rely on it too
+        header.setCreditRequest(creditRequest(header));
+        header.setMessageId(messageId);
+        if (callback != null) {
+            outstanding.put(messageId, new OutstandingRequest(header, callback));
+        }
+    }
+
+    /**
+     * Schedules the request expiration. Change notification is completed by the server only when the change
+     * occurs, so it has no deadline. Addresses MS-SMB2 (#3.2.6.1 Request Expiration Timer).
+     */
+    private void scheduleTimeout(final OutstandingRequest request) {
+        final var timeout = connDetails.requestTimeoutMillis();
+        if (requestTimer == null || timeout <= 0 || request.command == Smb2Command.SMB2_CHANGE_NOTIFY) {
+            return;
+        }
+        request.cancelTimeout();
+        final var messageId = request.messageId;
+        request.timeout = requestTimer.newTimeout(ignored -> {
+            // expiration is processed within event loop, same as responses
+            if (ctx.executor().inEventLoop()) {
+                expireRequest(messageId);
+            } else if (!ctx.executor().isShuttingDown()) {
+                ctx.executor().execute(() -> expireRequest(messageId));
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Completes the request which got no response in time with STATUS_IO_TIMEOUT error and requests the server
+     * to cancel it. Message id remains outstanding until the server responds (usually with STATUS_CANCELLED),
+     * that late response is discarded. Addresses MS-SMB2 (#3.2.4.24 Application Requests Canceling
+     * an Operation).
+     */
+    private void expireRequest(final long messageId) {
+        final var expired = outstanding.get(messageId);
+        if (expired == null || expired.timedOut) {
+            return;
+        }
+        LOG.warn("Request {} (message id {}) got no response within {} ms, cancelling",
+            expired.command, messageId, connDetails.requestTimeoutMillis());
+        // compounded requests share the callback, all of them are cancelled
+        final var related = outstanding.values().stream()
+            .filter(request -> request.callback == expired.callback).toList();
+        for (var request : related) {
+            request.timedOut = true;
+            request.cancelTimeout();
+            ctx.writeAndFlush(cancelRequest(request));
+        }
+        expired.callback.accept(errorResponse(expired.command, SmbError.STATUS_IO_TIMEOUT));
+    }
+
+    /**
+     * Builds CANCEL request. Async id is used if the interim response was received, message id otherwise.
+     * CANCEL consumes no credits, so no message id is allocated. Addresses MS-SMB2 (#2.2.30 SMB2 CANCEL Request).
+     */
+    private static Smb2CancelRequest cancelRequest(final OutstandingRequest request) {
+        final var cancel = new Smb2CancelRequest();
+        final var header = cancel.header();
+        header.setMessageId(request.messageId);
+        header.setSessionId(request.sessionId);
+        if (request.asyncId != 0) {
+            header.flags().set(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND, true);
+            header.setAsyncId(request.asyncId);
+        } else {
+            header.setTreeId(request.treeId);
+        }
+        return cancel;
+    }
+
+    /**
+     * Releases buffers retained by the response being discarded.
+     */
+    private static void discard(final Smb2Response response) {
+        if (response instanceof Smb2ReadResponse read && read.data() != null) {
+            read.data().release();
+        } else if (response instanceof Smb2QueryDirectoryResponse dir && dir.data() != null) {
+            dir.data().release();
+        }
+    }
+
+    /**
+     * Credits requested are adjusted to the credit charge of requests awaiting credits, so the granted credits
+     * may cover the demand. Addresses MS-SMB2 (#3.2.4.1.2 Requesting Credits from the Server).
+     */
+    private int creditRequest(final Smb2Header header) {
+        if (header.creditCharge() <= 0 && header.command() == Smb2Command.SMB2_SESSION_SETUP) {
+            return connDetails.setupCreditsRequest();
+        }
+        final var required = Math.max(1, header.creditCharge());
+        return (int) Math.max(required,
+            Math.min(required + pendingRequests.creditCharge(), connDetails.maxCreditsRequest()));
+    }
+
+    /**
+     * Sends the requests awaiting credits. The group whose next request charges more than available is skipped,
+     * so the requests of other groups fitting the credits are not blocked.
+     */
+    private void drainPending() {
+        while (!pendingRequests.isEmpty()) {
+            // dequeue before write, the response may be handled within same call
+            final var pending = pendingRequests.poll(connDetails.sequenceWindow().available());
+            if (pending == null) {
+                return;
+            }
+            final var request = pending.request();
+            // credits are checked by the queue, the window is modified within event loop only
+            final var messageId = nextMessageId(request);
+            connDetails.pendingRequests().remove(request);
+            writeRequest(request, pending.callback(), messageId);
+        }
+    }
+
+    private void scheduleExpiry(final long delayMillis) {
+        if (expiryTask == null && connDetails.pendingRequestTimeoutMillis() > 0) {
+            expiryTask = ctx.executor().schedule(this::expirePending, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void expirePending() {
+        expiryTask = null;
+        final var timeout = connDetails.pendingRequestTimeoutMillis();
+        final var now = System.currentTimeMillis();
+        for (var expired : pendingRequests.removeExpired(now - timeout)) {
+            final var request = expired.request();
+            LOG.warn("Message {} expired awaiting for credits", request.header().command());
+            connDetails.pendingRequests().remove(request);
+            if (expired.callback() != null) {
+                final var response = new Smb2ErrorResponse(request.header().command());
+                response.header().setStatus(SmbError.STATUS_IO_TIMEOUT);
+                expired.callback().accept(response);
+            }
+        }
+        if (!pendingRequests.isEmpty()) {
+            scheduleExpiry(Math.max(1, pendingRequests.oldestTimestamp() + timeout - now));
+        }
+    }
+
     private Smb2Response processInbound(final Smb2Response response) {
         if (response.header() instanceof Smb2Header header) {
-            connDetails.sequenceWindow().acceptGranted(header.creditResponse());
-            // TODO check pending
+            final var sequenceWindow = connDetails.sequenceWindow();
+            if (!sequenceWindow.complete(header.messageId(), header.creditCharge())) {
+                LOG.warn("Response {} with unexpected message id {}", header.command(), header.messageId());
+            }
+            sequenceWindow.acceptGranted(header.creditResponse());
+            // granted credits may release requests awaiting
+            drainPending();
         }
         return response;
     }
 
+    /**
+     * Processes interim response of the request server handles asynchronously: credits granted are accepted,
+     * message ID remains outstanding and the callback remains awaiting for the final response. Async id is kept
+     * for request cancellation, the request deadline is restarted as the server is known to process it.
+     * Addresses MS-SMB2 (#3.2.5.1.5 Handling Asynchronous Responses).
+     */
+    private void processInterim(final Smb2Header header) {
+        LOG.debug("Request {} (message id {}) is processed asynchronously, async id {}",
+            header.command(), header.messageId(), header.asyncId());
+        final var request = outstanding.get(header.messageId());
+        if (request != null && !request.timedOut) {
+            request.asyncId = header.asyncId();
+            if (request.timeout != null) {
+                scheduleTimeout(request);
+            }
+        }
+        connDetails.sequenceWindow().acceptGranted(header.creditResponse());
+        drainPending();
+    }
+
+    /**
+     * Processes the message sent by server not as a response to client request, such messages consume
+     * no credits. Addresses MS-SMB2 (#3.2.5.19 Receiving an SMB2 OPLOCK_BREAK Notification).
+     */
+    private void processUnsolicited(final Smb2Response response) {
+        if (response instanceof Smb2LeaseBreakNotification notification) {
+            LOG.debug("Lease break notification for lease key {}", notification.leaseKey());
+            new ClientLeaseBreakFlow(clientDetails, notification, this).start();
+        } else {
+            LOG.debug("Unsolicited message {} ignored", response.header().command());
+        }
+    }
+
     public ListenableFuture<Void> finish() {
         // TODO check pending actions
         return Futures.immediateFuture(null);
     }
 
+    @Override
+    public long creditsAvailable() {
+        return connDetails.sequenceWindow().available();
+    }
+
     @Override
     public void send(final Smb2Request request, final Consumer<Smb2Response> callback) {
-        processOutbound(ctx, request, callback);
+        // credits and pending requests are managed within event loop only
+        if (ctx.executor().inEventLoop()) {
+            processOutbound(ctx, request, callback);
+        } else {
+            ctx.executor().execute(() -> processOutbound(ctx, request, callback));
+        }
     }
 
-    private record PendingRequest(Smb2Request request, Consumer<Smb2Response> callback, long timestamp) {
+    /**
+     * Request awaiting response. Addresses MS-SMB2 (#3.2.1.7 Per Pending Request).
+     */
+    private static final class OutstandingRequest {
+        final Smb2Command command;
+        final long messageId;
+        final long sessionId;
+        final int treeId;
+        final Consumer<Smb2Response> callback;
+        long asyncId;
+        Timeout timeout;
+        boolean timedOut;
+
+        OutstandingRequest(final Smb2Header header, final Consumer<Smb2Response> callback) {
+            command = header.command();
+            messageId = header.messageId();
+            sessionId = header.sessionId();
+            treeId = header.treeId();
+            this.callback = callback;
+        }
+
+        void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
     }
 }
@@ -17,88 +17,118 @@ package local.mylan.transport.smb.handler;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageCodec;
+import io.netty.channel.CombinedChannelDuplexHandler;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToByteEncoder;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
-import local.mylan.transport.smb.Utils;
+import java.util.function.Function;
 import local.mylan.transport.smb.exceptions.SmbException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import local.mylan.transport.smb.handler.codec.Smb2CodecUtils;
 
 /**
  * SMB transport handler. Addresses MS-SMB & MS-SMB2 (#2.1 Transport).
+ *
+ * <p>Inbound frames are accumulated without copying (composite cumulation), any number of frames per read
+ * and frames split across reads are supported. Messages are decoded from slices of accumulated data,
+ * so decoded payloads (e.g. READ response data) refer the original network buffers.
  */
-abstract class Smb2Codec<I, O> extends ByteToMessageCodec<O> {
-    private static final Logger LOG = LoggerFactory.getLogger(Smb2Codec.class);
-    private final AtomicReference<ByteBuf> aggregateRef = new AtomicReference<>();
-
-    @Override
-    protected void encode(final ChannelHandlerContext ctx, final O obj, final ByteBuf byteBuf)
-        throws Exception {
+abstract class Smb2Codec<I, O> extends CombinedChannelDuplexHandler<ByteToMessageDecoder, MessageToByteEncoder<O>> {
+    private static final int FRAME_HEADER_LENGTH = 4;
 
-        // 4 bytes lead starting with 0
-        byteBuf.writeInt(0);
-        // remember position, write message
-        final int startIdx = byteBuf.writerIndex();
-        // encode outbound
-        try {
-            encode(obj, byteBuf);
-        } catch (Exception e) {
-            throw new SmbException("Exception encoding obj", e);
-        }
-        // write actual message length (3 bytes) into lead
-        final var msgLength = byteBuf.writerIndex() - startIdx;
-        byteBuf.setBytes(startIdx - 3, Utils.toByteArray(msgLength, 3));
+    Smb2Codec(final Class<? extends O> outboundType) {
+        init(new FrameDecoder(), new FrameEncoder(outboundType));
     }
 
     abstract void encode(O outObj, ByteBuf byteBuf);
 
-    @Override
-    protected void decode(final ChannelHandlerContext ctx, final ByteBuf byteBuf, final List<Object> list)
-        throws Exception {
+    abstract I decode(ByteBuf byteBuf);
 
-        if (aggregateRef.get() != null) {
-            final var aggregateBuf = aggregateRef.get();
-            if (byteBuf.readableBytes() <= aggregateBuf.writableBytes()) {
-                aggregateBuf.writeBytes(byteBuf);
-                if (aggregateBuf.writableBytes() == 0) {
-                    // aggregation completed
-                    list.add(decode(aggregateBuf));
-                    aggregateBuf.release();
-                    aggregateRef.set(null);
-                }
-                return;
+    /**
+     * Returns the length of data written to the channel right after the encoded message (e.g. file region
+     * of zero-copy READ response), so the frame length covers it.
+     */
+    int trailingDataLength(final O outObj) {
+        return 0;
+    }
+
+    /**
+     * Decodes the frame content. Transformed (encrypted) frames are expected to be handled by overriding.
+     */
+    void decodeFrame(final ByteBuf frame, final List<Object> list) {
+        decodeMessages(frame, this::decode, list);
+    }
+
+    /**
+     * Decodes the messages of a frame. Compounded messages are decoded one by one following NextCommand offset.
+     * Addresses MS-SMB2 (#3.2.5.1.9 Handling Compounded Responses, #3.3.5.2.7 Handling Compounded Requests).
+     */
+    final void decodeMessages(final ByteBuf frame, final Function<ByteBuf, I> decoder, final List<Object> list) {
+        final var endPos = frame.writerIndex();
+        var pos = frame.readerIndex();
+        while (pos < endPos) {
+            final var nextCommand = Smb2CodecUtils.nextCommandOffset(frame, pos);
+            final var msgLength = nextCommand == 0 ? endPos - pos : nextCommand;
+            if (msgLength < 0 || msgLength > endPos - pos) {
+                throw new SmbException("Compounded message offset " + nextCommand + " exceeds frame boundary");
             }
-            LOG.warn("Inbound packet size {} is greater then expected remaining packet fragment {} -> " +
-                "DROPPING aggregate buffer", byteBuf.readableBytes(), aggregateBuf.writableBytes());
-            aggregateBuf.release();
-            aggregateRef.set(null);
+            list.add(decoder.apply(frame.slice(pos, msgLength)));
+            pos += msgLength;
         }
+    }
 
-        if (byteBuf.readableBytes() > 4) {
-            final var type = byteBuf.readByte();
-            if (type == 0) {
-                final var length = Utils.readToIntValue(byteBuf, 3);
-                if (length == 0) {
-                    return;
-                }
-                if (length > byteBuf.readableBytes()) {
-                    // packet fragment, starting aggregation in heap
-                    aggregateRef.set(ctx.alloc().heapBuffer(length));
-                    aggregateRef.get().writeBytes(byteBuf);
-                    return;
-                }
+    private final class FrameDecoder extends ByteToMessageDecoder {
 
-                final var pos = byteBuf.readerIndex();
-                list.add(decode(byteBuf));
-                // ensure reader pointer points to the end of message
-                byteBuf.readerIndex(pos + length);
+        FrameDecoder() {
+            // frames split across reads are accumulated without copying
+            setCumulator(COMPOSITE_CUMULATOR);
+        }
+
+        @Override
+        protected void decode(final ChannelHandlerContext ctx, final ByteBuf byteBuf, final List<Object> list) {
+            if (byteBuf.readableBytes() < FRAME_HEADER_LENGTH) {
                 return;
             }
-            throw new SmbException("Unexpected packet lead type " + type);
+            // 4 bytes lead: zero byte followed by 3 bytes of message length
+            final var pos = byteBuf.readerIndex();
+            final var type = byteBuf.getByte(pos);
+            if (type != 0) {
+                throw new SmbException("Unexpected packet lead type " + type);
+            }
+            final var length = byteBuf.getUnsignedMedium(pos + 1);
+            if (byteBuf.readableBytes() < FRAME_HEADER_LENGTH + length) {
+                // frame fragment, wait for remaining data
+                return;
+            }
+            byteBuf.skipBytes(FRAME_HEADER_LENGTH);
+            if (length == 0) {
+                return;
+            }
+            final var frame = byteBuf.readRetainedSlice(length);
+            try {
+                decodeFrame(frame, list);
+            } finally {
+                frame.release();
+            }
         }
-        throw new SmbException("Inbound packet is too short");
     }
 
-    abstract I decode(ByteBuf byteBuf);
+    private final class FrameEncoder extends MessageToByteEncoder<O> {
+
+        FrameEncoder(final Class<? extends O> outboundType) {
+            super(outboundType);
+        }
+
+        @Override
+        protected void encode(final ChannelHandlerContext ctx, final O obj, final ByteBuf byteBuf) {
+            // 4 bytes lead starting with 0, actual length is set after message is encoded
+            byteBuf.writeInt(0);
+            final int startIdx = byteBuf.writerIndex();
+            try {
+                Smb2Codec.this.encode(obj, byteBuf);
+            } catch (Exception e) {
+                throw new SmbException("Exception encoding obj", e);
+            }
+            byteBuf.setMedium(startIdx - 3, byteBuf.writerIndex() - startIdx + trailingDataLength(obj));
+        }
+    }
 }
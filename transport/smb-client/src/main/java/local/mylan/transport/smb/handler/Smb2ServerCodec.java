@@ -16,26 +16,112 @@
 package local.mylan.transport.smb.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import local.mylan.transport.smb.handler.codec.Smb2CodecUtils;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ServerConnectionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LogoffResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2UnsupportedRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Server side SMB2 codec. Responses flagged as signed are signed with the signer of the session, signed requests
+ * are verified. Addresses MS-SMB2 (#3.3.4.1.1 Signing the Message, #3.3.5.2.4 Verifying the Signature).
+ *
+ * <p>NEGOTIATE and SESSION_SETUP messages of SMB 3.1.1 connection are provided with the bytes as transmitted,
+ * those are the input for preauth integrity hash.
+ */
 public class Smb2ServerCodec extends Smb2Codec<Smb2Request, Smb2Response> {
     private static final Logger LOG = LoggerFactory.getLogger(Smb2ServerCodec.class);
 
+    private final ServerConnectionDetails details;
+    private long relatedSessionId;
+
+    public Smb2ServerCodec() {
+        this(new ServerConnectionDetails());
+    }
+
+    public Smb2ServerCodec(final ServerConnectionDetails details) {
+        super(Smb2Response.class);
+        this.details = details;
+    }
+
     @Override
     void encode(final Smb2Response response, final ByteBuf byteBuf) {
         try {
-            Smb2CodecUtils.encodeResponse(response, byteBuf, null);
-        } catch(Exception e){
+            final var startPos = byteBuf.writerIndex();
+            final var sessionId = response.header().sessionId();
+            final var signer = response.header().isSigned() ? details.packetSigners().get(sessionId) : null;
+            if (response.header().isSigned() && signer == null) {
+                response.header().flags().set(Smb2Flags.SMB2_FLAGS_SIGNED, false);
+            }
+            Smb2CodecUtils.encodeResponse(response, byteBuf, details.dialect());
+            if (preauthIntegrity(response)) {
+                final var messageBytes = ByteBufUtil.getBytes(byteBuf, startPos, byteBuf.writerIndex() - startPos);
+                if (response instanceof Smb2NegotiateResponse negotiate) {
+                    negotiate.setMessageBytes(messageBytes);
+                } else if (response instanceof Smb2SessionSetupResponse sessionSetup) {
+                    sessionSetup.setMessageBytes(messageBytes);
+                }
+            }
+            if (signer != null) {
+                signer.signOutbound(byteBuf.slice(startPos, byteBuf.writerIndex() - startPos));
+            }
+            if (response instanceof Smb2LogoffResponse) {
+                // the signer is kept until LOGOFF response is signed
+                details.packetSigners().remove(sessionId);
+            }
+        } catch (Exception e) {
             LOG.error("Exception on encoding response {}", response, e);
         }
     }
 
+    private boolean preauthIntegrity(final Smb2Response response) {
+        return response instanceof Smb2NegotiateResponse negotiate
+            ? negotiate.dialectRevision() == Smb2Dialect.SMB3_1_1
+            : response instanceof Smb2SessionSetupResponse && details.dialect() == Smb2Dialect.SMB3_1_1;
+    }
+
+    @Override
+    int trailingDataLength(final Smb2Response response) {
+        return response instanceof Smb2ReadResponse read && read.dataRegion() != null
+            ? (int) read.dataRegion().count() : 0;
+    }
+
     @Override
     Smb2Request decode(final ByteBuf byteBuf) {
-        return Smb2CodecUtils.decodeRequest(byteBuf, null);
+        final var dialect = details.dialect();
+        final var request = Smb2CodecUtils.decodeRequest(byteBuf, dialect);
+        if (request instanceof Smb2NegotiateRequest negotiate) {
+            negotiate.setMessageBytes(ByteBufUtil.getBytes(byteBuf, 0, byteBuf.writerIndex()));
+        } else if (request instanceof Smb2SessionSetupRequest sessionSetup && dialect == Smb2Dialect.SMB3_1_1) {
+            sessionSetup.setMessageBytes(ByteBufUtil.getBytes(byteBuf, 0, byteBuf.writerIndex()));
+        }
+        // MS-SMB2 (#3.3.5.2.7.2): related request belongs to the session of preceding one
+        final var header = request.header();
+        final var sessionId = header.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS)
+            ? relatedSessionId : header.sessionId();
+        relatedSessionId = sessionId;
+        final var signer = header.isSigned() ? details.packetSigners().get(sessionId) : null;
+        if (signer != null && !signer.verifyInboundSignature(byteBuf.slice(0, byteBuf.writerIndex()))) {
+            LOG.warn("{} request (message id {}) failed signature verification", header.command(),
+                header.messageId());
+            if (request instanceof Smb2WriteRequest write && write.data() != null) {
+                write.data().release();
+            }
+            return new Smb2UnsupportedRequest(header, SmbError.STATUS_ACCESS_DENIED);
+        }
+        return request;
     }
 }
@@ -21,12 +21,12 @@ import com.google.common.util.concurrent.MoreExecutors;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import java.util.Objects;
-import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
 import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.flows.ServerRequestDispatcher;
 import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,8 +45,16 @@ public class Smb2ServerHandler extends ChannelInboundHandlerAdapter {
             Futures.addCallback(dispatcher.dispatch(request), new FutureCallback<Smb2Response>() {
                 @Override
                 public void onSuccess(final Smb2Response response) {
+                    if (response == null) {
+                        // no response is expected (e.g. CANCEL)
+                        return;
+                    }
                     processOutbound(request, response);
-                    ctx.writeAndFlush(response);
+                    if (response instanceof Smb2ReadResponse read && read.dataRegion() != null) {
+                        writeWithRegion(ctx, read);
+                    } else {
+                        ctx.writeAndFlush(response);
+                    }
                 }
 
                 @Override
@@ -60,13 +68,27 @@ public class Smb2ServerHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Writes READ response followed by its data region. Both are written within single event loop task,
+     * so no other message gets in between. The region is transferred by the channel without copying
+     * (sendfile if supported by transport).
+     */
+    private static void writeWithRegion(final ChannelHandlerContext ctx, final Smb2ReadResponse response) {
+        final Runnable write = () -> {
+            ctx.write(response);
+            ctx.writeAndFlush(response.dataRegion());
+        };
+        if (ctx.executor().inEventLoop()) {
+            write.run();
+        } else {
+            ctx.executor().execute(write);
+        }
+    }
+
     private static void processOutbound(final Smb2Request request, final Smb2Response response) {
         if (response.header().status() == null) {
             response.header().setStatus(SmbError.STATUS_SUCCESS);
         }
-        if (response.header().flags() == null) {
-            response.header().setFlags(new Flags<>());
-        }
         response.header().flags().set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true); // is response
         response.header().setMessageId(request.header().messageId());
         response.header().setAsyncId(request.header().asyncId());
@@ -30,6 +30,28 @@ final class CodecUtils {
         }
     }
 
+    /**
+     * Writes string as UTF-16LE characters directly into buffer, avoiding intermediate charset encoder buffers.
+     */
+    static void writeUnicodeString(final ByteBuf byteBuf, final CharSequence value) {
+        final var length = value.length();
+        byteBuf.ensureWritable(length * 2);
+        for (int i = 0; i < length; i++) {
+            byteBuf.writeShortLE(value.charAt(i));
+        }
+    }
+
+    /**
+     * Reads UTF-16LE string of given byte length at given position, reader index is not changed.
+     */
+    static String readUnicodeString(final ByteBuf byteBuf, final int pos, final int length) {
+        final var chars = new char[length / 2];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) byteBuf.getShortLE(pos + i * 2);
+        }
+        return new String(chars);
+    }
+
     static void alignReader(final ByteBuf byteBuf, final int startPos, final int mod) {
         final var overflow = (byteBuf.readerIndex() - startPos) % mod;
         if (overflow > 0) {
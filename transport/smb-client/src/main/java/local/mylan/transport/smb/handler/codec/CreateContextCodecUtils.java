@@ -0,0 +1,197 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler.codec;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import local.mylan.transport.smb.Utils;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDurableHandleReconnectV2Context;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDurableHandleV2Context;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseFlags;
+
+/**
+ * Create contexts codec. Addresses MS-SMB2 (#2.2.13.2 SMB2_CREATE_CONTEXT Request Values,
+ * #2.2.14.2 SMB2_CREATE_CONTEXT Response Values).
+ */
+final class CreateContextCodecUtils {
+    private static final int CONTEXT_HEADER_LENGTH = 16;
+    private static final int LEASE_V1_LENGTH = 32;
+    private static final int LEASE_V2_LENGTH = 52;
+    private static final int DURABLE_V2_REQUEST_LENGTH = 32;
+    private static final int DURABLE_V2_RESPONSE_LENGTH = 8;
+    private static final int DURABLE_V2_RECONNECT_LENGTH = 36;
+
+    private CreateContextCodecUtils() {
+        // utility class
+    }
+
+    static List<Smb2CreateContext> decode(final ByteBuf byteBuf) {
+        final var result = new ArrayList<Smb2CreateContext>();
+        var pos = byteBuf.readerIndex();
+        while (true) {
+            final var next = byteBuf.getIntLE(pos);
+            final var nameOffset = byteBuf.getUnsignedShortLE(pos + 4);
+            final var nameLength = byteBuf.getUnsignedShortLE(pos + 6);
+            final var dataOffset = byteBuf.getUnsignedShortLE(pos + 10);
+            final var dataLength = byteBuf.getIntLE(pos + 12);
+            final var name = byteBuf.getCharSequence(pos + nameOffset, nameLength, US_ASCII).toString();
+            final var data = byteBuf.slice(pos + dataOffset, dataLength);
+            final Smb2CreateContext context = switch (name) {
+                case Smb2CreateLeaseContext.NAME -> decodeLease(data);
+                case Smb2CreateDurableHandleV2Context.NAME -> decodeDurableV2(data);
+                case Smb2CreateDurableHandleReconnectV2Context.NAME -> decodeDurableV2Reconnect(data);
+                default -> null; // not supported yet
+            };
+            if (context != null) {
+                result.add(context);
+            }
+            if (next == 0) {
+                return List.copyOf(result);
+            }
+            pos += next;
+        }
+    }
+
+    static void encode(final ByteBuf byteBuf, final List<Smb2CreateContext> contexts) {
+        final var startPos = byteBuf.writerIndex();
+        var prevPos = -1;
+        for (var context : contexts) {
+            // each context is 8-byte aligned
+            CodecUtils.alignWriter(byteBuf, startPos, 8);
+            final var pos = byteBuf.writerIndex();
+            if (prevPos >= 0) {
+                byteBuf.setIntLE(prevPos, pos - prevPos);
+            }
+            prevPos = pos;
+            final var name = context.name();
+            byteBuf.writeIntLE(0); // next
+            byteBuf.writeShortLE(CONTEXT_HEADER_LENGTH); // name offset
+            byteBuf.writeShortLE(name.length());
+            byteBuf.writeZero(2); // reserved
+            final var dataRefPos = byteBuf.writerIndex();
+            byteBuf.writeZero(6); // data offset + data length
+            byteBuf.writeCharSequence(name, US_ASCII);
+            CodecUtils.alignWriter(byteBuf, pos, 8);
+            final var dataPos = byteBuf.writerIndex();
+            switch (context) {
+                case Smb2CreateLeaseContext lease -> encodeLease(byteBuf, lease);
+                case Smb2CreateDurableHandleV2Context durable -> encodeDurableV2(byteBuf, durable);
+                case Smb2CreateDurableHandleReconnectV2Context reconnect ->
+                    encodeDurableV2Reconnect(byteBuf, reconnect);
+                default -> throw new SmbException("Unsupported create context " + name);
+            }
+            byteBuf.setShortLE(dataRefPos, dataPos - pos);
+            byteBuf.setIntLE(dataRefPos + 2, byteBuf.writerIndex() - dataPos);
+        }
+    }
+
+    // SMB2_CREATE_REQUEST_LEASE (#2.2.13.2.8), SMB2_CREATE_REQUEST_LEASE_V2 (#2.2.13.2.10),
+    // SMB2_CREATE_RESPONSE_LEASE (#2.2.14.2.10), SMB2_CREATE_RESPONSE_LEASE_V2 (#2.2.14.2.11)
+
+    private static Smb2CreateContext decodeLease(final ByteBuf byteBuf) {
+        if (byteBuf.readableBytes() != LEASE_V1_LENGTH && byteBuf.readableBytes() != LEASE_V2_LENGTH) {
+            throw new SmbException("Invalid lease context length " + byteBuf.readableBytes());
+        }
+        final var lease = new Smb2CreateLeaseContext();
+        lease.setLeaseKey(Utils.readGuid(byteBuf));
+        lease.setLeaseState(new Flags<>(byteBuf.readIntLE()));
+        lease.setLeaseFlags(new Flags<>(byteBuf.readIntLE()));
+        byteBuf.skipBytes(8); // lease duration, reserved
+        if (byteBuf.isReadable()) {
+            lease.setV2(true);
+            final var parentLeaseKey = Utils.readGuid(byteBuf);
+            if (lease.leaseFlags().get(Smb2LeaseFlags.SMB2_LEASE_FLAG_PARENT_LEASE_KEY_SET)) {
+                lease.setParentLeaseKey(parentLeaseKey);
+            }
+            lease.setEpoch(byteBuf.readUnsignedShortLE());
+        }
+        return lease;
+    }
+
+    private static void encodeLease(final ByteBuf byteBuf, final Smb2CreateLeaseContext lease) {
+        final var flags = lease.leaseFlags() == null ? new Flags<Smb2LeaseFlags>() : lease.leaseFlags();
+        if (lease.v2()) {
+            flags.set(Smb2LeaseFlags.SMB2_LEASE_FLAG_PARENT_LEASE_KEY_SET, lease.parentLeaseKey() != null);
+        }
+        Utils.writeGuid(byteBuf, lease.leaseKey());
+        byteBuf.writeIntLE(lease.leaseState().asIntValue());
+        byteBuf.writeIntLE(flags.asIntValue());
+        byteBuf.writeZero(8); // lease duration, reserved
+        if (lease.v2()) {
+            if (lease.parentLeaseKey() == null) {
+                byteBuf.writeZero(16);
+            } else {
+                Utils.writeGuid(byteBuf, lease.parentLeaseKey());
+            }
+            byteBuf.writeShortLE(lease.epoch());
+            byteBuf.writeZero(2); // reserved
+        }
+    }
+
+    // SMB2_CREATE_DURABLE_HANDLE_REQUEST_V2 (#2.2.13.2.11), SMB2_CREATE_DURABLE_HANDLE_RESPONSE_V2 (#2.2.14.2.12)
+
+    private static Smb2CreateContext decodeDurableV2(final ByteBuf byteBuf) {
+        final var length = byteBuf.readableBytes();
+        if (length != DURABLE_V2_REQUEST_LENGTH && length != DURABLE_V2_RESPONSE_LENGTH) {
+            throw new SmbException("Invalid durable handle context length " + length);
+        }
+        final var durable = new Smb2CreateDurableHandleV2Context();
+        durable.setTimeout(byteBuf.readIntLE());
+        durable.setFlags(new Flags<>(byteBuf.readIntLE()));
+        if (byteBuf.isReadable()) {
+            byteBuf.skipBytes(8); // reserved
+            durable.setCreateGuid(Utils.readGuid(byteBuf));
+        }
+        return durable;
+    }
+
+    private static void encodeDurableV2(final ByteBuf byteBuf, final Smb2CreateDurableHandleV2Context durable) {
+        byteBuf.writeIntLE(durable.timeout());
+        byteBuf.writeIntLE(durable.flags() == null ? 0 : durable.flags().asIntValue());
+        if (durable.createGuid() != null) {
+            byteBuf.writeZero(8); // reserved
+            Utils.writeGuid(byteBuf, durable.createGuid());
+        }
+    }
+
+    // SMB2_CREATE_DURABLE_HANDLE_RECONNECT_V2 (#2.2.13.2.12)
+
+    private static Smb2CreateContext decodeDurableV2Reconnect(final ByteBuf byteBuf) {
+        if (byteBuf.readableBytes() != DURABLE_V2_RECONNECT_LENGTH) {
+            throw new SmbException("Invalid durable handle reconnect context length " + byteBuf.readableBytes());
+        }
+        final var reconnect = new Smb2CreateDurableHandleReconnectV2Context();
+        reconnect.setFileId(Utils.readGuid(byteBuf));
+        reconnect.setCreateGuid(Utils.readGuid(byteBuf));
+        reconnect.setFlags(new Flags<>(byteBuf.readIntLE()));
+        return reconnect;
+    }
+
+    private static void encodeDurableV2Reconnect(final ByteBuf byteBuf,
+        final Smb2CreateDurableHandleReconnectV2Context reconnect) {
+
+        Utils.writeGuid(byteBuf, reconnect.fileId());
+        Utils.writeGuid(byteBuf, reconnect.createGuid());
+        byteBuf.writeIntLE(reconnect.flags() == null ? 0 : reconnect.flags().asIntValue());
+    }
+}
@@ -16,13 +16,16 @@
 package local.mylan.transport.smb.handler.codec;
 
 import io.netty.buffer.ByteBuf;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.fscc.DirectoryPage;
+import local.mylan.transport.smb.protocol.fscc.FileAction;
 import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileIdBothDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileIdFullDirectoryInformation;
 import local.mylan.transport.smb.protocol.fscc.FileInformation;
 import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
 
 public final class FsccCodecUtils {
 
@@ -38,36 +41,23 @@ public final class FsccCodecUtils {
         }
     }
 
+    /**
+     * Decodes directory entries. Entries are read using {@link DirectoryPage}, so the layout of each directory
+     * information class is defined in a single place.
+     *
+     * @param byteBuf buffer containing directory entries, the reader index is moved to the end
+     * @param fic directory information class
+     * @return list of entries
+     */
     public static List<FileInformation> decodeFileInformation(final ByteBuf byteBuf, final FileInformationClass fic) {
         final var result = new ArrayList<FileInformation>();
-        while (byteBuf.readableBytes() > 8) {
-            final var fi = fic.newInstance();
-            decodeFileInformation(byteBuf, fi);
-            result.add(fi);
-        }
-        return result;
-    }
-
-    private static void decodeFileInformation(final ByteBuf byteBuf, final FileInformation fi) {
-        if (fi instanceof FileDirectoryInformation fid) {
-            final var pos = byteBuf.readerIndex();
-            final var nextEntryOffset = byteBuf.readIntLE();
-            fid.setFileIndex(byteBuf.readIntLE());
-            fid.setCreationTime(byteBuf.readLongLE());
-            fid.setLastAccessTime(byteBuf.readLongLE());
-            fid.setLastWriteTime(byteBuf.readLongLE());
-            fid.setChangeTime(byteBuf.readLongLE());
-            fid.setEndOfFile(byteBuf.readLongLE());
-            fid.setAllocationSize(byteBuf.readLongLE());
-            fid.setFileAttributes(new Flags<>(byteBuf.readIntLE()));
-            final var nameLength = byteBuf.readIntLE();
-            fid.setFileName(byteBuf.readCharSequence(nameLength, StandardCharsets.UTF_16LE).toString());
-            if (nextEntryOffset > 0) {
-                byteBuf.readerIndex(pos + nextEntryOffset);
+        try (var page = new DirectoryPage(byteBuf.retainedSlice(), fic)) {
+            while (page.next()) {
+                result.add(page.toFileInformation());
             }
-        } else {
-            throw new IllegalStateException("Unsupported FileInformation class " + fi);
         }
+        byteBuf.skipBytes(byteBuf.readableBytes());
+        return result;
     }
 
     private static void encodeFileInformation(final ByteBuf byteBuf, final FileInformation fi, boolean isLast) {
@@ -83,7 +73,22 @@ public final class FsccCodecUtils {
             byteBuf.writeLongLE(fdi.allocationSize());
             byteBuf.writeIntLE(fdi.fileAttributes().asIntValue());
             byteBuf.writeIntLE(fdi.fileName().length() * 2);
-            byteBuf.writeCharSequence(fdi.fileName(), StandardCharsets.UTF_16LE);
+            if (fdi instanceof FileIdFullDirectoryInformation idFull) {
+                byteBuf.writeIntLE(idFull.eaSize());
+                if (idFull instanceof FileIdBothDirectoryInformation idBoth) {
+                    // short name is 8.3 name, up to 12 characters
+                    final var shortName = idBoth.shortName() == null ? "" : idBoth.shortName();
+                    final var shortNameLength = Math.min(shortName.length(), 12) * 2;
+                    byteBuf.writeByte(shortNameLength);
+                    byteBuf.writeZero(1); // reserved
+                    CodecUtils.writeUnicodeString(byteBuf, shortName.substring(0, shortNameLength / 2));
+                    byteBuf.writeZero(24 - shortNameLength + 2); // short name padding + reserved
+                } else {
+                    byteBuf.writeZero(4); // reserved
+                }
+                byteBuf.writeLongLE(idFull.fileId());
+            }
+            CodecUtils.writeUnicodeString(byteBuf, fdi.fileName());
             CodecUtils.alignWriter(byteBuf, pos, 8);
             if (!isLast) {
                 byteBuf.setIntLE(pos, byteBuf.writerIndex() - pos);
@@ -92,4 +97,43 @@ public final class FsccCodecUtils {
             throw new IllegalStateException("Unsupported FileInformation class " + fi);
         }
     }
+
+    /**
+     * Decodes change notifications. Addresses MS-FSCC (#2.7.1 FILE_NOTIFY_INFORMATION).
+     *
+     * @param byteBuf buffer containing FILE_NOTIFY_INFORMATION entries
+     * @return list of changes
+     */
+    public static List<FileNotifyInformation> decodeFileNotifyInformation(final ByteBuf byteBuf) {
+        final var result = new ArrayList<FileNotifyInformation>();
+        while (byteBuf.readableBytes() >= 12) {
+            final var pos = byteBuf.readerIndex();
+            final var nextEntryOffset = byteBuf.readIntLE();
+            final var action = FileAction.fromCode(byteBuf.readIntLE());
+            final var nameLength = byteBuf.readIntLE();
+            result.add(new FileNotifyInformation(action,
+                CodecUtils.readUnicodeString(byteBuf, byteBuf.readerIndex(), nameLength)));
+            if (nextEntryOffset == 0) {
+                break;
+            }
+            byteBuf.readerIndex(pos + nextEntryOffset);
+        }
+        return result;
+    }
+
+    static void encodeFileNotifyInformation(final ByteBuf byteBuf, final List<FileNotifyInformation> changes) {
+        final var lastIndex = changes.size() - 1;
+        int idx = 0;
+        for (var change : changes) {
+            final var pos = byteBuf.writerIndex();
+            byteBuf.writeZero(4); // next entry offset
+            byteBuf.writeIntLE(change.action().code());
+            byteBuf.writeIntLE(change.fileName().length() * 2);
+            CodecUtils.writeUnicodeString(byteBuf, change.fileName());
+            if (idx++ != lastIndex) {
+                CodecUtils.alignWriter(byteBuf, pos, 4);
+                byteBuf.setIntLE(pos, byteBuf.writerIndex() - pos);
+            }
+        }
+    }
 }
@@ -17,11 +17,23 @@ package local.mylan.transport.smb.handler.codec;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import local.mylan.transport.smb.exceptions.SmbException;
 import local.mylan.transport.smb.protocol.fscc.Blob;
 import local.mylan.transport.smb.protocol.fscc.FsctlCode;
 import local.mylan.transport.smb.protocol.pcerpc.PceMessage;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
 
 final class IoctlCodecUtils {
+    private static final int INTERFACE_INFO_LENGTH = 152;
+    private static final int INTERFACE_ADDRESS_OFFSET = 24;
+    private static final int RSS_CAPABLE = 0x00000001;
+    private static final int RDMA_CAPABLE = 0x00000002;
+    private static final int AF_INET = 0x0002;
+    private static final int AF_INET6 = 0x0017;
 
     private IoctlCodecUtils() {
         // utility class
@@ -45,6 +57,7 @@ final class IoctlCodecUtils {
     static Object decodeOutput(final ByteBuf byteBuf, final FsctlCode ctlCode) {
         return switch (ctlCode) {
             case FSCTL_PIPE_TRANSCEIVE -> PceCodecUtils.decode(byteBuf);
+            case FSCTL_QUERY_NETWORK_INTERFACE_INFO -> decodeNetworkInterfaces(byteBuf);
             default -> blob(byteBuf);
         };
     }
@@ -54,6 +67,80 @@ final class IoctlCodecUtils {
             PceCodecUtils.encode(byteBuf, pce);
             return;
         }
+        if (ctlCode == FsctlCode.FSCTL_QUERY_NETWORK_INTERFACE_INFO && output instanceof List<?> interfaces) {
+            encodeNetworkInterfaces(byteBuf, interfaces);
+        }
+    }
+
+    // NETWORK_INTERFACE_INFO Response (MS-SMB2 #2.2.32.5)
+
+    private static List<Smb2NetworkInterfaceInfo> decodeNetworkInterfaces(final ByteBuf byteBuf) {
+        final var interfaces = new ArrayList<Smb2NetworkInterfaceInfo>();
+        var pos = byteBuf.readerIndex();
+        while (byteBuf.writerIndex() - pos >= INTERFACE_INFO_LENGTH) {
+            final var next = byteBuf.getIntLE(pos);
+            final var capability = byteBuf.getIntLE(pos + 8);
+            // 4 bytes reserved
+            final var address = decodeSockAddr(byteBuf, pos + INTERFACE_ADDRESS_OFFSET);
+            if (address != null) {
+                interfaces.add(new Smb2NetworkInterfaceInfo(byteBuf.getIntLE(pos + 4),
+                    (capability & RSS_CAPABLE) != 0, (capability & RDMA_CAPABLE) != 0,
+                    byteBuf.getLongLE(pos + 16), address));
+            }
+            if (next <= 0) {
+                break;
+            }
+            pos += next;
+        }
+        byteBuf.readerIndex(byteBuf.writerIndex());
+        return List.copyOf(interfaces);
+    }
+
+    /**
+     * Decodes interface address from SOCKADDR_STORAGE, port and IPv6 flow info and scope are not used.
+     * Addresses MS-SMB2 (#2.2.32.5.1 SOCKADDR_STORAGE).
+     */
+    private static InetAddress decodeSockAddr(final ByteBuf byteBuf, final int pos) {
+        final var family = byteBuf.getUnsignedShortLE(pos);
+        final byte[] address;
+        if (family == AF_INET) {
+            address = new byte[4];
+            byteBuf.getBytes(pos + 4, address);
+        } else if (family == AF_INET6) {
+            address = new byte[16];
+            byteBuf.getBytes(pos + 8, address);
+        } else {
+            // unknown address family, ignored
+            return null;
+        }
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            throw new SmbException("Invalid interface address", e);
+        }
+    }
+
+    private static void encodeNetworkInterfaces(final ByteBuf byteBuf, final List<?> interfaces) {
+        for (int i = 0; i < interfaces.size(); i++) {
+            final var info = (Smb2NetworkInterfaceInfo) interfaces.get(i);
+            final var pos = byteBuf.writerIndex();
+            byteBuf.writeIntLE(i < interfaces.size() - 1 ? INTERFACE_INFO_LENGTH : 0); // next
+            byteBuf.writeIntLE(info.ifIndex());
+            byteBuf.writeIntLE((info.rssCapable() ? RSS_CAPABLE : 0) | (info.rdmaCapable() ? RDMA_CAPABLE : 0));
+            byteBuf.writeZero(4); // reserved
+            byteBuf.writeLongLE(info.linkSpeed());
+            final var address = info.address().getAddress();
+            if (address.length == 4) {
+                byteBuf.writeShortLE(AF_INET);
+                byteBuf.writeZero(2); // port
+            } else {
+                byteBuf.writeShortLE(AF_INET6);
+                byteBuf.writeZero(6); // port + flow info
+            }
+            byteBuf.writeBytes(address);
+            // remaining part of SOCKADDR_STORAGE
+            byteBuf.writeZero(pos + INTERFACE_INFO_LENGTH - byteBuf.writerIndex());
+        }
     }
 
     private static Blob blob(final ByteBuf byteBuf) {
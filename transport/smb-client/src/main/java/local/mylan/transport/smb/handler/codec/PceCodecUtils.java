@@ -41,9 +41,11 @@ import local.mylan.transport.smb.protocol.srvs.SrvsMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-final class PceCodecUtils {
+public final class PceCodecUtils {
 
     private static final Logger LOG = LoggerFactory.getLogger(PceCodecUtils.class);
+    private static final int RESPONSE_HEADER_LENGTH = 24;
+    private static final int AUTH_VERIFIER_HEADER_LENGTH = 8;
 
     private static final Set<Version> SUPPORTED_VERSIONS =
         Set.of(new Version(5, 0), new Version(5, 1));
@@ -68,7 +70,14 @@ final class PceCodecUtils {
         return SUPPORTED_VERSIONS.contains(version) && byteBuf.readableBytes() == pceLen;
     }
 
-    static Object decode(final ByteBuf byteBuf) {
+    /**
+     * Decodes PCE message (fragment), if the buffer content is not recognized as PCE message the raw bytes
+     * are returned as {@link Blob}.
+     *
+     * @param byteBuf buffer containing encoded message
+     * @return decoded message or blob
+     */
+    public static Object decode(final ByteBuf byteBuf) {
         try {
             if (isPceBuf(byteBuf)) {
                 return decodePceMessage(byteBuf.slice());
@@ -92,8 +101,8 @@ final class PceCodecUtils {
                 "Unsupported byte order (%s) and/or charset (%s) within PCE message".formatted(
                     ndrFormatLabel.byteOrder(), ndrFormatLabel.character()));
         }
-        final var length = byteBuf.readUnsignedShort();
-        final var authLength = byteBuf.readUnsignedShort();
+        final var length = byteBuf.readUnsignedShortLE();
+        final var authLength = byteBuf.readUnsignedShortLE();
         final var callId = byteBuf.readIntLE();
         return switch (pduType) {
             case bind -> {
@@ -128,18 +137,60 @@ final class PceCodecUtils {
             }
             case response -> {
                 final var response = new PceResponse(pduVersion, pfcFlags, ndrFormatLabel, callId);
-                final var allocHint = byteBuf.readIntLE();
+                byteBuf.skipBytes(4); // alloc hint
                 response.setContextId(byteBuf.readUnsignedShortLE());
                 response.setCancelCount(byteBuf.readUnsignedByte());
                 byteBuf.skipBytes(1); // reserved
+                // alloc hint is optional (may be zero) and covers the whole (fragmented) response, the stub of current
+                // fragment is the rest of the PDU excluding the auth verifier (C706 #12.6.3.1, #12.6.3.2)
+                final var stubLength = length - RESPONSE_HEADER_LENGTH
+                    - (authLength > 0 ? authLength + AUTH_VERIFIER_HEADER_LENGTH : 0);
+                if (stubLength < 0) {
+                    throw new IllegalArgumentException("Invalid PCE response stub length " + stubLength);
+                }
                 // embedded object to be decoded explicitly from logic layer because opnum isn't in response
-                response.setObject(new Blob(Utils.readToByteArray(byteBuf, allocHint)));
+                response.setObject(new Blob(Utils.readToByteArray(byteBuf, stubLength)));
                 yield response;
             }
             default -> new PceUnsupported(pduType, callId);
         };
     }
 
+    /**
+     * Reassembles the stub data of fragmented response. Fragments are expected to be of the same call
+     * in order received, the first one having PFC_FIRST_FRAG flag set and the last one PFC_LAST_FRAG.
+     * Addresses C706 (#12.6.3.2 Fragmentation and Reassembly).
+     *
+     * @param fragments response fragments
+     * @return stub data of the whole response
+     */
+    public static Blob reassemble(final List<PceResponse> fragments) {
+        if (fragments.isEmpty()
+            || !fragments.getFirst().pfcFlags().get(PduDataTypes.PfcFlags.PFC_FIRST_FRAG)
+            || !fragments.getLast().pfcFlags().get(PduDataTypes.PfcFlags.PFC_LAST_FRAG)) {
+            throw new IllegalArgumentException("Incomplete PCE response fragment sequence");
+        }
+        final var callId = fragments.getFirst().callId();
+        var length = 0;
+        for (var fragment : fragments) {
+            if (fragment.callId() != callId || !(fragment.object() instanceof Blob)) {
+                throw new IllegalArgumentException("Unexpected PCE response fragment, call id " + fragment.callId());
+            }
+            length += ((Blob) fragment.object()).bytes().length;
+        }
+        if (fragments.size() == 1) {
+            return (Blob) fragments.getFirst().object();
+        }
+        final var stub = new byte[length];
+        var offset = 0;
+        for (var fragment : fragments) {
+            final var bytes = ((Blob) fragment.object()).bytes();
+            System.arraycopy(bytes, 0, stub, offset, bytes.length);
+            offset += bytes.length;
+        }
+        return new Blob(stub);
+    }
+
     static void encode(final ByteBuf byteBuf, final PceMessage pce) {
         verifyFormat(pce.ndrFormatLabel());
         final var startPos = byteBuf.writerIndex();
@@ -18,7 +18,6 @@ package local.mylan.transport.smb.handler.codec;
 import static java.util.Objects.requireNonNull;
 
 import io.netty.buffer.ByteBuf;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -34,34 +33,59 @@ import local.mylan.transport.smb.protocol.Smb2Response;
 import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
 import local.mylan.transport.smb.protocol.fscc.FsctlCode;
+import local.mylan.transport.smb.protocol.smb2.Smb2CancelRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2CloseRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2CloseResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionCapabilities;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateAction;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2EchoRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2EchoResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCapabilities;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCipher;
 import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2HashAlgorithm;
 import local.mylan.transport.smb.protocol.smb2.Smb2ImpersonationLevel;
 import local.mylan.transport.smb.protocol.smb2.Smb2IoctlRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2IoctlResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakAcknowledgment;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakNotification;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2LogoffRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2LogoffResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateContextType;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2PreauthIntegrityCapabilities;
 import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2ShareType;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningCapabilities;
 import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2UnsupportedRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteResponse;
 
 public final class Smb2CodecUtils {
+    private static final int NEXT_COMMAND_POSITION = 20; // NextCommand field position within SMB2 header
+    private static final int COMPRESSION_CAPABILITIES_FLAG_CHAINED = 0x00000001;
 
     private Smb2CodecUtils() {
         //utility class
@@ -81,10 +105,17 @@ public final class Smb2CodecUtils {
             case SMB2_TREE_DISCONNECT -> new Smb2TreeDisconnectRequest(header); // no content
             case SMB2_CREATE -> decodeCreateRequest(byteBuf, header, ctx);
             case SMB2_CLOSE -> decodeCloseRequest(byteBuf, header, ctx);
+            case SMB2_READ -> decodeReadRequest(byteBuf, header, ctx);
+            case SMB2_WRITE -> decodeWriteRequest(byteBuf, header, ctx);
             case SMB2_IOCTL -> decodeIoctlRequest(byteBuf, header, ctx);
             case SMB2_QUERY_DIRECTORY -> decodeQueryDirRequest(byteBuf, header, ctx);
+            case SMB2_CHANGE_NOTIFY -> decodeChangeNotifyRequest(byteBuf, header);
+            case SMB2_OPLOCK_BREAK -> decodeLeaseBreakAcknowledgment(byteBuf, header);
+            case SMB2_CANCEL -> new Smb2CancelRequest(header); // no content
+            case SMB2_ECHO -> new Smb2EchoRequest(header); // no content
 
-            default -> throw new SmbException("no request decoder for command " + header.command());
+            // content is not decoded, the request is expected to be answered with error
+            default -> new Smb2UnsupportedRequest(header);
         };
     }
 
@@ -101,8 +132,14 @@ public final class Smb2CodecUtils {
             case Smb2TreeDisconnectRequest req -> encodeEmpty(byteBuf);
             case Smb2CreateRequest req -> encodeCreateRequest(byteBuf, req, ctx);
             case Smb2CloseRequest req -> encodeCloseRequest(byteBuf, req, ctx);
+            case Smb2ReadRequest req -> encodeReadRequest(byteBuf, req, ctx);
+            case Smb2WriteRequest req -> encodeWriteRequest(byteBuf, req, ctx);
             case Smb2IoctlRequest req -> encodeIoctlRequest(byteBuf, req, ctx);
             case Smb2QueryDirectoryRequest req -> encodeQueryDirRequest(byteBuf, req, ctx);
+            case Smb2ChangeNotifyRequest req -> encodeChangeNotifyRequest(byteBuf, req);
+            case Smb2LeaseBreakAcknowledgment req -> encodeLeaseBreakAcknowledgment(byteBuf, req);
+            case Smb2CancelRequest req -> encodeEmpty(byteBuf);
+            case Smb2EchoRequest req -> encodeEmpty(byteBuf);
 
             default -> throw new SmbException("no request encoder for class " + request.getClass());
         }
@@ -125,13 +162,31 @@ public final class Smb2CodecUtils {
             case SMB2_TREE_DISCONNECT -> new Smb2TreeDisconnectResponse(header);
             case SMB2_CREATE -> decodeCreateResponse(byteBuf, header, ctx);
             case SMB2_CLOSE -> decodeCloseResponse(byteBuf, header, ctx);
+            case SMB2_READ -> decodeReadResponse(byteBuf, header, ctx);
+            case SMB2_WRITE -> decodeWriteResponse(byteBuf, header, ctx);
             case SMB2_IOCTL -> decodeIoctlResponse(byteBuf, header, ctx);
             case SMB2_QUERY_DIRECTORY -> decodeQueryDirResponse(byteBuf, header, ctx);
+            case SMB2_CHANGE_NOTIFY -> decodeChangeNotifyResponse(byteBuf, header, ctx);
+            case SMB2_OPLOCK_BREAK -> decodeOplockBreakResponse(byteBuf, header, ctx);
+            case SMB2_ECHO -> new Smb2EchoResponse(header);
 
             default -> throw new SmbException("no response decoder for command " + header.command());
         };
     }
 
+    /**
+     * Decodes response header only, buffer reader position remains unchanged.
+     *
+     * @param byteBuf buffer containing encoded response
+     * @param dialect connection dialect
+     * @return decoded header
+     */
+    public static Smb2Header decodeResponseHeader(final ByteBuf byteBuf, final Smb2Dialect dialect) {
+        requireNonNull(byteBuf);
+        final var ctx = new CodecContext(nonNullDialect(dialect), true, byteBuf.readerIndex());
+        return decodeHeader(byteBuf.duplicate(), ctx);
+    }
+
     public static void encodeResponse(Smb2Response response, final ByteBuf byteBuf, final Smb2Dialect dialect) {
         requireNonNull(response);
         requireNonNull(byteBuf);
@@ -144,15 +199,45 @@ public final class Smb2CodecUtils {
             case Smb2LogoffResponse resp -> encodeEmpty(byteBuf);
             case Smb2TreeConnectResponse resp -> encodeTreeConnectResponse(byteBuf, resp, ctx);
             case Smb2TreeDisconnectResponse resp -> encodeEmpty(byteBuf);
+            case Smb2EchoResponse resp -> encodeEmpty(byteBuf);
             case Smb2CreateResponse resp -> encodeCreateResponse(byteBuf, resp, ctx);
             case Smb2CloseResponse resp -> encodeCloseResponse(byteBuf, resp, ctx);
+            case Smb2ReadResponse resp -> encodeReadResponse(byteBuf, resp, ctx);
+            case Smb2WriteResponse resp -> encodeWriteResponse(byteBuf, resp, ctx);
             case Smb2IoctlResponse resp -> encodeIoctlResponse(byteBuf, resp, ctx);
             case Smb2QueryDirectoryResponse resp -> encodeQueryDirResponse(byteBuf, resp, ctx);
+            case Smb2ChangeNotifyResponse resp -> encodeChangeNotifyResponse(byteBuf, resp, ctx);
+            case Smb2LeaseBreakNotification resp -> encodeLeaseBreakNotification(byteBuf, resp);
+            case Smb2LeaseBreakResponse resp -> encodeLeaseBreakResponse(byteBuf, resp);
 
             default -> throw new SmbException("no response encoder for class " + response.getClass());
         }
     }
 
+    /**
+     * Completes encoded message as a non-last part of compounded chain: pads the message to 8-byte boundary
+     * and sets the offset of the next message into NextCommand header field.
+     * Addresses MS-SMB2 (#3.2.4.1.4 Sending Compounded Requests).
+     *
+     * @param byteBuf buffer containing encoded message
+     * @param headerStartPosition position of encoded message header
+     */
+    public static void chainNextCommand(final ByteBuf byteBuf, final int headerStartPosition) {
+        CodecUtils.alignWriter(byteBuf, headerStartPosition, 8);
+        byteBuf.setIntLE(headerStartPosition + NEXT_COMMAND_POSITION, byteBuf.writerIndex() - headerStartPosition);
+    }
+
+    /**
+     * Reads NextCommand header field without changing reader position.
+     *
+     * @param byteBuf buffer containing encoded message
+     * @param headerStartPosition position of encoded message header
+     * @return offset of the next compounded message relative to the header start, 0 if message is the last one
+     */
+    public static int nextCommandOffset(final ByteBuf byteBuf, final int headerStartPosition) {
+        return byteBuf.getIntLE(headerStartPosition + NEXT_COMMAND_POSITION);
+    }
+
     private static Smb2Dialect nonNullDialect(final Smb2Dialect dialect) {
         return dialect == null ? Smb2Dialect.Unknown : dialect;
     }
@@ -161,9 +246,9 @@ public final class Smb2CodecUtils {
 
     private static Smb2Header decodeHeader(final ByteBuf byteBuf, final CodecContext ctx) {
         final var header = new Smb2Header();
-        final var protocolVer = ProtocolVersion.fromCode(byteBuf.readIntLE());
-        if (protocolVer != ProtocolVersion.SMB2) {
-            throw new SmbException("Unsupported protocol version: " + protocolVer);
+        final var protocolCode = byteBuf.readIntLE();
+        if (protocolCode != ProtocolVersion.SMB2.code()) {
+            throw new SmbException("Unsupported protocol version: " + Integer.toHexString(protocolCode));
         }
         readAssertStructSize(byteBuf, 64, "SMB2 Header");
         if (ctx.dialect().equalsOrHigher(Smb2Dialect.SMB2_1)) {
@@ -185,9 +270,9 @@ public final class Smb2CodecUtils {
         } else {
             header.setCreditResponse(byteBuf.readUnsignedShortLE());
         }
-        header.setFlags(new Flags<>(byteBuf.readIntLE()));
+        header.setFlagsValue(byteBuf.readIntLE());
         // validate direction
-        final boolean isResponse = header.flags().get(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR);
+        final boolean isResponse = (header.flagsValue() & Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR.mask()) != 0;
         if (isResponse ^ ctx.isResponse()) {
             throw new SmbException("Unexpected message type: received " + (isResponse ?
                 " response (request expected)" : "request (response expected)"));
@@ -201,7 +286,7 @@ public final class Smb2CodecUtils {
             header.setTreeId(byteBuf.readIntLE());
         }
         header.setSessionId(byteBuf.readLongLE());
-        header.setSignature(Utils.readToByteArray(byteBuf, 16));
+        byteBuf.skipBytes(16); // signature is verified by packet signer over the raw message bytes
         return header;
     }
 
@@ -217,7 +302,7 @@ public final class Smb2CodecUtils {
         }
         byteBuf.writeShortLE(header.command().code());
         byteBuf.writeShortLE(ctx.isRequest() ? header.creditRequest() : header.creditResponse());
-        byteBuf.writeIntLE(header.flags().asIntValue());
+        byteBuf.writeIntLE(header.flagsValue());
         byteBuf.writeIntLE(header.nextCommandOffset());
         byteBuf.writeLongLE(header.messageId());
         if (header.isAsync()) {
@@ -276,7 +361,7 @@ public final class Smb2CodecUtils {
             final int negCtxCount = tempBuf.readUnsignedShortLE();
             if (negCtxCount > 0 && negCtxOffset > 0) {
                 byteBuf.readerIndex(ctx.headerStartPosition() + negCtxOffset);
-                // todo read negotiation contexts
+                request.setNegotiateContexts(decodeNegotiateContexts(byteBuf, negCtxCount, ctx));
             }
         }
         return request;
@@ -303,7 +388,7 @@ public final class Smb2CodecUtils {
                 CodecUtils.alignWriter(byteBuf, ctx.headerStartPosition(), 8);
                 byteBuf.setIntLE(negCtxInfoPos, byteBuf.writerIndex() - ctx.headerStartPosition()); // offset
                 byteBuf.setShortLE(negCtxInfoPos + 4, negCtxs.size()); // cnt
-                // todo encode contexts
+                encodeNegotiateContexts(byteBuf, negCtxs, ctx);
             }
         }
     }
@@ -328,7 +413,10 @@ public final class Smb2CodecUtils {
         response.setToken(readField(byteBuf, RefType.SHORT, ctx, SpnegoCodecUtils::decodeNegToken, null));
         if (response.dialectRevision().equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
             final var negCtxsPos = ctx.headerStartPosition() + byteBuf.readIntLE();
-            // todo read contexts
+            if (negCtxsCount > 0) {
+                byteBuf.readerIndex(negCtxsPos);
+                response.setNegotiateContexts(decodeNegotiateContexts(byteBuf, negCtxsCount, ctx));
+            }
         }
         return response;
     }
@@ -339,7 +427,8 @@ public final class Smb2CodecUtils {
         byteBuf.writeShortLE(65); // struct size constant
         byteBuf.writeShortLE(response.securityMode().asIntValue());
         byteBuf.writeShortLE(response.dialectRevision().code());
-        byteBuf.writeZero(2); // todo set context count for SMB 3.1.1
+        final var negCtxCountPos = byteBuf.writerIndex();
+        byteBuf.writeZero(2);
         Utils.writeGuid(byteBuf, response.serverGuid());
         byteBuf.writeIntLE(response.capabilities().asIntValue());
         byteBuf.writeIntLE(response.maxTransactSize());
@@ -351,11 +440,148 @@ public final class Smb2CodecUtils {
         final var tokenRef = prepareFieldRef(byteBuf, RefType.SHORT, ctx);
         final var negCtxRef = prepareFieldRef(byteBuf, RefType.SHORT, ctx);
         writeField(byteBuf, tokenRef, () -> SpnegoCodecUtils.encodeNegToken(byteBuf, response.token()));
-        if (response.dialectRevision().equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
-            // todo write negotiate contexts
+        final var negCtxs = response.negotiateContexts();
+        if (response.dialectRevision().equalsOrHigher(Smb2Dialect.SMB3_1_1) && negCtxs != null && !negCtxs.isEmpty()) {
+            CodecUtils.alignWriter(byteBuf, ctx.headerStartPosition(), 8);
+            byteBuf.setShortLE(negCtxCountPos, negCtxs.size());
+            byteBuf.setIntLE(negCtxRef.offsetPos(), byteBuf.writerIndex() - ctx.headerStartPosition());
+            encodeNegotiateContexts(byteBuf, negCtxs, ctx);
+        }
+    }
+
+    // NEGOTIATE_CONTEXT (MS-SMB2 #2.2.3.1, #2.2.4.1)
+
+    private static List<Smb2NegotiateContext> decodeNegotiateContexts(final ByteBuf byteBuf, final int count,
+        final CodecContext ctx) {
+
+        final var result = new ArrayList<Smb2NegotiateContext>(count);
+        for (int i = 0; i < count; i++) {
+            // each context is 8-byte aligned
+            CodecUtils.alignReader(byteBuf, ctx.headerStartPosition(), 8);
+            final var type = Smb2NegotiateContextType.fromCode(byteBuf.readUnsignedShortLE());
+            final var dataLength = byteBuf.readUnsignedShortLE();
+            byteBuf.skipBytes(4); // reserved
+            final var data = byteBuf.readSlice(dataLength);
+            final Smb2NegotiateContext negCtx = type == null ? null : switch (type) {
+                case SMB2_PREAUTH_INTEGRITY_CAPABILITIES -> decodePreauthIntegrityCapabilities(data);
+                case SMB2_ENCRYPTION_CAPABILITIES -> decodeEncryptionCapabilities(data);
+                case SMB2_COMPRESSION_CAPABILITIES -> decodeCompressionCapabilities(data);
+                case SMB2_SIGNING_CAPABILITIES -> decodeSigningCapabilities(data);
+                default -> null; // not supported yet
+            };
+            if (negCtx != null) {
+                result.add(negCtx);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    private static void encodeNegotiateContexts(final ByteBuf byteBuf, final List<Smb2NegotiateContext> negCtxs,
+        final CodecContext ctx) {
+
+        for (var negCtx : negCtxs) {
+            CodecUtils.alignWriter(byteBuf, ctx.headerStartPosition(), 8);
+            byteBuf.writeShortLE(negCtx.type().code());
+            final var lengthPos = byteBuf.writerIndex();
+            byteBuf.writeZero(6); // data length + reserved
+            final var dataPos = byteBuf.writerIndex();
+            switch (negCtx) {
+                case Smb2PreauthIntegrityCapabilities preauth -> encodePreauthIntegrityCapabilities(byteBuf, preauth);
+                case Smb2EncryptionCapabilities encryption -> encodeEncryptionCapabilities(byteBuf, encryption);
+                case Smb2CompressionCapabilities compression -> encodeCompressionCapabilities(byteBuf, compression);
+                case Smb2SigningCapabilities signing -> encodeSigningCapabilities(byteBuf, signing);
+                default -> throw new SmbException("Unsupported negotiate context " + negCtx.type());
+            }
+            byteBuf.setShortLE(lengthPos, byteBuf.writerIndex() - dataPos);
         }
     }
 
+    private static Smb2NegotiateContext decodePreauthIntegrityCapabilities(final ByteBuf byteBuf) {
+        final var hashAlgorithmCount = byteBuf.readUnsignedShortLE();
+        final var saltLength = byteBuf.readUnsignedShortLE();
+        final var hashAlgorithms = new ArrayList<Smb2HashAlgorithm>(hashAlgorithmCount);
+        for (int i = 0; i < hashAlgorithmCount; i++) {
+            final var algorithm = Smb2HashAlgorithm.fromCode(byteBuf.readUnsignedShortLE());
+            if (algorithm != null) {
+                hashAlgorithms.add(algorithm);
+            }
+        }
+        final var salt = new byte[saltLength];
+        byteBuf.readBytes(salt);
+        return new Smb2PreauthIntegrityCapabilities(List.copyOf(hashAlgorithms), salt);
+    }
+
+    private static void encodePreauthIntegrityCapabilities(final ByteBuf byteBuf,
+        final Smb2PreauthIntegrityCapabilities preauth) {
+
+        final var salt = preauth.salt() == null ? new byte[0] : preauth.salt();
+        byteBuf.writeShortLE(preauth.hashAlgorithms().size());
+        byteBuf.writeShortLE(salt.length);
+        preauth.hashAlgorithms().forEach(algorithm -> byteBuf.writeShortLE(algorithm.code()));
+        byteBuf.writeBytes(salt);
+    }
+
+    private static Smb2NegotiateContext decodeEncryptionCapabilities(final ByteBuf byteBuf) {
+        final var count = byteBuf.readUnsignedShortLE();
+        final var ciphers = new ArrayList<Smb2EncryptionCipher>(count);
+        for (int i = 0; i < count; i++) {
+            // zero value means no common cipher, it's omitted as unknown one
+            final var cipher = Smb2EncryptionCipher.fromCode(byteBuf.readUnsignedShortLE());
+            if (cipher != null) {
+                ciphers.add(cipher);
+            }
+        }
+        return new Smb2EncryptionCapabilities(List.copyOf(ciphers));
+    }
+
+    private static void encodeEncryptionCapabilities(final ByteBuf byteBuf,
+        final Smb2EncryptionCapabilities encryption) {
+
+        byteBuf.writeShortLE(encryption.ciphers().size());
+        encryption.ciphers().forEach(cipher -> byteBuf.writeShortLE(cipher.code()));
+    }
+
+    private static Smb2NegotiateContext decodeCompressionCapabilities(final ByteBuf byteBuf) {
+        final var count = byteBuf.readUnsignedShortLE();
+        byteBuf.skipBytes(2); // padding
+        final var flags = byteBuf.readIntLE();
+        final var algorithms = new ArrayList<Smb2CompressionAlgorithm>(count);
+        for (int i = 0; i < count; i++) {
+            final var algorithm = Smb2CompressionAlgorithm.fromCode(byteBuf.readUnsignedShortLE());
+            if (algorithm != null) {
+                algorithms.add(algorithm);
+            }
+        }
+        return new Smb2CompressionCapabilities(List.copyOf(algorithms),
+            (flags & COMPRESSION_CAPABILITIES_FLAG_CHAINED) != 0);
+    }
+
+    private static void encodeCompressionCapabilities(final ByteBuf byteBuf,
+        final Smb2CompressionCapabilities compression) {
+
+        byteBuf.writeShortLE(compression.compressionAlgorithms().size());
+        byteBuf.writeZero(2); // padding
+        byteBuf.writeIntLE(compression.chained() ? COMPRESSION_CAPABILITIES_FLAG_CHAINED : 0);
+        compression.compressionAlgorithms().forEach(algorithm -> byteBuf.writeShortLE(algorithm.code()));
+    }
+
+    private static Smb2NegotiateContext decodeSigningCapabilities(final ByteBuf byteBuf) {
+        final var count = byteBuf.readUnsignedShortLE();
+        final var signingAlgorithms = new ArrayList<Smb2SigningAlgorithm>(count);
+        for (int i = 0; i < count; i++) {
+            final var algorithm = Smb2SigningAlgorithm.fromCode(byteBuf.readUnsignedShortLE());
+            if (algorithm != null) {
+                signingAlgorithms.add(algorithm);
+            }
+        }
+        return new Smb2SigningCapabilities(List.copyOf(signingAlgorithms));
+    }
+
+    private static void encodeSigningCapabilities(final ByteBuf byteBuf, final Smb2SigningCapabilities signing) {
+        byteBuf.writeShortLE(signing.signingAlgorithms().size());
+        signing.signingAlgorithms().forEach(algorithm -> byteBuf.writeShortLE(algorithm.code()));
+    }
+
     // SESSION_SETUP Request (MS-SMB2 #2.2.5)
 
     private static Smb2Request decodeSessionSetupRequest(final ByteBuf byteBuf, final Smb2Header header,
@@ -478,7 +704,8 @@ public final class Smb2CodecUtils {
         request.setCreateDisposition(Smb2CreateDisposition.fromCode(byteBuf.readIntLE()));
         request.setCreateOptions(new Flags<>(byteBuf.readIntLE()));
         request.setName(readUnicodeStringField(byteBuf, ctx));
-        // TODO contexts
+        request.setCreateContexts(
+            readField(byteBuf, RefType.INT, ctx, CreateContextCodecUtils::decode, List.of()));
         return request;
     }
 
@@ -499,7 +726,11 @@ public final class Smb2CodecUtils {
         final var contextsRef = prepareFieldRef(byteBuf, RefType.INT, ctx);
         final var bufPos = byteBuf.writerIndex();
         writeUnicodeStringField(byteBuf, nameRef, request.name());
-        // TODO contexts
+        final var contexts = request.createContexts();
+        if (contexts != null && !contexts.isEmpty()) {
+            CodecUtils.alignWriter(byteBuf, ctx.headerStartPosition(), 8);
+            writeField(byteBuf, contextsRef, () -> CreateContextCodecUtils.encode(byteBuf, contexts));
+        }
         if (byteBuf.writerIndex() == bufPos) {
             byteBuf.writeZero(1); // buffer part of the message shoudl be at least 1 byte long
         }
@@ -511,6 +742,11 @@ public final class Smb2CodecUtils {
         final CodecContext ctx) {
 
         final var response = new Smb2CreateResponse(header);
+        if (header.status() != SmbError.STATUS_SUCCESS) {
+            // ERROR Response, e.g. when related operation failed within compounded chain
+            readAssertStructSize(byteBuf, 9, "CREATE Error Response");
+            return response;
+        }
         readAssertStructSize(byteBuf, 89, "CREATE Response");
         response.setOpLockLevel(Smb2OpLockLevel.fromCode(byteBuf.readByte()));
         response.setFlags(new Flags<>(byteBuf.readByte()));
@@ -524,14 +760,15 @@ public final class Smb2CodecUtils {
         response.setFileAttributes(new Flags<>(byteBuf.readIntLE()));
         byteBuf.skipBytes(4); // reserved
         response.setFileId(Utils.readGuid(byteBuf));
-        // reading context omitted; TODO implement
+        response.setCreateContexts(
+            readField(byteBuf, RefType.INT, ctx, CreateContextCodecUtils::decode, List.of()));
         return response;
     }
 
     private static void encodeCreateResponse(final ByteBuf byteBuf, final Smb2CreateResponse response,
         final CodecContext ctx) {
 
-        byteBuf.writeIntLE(89); // structure size constant
+        byteBuf.writeShortLE(89); // structure size constant
         byteBuf.writeByte(response.opLockLevel().code());
         byteBuf.writeByte(response.flags().asIntValue());
         byteBuf.writeIntLE(response.createAction().code());
@@ -544,7 +781,12 @@ public final class Smb2CodecUtils {
         byteBuf.writeIntLE(response.fileAttributes().asIntValue());
         byteBuf.writeZero(4); // reserved
         Utils.writeGuid(byteBuf, response.fileId());
-        byteBuf.writeZero(8); // writing no contexts; TODO implement
+        final var contextsRef = prepareFieldRef(byteBuf, RefType.INT, ctx);
+        final var contexts = response.createContexts();
+        if (contexts != null && !contexts.isEmpty()) {
+            CodecUtils.alignWriter(byteBuf, ctx.headerStartPosition(), 8);
+            writeField(byteBuf, contextsRef, () -> CreateContextCodecUtils.encode(byteBuf, contexts));
+        }
     }
 
     // SMB2 CLOSE Request (MS-SMB2 #2.2.15)
@@ -575,6 +817,10 @@ public final class Smb2CodecUtils {
         final CodecContext ctx) {
 
         final var response = new Smb2CloseResponse(header);
+        if (header.status() != SmbError.STATUS_SUCCESS) {
+            readAssertStructSize(byteBuf, 9, "CLOSE Error Response");
+            return response;
+        }
         readAssertStructSize(byteBuf, 60, "CLOSE Response");
         response.setFlags(new Flags<>(byteBuf.readUnsignedShortLE()));
         byteBuf.skipBytes(4); // reserved
@@ -591,7 +837,7 @@ public final class Smb2CodecUtils {
     private static void encodeCloseResponse(final ByteBuf byteBuf, final Smb2CloseResponse response,
         final CodecContext ctx) {
 
-        byteBuf.writeIntLE(60); // structure size constant
+        byteBuf.writeShortLE(60); // structure size constant
         byteBuf.writeShortLE(response.flags().asIntValue());
         byteBuf.writeZero(4); // reserved
         byteBuf.writeLongLE(response.creationTime());
@@ -603,6 +849,169 @@ public final class Smb2CodecUtils {
         byteBuf.writeIntLE(response.fileAttributes().asIntValue());
     }
 
+    // SMB2 READ Request (MS-SMB2 #2.2.19)
+
+    private static Smb2Request decodeReadRequest(final ByteBuf byteBuf, final Smb2Header header,
+        final CodecContext ctx) {
+
+        final var request = new Smb2ReadRequest(header);
+        readAssertStructSize(byteBuf, 49, "READ Request");
+        byteBuf.skipBytes(1); // padding
+        request.setFlags(new Flags<>(byteBuf.readUnsignedByte()));
+        request.setLength(byteBuf.readIntLE());
+        request.setOffset(byteBuf.readLongLE());
+        request.setFileId(Utils.readGuid(byteBuf));
+        request.setMinimumCount(byteBuf.readIntLE());
+        byteBuf.skipBytes(4); // channel, RDMA is not supported
+        request.setRemainingBytes(byteBuf.readIntLE());
+        byteBuf.skipBytes(4); // 2x read channel info offset + 2x read channel info length
+        return request;
+    }
+
+    private static void encodeReadRequest(final ByteBuf byteBuf, final Smb2ReadRequest request,
+        final CodecContext ctx) {
+
+        byteBuf.writeShortLE(49); // struct size
+        byteBuf.writeByte(0x50); // padding: preferred data offset in response (header + READ response struct)
+        byteBuf.writeByte(request.flags() == null ? 0 : request.flags().asIntValue());
+        byteBuf.writeIntLE(request.length());
+        byteBuf.writeLongLE(request.offset());
+        Utils.writeGuid(byteBuf, request.fileId());
+        byteBuf.writeIntLE(request.minimumCount());
+        byteBuf.writeIntLE(0); // channel, RDMA is not supported
+        byteBuf.writeIntLE(request.remainingBytes());
+        byteBuf.writeIntLE(0); // 2x read channel info offset + 2x read channel info length
+        byteBuf.writeZero(1); // buffer, at least one byte is expected
+    }
+
+    // SMB2 READ Response (MS-SMB2 #2.2.20)
+
+    private static Smb2Response decodeReadResponse(final ByteBuf byteBuf, final Smb2Header header,
+        final CodecContext ctx) {
+
+        final var response = new Smb2ReadResponse(header);
+        final var status = header.status();
+        if (status != SmbError.STATUS_SUCCESS && status != SmbError.STATUS_BUFFER_OVERFLOW) {
+            // no data, ERROR Response (e.g. STATUS_END_OF_FILE)
+            readAssertStructSize(byteBuf, 9, "READ Error Response");
+            return response;
+        }
+        readAssertStructSize(byteBuf, 17, "READ Response");
+        final var offset = byteBuf.readUnsignedByte();
+        byteBuf.skipBytes(1); // reserved
+        final var length = byteBuf.readIntLE();
+        response.setDataRemaining(byteBuf.readIntLE());
+        byteBuf.skipBytes(4); // reserved2
+        // data is kept as is (no copy), the consumer is responsible for slice release
+        response.setData(length > 0 ? byteBuf.retainedSlice(ctx.headerStartPosition() + offset, length) : null);
+        return response;
+    }
+
+    private static void encodeReadResponse(final ByteBuf byteBuf, final Smb2ReadResponse response,
+        final CodecContext ctx) {
+
+        final var status = response.header().status();
+        if (status != SmbError.STATUS_SUCCESS && status != SmbError.STATUS_BUFFER_OVERFLOW) {
+            // no data, ERROR Response (e.g. STATUS_END_OF_FILE)
+            byteBuf.writeShortLE(9); // struct size
+            byteBuf.writeZero(6); // 1x ctx count + 1x reserved + 4x dataLength
+            return;
+        }
+        byteBuf.writeShortLE(17); // struct size
+        final var data = response.data();
+        final var region = response.dataRegion();
+        final var length = region != null ? (int) region.count() : data == null ? 0 : data.readableBytes();
+        byteBuf.writeByte(byteBuf.writerIndex() + 14 - ctx.headerStartPosition()); // data offset
+        byteBuf.writeZero(1); // reserved
+        byteBuf.writeIntLE(length);
+        byteBuf.writeIntLE(response.dataRemaining());
+        byteBuf.writeZero(4); // reserved2
+        if (region != null) {
+            // data region follows the message, it's written to channel as is
+            return;
+        }
+        if (length > 0) {
+            byteBuf.writeBytes(data, data.readerIndex(), length);
+        } else {
+            byteBuf.writeZero(1); // buffer, at least one byte is expected
+        }
+    }
+
+    // SMB2 WRITE Request (MS-SMB2 #2.2.21)
+
+    private static Smb2Request decodeWriteRequest(final ByteBuf byteBuf, final Smb2Header header,
+        final CodecContext ctx) {
+
+        final var request = new Smb2WriteRequest(header);
+        readAssertStructSize(byteBuf, 49, "WRITE Request");
+        final var offset = byteBuf.readUnsignedShortLE();
+        final var length = byteBuf.readIntLE();
+        request.setOffset(byteBuf.readLongLE());
+        request.setFileId(Utils.readGuid(byteBuf));
+        byteBuf.skipBytes(4); // channel, RDMA is not supported
+        request.setRemainingBytes(byteBuf.readIntLE());
+        byteBuf.skipBytes(4); // 2x write channel info offset + 2x write channel info length
+        request.setFlags(new Flags<>(byteBuf.readIntLE()));
+        // data is kept as is (no copy), the consumer is responsible for slice release
+        request.setData(length > 0 ? byteBuf.retainedSlice(ctx.headerStartPosition() + offset, length) : null);
+        return request;
+    }
+
+    private static void encodeWriteRequest(final ByteBuf byteBuf, final Smb2WriteRequest request,
+        final CodecContext ctx) {
+
+        byteBuf.writeShortLE(49); // struct size
+        final var data = request.data();
+        final var length = data == null ? 0 : data.readableBytes();
+        byteBuf.writeShortLE(byteBuf.writerIndex() + 46 - ctx.headerStartPosition()); // data offset
+        byteBuf.writeIntLE(length);
+        byteBuf.writeLongLE(request.offset());
+        Utils.writeGuid(byteBuf, request.fileId());
+        byteBuf.writeIntLE(0); // channel, RDMA is not supported
+        byteBuf.writeIntLE(request.remainingBytes());
+        byteBuf.writeIntLE(0); // 2x write channel info offset + 2x write channel info length
+        byteBuf.writeIntLE(request.flags() == null ? 0 : request.flags().asIntValue());
+        if (length > 0) {
+            // data buffer is not consumed, the owner may reuse it
+            byteBuf.writeBytes(data, data.readerIndex(), length);
+        } else {
+            byteBuf.writeZero(1); // buffer, at least one byte is expected
+        }
+    }
+
+    // SMB2 WRITE Response (MS-SMB2 #2.2.22)
+
+    private static Smb2Response decodeWriteResponse(final ByteBuf byteBuf, final Smb2Header header,
+        final CodecContext ctx) {
+
+        final var response = new Smb2WriteResponse(header);
+        if (header.status() != SmbError.STATUS_SUCCESS) {
+            // ERROR Response
+            readAssertStructSize(byteBuf, 9, "WRITE Error Response");
+            return response;
+        }
+        readAssertStructSize(byteBuf, 17, "WRITE Response");
+        byteBuf.skipBytes(2); // reserved
+        response.setCount(byteBuf.readIntLE());
+        byteBuf.skipBytes(8); // remaining (reserved) + 2x write channel info offset + 2x write channel info length
+        return response;
+    }
+
+    private static void encodeWriteResponse(final ByteBuf byteBuf, final Smb2WriteResponse response,
+        final CodecContext ctx) {
+
+        if (response.header().status() != SmbError.STATUS_SUCCESS) {
+            // ERROR Response
+            byteBuf.writeShortLE(9); // struct size
+            byteBuf.writeZero(6); // 1x ctx count + 1x reserved + 4x dataLength
+            return;
+        }
+        byteBuf.writeShortLE(17); // struct size
+        byteBuf.writeZero(2); // reserved
+        byteBuf.writeIntLE(response.count());
+        byteBuf.writeZero(8); // remaining (reserved) + 2x write channel info offset + 2x write channel info length
+    }
+
     // SMB2 IOCTL Request (MS-SMB2 #2.2.31)
 
     private static Smb2Request decodeIoctlRequest(final ByteBuf byteBuf, final Smb2Header header,
@@ -647,6 +1056,10 @@ public final class Smb2CodecUtils {
     private static Smb2Response decodeIoctlResponse(final ByteBuf byteBuf, final Smb2Header header,
         final CodecContext ctx) {
 
+        if (header.status() != SmbError.STATUS_SUCCESS && byteBuf.getUnsignedShortLE(byteBuf.readerIndex()) == 9) {
+            // failed IOCTL is usually answered with ERROR Response, though some errors carry full IOCTL Response
+            return decodeErrorResponse(byteBuf, header, ctx);
+        }
         final var response = new Smb2IoctlResponse(header);
         readAssertStructSize(byteBuf, 49, "IOCTL Response");
         byteBuf.skipBytes(2); // reserved
@@ -713,7 +1126,9 @@ public final class Smb2CodecUtils {
         readAssertStructSize(byteBuf, 9, "QUERY_DIRECTORY Response");
         final var offset = byteBuf.readUnsignedShortLE();
         final var length = byteBuf.readIntLE();
-        response.setEncoded(Utils.getByteArray(byteBuf, ctx.headerStartPosition() + offset, length));
+        // entries are kept as is (no copy), the consumer is responsible for slice release
+        response.setData(length > 0 && header.status() == SmbError.STATUS_SUCCESS
+            ? byteBuf.retainedSlice(ctx.headerStartPosition() + offset, length) : null);
         return response;
     }
 
@@ -729,6 +1144,137 @@ public final class Smb2CodecUtils {
         byteBuf.setIntLE(infoPos + 2, byteBuf.writerIndex() - dataPos); // length
     }
 
+    // SMB2 CHANGE_NOTIFY Request (MS-SMB2 #2.2.35)
+
+    private static Smb2Request decodeChangeNotifyRequest(final ByteBuf byteBuf, final Smb2Header header) {
+        final var request = new Smb2ChangeNotifyRequest(header);
+        readAssertStructSize(byteBuf, 32, "CHANGE_NOTIFY Request");
+        request.setFlags(new Flags<>(byteBuf.readUnsignedShortLE()));
+        request.setOutputBufferLength(byteBuf.readIntLE());
+        request.setFileId(Utils.readGuid(byteBuf));
+        request.setCompletionFilter(new Flags<>(byteBuf.readIntLE()));
+        byteBuf.skipBytes(4); // reserved
+        return request;
+    }
+
+    private static void encodeChangeNotifyRequest(final ByteBuf byteBuf, final Smb2ChangeNotifyRequest request) {
+        byteBuf.writeShortLE(32); // struct size
+        byteBuf.writeShortLE(request.flags().asIntValue());
+        byteBuf.writeIntLE(request.outputBufferLength());
+        Utils.writeGuid(byteBuf, request.fileId());
+        byteBuf.writeIntLE(request.completionFilter().asIntValue());
+        byteBuf.writeZero(4); // reserved
+    }
+
+    // SMB2 CHANGE_NOTIFY Response (MS-SMB2 #2.2.36)
+
+    private static Smb2Response decodeChangeNotifyResponse(final ByteBuf byteBuf, final Smb2Header header,
+        final CodecContext ctx) {
+
+        if (header.status() != SmbError.STATUS_SUCCESS) {
+            // interim (pending) response and the errors, incl. notify enum dir, carry no changes
+            return decodeErrorResponse(byteBuf, header, ctx);
+        }
+        final var response = new Smb2ChangeNotifyResponse(header);
+        readAssertStructSize(byteBuf, 9, "CHANGE_NOTIFY Response");
+        final var offset = byteBuf.readUnsignedShortLE();
+        final var length = byteBuf.readIntLE();
+        if (length > 0) {
+            response.setChanges(FsccCodecUtils.decodeFileNotifyInformation(
+                byteBuf.slice(ctx.headerStartPosition() + offset, length)));
+        }
+        return response;
+    }
+
+    private static void encodeChangeNotifyResponse(final ByteBuf byteBuf, final Smb2ChangeNotifyResponse response,
+        final CodecContext ctx) {
+
+        byteBuf.writeShortLE(9); // struct size
+        final var infoPos = byteBuf.writerIndex();
+        byteBuf.writeZero(6); // 2x offset + 4x length
+        final var dataPos = byteBuf.writerIndex();
+        FsccCodecUtils.encodeFileNotifyInformation(byteBuf, response.changes());
+        byteBuf.setShortLE(infoPos, dataPos - ctx.headerStartPosition()); // offset
+        byteBuf.setIntLE(infoPos + 2, byteBuf.writerIndex() - dataPos); // length
+    }
+
+    // SMB2 OPLOCK_BREAK: Lease Break Notification, Acknowledgment and Response (MS-SMB2 #2.2.23.2, #2.2.24.2,
+    // #2.2.25.2); oplocks are not requested, so only lease related messages are supported
+
+    private static Smb2Response decodeOplockBreakResponse(final ByteBuf byteBuf, final Smb2Header header,
+        final CodecContext ctx) {
+
+        if (header.status() != SmbError.STATUS_SUCCESS) {
+            return decodeErrorResponse(byteBuf, header, ctx);
+        }
+        final var structSize = byteBuf.getUnsignedShortLE(byteBuf.readerIndex());
+        return switch (structSize) {
+            case 44 -> decodeLeaseBreakNotification(byteBuf, header);
+            case 36 -> decodeLeaseBreakResponse(byteBuf, header);
+            default -> throw new SmbException("Unsupported OPLOCK_BREAK message, structSize " + structSize);
+        };
+    }
+
+    private static Smb2Response decodeLeaseBreakNotification(final ByteBuf byteBuf, final Smb2Header header) {
+        final var notification = new Smb2LeaseBreakNotification(header);
+        readAssertStructSize(byteBuf, 44, "Lease Break Notification");
+        notification.setNewEpoch(byteBuf.readUnsignedShortLE());
+        notification.setFlags(new Flags<>(byteBuf.readIntLE()));
+        notification.setLeaseKey(Utils.readGuid(byteBuf));
+        notification.setCurrentLeaseState(new Flags<>(byteBuf.readIntLE()));
+        notification.setNewLeaseState(new Flags<>(byteBuf.readIntLE()));
+        byteBuf.skipBytes(12); // break reason, access mask hint, share mask hint -- unused
+        return notification;
+    }
+
+    private static void encodeLeaseBreakNotification(final ByteBuf byteBuf,
+        final Smb2LeaseBreakNotification notification) {
+
+        byteBuf.writeShortLE(44); // struct size
+        byteBuf.writeShortLE(notification.newEpoch());
+        byteBuf.writeIntLE(notification.flags().asIntValue());
+        Utils.writeGuid(byteBuf, notification.leaseKey());
+        byteBuf.writeIntLE(notification.currentLeaseState().asIntValue());
+        byteBuf.writeIntLE(notification.newLeaseState().asIntValue());
+        byteBuf.writeZero(12); // break reason, access mask hint, share mask hint
+    }
+
+    private static Smb2Request decodeLeaseBreakAcknowledgment(final ByteBuf byteBuf, final Smb2Header header) {
+        final var request = new Smb2LeaseBreakAcknowledgment(header);
+        readAssertStructSize(byteBuf, 36, "Lease Break Acknowledgment");
+        byteBuf.skipBytes(6); // reserved + flags
+        request.setLeaseKey(Utils.readGuid(byteBuf));
+        request.setLeaseState(new Flags<>(byteBuf.readIntLE()));
+        return request;
+    }
+
+    private static void encodeLeaseBreakAcknowledgment(final ByteBuf byteBuf,
+        final Smb2LeaseBreakAcknowledgment request) {
+
+        byteBuf.writeShortLE(36); // struct size
+        byteBuf.writeZero(6); // reserved + flags
+        Utils.writeGuid(byteBuf, request.leaseKey());
+        byteBuf.writeIntLE(request.leaseState().asIntValue());
+        byteBuf.writeZero(8); // lease duration
+    }
+
+    private static Smb2Response decodeLeaseBreakResponse(final ByteBuf byteBuf, final Smb2Header header) {
+        final var response = new Smb2LeaseBreakResponse(header);
+        readAssertStructSize(byteBuf, 36, "Lease Break Response");
+        byteBuf.skipBytes(6); // reserved + flags
+        response.setLeaseKey(Utils.readGuid(byteBuf));
+        response.setLeaseState(new Flags<>(byteBuf.readIntLE()));
+        return response;
+    }
+
+    private static void encodeLeaseBreakResponse(final ByteBuf byteBuf, final Smb2LeaseBreakResponse response) {
+        byteBuf.writeShortLE(36); // struct size
+        byteBuf.writeZero(6); // reserved + flags
+        Utils.writeGuid(byteBuf, response.leaseKey());
+        byteBuf.writeIntLE(response.leaseState().asIntValue());
+        byteBuf.writeZero(8); // lease duration
+    }
+
     // SHARED
 
     private static void encodeEmpty(final ByteBuf byteBuf) {
@@ -753,6 +1299,10 @@ public final class Smb2CodecUtils {
     private static void writeField(final ByteBuf byteBuf, final FieldRef ref, final Runnable encoder) {
         final var startPos = byteBuf.writerIndex();
         encoder.run();
+        setFieldRef(byteBuf, ref, startPos);
+    }
+
+    private static void setFieldRef(final ByteBuf byteBuf, final FieldRef ref, final int startPos) {
         final int offset = startPos - ref.startPos();
         final int length = byteBuf.writerIndex() - startPos;
         if (ref.type == RefType.SHORT) {
@@ -774,13 +1324,15 @@ public final class Smb2CodecUtils {
     }
 
     private static void writeUnicodeStringField(final ByteBuf byteBuf, final FieldRef ref, final String value) {
-        writeField(byteBuf, ref, () -> byteBuf.writeCharSequence(value, StandardCharsets.UTF_16LE));
+        final var startPos = byteBuf.writerIndex();
+        CodecUtils.writeUnicodeString(byteBuf, value);
+        setFieldRef(byteBuf, ref, startPos);
     }
 
     private static String readUnicodeStringField(final ByteBuf byteBuf, final CodecContext ctx) {
         final var pos = byteBuf.readUnsignedShortLE() + ctx.headerStartPosition();
         final var length = byteBuf.readUnsignedShortLE();
-        return length > 0 ? byteBuf.getCharSequence(pos, length, StandardCharsets.UTF_16LE).toString() : "";
+        return length > 0 ? CodecUtils.readUnicodeString(byteBuf, pos, length) : "";
     }
 
     private enum RefType {
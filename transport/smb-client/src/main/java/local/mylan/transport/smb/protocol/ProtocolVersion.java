@@ -19,6 +19,8 @@ public enum ProtocolVersion {
     CIFS_SMB(0x424D53FF),
     SMB2(0x424D53FE);
 
+    private static final ProtocolVersion[] VALUES = values();
+
     private final int code;
 
     ProtocolVersion(int code) {
@@ -30,7 +32,7 @@ public enum ProtocolVersion {
     }
 
     public static ProtocolVersion fromCode(int code) {
-        for (ProtocolVersion pv : values()) {
+        for (ProtocolVersion pv : VALUES) {
             if (pv.code == code) {
                 return pv;
             }
@@ -40,6 +40,16 @@ public enum Smb2Command {
     SMB2_OPLOCK_BREAK(0x0012),
     SMB2_SERVER_TO_CLIENT_NOTIFICATION(0x0013);
 
+    private static final Smb2Command[] BY_CODE;
+
+    static {
+        final var values = values();
+        BY_CODE = new Smb2Command[values.length];
+        for (var cmd : values) {
+            BY_CODE[cmd.code] = cmd;
+        }
+    }
+
     private final int code;
 
     Smb2Command(final int code) {
@@ -51,10 +61,9 @@ public enum Smb2Command {
     }
 
     public static Smb2Command fromCode(final int code) {
-        for (var cmd : values()) {
-            if (cmd.code == code) {
-                return cmd;
-            }
+        // codes are sequential, the lookup is an array access (no values() copy per decoded header)
+        if (code >= 0 && code < BY_CODE.length) {
+            return BY_CODE[code];
         }
         throw new IllegalArgumentException("unknown command code " + code);
     }
@@ -28,13 +28,13 @@ public class Smb2Header {
     private int creditCharge;
     private int creditRequest;
     private int creditResponse;
+    private int flagBits;
     private Flags<Smb2Flags> flags;
     private int nextCommandOffset;
     private long messageId;
     private long asyncId;
     private int treeId;
     private long sessionId;
-    private byte[] signature;
 
     public Smb2Command command() {
         return command;
@@ -84,12 +84,31 @@ public class Smb2Header {
         this.creditResponse = creditResponse;
     }
 
+    /**
+     * Returns header flags. Decoded header keeps the flags as primitive value, the mutable flags instance
+     * is only created on first access.
+     *
+     * @return header flags, never null
+     */
     public Flags<Smb2Flags> flags() {
+        if (flags == null) {
+            flags = new Flags<>(flagBits);
+        }
         return flags;
     }
 
     public void setFlags(final Flags<Smb2Flags> flags) {
         this.flags = flags;
+        flagBits = flags == null ? 0 : flags.asIntValue();
+    }
+
+    public int flagsValue() {
+        return flags == null ? flagBits : flags.asIntValue();
+    }
+
+    public void setFlagsValue(final int flagsValue) {
+        flagBits = flagsValue;
+        flags = null;
     }
 
     public int nextCommandOffset() {
@@ -132,13 +151,6 @@ public class Smb2Header {
         this.sessionId = sessionId;
     }
 
-    public byte[] signature() {
-        return signature;
-    }
-
-    public void setSignature(final byte[] signature) {
-        this.signature = signature;
-    }
 
     boolean isResponse() {
         return flagValue(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR);
@@ -148,7 +160,11 @@ public class Smb2Header {
         return flagValue(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND);
     }
 
+    public boolean isSigned() {
+        return flagValue(Smb2Flags.SMB2_FLAGS_SIGNED);
+    }
+
     private boolean flagValue(final Smb2Flags bit){
-        return flags != null && flags.get(bit);
+        return (flagsValue() & bit.mask()) != 0;
     }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol;
+
+import static java.util.Objects.requireNonNull;
+
+import io.netty.buffer.ByteBuf;
+import java.security.GeneralSecurityException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import local.mylan.transport.smb.SecurityUtils;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCipher;
+
+/**
+ * Addresses MS-SMB2 (#2.2.41 SMB2 TRANSFORM_HEADER, #3.1.4.3 Encrypting the Message,
+ * #3.2.5.1.1 Decrypting the Message).
+ *
+ * <p>Message is encrypted in place: the transform header space is reserved ahead of the message encoded,
+ * cipher output replaces plaintext within same buffer. Inbound message is decrypted into the frame buffer
+ * it was received with if the frame memory is contiguous, otherwise into a single pooled buffer.
+ * Each thread uses own cipher instances.
+ */
+public final class Smb2PacketCipher {
+    public static final int TRANSFORM_HEADER_LENGTH = 52;
+
+    private static final int PROTOCOL_ID = 0xFD534D42; // 0xFD 'S' 'M' 'B'
+    private static final int SIGNATURE_OFFSET = 4;
+    private static final int NONCE_OFFSET = 20;
+    private static final int ORIGINAL_SIZE_OFFSET = 36;
+    private static final int FLAGS_OFFSET = 42;
+    private static final int SESSION_ID_OFFSET = 44;
+    private static final int AAD_LENGTH = TRANSFORM_HEADER_LENGTH - NONCE_OFFSET; // Nonce to SessionId
+    private static final int TAG_LENGTH = 16;
+    private static final int FLAG_ENCRYPTED = 0x0001;
+    private static final int COUNTER_LENGTH = 8;
+
+    private final Smb2EncryptionCipher cipher;
+    private final SecretKeySpec encryptionKey;
+    private final SecretKeySpec decryptionKey;
+    private final ThreadLocal<CipherContext> cipherContext;
+    // nonce is unique per key: random prefix followed by message counter
+    private final byte[] noncePrefix;
+    private final AtomicLong nonceCounter = new AtomicLong();
+    private final Set<Integer> encryptedTrees = ConcurrentHashMap.newKeySet();
+    private volatile boolean encryptData;
+
+    public Smb2PacketCipher(final Smb2EncryptionCipher cipher, final byte[] encryptionKey,
+        final byte[] decryptionKey) {
+
+        this.cipher = requireNonNull(cipher);
+        this.encryptionKey = new SecretKeySpec(requireNonNull(encryptionKey), "AES");
+        this.decryptionKey = new SecretKeySpec(requireNonNull(decryptionKey), "AES");
+        noncePrefix = SecurityUtils.nonce(cipher.nonceLength() - COUNTER_LENGTH);
+        cipherContext = ThreadLocal.withInitial(() -> new CipherContext(cipher));
+    }
+
+    public Smb2EncryptionCipher cipher() {
+        return cipher;
+    }
+
+    /**
+     * Indicates all the messages of the session are encrypted. Addresses MS-SMB2 (Session.EncryptData).
+     */
+    public boolean encryptData() {
+        return encryptData;
+    }
+
+    public void setEncryptData(final boolean encryptData) {
+        this.encryptData = encryptData;
+    }
+
+    /**
+     * Registers tree connect which requires encryption. Addresses MS-SMB2 (TreeConnect.EncryptData).
+     */
+    public void encryptTree(final int treeId) {
+        encryptedTrees.add(treeId);
+    }
+
+    public void releaseTree(final int treeId) {
+        encryptedTrees.remove(treeId);
+    }
+
+    public boolean requiresEncryption(final int treeId) {
+        return encryptData || encryptedTrees.contains(treeId);
+    }
+
+    public static boolean isTransformed(final ByteBuf frame) {
+        return frame.readableBytes() >= TRANSFORM_HEADER_LENGTH && frame.getInt(frame.readerIndex()) == PROTOCOL_ID;
+    }
+
+    public static long sessionId(final ByteBuf frame) {
+        return frame.getLongLE(frame.readerIndex() + SESSION_ID_OFFSET);
+    }
+
+    /**
+     * Encrypts the message encoded into buffer following the transform header space reserved.
+     *
+     * @param byteBuf buffer containing the message, the message ends at writer index
+     * @param transformPos transform header start position
+     * @param sessionId session id
+     */
+    public void encrypt(final ByteBuf byteBuf, final int transformPos, final long sessionId) {
+        final var msgPos = transformPos + TRANSFORM_HEADER_LENGTH;
+        final var length = byteBuf.writerIndex() - msgPos;
+        final var ctx = cipherContext.get();
+        nextNonce(ctx.nonce);
+        byteBuf.setInt(transformPos, PROTOCOL_ID);
+        byteBuf.setZero(transformPos + SIGNATURE_OFFSET, TRANSFORM_HEADER_LENGTH - SIGNATURE_OFFSET);
+        byteBuf.setBytes(transformPos + NONCE_OFFSET, ctx.nonce);
+        byteBuf.setIntLE(transformPos + ORIGINAL_SIZE_OFFSET, length);
+        byteBuf.setShortLE(transformPos + FLAGS_OFFSET, FLAG_ENCRYPTED);
+        byteBuf.setLongLE(transformPos + SESSION_ID_OFFSET, sessionId);
+        // cipher appends the tag to ciphertext, the tag is moved to signature field then
+        byteBuf.ensureWritable(TAG_LENGTH);
+        try {
+            ctx.encryptor.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH * 8, ctx.nonce));
+            ctx.encryptor.updateAAD(byteBuf.nioBuffer(transformPos + NONCE_OFFSET, AAD_LENGTH));
+            ctx.encryptor.doFinal(byteBuf.nioBuffer(msgPos, length), byteBuf.nioBuffer(msgPos, length + TAG_LENGTH));
+        } catch (GeneralSecurityException e) {
+            throw new SmbException("Message encryption failed", e);
+        }
+        byteBuf.setBytes(transformPos + SIGNATURE_OFFSET, byteBuf, msgPos + length, TAG_LENGTH);
+    }
+
+    /**
+     * Decrypts the transformed message.
+     *
+     * @param frame buffer containing transform header followed by encrypted message
+     * @return buffer containing decrypted message, to be released by caller
+     * @throws SmbException if message is malformed or cannot be authenticated
+     */
+    public ByteBuf decrypt(final ByteBuf frame) {
+        final var pos = frame.readerIndex();
+        if (frame.getUnsignedShortLE(pos + FLAGS_OFFSET) != FLAG_ENCRYPTED) {
+            throw new SmbException("Unexpected transform header flags");
+        }
+        final var msgPos = pos + TRANSFORM_HEADER_LENGTH;
+        final var length = frame.writerIndex() - msgPos;
+        if (frame.getIntLE(pos + ORIGINAL_SIZE_OFFSET) != length) {
+            throw new SmbException("Encrypted message size mismatch");
+        }
+        final var ctx = cipherContext.get();
+        frame.getBytes(pos + NONCE_OFFSET, ctx.nonce);
+        // decryption output is written over ciphertext if possible
+        final var output = frame.nioBufferCount() == 1
+            ? frame.retainedSlice(msgPos, length) : frame.alloc().directBuffer(length);
+        try {
+            ctx.decryptor.init(Cipher.DECRYPT_MODE, decryptionKey, new GCMParameterSpec(TAG_LENGTH * 8, ctx.nonce));
+            ctx.decryptor.updateAAD(frame.nioBuffer(pos + NONCE_OFFSET, AAD_LENGTH));
+            final var outNioBuffer = output.nioBuffer(0, length);
+            for (var nioBuffer : frame.nioBuffers(msgPos, length)) {
+                ctx.decryptor.update(nioBuffer, outNioBuffer);
+            }
+            ctx.decryptor.doFinal(frame.nioBuffer(pos + SIGNATURE_OFFSET, TAG_LENGTH), outNioBuffer);
+            output.writerIndex(length);
+            return output;
+        } catch (AEADBadTagException e) {
+            output.release();
+            throw new SmbException("Encrypted message authentication failed", e);
+        } catch (GeneralSecurityException e) {
+            output.release();
+            throw new SmbException("Message decryption failed", e);
+        }
+    }
+
+    private void nextNonce(final byte[] nonce) {
+        System.arraycopy(noncePrefix, 0, nonce, 0, noncePrefix.length);
+        final var counter = nonceCounter.incrementAndGet();
+        for (int i = 0; i < COUNTER_LENGTH; i++) {
+            nonce[noncePrefix.length + i] = (byte) (counter >>> (i * 8));
+        }
+    }
+
+    private static final class CipherContext {
+        final Cipher encryptor;
+        final Cipher decryptor;
+        final byte[] nonce;
+
+        CipherContext(final Smb2EncryptionCipher cipher) {
+            // AES-GCM of platform provider is hardware accelerated, AES-CCM is only provided by BC
+            encryptor = cipher.isGcm() ? SecurityUtils.platformCipherInstance("AES/GCM/NoPadding")
+                : SecurityUtils.cipherInstance("AES/CCM/NoPadding");
+            decryptor = cipher.isGcm() ? SecurityUtils.platformCipherInstance("AES/GCM/NoPadding")
+                : SecurityUtils.cipherInstance("AES/CCM/NoPadding");
+            nonce = new byte[cipher.nonceLength()];
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import local.mylan.transport.smb.exceptions.SmbCompressionException;
+import local.mylan.transport.smb.protocol.compression.Lz77;
+import local.mylan.transport.smb.protocol.compression.Lz77Huffman;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionAlgorithm;
+
+/**
+ * Addresses MS-SMB2 (#2.2.42 SMB2 COMPRESSION_TRANSFORM_HEADER, #3.1.4.4 Compressing the Message,
+ * #3.1.5.3 Decompressing the Message).
+ *
+ * <p>Unchained message consists of header followed by uncompressed prefix (e.g. SMB2 header and WRITE request
+ * structure) and the rest of message compressed. Chained message is a sequence of payloads each compressed
+ * with own algorithm: uncompressed prefix, repeated byte runs at the data start and end (Pattern_V1)
+ * and the data between compressed with negotiated algorithm, if it pays off.
+ *
+ * <p>Message is compressed into the buffer it was encoded to, it's left as is if compression gives no gain.
+ * Work buffers and algorithm tables are per thread.
+ */
+public final class Smb2PacketCompressor {
+    private static final int PROTOCOL_ID = 0xFC534D42; // 0xFC 'S' 'M' 'B'
+    private static final int ORIGINAL_SIZE_OFFSET = 4;
+    private static final int ALGORITHM_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 10;
+    private static final int OFFSET_OFFSET = 12;
+    private static final int UNCHAINED_HEADER_LENGTH = 16;
+    private static final int CHAINED_HEADER_LENGTH = 8;
+    private static final int PAYLOAD_HEADER_LENGTH = 8;
+    private static final int ORIGINAL_PAYLOAD_SIZE_LENGTH = 4;
+    private static final int PATTERN_PAYLOAD_LENGTH = 8;
+    private static final int FLAG_CHAINED = 0x0001;
+    private static final int MIN_PATTERN_LENGTH = 32;
+    // uncompressed message cannot exceed transport frame size (24-bit length)
+    private static final int MAX_ORIGINAL_SIZE = 0xFFFFFF;
+    private static final int WORK_BUFFER_RESERVE = 64;
+    private static final ThreadLocal<CompressionContext> CONTEXT = ThreadLocal.withInitial(CompressionContext::new);
+
+    private final Smb2CompressionAlgorithm algorithm;
+    private final boolean chained;
+    private final boolean patternV1;
+    private final boolean compressAll;
+    private final int threshold;
+    private final Set<TreeKey> compressedTrees = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor.
+     *
+     * @param algorithm compression algorithm (LZ77 or LZ77+Huffman), null if Pattern_V1 only is used
+     * @param chained true if chained compression is negotiated
+     * @param patternV1 true if Pattern_V1 is negotiated, requires chained compression
+     * @param compressAll true if all the requests are to be compressed, only WRITE requests otherwise
+     * @param threshold minimal message size to be compressed
+     */
+    public Smb2PacketCompressor(final Smb2CompressionAlgorithm algorithm, final boolean chained,
+        final boolean patternV1, final boolean compressAll, final int threshold) {
+
+        if (algorithm != null && algorithm != Smb2CompressionAlgorithm.LZ77
+            && algorithm != Smb2CompressionAlgorithm.LZ77_HUFFMAN) {
+            throw new IllegalArgumentException("Unsupported compression algorithm " + algorithm);
+        }
+        if (algorithm == null && !(chained && patternV1)) {
+            throw new IllegalArgumentException("No compression algorithm");
+        }
+        this.algorithm = algorithm;
+        this.chained = chained;
+        this.patternV1 = chained && patternV1;
+        this.compressAll = compressAll;
+        this.threshold = threshold;
+    }
+
+    public Smb2CompressionAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public boolean chained() {
+        return chained;
+    }
+
+    /**
+     * Indicates all the requests are compressed. Addresses MS-SMB2 (Client.CompressAllRequests).
+     */
+    public boolean compressAll() {
+        return compressAll;
+    }
+
+    /**
+     * Registers tree connect which requires compression. Addresses MS-SMB2 (TreeConnect.CompressData).
+     */
+    public void compressTree(final long sessionId, final int treeId) {
+        compressedTrees.add(new TreeKey(sessionId, treeId));
+    }
+
+    public void releaseTree(final long sessionId, final int treeId) {
+        compressedTrees.remove(new TreeKey(sessionId, treeId));
+    }
+
+    public boolean requiresCompression(final long sessionId, final int treeId) {
+        return compressAll || !compressedTrees.isEmpty() && compressedTrees.contains(new TreeKey(sessionId, treeId));
+    }
+
+    public static boolean isCompressed(final ByteBuf frame) {
+        return frame.readableBytes() >= CHAINED_HEADER_LENGTH + PAYLOAD_HEADER_LENGTH
+            && frame.getInt(frame.readerIndex()) == PROTOCOL_ID;
+    }
+
+    /**
+     * Compresses the message encoded into the buffer if it's large enough and compression reduces its size.
+     *
+     * @param byteBuf buffer containing the message, the message ends at writer index
+     * @param msgPos message start position
+     * @param prefixLength length of message start to be left uncompressed
+     * @return true if message was replaced with compressed one, false if left as is
+     */
+    public boolean compress(final ByteBuf byteBuf, final int msgPos, final int prefixLength) {
+        final var length = byteBuf.writerIndex() - msgPos;
+        if (length < threshold || prefixLength >= length) {
+            return false;
+        }
+        final var ctx = CONTEXT.get();
+        final var in = ctx.input(length).array();
+        final var out = ctx.output(length + WORK_BUFFER_RESERVE);
+        byteBuf.getBytes(msgPos, in, 0, length);
+        final var outLength = chained ? compressChained(ctx, in, length, prefixLength, out)
+            : compressUnchained(ctx, in, length, prefixLength, out);
+        if (outLength < 0 || outLength >= length) {
+            return false;
+        }
+        byteBuf.setBytes(msgPos, out.array(), 0, outLength);
+        byteBuf.writerIndex(msgPos + outLength);
+        return true;
+    }
+
+    private int compressUnchained(final CompressionContext ctx, final byte[] in, final int length,
+        final int prefixLength, final ByteBuf out) {
+
+        out.setInt(0, PROTOCOL_ID);
+        out.setIntLE(ORIGINAL_SIZE_OFFSET, length - prefixLength);
+        out.setShortLE(ALGORITHM_OFFSET, algorithm.code());
+        out.setShortLE(FLAGS_OFFSET, 0);
+        out.setIntLE(OFFSET_OFFSET, prefixLength);
+        out.setBytes(UNCHAINED_HEADER_LENGTH, in, 0, prefixLength);
+        return compressSegment(ctx, in, prefixLength, length, out.array(), UNCHAINED_HEADER_LENGTH + prefixLength,
+            length - 1);
+    }
+
+    private int compressChained(final CompressionContext ctx, final byte[] in, final int length,
+        final int prefixLength, final ByteBuf out) {
+
+        out.setInt(0, PROTOCOL_ID);
+        out.setIntLE(ORIGINAL_SIZE_OFFSET, length);
+        var op = CHAINED_HEADER_LENGTH;
+        if (prefixLength > 0) {
+            op = putRawPayload(out, op, in, 0, prefixLength);
+        }
+        var dataStart = prefixLength;
+        var dataEnd = length;
+        if (patternV1) {
+            final var leading = forwardRunLength(in, dataStart, dataEnd);
+            if (leading >= MIN_PATTERN_LENGTH) {
+                op = putPatternPayload(out, op, in[dataStart], leading);
+                dataStart += leading;
+            }
+        }
+        var trailing = 0;
+        if (patternV1 && dataStart < dataEnd) {
+            trailing = backwardRunLength(in, dataStart, dataEnd);
+            if (trailing >= MIN_PATTERN_LENGTH) {
+                dataEnd -= trailing;
+            } else {
+                trailing = 0;
+            }
+        }
+        if (dataStart < dataEnd) {
+            final var rawLength = dataEnd - dataStart;
+            final var end = algorithm == null ? -1 : compressSegment(ctx, in, dataStart, dataEnd, out.array(),
+                op + PAYLOAD_HEADER_LENGTH + ORIGINAL_PAYLOAD_SIZE_LENGTH, op + PAYLOAD_HEADER_LENGTH + rawLength);
+            if (end < 0) {
+                op = putRawPayload(out, op, in, dataStart, rawLength);
+            } else {
+                putPayloadHeader(out, op, algorithm, end - op - PAYLOAD_HEADER_LENGTH);
+                out.setIntLE(op + PAYLOAD_HEADER_LENGTH, rawLength);
+                op = end;
+            }
+        }
+        if (trailing > 0) {
+            op = putPatternPayload(out, op, in[dataEnd], trailing);
+        }
+        return op;
+    }
+
+    private int compressSegment(final CompressionContext ctx, final byte[] in, final int inPos, final int inEnd,
+        final byte[] out, final int outPos, final int outLimit) {
+
+        return algorithm == Smb2CompressionAlgorithm.LZ77
+            ? ctx.lz77.compress(in, inPos, inEnd, out, outPos, outLimit)
+            : ctx.lz77Huffman.compress(in, inPos, inEnd, out, outPos, outLimit);
+    }
+
+    private static int forwardRunLength(final byte[] in, final int start, final int end) {
+        final var value = in[start];
+        var pos = start + 1;
+        while (pos < end && in[pos] == value) {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    private static int backwardRunLength(final byte[] in, final int start, final int end) {
+        final var value = in[end - 1];
+        var pos = end - 1;
+        while (pos > start && in[pos - 1] == value) {
+            pos--;
+        }
+        return end - pos;
+    }
+
+    private static void putPayloadHeader(final ByteBuf out, final int pos, final Smb2CompressionAlgorithm algorithm,
+        final int length) {
+
+        out.setShortLE(pos, algorithm.code());
+        out.setShortLE(pos + 2, FLAG_CHAINED);
+        out.setIntLE(pos + 4, length);
+    }
+
+    private static int putRawPayload(final ByteBuf out, final int pos, final byte[] in, final int from,
+        final int length) {
+
+        putPayloadHeader(out, pos, Smb2CompressionAlgorithm.NONE, length);
+        out.setBytes(pos + PAYLOAD_HEADER_LENGTH, in, from, length);
+        return pos + PAYLOAD_HEADER_LENGTH + length;
+    }
+
+    private static int putPatternPayload(final ByteBuf out, final int pos, final byte value, final int repetitions) {
+        putPayloadHeader(out, pos, Smb2CompressionAlgorithm.PATTERN_V1, PATTERN_PAYLOAD_LENGTH);
+        out.setByte(pos + PAYLOAD_HEADER_LENGTH, value);
+        out.setZero(pos + PAYLOAD_HEADER_LENGTH + 1, 3); // reserved1 + reserved2
+        out.setIntLE(pos + PAYLOAD_HEADER_LENGTH + 4, repetitions);
+        return pos + PAYLOAD_HEADER_LENGTH + PATTERN_PAYLOAD_LENGTH;
+    }
+
+    /**
+     * Decompresses the compressed message.
+     *
+     * @param frame buffer containing compression transform header followed by compressed message
+     * @return buffer containing decompressed message, to be released by caller
+     * @throws SmbCompressionException if message is malformed
+     */
+    public ByteBuf decompress(final ByteBuf frame) {
+        final var frameLength = frame.readableBytes();
+        final var ctx = CONTEXT.get();
+        final var pos = frame.readerIndex();
+        final var originalSize = frame.getIntLE(pos + ORIGINAL_SIZE_OFFSET);
+        final var chainedMessage = (frame.getUnsignedShortLE(pos + FLAGS_OFFSET) & FLAG_CHAINED) != 0;
+        final var prefixLength = chainedMessage ? 0 : frame.getIntLE(pos + OFFSET_OFFSET);
+        if (originalSize < 0 || prefixLength < 0 || (long) originalSize + prefixLength > MAX_ORIGINAL_SIZE
+            || !chainedMessage && UNCHAINED_HEADER_LENGTH + prefixLength > frameLength) {
+            throw new SmbCompressionException("Invalid compression transform header");
+        }
+        // frame may be composite, it's copied to the work buffer to be processed as single array
+        final var in = ctx.input(frameLength);
+        frame.getBytes(pos, in.array(), 0, frameLength);
+        final var output = frame.alloc().heapBuffer(originalSize + prefixLength);
+        try {
+            final var out = output.array();
+            final var outPos = output.arrayOffset() + output.writerIndex();
+            final var outEnd = outPos + originalSize + prefixLength;
+            if (chainedMessage) {
+                decompressChained(ctx, in, frameLength, out, outPos, outEnd);
+            } else {
+                final var algorithm = Smb2CompressionAlgorithm.fromCode(in.getUnsignedShortLE(ALGORITHM_OFFSET));
+                in.getBytes(UNCHAINED_HEADER_LENGTH, out, outPos, prefixLength);
+                decompressSegment(ctx, algorithm, in.array(), UNCHAINED_HEADER_LENGTH + prefixLength, frameLength,
+                    out, outPos + prefixLength, outEnd);
+            }
+            output.writerIndex(output.writerIndex() + originalSize + prefixLength);
+            return output;
+        } catch (RuntimeException e) {
+            output.release();
+            throw e instanceof SmbCompressionException ? e
+                : new SmbCompressionException("Invalid compressed message", e);
+        }
+    }
+
+    private static void decompressChained(final CompressionContext ctx, final ByteBuf in, final int inEnd,
+        final byte[] out, final int outPos, final int outEnd) {
+
+        var ip = CHAINED_HEADER_LENGTH;
+        var op = outPos;
+        while (ip < inEnd) {
+            if (ip + PAYLOAD_HEADER_LENGTH > inEnd) {
+                throw new SmbCompressionException("Unexpected end of chained compressed message");
+            }
+            final var algorithm = Smb2CompressionAlgorithm.fromCode(in.getUnsignedShortLE(ip));
+            final var length = in.getIntLE(ip + 4);
+            ip += PAYLOAD_HEADER_LENGTH;
+            if (length < 0 || length > inEnd - ip) {
+                throw new SmbCompressionException("Compressed payload length exceeds message boundary");
+            }
+            if (algorithm == Smb2CompressionAlgorithm.NONE) {
+                checkOutput(op, length, outEnd);
+                in.getBytes(ip, out, op, length);
+                op += length;
+            } else if (algorithm == Smb2CompressionAlgorithm.PATTERN_V1) {
+                if (length != PATTERN_PAYLOAD_LENGTH) {
+                    throw new SmbCompressionException("Unexpected Pattern_V1 payload length " + length);
+                }
+                final var repetitions = in.getIntLE(ip + 4);
+                checkOutput(op, repetitions, outEnd);
+                Arrays.fill(out, op, op + repetitions, in.getByte(ip));
+                op += repetitions;
+            } else {
+                if (length < ORIGINAL_PAYLOAD_SIZE_LENGTH) {
+                    throw new SmbCompressionException("Unexpected compressed payload length " + length);
+                }
+                final var originalPayloadSize = in.getIntLE(ip);
+                checkOutput(op, originalPayloadSize, outEnd);
+                decompressSegment(ctx, algorithm, in.array(), ip + ORIGINAL_PAYLOAD_SIZE_LENGTH, ip + length,
+                    out, op, op + originalPayloadSize);
+                op += originalPayloadSize;
+            }
+            ip += length;
+        }
+        if (op != outEnd) {
+            throw new SmbCompressionException("Decompressed message size mismatch");
+        }
+    }
+
+    private static void decompressSegment(final CompressionContext ctx, final Smb2CompressionAlgorithm algorithm,
+        final byte[] in, final int inPos, final int inEnd, final byte[] out, final int outPos, final int outEnd) {
+
+        if (algorithm == Smb2CompressionAlgorithm.LZ77) {
+            Lz77.decompress(in, inPos, inEnd, out, outPos, outEnd);
+        } else if (algorithm == Smb2CompressionAlgorithm.LZ77_HUFFMAN) {
+            ctx.lz77Huffman.decompress(in, inPos, inEnd, out, outPos, outEnd);
+        } else {
+            throw new SmbCompressionException("Unsupported compression algorithm " + algorithm);
+        }
+    }
+
+    private static void checkOutput(final int pos, final int length, final int end) {
+        if (length < 0 || length > end - pos) {
+            throw new SmbCompressionException("Decompressed data exceeds original size");
+        }
+    }
+
+    private record TreeKey(long sessionId, int treeId) {
+    }
+
+    private static final class CompressionContext {
+        final Lz77 lz77 = new Lz77();
+        final Lz77Huffman lz77Huffman = new Lz77Huffman();
+        // work buffers are plain arrays wrapped for header fields access
+        ByteBuf input = Unpooled.EMPTY_BUFFER;
+        ByteBuf output = Unpooled.EMPTY_BUFFER;
+
+        ByteBuf input(final int length) {
+            if (input.capacity() < length) {
+                input = Unpooled.wrappedBuffer(new byte[length]);
+            }
+            return input;
+        }
+
+        ByteBuf output(final int length) {
+            if (output.capacity() < length) {
+                output = Unpooled.wrappedBuffer(new byte[length]);
+            }
+            return output;
+        }
+    }
+}
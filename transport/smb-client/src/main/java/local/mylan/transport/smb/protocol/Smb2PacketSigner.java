@@ -15,48 +15,120 @@
  */
 package local.mylan.transport.smb.protocol;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Objects.requireNonNull;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import local.mylan.transport.smb.SecurityUtils;
-import local.mylan.transport.smb.Utils;
+import local.mylan.transport.smb.exceptions.SmbException;
 import local.mylan.transport.smb.protocol.details.SessionDetails;
 import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningAlgorithm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Addresses MS-SMB2 (#3.1.4.1 Signing An Outgoing Message).
+ * Addresses MS-SMB2 (#3.1.4.1 Signing An Outgoing Message, #3.1.5.1 Verifying An Incoming Message).
+ *
+ * <p>Message content is fed to the MAC directly from buffer, the signature field is substituted with zeros
+ * on the fly, so the message is neither copied nor modified for signature calculation. Each thread uses
+ * own MAC instance, so signing is not serialized across event loops.
  */
 public final class Smb2PacketSigner {
     private static final Logger LOG = LoggerFactory.getLogger(Smb2PacketSigner.class);
 
+    private static final int COMMAND_OFFSET = 12;
     private static final int FLAGS_OFFSET = 16;
+    private static final int MESSAGE_ID_OFFSET = 24;
     private static final int SIGNATURE_OFFSET = 48;
     private static final int SIGNATURE_LENGTH = 16;
+    private static final int SCRATCH_LENGTH = 8192;
     private static final byte[] EMPTY_SIGNATURE = new byte[SIGNATURE_LENGTH];
+    private static final byte[] SIGN_LABEL_3X = "SMB2AESCMAC\u0000".getBytes(US_ASCII);
+    private static final byte[] SIGN_CTX_3X = "SmbSign\u0000".getBytes(US_ASCII);
+    private static final byte[] SIGN_LABEL_311 = "SMBSigningKey\u0000".getBytes(US_ASCII);
 
-    private final Mac mac;
+    private final ThreadLocal<SigningContext> signingContext;
 
     public Smb2PacketSigner(final Smb2Dialect dialect, final SessionDetails sessDetails) {
+        this(dialect, Smb2SigningAlgorithm.AES_CMAC, sessDetails);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dialect connection dialect
+     * @param signingAlgorithm signing algorithm negotiated, applicable to SMB 3.1.1 only, AES-CMAC if null
+     * @param sessDetails session details containing the keys
+     */
+    public Smb2PacketSigner(final Smb2Dialect dialect, final Smb2SigningAlgorithm signingAlgorithm,
+        final SessionDetails sessDetails) {
+        this(dialect, signingAlgorithm, signingKey(requireNonNull(dialect), requireNonNull(sessDetails)));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dialect connection dialect
+     * @param signingAlgorithm signing algorithm negotiated, applicable to SMB 3.1.1 only, AES-CMAC if null
+     * @param signingKey Session.SessionKey for SMB 2.x, Session.SigningKey or Channel.SigningKey for SMB 3.x
+     */
+    public Smb2PacketSigner(final Smb2Dialect dialect, final Smb2SigningAlgorithm signingAlgorithm,
+        final byte[] signingKey) {
+
         requireNonNull(dialect);
-        requireNonNull(sessDetails);
+        requireNonNull(signingKey);
 
-        if (dialect.equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
-            throw new IllegalStateException("Signing for SMB 3.1.1 is not implemented");
-            //TODO implement
-        } else if (dialect.equalsOrHigher(Smb2Dialect.SMB3_0)) {
-            // SMB 3.0, 3.0.2
-            mac = SecurityUtils.macInstance("AESCMAC", "AES",
-                requireNonNull(sessDetails.signingKey(), "Session.SigningKey is undefined"));
+        if (dialect.equalsOrHigher(Smb2Dialect.SMB3_0)) {
+            // SMB 3.x, the algorithm is negotiated starting SMB 3.1.1
+            final var algorithm = dialect.equalsOrHigher(Smb2Dialect.SMB3_1_1) && signingAlgorithm != null
+                ? signingAlgorithm : Smb2SigningAlgorithm.AES_CMAC;
+            signingContext = switch (algorithm) {
+                case AES_GMAC -> ThreadLocal.withInitial(() -> new GmacContext(signingKey));
+                case AES_CMAC -> ThreadLocal.withInitial(
+                    () -> new MacContext(SecurityUtils.macInstance("AESCMAC", "AES", signingKey)));
+                case HMAC_SHA256 -> ThreadLocal.withInitial(
+                    () -> new MacContext(SecurityUtils.macInstance("HMac-SHA256", signingKey)));
+            };
         } else {
             // SMB 2.0.2 & SMB 2.1
-            mac = SecurityUtils.macInstance("HMac-SHA256",
-                requireNonNull(sessDetails.sessionKey(), "Session.SessionKey is undefined"));
+            signingContext = ThreadLocal.withInitial(
+                () -> new MacContext(SecurityUtils.macInstance("HMac-SHA256", signingKey)));
+        }
+    }
+
+    /**
+     * Derives the signing key. Addresses MS-SMB2 (#3.2.5.3.1 Handling a New Authentication,
+     * #3.3.5.5.3 Handling GSS-API Authentication), the same key is used by both client and server.
+     *
+     * @param dialect connection dialect
+     * @param sessionKey Session.SessionKey (first 16 bytes of the key obtained by authentication)
+     * @param preauthIntegrityHash session (channel) preauth integrity hash value, SMB 3.1.1 only
+     * @return Session.SigningKey (Channel.SigningKey) for SMB 3.x, session key for SMB 2.x
+     */
+    public static byte[] deriveSigningKey(final Smb2Dialect dialect, final byte[] sessionKey,
+        final byte[] preauthIntegrityHash) {
+
+        if (dialect.equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
+            return SecurityUtils.kdfcm(sessionKey, SIGN_LABEL_311,
+                requireNonNull(preauthIntegrityHash, "preauth integrity hash is missing"), 128);
         }
+        return dialect.equalsOrHigher(Smb2Dialect.SMB3_0)
+            ? SecurityUtils.kdfcm(sessionKey, SIGN_LABEL_3X, SIGN_CTX_3X, 128) : sessionKey;
+    }
+
+    private static byte[] signingKey(final Smb2Dialect dialect, final SessionDetails sessDetails) {
+        return dialect.equalsOrHigher(Smb2Dialect.SMB3_0)
+            ? requireNonNull(sessDetails.signingKey(), "Session.SigningKey is undefined")
+            : requireNonNull(sessDetails.sessionKey(), "Session.SessionKey is undefined");
     }
 
     public void signOutbound(final ByteBuf byteBuf) {
@@ -65,8 +137,7 @@ public final class Smb2PacketSigner {
         flags.set(Smb2Flags.SMB2_FLAGS_SIGNED, true);
         byteBuf.setIntLE(FLAGS_OFFSET, flags.asIntValue());
         // set signature
-        final var signature = getSignature(byteBuf, mac);
-        byteBuf.setBytes(SIGNATURE_OFFSET, signature);
+        signingContext.get().sign(byteBuf);
     }
 
     public boolean verifyInboundSignature(final ByteBuf byteBuf) {
@@ -75,25 +146,158 @@ public final class Smb2PacketSigner {
             LOG.warn("Inbound message has no 'signed' flag expected.");
             return false;
         }
-        final var signature = Utils.getByteArray(byteBuf, SIGNATURE_OFFSET, SIGNATURE_LENGTH);
-        final var expected = getSignature(byteBuf, mac);
-        if (!Arrays.equals(signature, expected)) {
+        if (!signingContext.get().verify(byteBuf)) {
             LOG.warn("Invalid inbound message signature.");
             return false;
         }
         return true;
     }
 
-    private static byte[] getSignature(final ByteBuf byteBuf, final Mac mac) {
-        final var bytes = ByteBufUtil.getBytes(byteBuf);
-        // ensure signature placeholder is empty
-        System.arraycopy(EMPTY_SIGNATURE, 0, bytes, SIGNATURE_OFFSET, SIGNATURE_LENGTH);
-        synchronized (mac) {
-            mac.reset();
-            mac.update(bytes);
-            final var signature = mac.doFinal();
-            // in case of HMAC-SHA256 return first half of 32 byte array
-            return signature.length == SIGNATURE_LENGTH ? signature : Arrays.copyOf(signature, SIGNATURE_LENGTH);
+    private abstract static class SigningContext {
+        final byte[] scratch = new byte[SCRATCH_LENGTH];
+
+        abstract void sign(ByteBuf byteBuf);
+
+        abstract boolean verify(ByteBuf byteBuf);
+
+        abstract void update(byte[] input, int offset, int length);
+
+        void feed(final ByteBuf byteBuf) {
+            // buffer contains single message starting at index 0
+            final var contentOffset = SIGNATURE_OFFSET + SIGNATURE_LENGTH;
+            feed(byteBuf, 0, SIGNATURE_OFFSET);
+            // signature placeholder is treated as empty
+            update(EMPTY_SIGNATURE, 0, SIGNATURE_LENGTH);
+            feed(byteBuf, contentOffset, byteBuf.writerIndex() - contentOffset);
+        }
+
+        private void feed(final ByteBuf byteBuf, final int index, final int length) {
+            for (var nioBuffer : byteBuf.nioBuffers(index, length)) {
+                feed(nioBuffer);
+            }
+        }
+
+        private void feed(final ByteBuffer nioBuffer) {
+            if (nioBuffer.hasArray()) {
+                update(nioBuffer.array(), nioBuffer.arrayOffset() + nioBuffer.position(), nioBuffer.remaining());
+                return;
+            }
+            // off-heap memory is passed through reusable scratch array, the JCA default for direct
+            // buffers allocates a copy of the whole input
+            while (nioBuffer.hasRemaining()) {
+                final var chunk = Math.min(scratch.length, nioBuffer.remaining());
+                nioBuffer.get(scratch, 0, chunk);
+                update(scratch, 0, chunk);
+            }
+        }
+    }
+
+    private static final class MacContext extends SigningContext {
+        final Mac mac;
+        final byte[] output;
+
+        MacContext(final Mac mac) {
+            this.mac = mac;
+            output = new byte[mac.getMacLength()];
+        }
+
+        @Override
+        void sign(final ByteBuf byteBuf) {
+            calculate(byteBuf);
+            byteBuf.setBytes(SIGNATURE_OFFSET, output, 0, SIGNATURE_LENGTH);
+        }
+
+        @Override
+        boolean verify(final ByteBuf byteBuf) {
+            calculate(byteBuf);
+            // constant time comparison
+            int diff = 0;
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                diff |= output[i] ^ byteBuf.getByte(SIGNATURE_OFFSET + i);
+            }
+            return diff == 0;
+        }
+
+        @Override
+        void update(final byte[] input, final int offset, final int length) {
+            mac.update(input, offset, length);
+        }
+
+        private void calculate(final ByteBuf byteBuf) {
+            feed(byteBuf);
+            try {
+                // in case of HMAC-SHA256 only first half of 32 byte output is used
+                mac.doFinal(output, 0);
+            } catch (ShortBufferException e) {
+                throw new SmbException("Signature calculation failed", e);
+            }
+        }
+    }
+
+    /**
+     * AES-128-GMAC signing, the signature is a GCM authentication tag over empty plaintext with whole message
+     * as additional authenticated data. Addresses MS-SMB2 (#3.1.4.1 Signing An Outgoing Message).
+     */
+    private static final class GmacContext extends SigningContext {
+        private static final int NONCE_LENGTH = 12;
+        private static final int ROLE_RESPONSE = 0x01;
+        private static final int ROLE_CANCEL = 0x02;
+
+        final Cipher cipher = SecurityUtils.cipherInstance("AES/GCM/NoPadding");
+        final SecretKeySpec key;
+        final byte[] nonce = new byte[NONCE_LENGTH];
+        final byte[] output = new byte[SIGNATURE_LENGTH];
+
+        GmacContext(final byte[] key) {
+            this.key = new SecretKeySpec(key, "AES");
+        }
+
+        @Override
+        void sign(final ByteBuf byteBuf) {
+            init(Cipher.ENCRYPT_MODE, byteBuf);
+            feed(byteBuf);
+            try {
+                // no plaintext, so the output is the tag only
+                cipher.doFinal(output, 0);
+            } catch (GeneralSecurityException e) {
+                throw new SmbException("Signature calculation failed", e);
+            }
+            byteBuf.setBytes(SIGNATURE_OFFSET, output, 0, SIGNATURE_LENGTH);
+        }
+
+        @Override
+        boolean verify(final ByteBuf byteBuf) {
+            // tag is verified by decryption, the nonce reuse restriction only applies to encryption
+            init(Cipher.DECRYPT_MODE, byteBuf);
+            feed(byteBuf);
+            byteBuf.getBytes(SIGNATURE_OFFSET, scratch, 0, SIGNATURE_LENGTH);
+            try {
+                cipher.doFinal(scratch, 0, SIGNATURE_LENGTH, output, 0);
+                return true;
+            } catch (AEADBadTagException e) {
+                return false;
+            } catch (GeneralSecurityException e) {
+                throw new SmbException("Signature verification failed", e);
+            }
+        }
+
+        @Override
+        void update(final byte[] input, final int offset, final int length) {
+            cipher.updateAAD(input, offset, length);
+        }
+
+        private void init(final int mode, final ByteBuf byteBuf) {
+            // nonce is MessageId followed by role bits: response and cancel request
+            byteBuf.getBytes(MESSAGE_ID_OFFSET, nonce, 0, 8);
+            final var flags = new Flags<Smb2Flags>(byteBuf.getIntLE(FLAGS_OFFSET));
+            final var isCancel = byteBuf.getUnsignedShortLE(COMMAND_OFFSET) == Smb2Command.SMB2_CANCEL.code();
+            nonce[8] = (byte) ((flags.get(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR) ? ROLE_RESPONSE : 0)
+                | (isCancel ? ROLE_CANCEL : 0));
+            try {
+                cipher.init(mode, key, new GCMParameterSpec(SIGNATURE_LENGTH * 8, nonce));
+            } catch (GeneralSecurityException e) {
+                throw new SmbException("Signing cipher initialization failed", e);
+            }
         }
     }
 }
@@ -15,11 +15,15 @@
  */
 package local.mylan.transport.smb.protocol;
 
+import java.util.Arrays;
+
 /**
  * Addresses MS_CIFS (#2.2.2.4 SMB Error Classes and Codes) and MS-SMB (#2.2.2.4 SMB Error Classes and Codes).
  */
 public enum SmbError {
     STATUS_SUCCESS(0x00000000),
+    STATUS_PENDING(0x00000103),
+    STATUS_NOTIFY_CLEANUP(0x0000010B),
     STATUS_NOTIFY_ENUM_DIR(0x0000010C),
     STATUS_INVALID_SMB(0x00010002),
     STATUS_SMB_BAD_TID(0x00050002),
@@ -107,8 +111,10 @@ public enum SmbError {
     STATUS_PIPE_EMPTY(0xC00000D9),
     STATUS_REDIRECTOR_NOT_STARTED(0xC00000FB),
     STATUS_DIRECTORY_NOT_EMPTY(0xC0000101),
+    STATUS_NOT_A_DIRECTORY(0xC0000103),
     STATUS_PROCESS_IS_TERMINATING(0xC000010A),
     STATUS_TOO_MANY_OPENED_FILES(0xC000011F),
+    STATUS_CANCELLED(0xC0000120),
     STATUS_CANNOT_DELETE(0xC0000121),
     STATUS_FILE_DELETED(0xC0000123),
     STATUS_FILE_CLOSED(0xC0000128),
@@ -116,15 +122,33 @@ public enum SmbError {
     STATUS_ACCOUNT_EXPIRED(0xC0000193),
     STATUS_USER_SESSION_DELETED(0xC0000203),
     STATUS_INSUFF_SERVER_RESOURCES(0xC0000205),
+    STATUS_CONNECTION_DISCONNECTED(0xC000020C),
     STATUS_PASSWORD_MUST_CHANGE(0xC0000224),
     STATUS_HANDLE_NOT_CLOSABLE(0xC0000235),
     STATUS_PATH_NOT_COVERED(0xC0000257),
     STATUS_NETWORK_SESSION_EXPIRED(0xC000035C),
     STATUS_SMB_TOO_MANY_UIDS(0xC000205A),
+    STATUS_INVALID_SIGNATURE(0xC000A000),
     STATUS_SMB_NO_SUPPORT(0xFFFF0002),
 
     STATUS_OTHER(0xFFFFFFFF);
 
+    private static final int[] SORTED_CODES;
+    private static final SmbError[] SORTED_VALUES;
+
+    static {
+        final var values = values();
+        SORTED_CODES = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            SORTED_CODES[i] = values[i].code;
+        }
+        Arrays.sort(SORTED_CODES);
+        SORTED_VALUES = new SmbError[values.length];
+        for (var err : values) {
+            SORTED_VALUES[Arrays.binarySearch(SORTED_CODES, err.code)] = err;
+        }
+    }
+
     private final int code;
 
     SmbError(int code) {
@@ -136,11 +160,8 @@ public enum SmbError {
     }
 
     public static SmbError fromCode(int code) {
-        for (var err : values()) {
-            if (err.code == code) {
-                return err;
-            }
-        }
-        return STATUS_OTHER;
+        // status is decoded for every response, binary search avoids values() copy and linear scan
+        final var index = Arrays.binarySearch(SORTED_CODES, code);
+        return index >= 0 ? SORTED_VALUES[index] : STATUS_OTHER;
     }
 }
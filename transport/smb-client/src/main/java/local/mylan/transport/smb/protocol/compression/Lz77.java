@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.compression;
+
+import local.mylan.transport.smb.exceptions.SmbCompressionException;
+
+/**
+ * Plain LZ77 compression. Addresses MS-XCA (#2.3 Plain LZ77 Compression Algorithm Details,
+ * #2.4 Plain LZ77 Decompression Algorithm Details).
+ *
+ * <p>Compression instance is not thread safe (match finder state is reused), decompression is stateless.
+ */
+public final class Lz77 {
+    private static final int WINDOW_SIZE = 8192;
+    private static final int MAX_CHAIN = 16;
+    private static final int MAX_MATCH = 1 << 16;
+    private static final int MAX_TOKEN_LENGTH = 14; // 2x offset + 1x + 1x + 2x + 4x length + 4x next flags
+
+    private final MatchFinder matchFinder = new MatchFinder(WINDOW_SIZE, MAX_CHAIN);
+
+    /**
+     * Compresses the data.
+     *
+     * @param in input array
+     * @param inPos input start position
+     * @param inEnd input end position (exclusive)
+     * @param out output array
+     * @param outPos output start position
+     * @param outLimit max output end position, the output array is expected to be of this size at least
+     * @return output end position, or -1 if compressed data does not fit the limit
+     */
+    public int compress(final byte[] in, final int inPos, final int inEnd, final byte[] out, final int outPos,
+        final int outLimit) {
+
+        matchFinder.reset(in, inPos, inEnd);
+        var flags = 0;
+        var flagCount = 0;
+        var flagPos = outPos;
+        var op = outPos + 4;
+        var lastLengthHalfByte = -1;
+        var ip = inPos;
+        while (ip < inEnd) {
+            if (op + MAX_TOKEN_LENGTH > outLimit) {
+                return -1;
+            }
+            if (matchFinder.find(ip, MAX_MATCH)) {
+                final var matchLength = matchFinder.matchLength();
+                final var matchOffset = matchFinder.matchOffset();
+                for (int i = 1; i < matchLength; i++) {
+                    matchFinder.insert(ip + i);
+                }
+                ip += matchLength;
+                var length = matchLength - MatchFinder.MIN_MATCH;
+                final var offsetBits = matchOffset - 1 << 3;
+                if (length < 7) {
+                    putShort(out, op, offsetBits | length);
+                    op += 2;
+                } else {
+                    putShort(out, op, offsetBits | 7);
+                    op += 2;
+                    length -= 7;
+                    // 4-bit length extensions are paired within single byte
+                    if (lastLengthHalfByte < 0) {
+                        lastLengthHalfByte = op;
+                        out[op++] = (byte) Math.min(length, 15);
+                    } else {
+                        out[lastLengthHalfByte] |= (byte) (Math.min(length, 15) << 4);
+                        lastLengthHalfByte = -1;
+                    }
+                    if (length >= 15) {
+                        length -= 15;
+                        if (length < 255) {
+                            out[op++] = (byte) length;
+                        } else {
+                            out[op++] = (byte) 255;
+                            length += 15 + 7;
+                            if (length < 1 << 16) {
+                                putShort(out, op, length);
+                                op += 2;
+                            } else {
+                                putShort(out, op, 0);
+                                putInt(out, op + 2, length);
+                                op += 6;
+                            }
+                        }
+                    }
+                }
+                flags = flags << 1 | 1;
+            } else {
+                out[op++] = in[ip++];
+                flags <<= 1;
+            }
+            if (++flagCount == 32) {
+                putInt(out, flagPos, flags);
+                flagCount = 0;
+                flagPos = op;
+                op += 4;
+            }
+        }
+        // remaining flag bits are set, so the decoder expects a match and terminates on input end
+        putInt(out, flagPos, flagCount == 0 ? -1 : flags << 32 - flagCount | (1 << 32 - flagCount) - 1);
+        return op;
+    }
+
+    /**
+     * Decompresses the data.
+     *
+     * @param in input array
+     * @param inPos input start position
+     * @param inEnd input end position (exclusive)
+     * @param out output array
+     * @param outPos output start position
+     * @param outEnd output end position (exclusive), expected decompressed data end
+     * @throws SmbCompressionException if data is invalid or its decompressed size differs from expected
+     */
+    public static void decompress(final byte[] in, final int inPos, final int inEnd, final byte[] out,
+        final int outPos, final int outEnd) {
+
+        var flags = 0;
+        var flagCount = 0;
+        var lastLengthHalfByte = -1;
+        var ip = inPos;
+        var op = outPos;
+        while (op < outEnd) {
+            if (flagCount == 0) {
+                checkAvailable(ip, 4, inEnd);
+                flags = getInt(in, ip);
+                ip += 4;
+                flagCount = 32;
+            }
+            flagCount--;
+            if ((flags >>> flagCount & 1) == 0) {
+                checkAvailable(ip, 1, inEnd);
+                out[op++] = in[ip++];
+                continue;
+            }
+            checkAvailable(ip, 2, inEnd);
+            final var matchBytes = getShort(in, ip);
+            ip += 2;
+            var length = matchBytes & 7;
+            final var offset = (matchBytes >>> 3) + 1;
+            if (length == 7) {
+                if (lastLengthHalfByte < 0) {
+                    checkAvailable(ip, 1, inEnd);
+                    length = in[ip] & 0x0F;
+                    lastLengthHalfByte = ip++;
+                } else {
+                    length = (in[lastLengthHalfByte] & 0xFF) >>> 4;
+                    lastLengthHalfByte = -1;
+                }
+                if (length == 15) {
+                    checkAvailable(ip, 1, inEnd);
+                    length = in[ip++] & 0xFF;
+                    if (length == 255) {
+                        checkAvailable(ip, 2, inEnd);
+                        length = getShort(in, ip);
+                        ip += 2;
+                        if (length == 0) {
+                            checkAvailable(ip, 4, inEnd);
+                            length = getInt(in, ip);
+                            ip += 4;
+                        }
+                        if (length < 15 + 7) {
+                            throw new SmbCompressionException("Invalid LZ77 match length " + length);
+                        }
+                        length -= 15 + 7;
+                    }
+                    length += 15;
+                }
+                length += 7;
+            }
+            length += MatchFinder.MIN_MATCH;
+            op = copyMatch(out, outPos, op, outEnd, offset, length);
+        }
+    }
+
+    static int copyMatch(final byte[] out, final int outPos, final int op, final int outEnd, final int offset,
+        final int length) {
+
+        if (offset > op - outPos || length < 0 || length > outEnd - op) {
+            throw new SmbCompressionException("Invalid match: offset %d, length %d at position %d"
+                .formatted(offset, length, op - outPos));
+        }
+        if (offset >= length) {
+            System.arraycopy(out, op - offset, out, op, length);
+        } else {
+            // overlapping, byte by byte copy repeats the pattern
+            for (int i = 0; i < length; i++) {
+                out[op + i] = out[op - offset + i];
+            }
+        }
+        return op + length;
+    }
+
+    static void checkAvailable(final int pos, final int length, final int end) {
+        if (pos + length > end) {
+            throw new SmbCompressionException("Unexpected end of compressed data");
+        }
+    }
+
+    static int getShort(final byte[] array, final int pos) {
+        return array[pos] & 0xFF | (array[pos + 1] & 0xFF) << 8;
+    }
+
+    static int getInt(final byte[] array, final int pos) {
+        return getShort(array, pos) | getShort(array, pos + 2) << 16;
+    }
+
+    static void putShort(final byte[] array, final int pos, final int value) {
+        array[pos] = (byte) value;
+        array[pos + 1] = (byte) (value >>> 8);
+    }
+
+    static void putInt(final byte[] array, final int pos, final int value) {
+        putShort(array, pos, value);
+        putShort(array, pos + 2, value >>> 16);
+    }
+}
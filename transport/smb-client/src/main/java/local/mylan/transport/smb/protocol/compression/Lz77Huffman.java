@@ -0,0 +1,376 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.compression;
+
+import static local.mylan.transport.smb.protocol.compression.Lz77.checkAvailable;
+import static local.mylan.transport.smb.protocol.compression.Lz77.copyMatch;
+import static local.mylan.transport.smb.protocol.compression.Lz77.getInt;
+import static local.mylan.transport.smb.protocol.compression.Lz77.getShort;
+import static local.mylan.transport.smb.protocol.compression.Lz77.putShort;
+
+import java.util.Arrays;
+import local.mylan.transport.smb.exceptions.SmbCompressionException;
+
+/**
+ * LZ77+Huffman compression. Addresses MS-XCA (#2.1 LZ77+Huffman Compression Algorithm Details,
+ * #2.2 LZ77+Huffman Decompression Algorithm Details).
+ *
+ * <p>Data is processed in blocks of 64K of uncompressed data, each block starts with own table of
+ * 512 symbol code lengths (4 bits each) followed by bitstream of 16-bit words interleaved with
+ * extra match length bytes. Symbols 0-255 are literals, symbols 256-511 encode match length (low 4 bits)
+ * and match offset bit length (high 4 bits). Symbol 256 in final block denotes the end of data.
+ *
+ * <p>Instance is not thread safe, work tables are reused for subsequent operations by same thread.
+ */
+public final class Lz77Huffman {
+    private static final int WINDOW_SIZE = 65535;
+    private static final int MAX_CHAIN = 32;
+    private static final int MAX_MATCH = 1 << 16;
+    private static final int BLOCK_SIZE = 65536;
+    private static final int SYMBOLS = 512;
+    private static final int TABLE_LENGTH = SYMBOLS / 2;
+    private static final int MAX_CODE_LENGTH = 15;
+    private static final int EOF_SYMBOL = 256;
+    private static final int MAX_TOKEN_LENGTH = 16; // 2x2 bit words + 1x + 2x + 4x length + reserve
+
+    private final MatchFinder matchFinder = new MatchFinder(WINDOW_SIZE, MAX_CHAIN);
+    private final int[] frequencies = new int[SYMBOLS];
+    private final int[] codes = new int[SYMBOLS];
+    private final byte[] lengths = new byte[SYMBOLS];
+    // literal or match length and match offset (0 for literal) per token of a block
+    private final int[] tokenValues = new int[BLOCK_SIZE];
+    private final int[] tokenOffsets = new int[BLOCK_SIZE];
+    private final short[] decodingTable = new short[1 << MAX_CODE_LENGTH];
+
+    // bit stream state
+    private int bitBuffer;
+    private int bitCount;
+    private int wordPos1;
+    private int wordPos2;
+    private int bytePos;
+
+    /**
+     * Compresses the data.
+     *
+     * @param in input array
+     * @param inPos input start position
+     * @param inEnd input end position (exclusive)
+     * @param out output array
+     * @param outPos output start position
+     * @param outLimit max output end position, the output array is expected to be of this size at least
+     * @return output end position, or -1 if compressed data does not fit the limit
+     */
+    public int compress(final byte[] in, final int inPos, final int inEnd, final byte[] out, final int outPos,
+        final int outLimit) {
+
+        matchFinder.reset(in, inPos, inEnd);
+        var ip = inPos;
+        var op = outPos;
+        var eofWritten = false;
+        while (!eofWritten) {
+            // tokenize the block collecting symbol frequencies
+            Arrays.fill(frequencies, 0);
+            final var blockEnd = ip + BLOCK_SIZE;
+            var tokenCount = 0;
+            while (ip < inEnd && ip < blockEnd) {
+                if (matchFinder.find(ip, MAX_MATCH)) {
+                    final var matchLength = matchFinder.matchLength();
+                    final var matchOffset = matchFinder.matchOffset();
+                    for (int i = 1; i < matchLength; i++) {
+                        matchFinder.insert(ip + i);
+                    }
+                    ip += matchLength;
+                    tokenValues[tokenCount] = matchLength;
+                    tokenOffsets[tokenCount] = matchOffset;
+                    frequencies[matchSymbol(matchLength, matchOffset)]++;
+                } else {
+                    final var literal = in[ip++] & 0xFF;
+                    tokenValues[tokenCount] = literal;
+                    tokenOffsets[tokenCount] = 0;
+                    frequencies[literal]++;
+                }
+                tokenCount++;
+            }
+            // decoder completes the block once its size is reached, so EOF symbol goes to the next block then
+            eofWritten = ip >= inEnd && ip < blockEnd;
+            if (eofWritten) {
+                frequencies[EOF_SYMBOL]++;
+            }
+            buildCodes();
+
+            if (op + TABLE_LENGTH + 4 > outLimit) {
+                return -1;
+            }
+            for (int i = 0; i < TABLE_LENGTH; i++) {
+                out[op + i] = (byte) (lengths[2 * i] | lengths[2 * i + 1] << 4);
+            }
+            // two 16-bit words are reserved ahead, extra bytes follow the words reserved
+            bitBuffer = 0;
+            bitCount = 0;
+            wordPos1 = op + TABLE_LENGTH;
+            wordPos2 = wordPos1 + 2;
+            bytePos = wordPos2 + 2;
+            for (int i = 0; i < tokenCount; i++) {
+                if (bytePos + MAX_TOKEN_LENGTH > outLimit) {
+                    return -1;
+                }
+                final var offset = tokenOffsets[i];
+                if (offset == 0) {
+                    writeSymbol(out, tokenValues[i]);
+                } else {
+                    writeMatch(out, tokenValues[i], offset);
+                }
+            }
+            if (eofWritten) {
+                if (bytePos + MAX_TOKEN_LENGTH > outLimit) {
+                    return -1;
+                }
+                writeSymbol(out, EOF_SYMBOL);
+            }
+            putShort(out, wordPos1, bitBuffer << 16 - bitCount);
+            putShort(out, wordPos2, 0);
+            op = bytePos;
+        }
+        return op;
+    }
+
+    private static int matchSymbol(final int matchLength, final int matchOffset) {
+        final var lengthBits = Math.min(matchLength - MatchFinder.MIN_MATCH, 15);
+        return EOF_SYMBOL + lengthBits + (offsetBitLength(matchOffset) << 4);
+    }
+
+    private static int offsetBitLength(final int matchOffset) {
+        return 31 - Integer.numberOfLeadingZeros(matchOffset);
+    }
+
+    private void writeSymbol(final byte[] out, final int symbol) {
+        writeBits(out, codes[symbol], lengths[symbol]);
+    }
+
+    private void writeMatch(final byte[] out, final int matchLength, final int matchOffset) {
+        writeSymbol(out, matchSymbol(matchLength, matchOffset));
+        final var length = matchLength - MatchFinder.MIN_MATCH;
+        if (length >= 15) {
+            if (length - 15 < 255) {
+                out[bytePos++] = (byte) (length - 15);
+            } else {
+                out[bytePos++] = (byte) 255;
+                if (length < 1 << 16) {
+                    putShort(out, bytePos, length);
+                    bytePos += 2;
+                } else {
+                    putShort(out, bytePos, 0);
+                    Lz77.putInt(out, bytePos + 2, length);
+                    bytePos += 6;
+                }
+            }
+        }
+        final var offsetBits = offsetBitLength(matchOffset);
+        writeBits(out, matchOffset - (1 << offsetBits), offsetBits);
+    }
+
+    private void writeBits(final byte[] out, final int value, final int count) {
+        bitBuffer = bitBuffer << count | value;
+        bitCount += count;
+        if (bitCount > 16) {
+            // word completed, next word slot is reserved at current byte position
+            bitCount -= 16;
+            putShort(out, wordPos1, bitBuffer >>> bitCount);
+            wordPos1 = wordPos2;
+            wordPos2 = bytePos;
+            bytePos += 2;
+        }
+    }
+
+    /**
+     * Builds canonical Huffman codes of at most 15 bits out of symbol frequencies.
+     */
+    private void buildCodes() {
+        var used = 0;
+        for (var frequency : frequencies) {
+            if (frequency > 0) {
+                used++;
+            }
+        }
+        // decoding table is expected to be complete, at least two symbols are required
+        for (int symbol = 0; used < 2; symbol++) {
+            if (frequencies[symbol] == 0) {
+                frequencies[symbol] = 1;
+                used++;
+            }
+        }
+        while (!buildLengths(used)) {
+            // flatten the distribution until the code lengths fit the limit
+            for (int i = 0; i < SYMBOLS; i++) {
+                if (frequencies[i] > 0) {
+                    frequencies[i] = Math.max(1, frequencies[i] >>> 1);
+                }
+            }
+        }
+        // codes are assigned in order of (length, symbol) same as decoding table is built
+        var next = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                if (lengths[symbol] == length) {
+                    codes[symbol] = next >>> MAX_CODE_LENGTH - length;
+                    next += 1 << MAX_CODE_LENGTH - length;
+                }
+            }
+        }
+    }
+
+    private boolean buildLengths(final int used) {
+        // leaves sorted by frequency, internal nodes are created in non-decreasing weight order,
+        // so two queues give the Huffman tree without a heap
+        final var leaves = new long[used];
+        var count = 0;
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            if (frequencies[symbol] > 0) {
+                leaves[count++] = (long) frequencies[symbol] << 16 | symbol;
+            }
+        }
+        Arrays.sort(leaves);
+        final var weights = new long[2 * used - 1];
+        final var parents = new int[2 * used - 1];
+        for (int i = 0; i < used; i++) {
+            weights[i] = leaves[i] >>> 16;
+        }
+        var leafHead = 0;
+        var nodeHead = used;
+        for (int node = used; node < 2 * used - 1; node++) {
+            for (int child = 0; child < 2; child++) {
+                final var fromLeaf = leafHead < used && (nodeHead >= node || weights[leafHead] <= weights[nodeHead]);
+                final var index = fromLeaf ? leafHead++ : nodeHead++;
+                weights[node] += weights[index];
+                parents[index] = node;
+            }
+        }
+        // depths computed from root down, parent index is always greater than child one
+        final var depths = new int[2 * used - 1];
+        Arrays.fill(lengths, (byte) 0);
+        for (int i = 2 * used - 3; i >= 0; i--) {
+            depths[i] = depths[parents[i]] + 1;
+            if (i < used) {
+                if (depths[i] > MAX_CODE_LENGTH) {
+                    return false;
+                }
+                lengths[(int) (leaves[i] & 0xFFFF)] = (byte) depths[i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decompresses the data.
+     *
+     * @param in input array
+     * @param inPos input start position
+     * @param inEnd input end position (exclusive)
+     * @param out output array
+     * @param outPos output start position
+     * @param outEnd output end position (exclusive), expected decompressed data end
+     * @throws SmbCompressionException if data is invalid or its decompressed size differs from expected
+     */
+    public void decompress(final byte[] in, final int inPos, final int inEnd, final byte[] out,
+        final int outPos, final int outEnd) {
+
+        var ip = inPos;
+        var op = outPos;
+        while (op < outEnd) {
+            checkAvailable(ip, TABLE_LENGTH + 4, inEnd);
+            buildDecodingTable(in, ip);
+            ip += TABLE_LENGTH;
+            var bits = getShort(in, ip) << 16 | getShort(in, ip + 2);
+            ip += 4;
+            var extraBitCount = 16;
+            final var blockEnd = Math.min(op + BLOCK_SIZE, outEnd);
+            while (op < blockEnd) {
+                final var symbol = decodingTable[bits >>> 32 - MAX_CODE_LENGTH];
+                final var symbolLength = lengths[symbol];
+                bits <<= symbolLength;
+                extraBitCount -= symbolLength;
+                if (extraBitCount < 0) {
+                    bits |= readWord(in, ip, inEnd) << -extraBitCount;
+                    ip += 2;
+                    extraBitCount += 16;
+                }
+                if (symbol < EOF_SYMBOL) {
+                    out[op++] = (byte) symbol;
+                    continue;
+                }
+                var length = symbol & 0x0F;
+                final var offsetBits = symbol - EOF_SYMBOL >>> 4;
+                if (length == 15) {
+                    checkAvailable(ip, 1, inEnd);
+                    length = in[ip++] & 0xFF;
+                    if (length == 255) {
+                        checkAvailable(ip, 2, inEnd);
+                        length = getShort(in, ip);
+                        ip += 2;
+                        if (length == 0) {
+                            checkAvailable(ip, 4, inEnd);
+                            length = getInt(in, ip);
+                            ip += 4;
+                        }
+                        if (length < 15) {
+                            throw new SmbCompressionException("Invalid LZ77+Huffman match length " + length);
+                        }
+                        length -= 15;
+                    }
+                    length += 15;
+                }
+                length += MatchFinder.MIN_MATCH;
+                final var offset = offsetBits == 0 ? 1 : (bits >>> 32 - offsetBits) + (1 << offsetBits);
+                bits <<= offsetBits;
+                extraBitCount -= offsetBits;
+                if (extraBitCount < 0) {
+                    bits |= readWord(in, ip, inEnd) << -extraBitCount;
+                    ip += 2;
+                    extraBitCount += 16;
+                }
+                op = copyMatch(out, outPos, op, outEnd, offset, length);
+            }
+        }
+    }
+
+    private void buildDecodingTable(final byte[] in, final int pos) {
+        for (int i = 0; i < TABLE_LENGTH; i++) {
+            lengths[2 * i] = (byte) (in[pos + i] & 0x0F);
+            lengths[2 * i + 1] = (byte) ((in[pos + i] & 0xFF) >>> 4);
+        }
+        var entry = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                if (lengths[symbol] == length) {
+                    final var entryCount = 1 << MAX_CODE_LENGTH - length;
+                    if (entry + entryCount > decodingTable.length) {
+                        throw new SmbCompressionException("Invalid LZ77+Huffman code lengths table");
+                    }
+                    Arrays.fill(decodingTable, entry, entry + entryCount, (short) symbol);
+                    entry += entryCount;
+                }
+            }
+        }
+        if (entry != decodingTable.length) {
+            throw new SmbCompressionException("Incomplete LZ77+Huffman code lengths table");
+        }
+    }
+
+    private static int readWord(final byte[] in, final int pos, final int end) {
+        checkAvailable(pos, 2, end);
+        return getShort(in, pos);
+    }
+}
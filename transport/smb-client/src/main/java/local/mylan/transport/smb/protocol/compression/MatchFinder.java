@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.compression;
+
+import java.util.Arrays;
+
+/**
+ * LZ77 match finder using hash chains of 3-byte prefixes. Not thread safe, the instance is expected
+ * to be reused for subsequent inputs by same thread.
+ */
+final class MatchFinder {
+    static final int MIN_MATCH = 3;
+
+    private static final int HASH_BITS = 15;
+    private static final int NICE_LENGTH = 128;
+
+    private final int windowSize;
+    private final int maxChain;
+    private final int[] head = new int[1 << HASH_BITS];
+    private final int[] prev;
+    private final int prevMask;
+
+    private byte[] input;
+    private int start;
+    private int end;
+    private int matchLength;
+    private int matchOffset;
+
+    MatchFinder(final int windowSize, final int maxChain) {
+        this.windowSize = windowSize;
+        this.maxChain = maxChain;
+        prev = new int[Integer.highestOneBit(windowSize - 1) << 1];
+        prevMask = prev.length - 1;
+    }
+
+    void reset(final byte[] input, final int start, final int end) {
+        this.input = input;
+        this.start = start;
+        this.end = end;
+        // chain entries are position + 1, zero means no entry
+        Arrays.fill(head, 0);
+    }
+
+    int matchLength() {
+        return matchLength;
+    }
+
+    int matchOffset() {
+        return matchOffset;
+    }
+
+    /**
+     * Looks for the longest match of data at given position within the window, the position is added
+     * to the hash chains.
+     *
+     * @return true if match of at least {@link #MIN_MATCH} bytes is found
+     */
+    boolean find(final int pos, final int maxLength) {
+        if (end - pos < MIN_MATCH) {
+            return false;
+        }
+        final var rel = pos - start;
+        final var hash = hash(pos);
+        var candidate = head[hash] - 1;
+        prev[rel & prevMask] = head[hash];
+        head[hash] = rel + 1;
+
+        final var limit = Math.min(maxLength, end - pos);
+        var bestLength = MIN_MATCH - 1;
+        var bestOffset = 0;
+        for (int chain = maxChain; candidate >= 0 && chain > 0; chain--) {
+            final var offset = rel - candidate;
+            if (offset > windowSize) {
+                break;
+            }
+            final var candidatePos = start + candidate;
+            if (input[candidatePos + bestLength] == input[pos + bestLength]) {
+                final var mismatch = Arrays.mismatch(input, candidatePos, candidatePos + limit,
+                    input, pos, pos + limit);
+                final var length = mismatch < 0 ? limit : mismatch;
+                if (length > bestLength) {
+                    bestLength = length;
+                    bestOffset = offset;
+                    if (length >= NICE_LENGTH || length == limit) {
+                        break;
+                    }
+                }
+            }
+            // entry overwritten by a newer position breaks the chain
+            final var next = prev[candidate & prevMask] - 1;
+            if (next >= candidate) {
+                break;
+            }
+            candidate = next;
+        }
+        matchLength = bestLength;
+        matchOffset = bestOffset;
+        return bestOffset > 0;
+    }
+
+    /**
+     * Adds position to the hash chains without looking for a match (positions covered by match found).
+     */
+    void insert(final int pos) {
+        if (end - pos >= MIN_MATCH) {
+            final var hash = hash(pos);
+            prev[(pos - start) & prevMask] = head[hash];
+            head[hash] = pos - start + 1;
+        }
+    }
+
+    private int hash(final int pos) {
+        final var value = (input[pos] & 0xFF) << 16 | (input[pos + 1] & 0xFF) << 8 | input[pos + 2] & 0xFF;
+        return value * 0x9E3779B1 >>> 32 - HASH_BITS;
+    }
+}
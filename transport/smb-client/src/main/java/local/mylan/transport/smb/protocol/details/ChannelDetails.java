@@ -16,10 +16,37 @@
 package local.mylan.transport.smb.protocol.details;
 
 /**
- * Channel Details. Addresses MS-SMB2 (#3.2.1.8 Per Channel)
+ * Channel Details. Addresses MS-SMB2 (#3.2.1.8 Per Channel).
  */
 public class ChannelDetails {
     // SMB 3.0 +
-    byte[] signingKey;
-    Connection connection;
+    private byte[] signingKey;
+    private Connection connection;
+
+    // SMB 3.1.1 +
+    private byte[] preauthIntegrityHashValue;
+
+    public byte[] signingKey() {
+        return signingKey;
+    }
+
+    public void setSigningKey(final byte[] signingKey) {
+        this.signingKey = signingKey;
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+
+    public void setConnection(final Connection connection) {
+        this.connection = connection;
+    }
+
+    public byte[] preauthIntegrityHashValue() {
+        return preauthIntegrityHashValue;
+    }
+
+    public void setPreauthIntegrityHashValue(final byte[] preauthIntegrityHashValue) {
+        this.preauthIntegrityHashValue = preauthIntegrityHashValue;
+    }
 }
@@ -30,4 +30,11 @@ public interface Client {
     ListenableFuture<Connection> getOrCreateConnection(InetAddress inetAddress);
 
     ListenableFuture<Connection> getOrCreateConnection(SocketAddress inetAddress);
+
+    /**
+     * Closes all the connections and releases the network resources (event loop group) shared by them.
+     *
+     * @return future of completion
+     */
+    ListenableFuture<Void> close();
 }
@@ -30,6 +30,7 @@ public class ClientDetails extends GlobalDetails {
     private boolean allowInsecureGuestAccess;
 
     // SMB 2.1 +
+    // indexed by lease key, MS-SMB2 (#3.2.5.19.2 Processing a Lease Break Notification)
     private final Map<Object, FileDetails> globalFiles = new ConcurrentHashMap<>();
     private final UUID clientGuid = UUID.randomUUID();
     // SMB 3.x +
@@ -24,6 +24,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketCipher;
+import local.mylan.transport.smb.protocol.Smb2PacketCompressor;
 import local.mylan.transport.smb.protocol.Smb2PacketSigner;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
@@ -40,6 +42,7 @@ public class ConnectionDetails {
     final Map<Long, Session> sessions = new ConcurrentHashMap<>();
     final Map<Long, Session> preauthSessions = new ConcurrentHashMap<>();
     final Map<Long, Smb2PacketSigner> packetSigners = new ConcurrentHashMap<>();
+    final Map<Long, Smb2PacketCipher> packetCiphers = new ConcurrentHashMap<>();
     final Queue<Smb2Request> pendingRequests = new ConcurrentLinkedDeque<>();
     final SequenceWindow sequenceWindow = new SequenceWindow(); // messageId sequencer
 
@@ -50,7 +53,6 @@ public class ConnectionDetails {
 
     // SMB 2.1 +
     boolean supportsFileLeasing;
-    boolean supportsMultiCredit;
     private final UUID clientGuid;
 
     // SMB 3.0 +
@@ -67,6 +69,7 @@ public class ConnectionDetails {
     String preauthIntegrityHashId;
     byte[] preauthIntegrityHashValue;
     String cipherId;
+    List<String> compressionIds;
     boolean supportsChainedCompression;
     List<String> rdmaTransformIds;
     String signingAlgorithmId;
@@ -76,6 +79,22 @@ public class ConnectionDetails {
     // non-spec
     private SocketAddress socketAddress;
     private int setupCreditsRequest = 1;
+    private int readWindowSize = 1;
+    private int writeWindowSize = 1;
+    private int queryDirectoryBufferSize = 65536;
+    private int maxCreditsRequest = 1;
+    private long pendingRequestTimeoutMillis;
+    private long requestTimeoutMillis;
+    private long shareCacheTtlMillis;
+    private int compressionThreshold;
+    private int leaseCacheSize;
+    private int handleCacheSize;
+    private long handleIdleTimeoutMillis;
+    private long treeConnectIdleTimeoutMillis;
+    private long sessionIdleTimeoutMillis;
+    private long durableHandleTimeoutMillis = -1;
+    private Map<Object, FileDetails> globalFiles = Map.of();
+    private volatile Smb2PacketCompressor packetCompressor;
 
     public ConnectionDetails(final UUID clientGuid, final int connectionId) {
         this.connectionId = connectionId;
@@ -102,6 +121,10 @@ public class ConnectionDetails {
         return packetSigners;
     }
 
+    public Map<Long, Smb2PacketCipher> packetCiphers() {
+        return packetCiphers;
+    }
+
     public Queue<Smb2Request> pendingRequests() {
         return pendingRequests;
     }
@@ -118,6 +141,165 @@ public class ConnectionDetails {
         this.setupCreditsRequest = setupCreditsRequest;
     }
 
+    public int readWindowSize() {
+        return readWindowSize;
+    }
+
+    public void setReadWindowSize(final int readWindowSize) {
+        this.readWindowSize = readWindowSize;
+    }
+
+    public int writeWindowSize() {
+        return writeWindowSize;
+    }
+
+    public void setWriteWindowSize(final int writeWindowSize) {
+        this.writeWindowSize = writeWindowSize;
+    }
+
+    public int queryDirectoryBufferSize() {
+        return queryDirectoryBufferSize;
+    }
+
+    public void setQueryDirectoryBufferSize(final int queryDirectoryBufferSize) {
+        this.queryDirectoryBufferSize = queryDirectoryBufferSize;
+    }
+
+    public int maxCreditsRequest() {
+        return maxCreditsRequest;
+    }
+
+    public void setMaxCreditsRequest(final int maxCreditsRequest) {
+        this.maxCreditsRequest = maxCreditsRequest;
+    }
+
+    public long pendingRequestTimeoutMillis() {
+        return pendingRequestTimeoutMillis;
+    }
+
+    public void setPendingRequestTimeoutMillis(final long pendingRequestTimeoutMillis) {
+        this.pendingRequestTimeoutMillis = pendingRequestTimeoutMillis;
+    }
+
+    public long requestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(final long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public long shareCacheTtlMillis() {
+        return shareCacheTtlMillis;
+    }
+
+    public void setShareCacheTtlMillis(final long shareCacheTtlMillis) {
+        this.shareCacheTtlMillis = shareCacheTtlMillis;
+    }
+
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(final int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public int leaseCacheSize() {
+        return leaseCacheSize;
+    }
+
+    public void setLeaseCacheSize(final int leaseCacheSize) {
+        this.leaseCacheSize = leaseCacheSize;
+    }
+
+    /**
+     * Returns max number of open handles cached per tree connect, zero means handles are not cached.
+     *
+     * @return handle cache size
+     */
+    public int handleCacheSize() {
+        return handleCacheSize;
+    }
+
+    public void setHandleCacheSize(final int handleCacheSize) {
+        this.handleCacheSize = handleCacheSize;
+    }
+
+    public long handleIdleTimeoutMillis() {
+        return handleIdleTimeoutMillis;
+    }
+
+    public void setHandleIdleTimeoutMillis(final long handleIdleTimeoutMillis) {
+        this.handleIdleTimeoutMillis = handleIdleTimeoutMillis;
+    }
+
+    /**
+     * Returns the time the tree connect with no activity and no handle open is kept connected,
+     * non-positive value means no limit.
+     *
+     * @return idle timeout (millis)
+     */
+    /**
+     * Returns the durable handle timeout requested for cached handles, negative value means durable handles
+     * are not requested, zero means the timeout is selected by the server.
+     *
+     * @return durable handle timeout (millis)
+     */
+    public long durableHandleTimeoutMillis() {
+        return durableHandleTimeoutMillis;
+    }
+
+    public void setDurableHandleTimeoutMillis(final long durableHandleTimeoutMillis) {
+        this.durableHandleTimeoutMillis = durableHandleTimeoutMillis;
+    }
+
+    public long treeConnectIdleTimeoutMillis() {
+        return treeConnectIdleTimeoutMillis;
+    }
+
+    public void setTreeConnectIdleTimeoutMillis(final long treeConnectIdleTimeoutMillis) {
+        this.treeConnectIdleTimeoutMillis = treeConnectIdleTimeoutMillis;
+    }
+
+    /**
+     * Returns the time the session with no activity and no tree connected is kept alive,
+     * non-positive value means no limit.
+     *
+     * @return idle timeout (millis)
+     */
+    public long sessionIdleTimeoutMillis() {
+        return sessionIdleTimeoutMillis;
+    }
+
+    public void setSessionIdleTimeoutMillis(final long sessionIdleTimeoutMillis) {
+        this.sessionIdleTimeoutMillis = sessionIdleTimeoutMillis;
+    }
+
+    /**
+     * Returns the client global file table (indexed by lease key), shared by all connections of the client.
+     *
+     * @return global file table
+     */
+    public Map<Object, FileDetails> globalFiles() {
+        return globalFiles;
+    }
+
+    public void setGlobalFiles(final Map<Object, FileDetails> globalFiles) {
+        this.globalFiles = globalFiles;
+    }
+
+    /**
+     * Returns the compressor if compression is negotiated, null otherwise.
+     */
+    public Smb2PacketCompressor packetCompressor() {
+        return packetCompressor;
+    }
+
+    public void setPacketCompressor(final Smb2PacketCompressor packetCompressor) {
+        this.packetCompressor = packetCompressor;
+    }
+
     public NegToken negotiateToken() {
         return negotiateToken;
     }
@@ -172,7 +354,10 @@ public class ConnectionDetails {
     }
 
     public boolean supportsMultiCredit() {
-        return false;
+        // MS-SMB2 (#3.2.5.2 Receiving an SMB2 NEGOTIATE Response)
+        return dialect().equalsOrHigher(Smb2Dialect.SMB2_1)
+            && clientCapabilities != null && clientCapabilities.get(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LARGE_MTU)
+            && serverCapability(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LARGE_MTU);
     }
 
     public boolean supportsDirectoryLeasing() {
@@ -180,7 +365,10 @@ public class ConnectionDetails {
     }
 
     public boolean supportsMultiChannel() {
-        return serverCapability(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_MULTI_CHANNEL);
+        // MS-SMB2 (#3.2.5.2 Receiving an SMB2 NEGOTIATE Response)
+        return dialect().equalsOrHigher(Smb2Dialect.SMB3_0)
+            && clientCapabilities != null && clientCapabilities.get(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_MULTI_CHANNEL)
+            && serverCapability(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_MULTI_CHANNEL);
     }
 
     public boolean supportsPersistentHandles() {
@@ -188,7 +376,8 @@ public class ConnectionDetails {
     }
 
     public boolean supportsEncryption() {
-        return serverCapability(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_ENCRYPTION);
+        // capability flag is not used since SMB 3.1.1, the cipher is negotiated via context
+        return cipherId() != null;
     }
 
     private boolean serverCapability(final Smb2CapabilitiesFlags flag) {
@@ -249,6 +438,14 @@ public class ConnectionDetails {
         return server == null ? null : server.cipherId();
     }
 
+    public List<String> compressionIds() {
+        return compressionIds;
+    }
+
+    public void setCompressionIds(final List<String> compressionIds) {
+        this.compressionIds = compressionIds;
+    }
+
     public boolean supportsChainedCompression() {
         return supportsChainedCompression;
     }
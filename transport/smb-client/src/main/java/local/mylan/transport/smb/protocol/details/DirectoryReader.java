@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.details;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import local.mylan.transport.smb.protocol.fscc.DirectoryPage;
+
+/**
+ * Page by page reader of the directory entries. Next page is requested from server only when asked for,
+ * so the consumer controls the pace of enumeration.
+ */
+public interface DirectoryReader extends AutoCloseable {
+
+    /**
+     * Returns next page of directory entries. End of directory is indicated by empty page. The page holds
+     * the response buffer, it's expected to be closed by the caller when processed.
+     *
+     * @return future of next page of entries
+     */
+    ListenableFuture<DirectoryPage> next();
+
+    /**
+     * Stops reading. Page being requested is discarded.
+     */
+    @Override
+    void close();
+}
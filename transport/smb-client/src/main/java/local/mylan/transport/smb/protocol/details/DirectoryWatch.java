@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.details;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Directory change watch. Keeps CHANGE_NOTIFY request pending on the open directory handle,
+ * re-issuing it after each notification until closed.
+ */
+public interface DirectoryWatch extends AutoCloseable {
+
+    /**
+     * Returns the future completing when the watch is stopped, either explicitly closed or terminated
+     * due to error (connection loss, handle closed by server etc). No notifications are delivered after.
+     *
+     * @return future of watch termination
+     */
+    ListenableFuture<Void> closeFuture();
+
+    /**
+     * Stops watching and closes the directory handle.
+     */
+    @Override
+    void close();
+}
@@ -15,16 +15,163 @@
  */
 package local.mylan.transport.smb.protocol.details;
 
-import java.util.Map;
+import java.util.List;
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseStateFlags;
 
 /**
  * Open File Details. Addresses MS-SMB2 (#3.2.1.5 Per Open File).
+ *
+ * <p>Leased file (directory) entry is also used as client side cache holder: the data cached is valid
+ * as long as the lease grants READ caching, the handle is kept open as long as the lease grants HANDLE caching.
  */
 public class FileDetails {
+    private final String fileName;
+    private final TreeConnect treeConnect;
     // SMB 2.1 +
-    Map<Object, OpenDetails> opens;
-    byte[] leaseKey;
-    Object leaseState;
+    private final UUID leaseKey;
+    private Flags<Smb2LeaseStateFlags> leaseState = new Flags<>();
     // SMB 3.0 +
-    long leaseEpoch;
+    private int leaseEpoch;
+    // non-spec
+    private UUID fileId;
+    private List<FileInformation> directoryEntries;
+    private int breakCount;
+    private long lastAccessTime;
+    private Runnable breakListener;
+
+    public FileDetails(final String fileName, final TreeConnect treeConnect, final UUID leaseKey) {
+        this.fileName = fileName;
+        this.treeConnect = treeConnect;
+        this.leaseKey = leaseKey;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public TreeConnect treeConnect() {
+        return treeConnect;
+    }
+
+    public UUID leaseKey() {
+        return leaseKey;
+    }
+
+    public synchronized Flags<Smb2LeaseStateFlags> leaseState() {
+        return leaseState;
+    }
+
+    public synchronized int leaseEpoch() {
+        return leaseEpoch;
+    }
+
+    /**
+     * Returns the id of the handle kept open to retain the lease.
+     *
+     * @return file id, null if no handle is kept
+     */
+    public synchronized UUID fileId() {
+        return fileId;
+    }
+
+    /**
+     * Keeps the handle open to retain the lease. Only one handle is kept per leased file.
+     *
+     * @param handleId file id of the handle
+     * @return true if handle is kept, false if there is another handle kept already
+     */
+    public synchronized boolean retainHandle(final UUID handleId) {
+        if (fileId != null) {
+            return false;
+        }
+        fileId = handleId;
+        return true;
+    }
+
+    /**
+     * Releases the handle kept open.
+     *
+     * @return file id of the handle to be closed, null if no handle was kept
+     */
+    public synchronized UUID releaseHandle() {
+        final var released = fileId;
+        fileId = null;
+        return released;
+    }
+
+    /**
+     * Returns the listener to be notified when the lease no longer grants HANDLE caching.
+     *
+     * @return listener, null if not set
+     */
+    public synchronized Runnable breakListener() {
+        return breakListener;
+    }
+
+    public synchronized void setBreakListener(final Runnable breakListener) {
+        this.breakListener = breakListener;
+    }
+
+    public synchronized int breakCount() {
+        return breakCount;
+    }
+
+    public synchronized long lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * Returns cached directory entries if lease grants READ caching.
+     *
+     * @return cached entries, null if there is no data cached or the cache is not valid
+     */
+    public synchronized List<FileInformation> directoryEntries() {
+        if (directoryEntries != null && leaseState.get(Smb2LeaseStateFlags.SMB2_LEASE_READ_CACHING)) {
+            lastAccessTime = System.currentTimeMillis();
+            return directoryEntries;
+        }
+        return null;
+    }
+
+    /**
+     * Caches the directory entries under granted lease state. Data is not cached if lease was broken after
+     * the listing was requested (break count differs from expected) or lease grants no READ caching.
+     *
+     * @param entries directory entries
+     * @param grantedState lease state granted by server
+     * @param epoch lease epoch
+     * @param expectedBreakCount break count captured before the listing was requested
+     * @return true if data is cached, false otherwise
+     */
+    public synchronized boolean cacheDirectoryEntries(final List<FileInformation> entries,
+        final Flags<Smb2LeaseStateFlags> grantedState, final int epoch, final int expectedBreakCount) {
+
+        if (breakCount != expectedBreakCount || !grantedState.get(Smb2LeaseStateFlags.SMB2_LEASE_READ_CACHING)) {
+            return false;
+        }
+        leaseState = grantedState;
+        leaseEpoch = epoch;
+        directoryEntries = entries;
+        lastAccessTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Applies the lease break. Cached data is dropped if READ caching is no longer granted.
+     * Addresses MS-SMB2 (#3.2.5.19.2 Processing a Lease Break Notification).
+     *
+     * @param newState new lease state
+     * @param newEpoch new lease epoch
+     */
+    public synchronized void breakLease(final Flags<Smb2LeaseStateFlags> newState, final int newEpoch) {
+        breakCount++;
+        leaseState = newState;
+        leaseEpoch = newEpoch;
+        if (!newState.get(Smb2LeaseStateFlags.SMB2_LEASE_READ_CACHING)) {
+            directoryEntries = null;
+        }
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.details;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Sequential reader of the file content.
+ */
+public interface FileStreamReader extends AutoCloseable {
+
+    /**
+     * Returns next chunk of the file data in order. Returned buffer is expected to be released by the caller.
+     * End of data is indicated by empty (non-readable) buffer.
+     *
+     * @return future of next data chunk
+     */
+    ListenableFuture<ByteBuf> next();
+
+    /**
+     * Stops reading. Data already fetched but not yet consumed is released.
+     */
+    @Override
+    void close();
+}
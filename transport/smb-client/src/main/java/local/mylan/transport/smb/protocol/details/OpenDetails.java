@@ -21,6 +21,7 @@ import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.fscc.FileAttributeFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2AccessMask;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateOptionsFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
 import local.mylan.transport.smb.protocol.smb2.Smb2ShareAccessFlags;
@@ -34,6 +35,7 @@ public class OpenDetails {
     private Connection connection;
     private Session session;
     private Smb2OpLockLevel opLockLevel;
+    private Smb2CreateLeaseContext lease;
     private boolean durable;
     private String fileName;
     private boolean resilientHandle;
@@ -76,6 +78,62 @@ public class OpenDetails {
         this.opLockLevel = opLockLevel;
     }
 
+    /**
+     * Returns the lease requested on open; after successful open it's replaced with the lease granted.
+     *
+     * @return lease context, null if no lease is requested or granted
+     */
+    public Smb2CreateLeaseContext lease() {
+        return lease;
+    }
+
+    public void setLease(final Smb2CreateLeaseContext lease) {
+        this.lease = lease;
+    }
+
+    /**
+     * Returns true if the open is durable, so it survives the connection loss and can be reclaimed
+     * on reconnect. Addresses MS-SMB2 (#3.2.4.3.6 Requesting a Durable Open).
+     *
+     * @return true if durability is granted by the server
+     */
+    public boolean durable() {
+        return durable;
+    }
+
+    public void setDurable(final boolean durable) {
+        this.durable = durable;
+    }
+
+    public Long durableTimeout() {
+        return durableTimeout;
+    }
+
+    public void setDurableTimeout(final Long durableTimeout) {
+        this.durableTimeout = durableTimeout;
+    }
+
+    /**
+     * Returns the create GUID identifying the durable v2 open request, null if durable v2 open is not requested.
+     *
+     * @return create GUID
+     */
+    public UUID createGuid() {
+        return createGuid;
+    }
+
+    public void setCreateGuid(final UUID createGuid) {
+        this.createGuid = createGuid;
+    }
+
+    public boolean persistent() {
+        return persistent;
+    }
+
+    public void setPersistent(final boolean persistent) {
+        this.persistent = persistent;
+    }
+
     public String fileName() {
         return fileName;
     }
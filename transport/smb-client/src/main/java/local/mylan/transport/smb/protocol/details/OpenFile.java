@@ -16,6 +16,7 @@
 package local.mylan.transport.smb.protocol.details;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.netty.buffer.ByteBuf;
 import java.util.List;
 import local.mylan.transport.smb.protocol.fscc.FileInformation;
 import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
@@ -28,9 +29,71 @@ public interface OpenFile {
 
     ListenableFuture<List<FileInformation>> queryDirectory();
 
+    /**
+     * Enumerates directory entries accumulating them until the end of directory is reached.
+     *
+     * @param searchPattern the search pattern, "*" for all entries
+     * @param fic the file information class defining the entry type
+     * @param maxRead max number of entries to return, non-positive value means no limit
+     * @return future of directory entries
+     */
     ListenableFuture<List<FileInformation>> queryDirectory(String searchPattern, FileInformationClass fic,
         int maxRead);
 
+    /**
+     * Returns page by page directory reader, suitable for large directories when entries are to be processed
+     * (e.g. streamed to remote client) as these arrive. Output buffer size is defined by configuration.
+     *
+     * @param searchPattern the search pattern, "*" for all entries
+     * @param fic the file information class defining the entry type
+     * @return directory reader
+     */
+    DirectoryReader readDirectory(String searchPattern, FileInformationClass fic);
+
+    /**
+     * Reads file data using single READ request. Returned data may be shorter than requested if length exceeds
+     * max read size of the connection or if the end of file is reached.
+     *
+     * @param offset the file offset to read from
+     * @param length the number of bytes to read
+     * @return future of the data buffer, which is expected to be released by the caller
+     */
+    ListenableFuture<ByteBuf> read(long offset, int length);
+
+    /**
+     * Returns pipelined reader of file data, the number of READ requests in flight is defined by configuration.
+     *
+     * @param offset the file offset to read from
+     * @param length the number of bytes to read, negative value means read until the end of file
+     * @return file data reader
+     */
+    FileStreamReader readStream(long offset, long length);
+
+    /**
+     * Returns pipelined reader of file data with explicit number of READ requests in flight.
+     *
+     * <p>Each READ request fetches up to maximum read size negotiated for the connection, the reader keeps up to
+     * {@code windowSize} such requests outstanding (fewer if server granted credits are insufficient). Chunks
+     * returned by {@link FileStreamReader#next()} are owned by the caller and expected to be released once consumed.
+     * Chunks already fetched but not yet consumed are released by the reader on {@link FileStreamReader#close()}.
+     *
+     * @param offset the file offset to read from
+     * @param length the number of bytes to read, negative value means read until the end of file
+     * @param windowSize the max number of concurrent READ requests, values less than 1 are treated as 1
+     * @return file data reader
+     */
+    FileStreamReader readStream(long offset, long length, int windowSize);
+
+    /**
+     * Writes data to the file using pipelined WRITE requests. The data buffer ownership is passed to the file,
+     * it will be released when operation completes.
+     *
+     * @param offset the file offset to write to
+     * @param data the data to be written
+     * @return future of number of bytes written, completes when all the requests were acknowledged by the server
+     */
+    ListenableFuture<Long> write(long offset, ByteBuf data);
+
     ListenableFuture<Void> close();
 
 }
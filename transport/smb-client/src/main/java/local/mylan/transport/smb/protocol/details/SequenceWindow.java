@@ -15,27 +15,91 @@
  */
 package local.mylan.transport.smb.protocol.details;
 
-import java.util.Optional;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * SMB2 Message ID Sequencer. Addresses MS-SMB2 (# 3.2.4.1.6 Algorithm for Handling Available Message
  * Sequence Numbers by the Client).
+ *
+ * <p>Lock-free and allocation free. Message IDs are issued sequentially within the granted ceiling,
+ * a request with credit charge N consumes N sequential IDs (MS-SMB2 #3.2.4.1.5). Credits granted extend
+ * the ceiling regardless of the responses order. IDs issued but not yet responded are tracked with a bitmap
+ * (ring), which allows to detect unexpected responses; the ring size exceeds max credits servers grant.
  */
 public class SequenceWindow {
+    public static final long NO_MESSAGE_ID = -1L;
+
+    private static final int BITMAP_BITS = 1 << 16;
+    private static final VarHandle BITMAP = MethodHandles.arrayElementVarHandle(long[].class);
+
     private final AtomicLong nextMessageId = new AtomicLong(0);
-    private final AtomicLong maxMessageId = new AtomicLong(0);
+    private final AtomicLong ceiling = new AtomicLong(1); // exclusive, one credit is available initially
+    private final long[] outstanding = new long[BITMAP_BITS / Long.SIZE];
+
+    /**
+     * Reserves message IDs for a request.
+     *
+     * @param charge request credit charge, values below 1 are treated as 1
+     * @return first message ID reserved or {@link #NO_MESSAGE_ID} if there are not enough credits
+     */
+    public long nextMessageId(final int charge) {
+        final int credits = Math.max(1, charge);
+        while (true) {
+            final long next = nextMessageId.get();
+            if (next + credits > ceiling.get()) {
+                return NO_MESSAGE_ID;
+            }
+            if (nextMessageId.compareAndSet(next, next + credits)) {
+                for (long id = next; id < next + credits; id++) {
+                    BITMAP.getAndBitwiseOr(outstanding, index(id), mask(id));
+                }
+                return next;
+            }
+        }
+    }
 
-    public synchronized Optional<Long> nextMessageId(final int charged) {
-        if (nextMessageId.get() <= maxMessageId.get()) {
-            return Optional.of(charged >0 ? nextMessageId.getAndAdd(charged) : nextMessageId.getAndIncrement());
+    /**
+     * Releases message IDs on response received.
+     *
+     * @param messageId the response message ID
+     * @param charge the response credit charge, values below 1 are treated as 1
+     * @return true if message ID was issued and not yet released, false otherwise
+     */
+    public boolean complete(final long messageId, final int charge) {
+        if (messageId < 0 || messageId >= nextMessageId.get()) {
+            return false;
         }
-        return Optional.empty();
+        final int credits = Math.max(1, charge);
+        boolean issued = true;
+        for (long id = messageId; id < messageId + credits; id++) {
+            final long prev = (long) BITMAP.getAndBitwiseAnd(outstanding, index(id), ~mask(id));
+            issued &= (prev & mask(id)) != 0;
+        }
+        return issued;
+    }
+
+    public boolean isOutstanding(final long messageId) {
+        return messageId >= 0 && messageId < nextMessageId.get()
+            && ((long) BITMAP.getVolatile(outstanding, index(messageId)) & mask(messageId)) != 0;
+    }
+
+    public long available() {
+        return Math.max(0, ceiling.get() - nextMessageId.get());
     }
 
     public void acceptGranted(final int granted) {
         if (granted > 0) {
-            maxMessageId.addAndGet(granted);
+            ceiling.addAndGet(granted);
         }
     }
+
+    private static int index(final long messageId) {
+        return (int) ((messageId & (BITMAP_BITS - 1)) >>> 6);
+    }
+
+    private static long mask(final long messageId) {
+        return 1L << (messageId & 63);
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.details;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketSigner;
+
+/**
+ * Server side connection details shared by the request processing and the codec.
+ * Addresses MS-SMB2 (#3.3.1.7 Per Transport Connection).
+ *
+ * <p>Request processing sets the dialect negotiated and the signers of sessions established, the codec uses
+ * them to decode the requests, to verify the request signatures and to sign the responses.
+ */
+public class ServerConnectionDetails {
+    private final Map<Long, Smb2PacketSigner> packetSigners = new ConcurrentHashMap<>();
+    private volatile Smb2Dialect dialect;
+
+    public Smb2Dialect dialect() {
+        return dialect;
+    }
+
+    public void setDialect(final Smb2Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    public Map<Long, Smb2PacketSigner> packetSigners() {
+        return packetSigners;
+    }
+}
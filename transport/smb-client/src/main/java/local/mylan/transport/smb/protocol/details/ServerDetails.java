@@ -15,11 +15,16 @@
  */
 package local.mylan.transport.smb.protocol.details;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.net.SocketAddress;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Dialect;
 import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
@@ -42,6 +47,8 @@ public class ServerDetails {
 
     // Non-spec
     private List<ShareDetails> shares;
+    private ListenableFuture<List<String>> shareNamesFetch;
+    private long shareNamesExpiry;
 
     public UUID serverGuid() {
         return serverGuid;
@@ -118,4 +125,39 @@ public class ServerDetails {
     public void setShares(final List<ShareDetails> shares) {
         this.shares = shares;
     }
+
+    /**
+     * Returns share names of the server. The names fetched are cached for the given time, concurrent requests
+     * share the single fetch in progress (forced one too), so no duplicate RPC calls are issued.
+     *
+     * @param forceFetch true if cached names are to be refreshed
+     * @param ttlMillis time the fetched names remain valid
+     * @param fetcher share names loader
+     * @return future of share names
+     */
+    public synchronized ListenableFuture<List<String>> shareNames(final boolean forceFetch, final long ttlMillis,
+        final Supplier<ListenableFuture<List<String>>> fetcher) {
+
+        final var current = shareNamesFetch;
+        if (current != null && (!current.isDone() || !forceFetch && System.nanoTime() - shareNamesExpiry < 0)) {
+            return Futures.nonCancellationPropagating(current);
+        }
+        final var fetch = fetcher.get();
+        shareNamesFetch = fetch;
+        fetch.addListener(() -> onShareNamesFetched(fetch, ttlMillis), MoreExecutors.directExecutor());
+        return Futures.nonCancellationPropagating(fetch);
+    }
+
+    private synchronized void onShareNamesFetched(final ListenableFuture<List<String>> fetch, final long ttlMillis) {
+        if (shareNamesFetch != fetch) {
+            return;
+        }
+        try {
+            shares = Futures.getDone(fetch).stream().map(ShareDetails::new).toList();
+            shareNamesExpiry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        } catch (Exception e) {
+            // failure is not cached, next request fetches again
+            shareNamesFetch = null;
+        }
+    }
 }
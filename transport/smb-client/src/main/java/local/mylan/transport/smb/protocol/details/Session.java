@@ -17,6 +17,7 @@ package local.mylan.transport.smb.protocol.details;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import java.util.List;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
 import local.mylan.transport.smb.protocol.srvs.SrvsShareInfo;
 
 public interface Session {
@@ -29,5 +30,7 @@ public interface Session {
 
     ListenableFuture<List<String>> shareNames(boolean forceFetch);
 
+    ListenableFuture<List<Smb2NetworkInterfaceInfo>> queryNetworkInterfaces();
+
     ListenableFuture<TreeConnect> getOrConnectTree(String name);
 }
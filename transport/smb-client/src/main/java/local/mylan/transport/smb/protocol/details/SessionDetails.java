@@ -15,9 +15,10 @@
  */
 package local.mylan.transport.smb.protocol.details;
 
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Client Session Details. Addresses MS-SMB2 (#3.2.1.3 Per Session).
@@ -36,7 +37,7 @@ public class SessionDetails {
     private boolean guest;
 
     //SMB 3.x +
-    private Set<ChannelDetails> channels;
+    private final List<ChannelDetails> channels = new CopyOnWriteArrayList<>();
     private String channelSequence;
     private boolean encryptData;
     private byte[] encryptionKey;
@@ -71,6 +72,10 @@ public class SessionDetails {
         return treeConnects;
     }
 
+    public List<ChannelDetails> channels() {
+        return channels;
+    }
+
     public byte[] sessionKey() {
         return sessionKey;
     }
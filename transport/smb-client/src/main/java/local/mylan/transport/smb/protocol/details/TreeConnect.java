@@ -16,6 +16,10 @@
 package local.mylan.transport.smb.protocol.details;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import java.util.List;
+import java.util.function.Consumer;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
 
 /**
  * Tree Connect Details. Addresses MS_SMB2 (3.2.1.4 Per Tree Connect).
@@ -26,6 +30,46 @@ public interface TreeConnect {
 
     ListenableFuture<OpenFile> openFile(String path);
 
+    /**
+     * Opens a file using custom open parameters (desired access, share access, create disposition etc).
+     * Parameters omitted are set with default values.
+     *
+     * @param openDetails open parameters, file name is mandatory
+     * @return future of open file
+     */
+    ListenableFuture<OpenFile> openFile(OpenDetails openDetails);
+
+    /**
+     * Lists directory entries. Small directories are listed within single round trip (compounded requests),
+     * larger ones are enumerated using regular open, query directory and close sequence.
+     *
+     * @param path directory path relative to share root, empty for the root
+     * @return future of directory entries
+     */
+    ListenableFuture<List<FileInformation>> listDirectory(String path);
+
+    /**
+     * Returns file (directory) information taken from the parent directory listing. If the directory leasing
+     * is supported the listing is cached until the lease is broken, so repeated calls require no round trip.
+     *
+     * @param path file path relative to share root
+     * @return future of file information, null if file is not found
+     */
+    ListenableFuture<FileInformation> fileInformation(String path);
+
+    /**
+     * Starts watching the directory for changes (file or subdirectory being added, removed, renamed or modified).
+     * Listener is invoked with the list of changes reported, or with null if the server failed to track
+     * the changes (too many of them), so the directory content is expected to be re-read.
+     *
+     * @param path directory path relative to share root, empty for the root
+     * @param watchTree true if changes within subdirectories are also to be reported
+     * @param listener the change listener, invoked on I/O thread
+     * @return future of directory watch, completes when the directory is open and the first CHANGE_NOTIFY is sent
+     */
+    ListenableFuture<DirectoryWatch> watchDirectory(String path, boolean watchTree,
+        Consumer<List<FileNotifyInformation>> listener);
+
     ListenableFuture<Void> disconnect();
 
 }
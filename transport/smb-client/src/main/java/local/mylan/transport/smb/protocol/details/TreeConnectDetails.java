@@ -42,6 +42,7 @@ public class TreeConnectDetails {
     // non-spec
     private Smb2ShareType shareType;
     private final Map<String, OpenFile> opens = new ConcurrentHashMap<>();
+    private final Map<String, FileDetails> leasedFiles = new ConcurrentHashMap<>();
 
     public Integer treeConnectId() {
         return treeConnectId;
@@ -126,4 +127,13 @@ public class TreeConnectDetails {
     public Map<String, OpenFile> opens() {
         return opens;
     }
+
+    /**
+     * Returns leased files (directories) of the tree connect, indexed by name.
+     *
+     * @return leased files
+     */
+    public Map<String, FileDetails> leasedFiles() {
+        return leasedFiles;
+    }
 }
@@ -15,6 +15,8 @@
  */
 package local.mylan.transport.smb.protocol.details;
 
+import local.mylan.transport.smb.SecurityUtils;
+
 public interface UserCredentials {
 
     String username();
@@ -29,6 +31,38 @@ public interface UserCredentials {
         return new PlaintextUserCredentials(username, password);
     }
 
+    /**
+     * Returns credentials holding NT one-way function keys instead of the password. Keys are derived once,
+     * so the repeated session setups (validations, reconnects) skip the derivation. Empty password is kept
+     * as is, it's treated as anonymous (guest) access.
+     *
+     * @param username user name
+     * @param domain domain name, may be null
+     * @param password plaintext password
+     * @return user credentials
+     */
+    static UserCredentials hashed(final String username, final String domain, final String password) {
+        if (password == null || password.isEmpty()) {
+            return new PlaintextUserCredentials(username, password);
+        }
+        final var ntOwfV1 = SecurityUtils.ntOwfV1(password);
+        return new HashedUserCredentials(username, domain, ntOwfV1,
+            SecurityUtils.ntOwfV2(ntOwfV1, username, domain));
+    }
+
     record PlaintextUserCredentials(String username, String password) implements UserCredentials {
     }
+
+    /**
+     * Credentials with precomputed NTOWFv1 and NTOWFv2 keys. Addresses MS-NLMP (#3.3.1 NTLM v1 Authentication,
+     * #3.3.2 NTLM v2 Authentication). LM responses require the password, so these are not supported.
+     */
+    record HashedUserCredentials(String username, String domain, byte[] ntOwfV1, byte[] ntOwfV2)
+        implements UserCredentials {
+
+        @Override
+        public String password() {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+
+/**
+ * Base flow for related operations executed within single round trip (e.g. CREATE + QUERY_DIRECTORY + CLOSE).
+ * Responses are collected in order of requests and processed together once all of them are received.
+ * Addresses MS-SMB2 (#3.2.4.1.4 Sending Compounded Requests, #3.2.5.1.9 Handling Compounded Responses).
+ */
+abstract class AbstractCompoundFlow<T> extends AbstractClientFlow<T> {
+
+    private List<Smb2Request> requests;
+    private Smb2Response[] responses;
+    private int received;
+
+    protected AbstractCompoundFlow(final RequestSender requestSender) {
+        super(requestSender);
+    }
+
+    @Override
+    protected final Smb2Request initialRequest() {
+        final var compound = Smb2CompoundRequest.related(compoundRequests());
+        requests = compound.requests();
+        responses = new Smb2Response[requests.size()];
+        return compound;
+    }
+
+    /**
+     * Builds requests to be compounded. Requests following the CREATE one are expected to refer the file
+     * using {@link Smb2CompoundRequest#RELATED_FILE_ID}.
+     *
+     * @return requests in order of execution
+     */
+    protected abstract List<Smb2Request> compoundRequests();
+
+    /**
+     * Processes compounded responses.
+     *
+     * @param compoundResponses responses in order of requests
+     * @throws SmbException if responses indicate the operation failure
+     */
+    protected abstract void handleResponses(List<Smb2Response> compoundResponses);
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        if (completeFuture.isDone()) {
+            return;
+        }
+        try {
+            if (response instanceof Smb2ErrorResponse) {
+                // compound wasn't sent (e.g. expired awaiting credits)
+                throw new SmbException("Compound request failed with status " + response.header().status());
+            }
+            final var index = indexOf(response);
+            if (index < 0) {
+                throw new SmbException("Unexpected compound response " + response);
+            }
+            if (responses[index] == null) {
+                responses[index] = response;
+                received++;
+            }
+            if (received == responses.length) {
+                handleResponses(Arrays.asList(responses));
+            }
+        } catch (SmbException e) {
+            completeFuture.setException(e);
+        }
+    }
+
+    private int indexOf(final Smb2Response response) {
+        final var header = response.header();
+        for (int i = 0; i < requests.size(); i++) {
+            final var reqHeader = requests.get(i).header();
+            if (reqHeader.messageId() == header.messageId() && reqHeader.command() == header.command()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompletionFilterFlags;
+
+/**
+ * Single CHANGE_NOTIFY request flow. Addresses MS-SMB2 (#3.2.4.18 Application Requests Change Notifications
+ * for a Directory).
+ *
+ * <p>Server responds when a change occurs, so the request normally remains pending (handled asynchronously)
+ * for a long time. Flow completes with list of changes or with null if the changes were not tracked
+ * (too many changes to fit the output buffer), so the directory is expected to be enumerated again.
+ * Flow fails with {@link SmbException} if the handle was closed or the request was cancelled.
+ */
+public class ClientChangeNotifyFlow extends AbstractClientFlow<List<FileNotifyInformation>> {
+
+    final UUID fileId;
+    final Flags<Smb2CompletionFilterFlags> completionFilter;
+    final boolean watchTree;
+    final int outputBufferLength;
+
+    public ClientChangeNotifyFlow(final RequestSender requestSender, final UUID fileId,
+        final Flags<Smb2CompletionFilterFlags> completionFilter, final boolean watchTree,
+        final int outputBufferLength) {
+
+        super(requestSender);
+        this.fileId = requireNonNull(fileId);
+        this.completionFilter = requireNonNull(completionFilter);
+        this.watchTree = watchTree;
+        this.outputBufferLength = outputBufferLength;
+    }
+
+    @Override
+    protected Smb2Request initialRequest() {
+        final var request = new Smb2ChangeNotifyRequest();
+        request.setFileId(fileId);
+        request.setFlags(new Flags<Smb2ChangeNotifyFlags>().set(Smb2ChangeNotifyFlags.SMB2_WATCH_TREE, watchTree));
+        request.setCompletionFilter(completionFilter);
+        request.setOutputBufferLength(outputBufferLength);
+        request.header().setCreditCharge(ClientReadFlow.creditCharge(outputBufferLength));
+        return request;
+    }
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        try {
+            final var status = response.header().status();
+            switch (status) {
+                case STATUS_SUCCESS -> {
+                    if (response instanceof Smb2ChangeNotifyResponse notify) {
+                        completeFuture.set(notify.changes());
+                        return;
+                    }
+                    throw new SmbException("Unexpected ChangeNotify response" + response);
+                }
+                // MS-SMB2 (#3.3.4.4 Sending an Error Response) buffer overflow is reported as notify enum dir
+                case STATUS_NOTIFY_ENUM_DIR -> completeFuture.set(null);
+                default -> throw new SmbException("ChangeNotify failed with status " + status);
+            }
+        } catch (SmbException e) {
+            completeFuture.setException(e);
+        }
+    }
+}
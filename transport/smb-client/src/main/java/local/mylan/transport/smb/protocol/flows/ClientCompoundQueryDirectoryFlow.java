@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.OpenDetails;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+
+/**
+ * Lists directory within single round trip using compounded CREATE + QUERY_DIRECTORY x2 + CLOSE requests.
+ * Second QUERY_DIRECTORY confirms there are no more entries; if it returns entries the listing is incomplete
+ * and the flow completes with {@code null}, so the caller is expected to fall back to regular enumeration.
+ * Addresses MS-SMB2 (#3.2.4.1.4 Sending Compounded Requests, #3.2.4.17 Application Requests Enumerating
+ * a Directory).
+ *
+ * <p>If the handle is requested to be kept open (e.g. to retain the directory lease), CLOSE is omitted and
+ * the file id and the lease granted are set into open details; incomplete listing is continued using the
+ * handle. The caller is responsible for closing the handle, also when the flow fails.
+ */
+public class ClientCompoundQueryDirectoryFlow extends AbstractCompoundFlow<List<FileInformation>> {
+    private final OpenDetails openDetails;
+    private final FileInformationClass fic;
+    private final String searchPattern;
+    private final int outputBufferLength;
+    private final boolean keepOpen;
+
+    public ClientCompoundQueryDirectoryFlow(final RequestSender requestSender, final OpenDetails openDetails,
+        final FileInformationClass fic, final String searchPattern, final int outputBufferLength) {
+        this(requestSender, openDetails, fic, searchPattern, outputBufferLength, false);
+    }
+
+    public ClientCompoundQueryDirectoryFlow(final RequestSender requestSender, final OpenDetails openDetails,
+        final FileInformationClass fic, final String searchPattern, final int outputBufferLength,
+        final boolean keepOpen) {
+
+        super(requestSender);
+        this.openDetails = requireNonNull(openDetails);
+        this.fic = requireNonNull(fic);
+        this.searchPattern = requireNonNull(searchPattern);
+        this.outputBufferLength = outputBufferLength;
+        this.keepOpen = keepOpen;
+    }
+
+    /**
+     * Output buffer length for each QUERY_DIRECTORY request as configured, limited by server max transact size
+     * and by single credit payload if multi-credit requests are not supported.
+     *
+     * @param connDetails connection details
+     * @return output buffer length
+     */
+    public static int outputBufferLength(final ConnectionDetails connDetails) {
+        final var limit = connDetails.supportsMultiCredit()
+            ? connDetails.queryDirectoryBufferSize() : Math.min(connDetails.queryDirectoryBufferSize(), 65536);
+        return connDetails.maxTransactSize() > 0 ? Math.min(limit, connDetails.maxTransactSize()) : limit;
+    }
+
+    @Override
+    protected List<Smb2Request> compoundRequests() {
+        final var fileId = Smb2CompoundRequest.RELATED_FILE_ID;
+        final var create = ClientOpenCreateFlow.createRequest(openDetails);
+        final var query = ClientQueryDirectoryFlow.queryDirRequest(fileId, fic, searchPattern, outputBufferLength);
+        final var queryNext = ClientQueryDirectoryFlow.queryDirRequest(fileId, fic, searchPattern,
+            outputBufferLength);
+        return keepOpen ? List.of(create, query, queryNext)
+            : List.of(create, query, queryNext, ClientOpenCloseFlow.closeRequest(fileId));
+    }
+
+    @Override
+    protected void handleResponses(final List<Smb2Response> compoundResponses) {
+        final var createStatus = compoundResponses.getFirst().header().status();
+        if (createStatus != SmbError.STATUS_SUCCESS) {
+            throw new SmbException("Create failed with status " + createStatus);
+        }
+        if (keepOpen && compoundResponses.getFirst() instanceof Smb2CreateResponse create) {
+            openDetails.setFileId(create.fileId());
+            openDetails.setLease(ClientOpenCreateFlow.grantedLease(create));
+        }
+        final var result = new ArrayList<FileInformation>();
+        boolean complete = false;
+        try {
+            for (var response : compoundResponses.subList(1, 3)) {
+                if (!(response instanceof Smb2QueryDirectoryResponse dir)) {
+                    throw new SmbException("Unexpected QueryDirectory response" + response);
+                }
+                final var status = dir.header().status();
+                switch (status) {
+                    case STATUS_SUCCESS -> result.addAll(ClientQueryDirectoryFlow.decodeEntries(dir, fic));
+                    case STATUS_NO_MORE_FILES -> complete = true;
+                    default -> throw new SmbException("QueryDirectory failed with status " + status);
+                }
+            }
+        } finally {
+            // data of responses not reached (or not decoded due to error) is released here
+            compoundResponses.subList(1, 3).forEach(ClientQueryDirectoryFlow::releaseData);
+        }
+        if (complete) {
+            completeFuture.set(List.copyOf(result));
+        } else if (keepOpen) {
+            // continue enumeration using the handle kept open
+            final var flow = new ClientQueryDirectoryFlow(requestSender, openDetails.fileId(), fic, searchPattern, -1,
+                outputBufferLength);
+            flow.start();
+            completeFuture.setFuture(Futures.transform(flow.completeFuture(), remaining -> {
+                result.addAll(remaining);
+                return List.copyOf(result);
+            }, MoreExecutors.directExecutor()));
+        } else {
+            completeFuture.set(null);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ClientDetails;
+import local.mylan.transport.smb.protocol.details.FileDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakAcknowledgment;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakNotification;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseStateFlags;
+
+/**
+ * Lease break flow. Addresses MS-SMB2 (#3.2.5.19.2 Processing a Lease Break Notification).
+ *
+ * <p>The lease state of the leased file is updated, so the data cached under the lease is invalidated
+ * immediately. If HANDLE caching is no longer granted the handle kept open is closed and the leased file
+ * is removed from the client tables. The acknowledgment is sent if required by the server.
+ */
+public class ClientLeaseBreakFlow extends AbstractClientFlow<Void> {
+
+    private final ClientDetails clientDetails;
+    private final Smb2LeaseBreakNotification notification;
+    private FileDetails file;
+
+    public ClientLeaseBreakFlow(final ClientDetails clientDetails, final Smb2LeaseBreakNotification notification,
+        final RequestSender requestSender) {
+        super(requestSender);
+        this.clientDetails = requireNonNull(clientDetails);
+        this.notification = requireNonNull(notification);
+    }
+
+    @Override
+    public void start() {
+        file = clientDetails.globalFiles().get(notification.leaseKey());
+        if (file == null) {
+            // lease is released already
+            completeFuture.set(null);
+            return;
+        }
+        final var newState = notification.newLeaseState();
+        file.breakLease(newState, notification.newEpoch());
+        if (!newState.get(Smb2LeaseStateFlags.SMB2_LEASE_HANDLE_CACHING)) {
+            // lease is released by server when the handle is closed, so is the data cached
+            clientDetails.globalFiles().remove(file.leaseKey(), file);
+            file.treeConnect().details().leasedFiles().remove(file.fileName(), file);
+            if (file.breakListener() != null) {
+                // handle cache entry is no longer reusable
+                file.breakListener().run();
+            }
+        }
+        if (notification.flags() != null
+            && notification.flags().get(Smb2LeaseBreakFlags.SMB2_NOTIFY_BREAK_LEASE_FLAG_ACK_REQUIRED)) {
+            sendRequest(initialRequest());
+        } else {
+            releaseHandle();
+        }
+    }
+
+    @Override
+    protected Smb2Request initialRequest() {
+        final var ack = new Smb2LeaseBreakAcknowledgment();
+        ack.setLeaseKey(notification.leaseKey());
+        ack.setLeaseState(notification.newLeaseState());
+        return ack;
+    }
+
+    @Override
+    protected void sendRequest(final Smb2Request request) {
+        treeSender().send(request, this::handleResponse);
+    }
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        try {
+            if (response instanceof Smb2LeaseBreakResponse || response.header().status() != SmbError.STATUS_SUCCESS) {
+                // handle is released anyway, lease is broken by server on ack failure
+                releaseHandle();
+                return;
+            }
+            throw new SmbException("Unexpected LeaseBreak response" + response);
+
+        } catch (SmbException e) {
+            completeFuture.setException(e);
+        }
+    }
+
+    private void releaseHandle() {
+        final var fileId = file.leaseState().get(Smb2LeaseStateFlags.SMB2_LEASE_HANDLE_CACHING)
+            ? null : file.releaseHandle();
+        if (fileId == null) {
+            completeFuture.set(null);
+            return;
+        }
+        final var closeFlow = new ClientOpenCloseFlow(fileId, treeSender());
+        closeFlow.start();
+        completeFuture.setFuture(closeFlow.completeFuture());
+    }
+
+    /**
+     * Returns the sender of requests within the tree connect the leased file was opened over, the notification
+     * itself is not bound to any session.
+     */
+    private RequestSender treeSender() {
+        final var treeDetails = file.treeConnect().details();
+        final var sessionId = treeDetails.session().details().sessionId();
+        final var treeId = treeDetails.treeConnectId();
+        return (final Smb2Request request, final Consumer<Smb2Response> callback) -> {
+            request.header().setSessionId(sessionId);
+            request.header().setTreeId(treeId);
+            requestSender.send(request, callback);
+        };
+    }
+}
@@ -51,6 +51,8 @@ public class ClientLogoffFlow extends AbstractClientFlow<Void> {
 
                 connDetails.sessions().remove(sessionId);
                 connDetails.preauthSessions().remove(sessionId);
+                connDetails.packetSigners().remove(sessionId);
+                connDetails.packetCiphers().remove(sessionId);
                 completeFuture.set(null);
                 return;
 
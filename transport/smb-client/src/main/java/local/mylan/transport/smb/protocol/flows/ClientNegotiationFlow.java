@@ -15,17 +15,33 @@
  */
 package local.mylan.transport.smb.protocol.flows;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nonnull;
+import local.mylan.transport.smb.SecurityUtils;
 import local.mylan.transport.smb.exceptions.SmbNegotiationException;
 import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketCompressor;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
 import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.details.ClientDetails;
 import local.mylan.transport.smb.protocol.details.ConnectionDetails;
 import local.mylan.transport.smb.protocol.details.ServerDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionCapabilities;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCapabilities;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCipher;
+import local.mylan.transport.smb.protocol.smb2.Smb2HashAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateContext;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2PreauthIntegrityCapabilities;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningAlgorithm;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningCapabilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,9 +49,18 @@ public class ClientNegotiationFlow extends AbstractClientFlow<Void> {
 
     private static final Logger LOG = LoggerFactory.getLogger(ClientNegotiationFlow.class);
     private static final int SIZE_THRESHOLD = 65535;
+    private static final int SALT_LENGTH = 32;
+    private static final int HASH_LENGTH = 64;
+    private static final List<Smb2EncryptionCipher> CIPHERS = List.of(Smb2EncryptionCipher.AES_128_GCM,
+        Smb2EncryptionCipher.AES_256_GCM, Smb2EncryptionCipher.AES_128_CCM, Smb2EncryptionCipher.AES_256_CCM);
+    private static final List<Smb2CompressionAlgorithm> COMPRESSION_ALGORITHMS =
+        List.of(Smb2CompressionAlgorithm.LZ77, Smb2CompressionAlgorithm.LZ77_HUFFMAN);
+    private static final List<Smb2SigningAlgorithm> SIGNING_ALGORITHMS =
+        List.of(Smb2SigningAlgorithm.AES_GMAC, Smb2SigningAlgorithm.AES_CMAC, Smb2SigningAlgorithm.HMAC_SHA256);
 
     private final ClientDetails clientDetails;
     private final ConnectionDetails connDetails;
+    private Smb2NegotiateRequest request;
 
     public ClientNegotiationFlow(final ClientDetails clientDetails, final ConnectionDetails connDetails,
         final RequestSender requestSender) {
@@ -49,14 +74,37 @@ public class ClientNegotiationFlow extends AbstractClientFlow<Void> {
     protected Smb2Request initialRequest() {
         final var dialects = Smb2Dialect.negotiateDialects(clientDetails.minDialect(), clientDetails.maxDialect());
         connDetails.setOfferedDialects(dialects);
-        final var request = new Smb2NegotiateRequest();
+        request = new Smb2NegotiateRequest();
         request.setDialects(dialects);
         request.setSecurityMode(connDetails.clientSecurityMode());
         request.setCapabilities(connDetails.clientCapabilities());
         request.setClientGuid(connDetails.clientGuid());
+        if (dialects.contains(Smb2Dialect.SMB3_1_1)) {
+            final var negCtxs = new ArrayList<Smb2NegotiateContext>();
+            negCtxs.add(new Smb2PreauthIntegrityCapabilities(List.of(Smb2HashAlgorithm.SHA_512),
+                SecurityUtils.nonce(SALT_LENGTH)));
+            if (clientDetails.encryptionSupported()) {
+                negCtxs.add(new Smb2EncryptionCapabilities(CIPHERS));
+            }
+            if (clientDetails.compressionSupported()) {
+                negCtxs.add(compressionCapabilities());
+            }
+            negCtxs.add(new Smb2SigningCapabilities(SIGNING_ALGORITHMS));
+            request.setNegotiateContexts(List.copyOf(negCtxs));
+        }
         return request;
     }
 
+    private Smb2CompressionCapabilities compressionCapabilities() {
+        // Pattern_V1 is only valid within chained compression
+        final var chained = clientDetails.chainedCompressionSupported();
+        final var algorithms = new ArrayList<>(COMPRESSION_ALGORITHMS);
+        if (chained) {
+            algorithms.add(Smb2CompressionAlgorithm.PATTERN_V1);
+        }
+        return new Smb2CompressionCapabilities(List.copyOf(algorithms), chained);
+    }
+
     @Override
     public void handleResponse(@Nonnull final Smb2Response response) {
         try {
@@ -101,6 +149,81 @@ public class ClientNegotiationFlow extends AbstractClientFlow<Void> {
         server.setSecurityMode(response.securityMode());
         server.setCapabilities(response.capabilities());
         connDetails.setServer(server);
+        if (response.dialectRevision() == Smb2Dialect.SMB3_1_1) {
+            processNegotiateContexts(response);
+        } else if (response.dialectRevision().equalsOrHigher(Smb2Dialect.SMB3_0)
+            && clientDetails.encryptionSupported()
+            && response.capabilities().get(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_ENCRYPTION)) {
+            // the only cipher of SMB 3.0.x
+            server.setCipherId(Smb2EncryptionCipher.AES_128_CCM.id());
+        }
         completeFuture.set(null);
     }
+
+    /*
+     * Addresses MS-SMB2 3.2.5.2 Receiving an SMB2 NEGOTIATE Response (SMB 3.1.1 negotiate contexts)
+     * */
+    private void processNegotiateContexts(final Smb2NegotiateResponse response) {
+        final var negCtxs = response.negotiateContexts() == null
+            ? List.<Smb2NegotiateContext>of() : response.negotiateContexts();
+        final var preauth = negCtxs.stream()
+            .filter(Smb2PreauthIntegrityCapabilities.class::isInstance)
+            .map(Smb2PreauthIntegrityCapabilities.class::cast)
+            .findFirst()
+            .orElseThrow(() -> new SmbNegotiationException("Preauth integrity context is missing in response"));
+        if (preauth.hashAlgorithms().size() != 1 || preauth.hashAlgorithms().getFirst() != Smb2HashAlgorithm.SHA_512) {
+            throw new SmbNegotiationException("Unexpected preauth integrity hash algorithms "
+                + preauth.hashAlgorithms());
+        }
+        connDetails.setPreauthIntegrityHashId(Smb2HashAlgorithm.SHA_512.id());
+        // hash chain starts with zeros: H(H(0 || NegotiateRequest) || NegotiateResponse)
+        connDetails.setPreauthIntegrityHashValue(SecurityUtils.sha512(
+            SecurityUtils.sha512(new byte[HASH_LENGTH], requireNonNull(request.messageBytes())),
+            requireNonNull(response.messageBytes())));
+
+        // cipher is selected by server out of offered ones, none if there is no common one
+        negCtxs.stream()
+            .filter(Smb2EncryptionCapabilities.class::isInstance)
+            .map(Smb2EncryptionCapabilities.class::cast)
+            .flatMap(encryption -> encryption.ciphers().stream())
+            .filter(CIPHERS::contains)
+            .findFirst()
+            .ifPresent(cipher -> connDetails.server().setCipherId(cipher.id()));
+
+        // AES-CMAC is used if signing algorithm is not negotiated
+        final var signingAlgorithm = negCtxs.stream()
+            .filter(Smb2SigningCapabilities.class::isInstance)
+            .map(Smb2SigningCapabilities.class::cast)
+            .flatMap(signing -> signing.signingAlgorithms().stream())
+            .filter(SIGNING_ALGORITHMS::contains)
+            .findFirst().orElse(Smb2SigningAlgorithm.AES_CMAC);
+        connDetails.setSigningAlgorithmId(signingAlgorithm.id());
+        connDetails.server().setSigningAlgorithmId(signingAlgorithm.id());
+
+        negCtxs.stream()
+            .filter(Smb2CompressionCapabilities.class::isInstance)
+            .map(Smb2CompressionCapabilities.class::cast)
+            .findFirst()
+            .ifPresent(this::processCompressionCapabilities);
+    }
+
+    private void processCompressionCapabilities(final Smb2CompressionCapabilities compression) {
+        final var algorithms = compression.compressionAlgorithms().stream()
+            .filter(algorithm -> algorithm != Smb2CompressionAlgorithm.NONE)
+            .toList();
+        if (algorithms.isEmpty()) {
+            // no common algorithm
+            return;
+        }
+        final var chained = compression.chained() && clientDetails.chainedCompressionSupported();
+        connDetails.setCompressionIds(algorithms.stream().map(Smb2CompressionAlgorithm::id).toList());
+        connDetails.setSupportsChainedCompression(chained);
+        // first of algorithms returned is used for outbound messages, all of them are accepted inbound
+        final var algorithm = algorithms.stream().filter(COMPRESSION_ALGORITHMS::contains).findFirst().orElse(null);
+        final var patternV1 = chained && algorithms.contains(Smb2CompressionAlgorithm.PATTERN_V1);
+        if (algorithm != null || patternV1) {
+            connDetails.setPacketCompressor(new Smb2PacketCompressor(algorithm, chained, patternV1,
+                clientDetails.isCompressAllRequests(), connDetails.compressionThreshold()));
+        }
+    }
 }
@@ -17,6 +17,7 @@ package local.mylan.transport.smb.protocol.flows;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.UUID;
 import local.mylan.transport.smb.exceptions.SmbException;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Request;
@@ -28,6 +29,7 @@ import local.mylan.transport.smb.protocol.smb2.Smb2CloseResponse;
 
 public class ClientOpenCloseFlow extends AbstractClientFlow<Void> {
 
+    final UUID fileId;
     final OpenDetails openDetails;
     final TreeConnectDetails treeConnectDetails;
 
@@ -36,13 +38,31 @@ public class ClientOpenCloseFlow extends AbstractClientFlow<Void> {
         this.openDetails = requireNonNull(openDetails);
         requireNonNull(openDetails.treeConnect());
         treeConnectDetails = requireNonNull(openDetails.treeConnect().details());
+        fileId = openDetails.fileId();
+    }
+
+    /**
+     * Closes the handle not registered as tree connect open (e.g. one kept open to retain a lease).
+     *
+     * @param fileId file id
+     * @param requestSender request sender
+     */
+    public ClientOpenCloseFlow(final UUID fileId, final RequestSender requestSender) {
+        super(requestSender);
+        this.fileId = requireNonNull(fileId);
+        openDetails = null;
+        treeConnectDetails = null;
     }
 
     @Override
     protected Smb2Request initialRequest() {
+        return closeRequest(fileId);
+    }
+
+    static Smb2CloseRequest closeRequest(final UUID fileId) {
         final var close = new Smb2CloseRequest();
         close.setFlags(new Flags<>());
-        close.setFileId(openDetails.fileId());
+        close.setFileId(fileId);
         return close;
     }
 
@@ -50,7 +70,9 @@ public class ClientOpenCloseFlow extends AbstractClientFlow<Void> {
     public void handleResponse(final Smb2Response response) {
         try {
             if (response instanceof Smb2CloseResponse) {
-                treeConnectDetails.opens().remove(openDetails.fileName());
+                if (openDetails != null) {
+                    treeConnectDetails.opens().remove(openDetails.fileName());
+                }
                 completeFuture.set(null);
                 return;
             }
@@ -17,34 +17,58 @@ package local.mylan.transport.smb.protocol.flows;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import javax.annotation.Nonnull;
 import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.details.OpenDetails;
 import local.mylan.transport.smb.protocol.details.OpenFile;
 import local.mylan.transport.smb.protocol.details.TreeConnectDetails;
-import local.mylan.transport.smb.protocol.smb2.Smb2CreateAction;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDurableHandleReconnectV2Context;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDurableHandleV2Context;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2CreateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2DurableHandleFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2ImpersonationLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
 
 public class ClientOpenCreateFlow extends AbstractClientFlow<OpenFile> {
     private final OpenFile open;
     private final OpenDetails openDetails;
     private final TreeConnectDetails treeConnectDetails;
+    private final boolean reconnect;
 
+    /**
+     * Constructor. If the open details provided refer to the durable open already established (file id
+     * is set), the open is re-established. Addresses MS-SMB2 (#3.2.4.4 Re-establishing a Durable Open).
+     *
+     * @param open the file to be open
+     * @param requestSender request sender
+     */
     public ClientOpenCreateFlow(final OpenFile open, final RequestSender requestSender) {
         super(requestSender);
         this.open = requireNonNull(open);
         openDetails = requireNonNull(open.details());
         requireNonNull(openDetails.treeConnect());
         treeConnectDetails = requireNonNull(openDetails.treeConnect().details());
+        reconnect = isReconnect(openDetails);
+    }
+
+    private static boolean isReconnect(final OpenDetails details) {
+        return details.durable() && details.createGuid() != null && details.fileId() != null;
     }
 
     @Override
     protected Smb2Request initialRequest() {
-        final var details = open.details();
+        return createRequest(open.details());
+    }
+
+    static Smb2CreateRequest createRequest(final OpenDetails details) {
         final var name = ".".equals(details.fileName()) ? "" : details.fileName();
         final var create = new Smb2CreateRequest();
         create.setName(name);
@@ -55,17 +79,86 @@ public class ClientOpenCreateFlow extends AbstractClientFlow<OpenFile> {
         create.setImpersonationLevel(Smb2ImpersonationLevel.Impersonation);
         create.setCreateDisposition(details.createDisposition());
         create.setOpLockLevel(details.opLockLevel());
+        final var contexts = new ArrayList<Smb2CreateContext>(2);
+        if (details.lease() != null) {
+            // MS-SMB2 (#3.2.4.3.8 Requesting a Lease on a File or a Directory)
+            create.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_LEASE);
+            contexts.add(details.lease());
+        }
+        if (isReconnect(details)) {
+            // MS-SMB2 (#3.2.4.4 Re-establishing a Durable Open)
+            final var durable = new Smb2CreateDurableHandleReconnectV2Context();
+            durable.setFileId(details.fileId());
+            durable.setCreateGuid(details.createGuid());
+            durable.setFlags(new Flags<Smb2DurableHandleFlags>()
+                .set(Smb2DurableHandleFlags.SMB2_DHANDLE_FLAG_PERSISTENT, details.persistent()));
+            contexts.add(durable);
+        } else if (details.createGuid() != null) {
+            // MS-SMB2 (#3.2.4.3.6 Requesting a Durable Open)
+            final var durable = new Smb2CreateDurableHandleV2Context();
+            durable.setTimeout(details.durableTimeout() == null ? 0 : details.durableTimeout().intValue());
+            durable.setFlags(new Flags<>());
+            durable.setCreateGuid(details.createGuid());
+            contexts.add(durable);
+        }
+        if (!contexts.isEmpty()) {
+            create.setCreateContexts(contexts);
+        }
         return create;
     }
 
+    /**
+     * Returns the durable handle context granted. Addresses MS-SMB2 (#3.2.5.5 Receiving an SMB2 CREATE Response
+     * for a New Create Operation).
+     *
+     * @param create create response
+     * @return durable handle context, null if durability is not granted
+     */
+    static Smb2CreateDurableHandleV2Context grantedDurability(final Smb2CreateResponse create) {
+        if (create.createContexts() == null) {
+            return null;
+        }
+        return create.createContexts().stream()
+            .filter(Smb2CreateDurableHandleV2Context.class::isInstance)
+            .map(Smb2CreateDurableHandleV2Context.class::cast)
+            .findFirst().orElse(null);
+    }
+
+    /**
+     * Returns the lease granted. Addresses MS-SMB2 (#3.2.5.5 Receiving an SMB2 CREATE Response for a New Create
+     * Operation).
+     *
+     * @param create create response
+     * @return lease granted, null if no lease granted
+     */
+    static Smb2CreateLeaseContext grantedLease(final Smb2CreateResponse create) {
+        if (create.opLockLevel() != Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_LEASE || create.createContexts() == null) {
+            return null;
+        }
+        return create.createContexts().stream()
+            .filter(Smb2CreateLeaseContext.class::isInstance).map(Smb2CreateLeaseContext.class::cast)
+            .findFirst().orElse(null);
+    }
+
     @Override
     public void handleResponse(@Nonnull final Smb2Response response) {
         try {
             if (response instanceof Smb2CreateResponse create
-                && create.createAction() == Smb2CreateAction.FILE_OPENED) {
+                && create.header().status() == SmbError.STATUS_SUCCESS && create.createAction() != null) {
 
                 openDetails.setFileId(create.fileId());
                 openDetails.setFileAttributes(create.fileAttributes());
+                openDetails.setLease(grantedLease(create));
+                if (!reconnect) {
+                    // durability of re-established open is kept as is
+                    final var durable = grantedDurability(create);
+                    openDetails.setDurable(durable != null);
+                    if (durable != null) {
+                        openDetails.setDurableTimeout((long) durable.timeout());
+                        openDetails.setPersistent(durable.flags() != null
+                            && durable.flags().get(Smb2DurableHandleFlags.SMB2_DHANDLE_FLAG_PERSISTENT));
+                    }
+                }
                 // todo handle file details (dates, size)
                 treeConnectDetails.opens().put(openDetails.fileName(), open);
                 completeFuture.set(open);
@@ -15,7 +15,6 @@
  */
 package local.mylan.transport.smb.protocol.flows;
 
-import io.netty.buffer.Unpooled;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -27,46 +26,85 @@ import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
 import local.mylan.transport.smb.protocol.fscc.FileInformation;
 import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
 
+/**
+ * Enumerates directory entries using sequential QUERY_DIRECTORY requests until STATUS_NO_MORE_FILES is returned
+ * or max number of entries is read. Addresses MS-SMB2 (#3.2.4.17 Application Requests Enumerating a Directory).
+ */
 public class ClientQueryDirectoryFlow extends AbstractClientFlow<List<FileInformation>> {
-    private static final int OUTPUT_BUFFER_LENGTH = 0x00800000; // todo set from config
 
     final UUID fileId;
     final FileInformationClass fic;
     final int maxRead;
     final String searchPattern;
+    final int outputBufferLength;
     final List<FileInformation> result = new ArrayList<>();
 
     public ClientQueryDirectoryFlow(final RequestSender requestSender, final UUID fileId,
-        final FileInformationClass fic, final String searchPattern, final int maxRead) {
+        final FileInformationClass fic, final String searchPattern, final int maxRead,
+        final int outputBufferLength) {
 
         super(requestSender);
         this.fileId = fileId;
         this.fic = fic;
         this.maxRead = maxRead;
         this.searchPattern = searchPattern;
+        this.outputBufferLength = outputBufferLength;
     }
 
     @Override
     protected Smb2Request initialRequest() {
-        return queryDirRequest();
+        // handle may be reused (cached), enumeration is restarted from the beginning of the directory
+        final var request = queryDirRequest();
+        request.flags().set(Smb2QueryDirectoryFlags.SMB2_RESTART_SCANS, true);
+        return request;
+    }
+
+    private Smb2QueryDirectoryRequest queryDirRequest() {
+        return queryDirRequest(fileId, fic, searchPattern, outputBufferLength);
     }
 
-    private Smb2Request queryDirRequest() {
+    static Smb2QueryDirectoryRequest queryDirRequest(final UUID fileId, final FileInformationClass fic,
+        final String searchPattern, final int outputBufferLength) {
+
         final var request = new Smb2QueryDirectoryRequest();
         request.setFileId(fileId);
         request.setFileInformationClass(fic);
         request.setFlags(new Flags<>());
-        request.setOutputBufferLength(OUTPUT_BUFFER_LENGTH);
+        request.setOutputBufferLength(outputBufferLength);
         request.setSearchPattern(searchPattern);
         // Explicit non-zero credit charge according to
         // MS-SMB2 (#3.2.4.17 Application Requests Enumerating a Directory)
-        request.header().setCreditCharge(1 + (OUTPUT_BUFFER_LENGTH - 1) / 65536);
+        request.header().setCreditCharge(1 + (outputBufferLength - 1) / 65536);
         return request;
     }
 
+    /**
+     * Decodes the entries of QUERY_DIRECTORY response, response data is released.
+     */
+    static List<FileInformation> decodeEntries(final Smb2QueryDirectoryResponse response,
+        final FileInformationClass fic) {
+        final var data = response.data();
+        if (data == null) {
+            return List.of();
+        }
+        try {
+            return FsccCodecUtils.decodeFileInformation(data, fic);
+        } finally {
+            releaseData(response);
+        }
+    }
+
+    static void releaseData(final Smb2Response response) {
+        if (response instanceof Smb2QueryDirectoryResponse dir && dir.data() != null) {
+            dir.data().release();
+            dir.setData(null);
+        }
+    }
+
     @Override
     public void handleResponse(@Nonnull final Smb2Response response) {
         try {
@@ -74,10 +112,9 @@ public class ClientQueryDirectoryFlow extends AbstractClientFlow<List<FileInform
                 final var status = dir.header().status();
                 switch (status) {
                     case STATUS_SUCCESS -> {
-                        final var buf = Unpooled.wrappedBuffer(dir.encoded());
-                        result.addAll(FsccCodecUtils.decodeFileInformation(buf, fic));
-                        if (maxRead > 0 && result.size() > maxRead) {
-                            completeFuture.set(List.copyOf(result));
+                        result.addAll(decodeEntries(dir, fic));
+                        if (maxRead > 0 && result.size() >= maxRead) {
+                            completeFuture.set(List.copyOf(result.subList(0, maxRead)));
                         } else {
                             // repeat request for remaining data
                             sendRequest(queryDirRequest());
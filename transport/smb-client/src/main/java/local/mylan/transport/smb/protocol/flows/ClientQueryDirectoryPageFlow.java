@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.fscc.DirectoryPage;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+
+/**
+ * Single QUERY_DIRECTORY request flow. Completes with the page of entries fit into the output buffer, or with
+ * empty page if there are no more entries to return. Page entries are not decoded, the page is a view over
+ * the response data, so it's a responsibility of the consumer to close it. Enumeration state is held by the server
+ * per open, so subsequent flows on same handle continue from the entry the previous one has stopped at.
+ * Addresses MS-SMB2 (#3.2.4.17 Application Requests Enumerating a Directory).
+ */
+public class ClientQueryDirectoryPageFlow extends AbstractClientFlow<DirectoryPage> {
+
+    final UUID fileId;
+    final FileInformationClass fic;
+    final String searchPattern;
+    final int outputBufferLength;
+    final boolean restartScan;
+
+    public ClientQueryDirectoryPageFlow(final RequestSender requestSender, final UUID fileId,
+        final FileInformationClass fic, final String searchPattern, final int outputBufferLength) {
+        this(requestSender, fileId, fic, searchPattern, outputBufferLength, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param requestSender request sender
+     * @param fileId directory file id
+     * @param fic the file information class defining the entry type
+     * @param searchPattern the search pattern, "*" for all entries
+     * @param outputBufferLength max length of the page data
+     * @param restartScan true if enumeration is to be started from the beginning of the directory
+     *     (e.g. first page requested over reused handle)
+     */
+    public ClientQueryDirectoryPageFlow(final RequestSender requestSender, final UUID fileId,
+        final FileInformationClass fic, final String searchPattern, final int outputBufferLength,
+        final boolean restartScan) {
+
+        super(requestSender);
+        this.fileId = requireNonNull(fileId);
+        this.fic = requireNonNull(fic);
+        this.searchPattern = requireNonNull(searchPattern);
+        this.outputBufferLength = outputBufferLength;
+        this.restartScan = restartScan;
+    }
+
+    @Override
+    protected Smb2Request initialRequest() {
+        final var request = ClientQueryDirectoryFlow.queryDirRequest(fileId, fic, searchPattern, outputBufferLength);
+        if (restartScan) {
+            request.flags().set(Smb2QueryDirectoryFlags.SMB2_RESTART_SCANS, true);
+        }
+        return request;
+    }
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        try {
+            final var status = response.header().status();
+            switch (status) {
+                case STATUS_SUCCESS -> {
+                    if (response instanceof Smb2QueryDirectoryResponse dir) {
+                        final var page = dir.data() == null ? DirectoryPage.empty(fic)
+                            : new DirectoryPage(dir.data(), fic);
+                        if (!completeFuture.set(page)) {
+                            // cancelled
+                            page.close();
+                        }
+                        return;
+                    }
+                    throw new SmbException("Unexpected QueryDirectory response" + response);
+                }
+                case STATUS_NO_MORE_FILES -> completeFuture.set(DirectoryPage.empty(fic));
+                default -> throw new SmbException("QueryDirectory failed with status " + status);
+            }
+        } catch (SmbException e) {
+            completeFuture.setException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.fscc.FsctlCode;
+import local.mylan.transport.smb.protocol.smb2.Smb2IoctlRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2IoctlResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
+
+/**
+ * Server network interfaces discovery, the interfaces are used to bind the session to additional channels.
+ * Addresses MS-SMB2 (#2.2.31 SMB2 IOCTL Request, FSCTL_QUERY_NETWORK_INTERFACE_INFO).
+ *
+ * <p>Request is sent via any tree connect of the session (usually IPC$), no file is involved.
+ */
+public final class ClientQueryNetworkInterfacesFlow extends AbstractClientFlow<List<Smb2NetworkInterfaceInfo>> {
+    private static final UUID NO_FILE_ID = new UUID(-1L, -1L);
+
+    private final int maxOutputResponse;
+
+    public ClientQueryNetworkInterfacesFlow(final RequestSender requestSender, final int maxOutputResponse) {
+        super(requestSender);
+        this.maxOutputResponse = maxOutputResponse;
+    }
+
+    @Override
+    protected Smb2Request initialRequest() {
+        final var ioctl = new Smb2IoctlRequest();
+        ioctl.setCtlCode(FsctlCode.FSCTL_QUERY_NETWORK_INTERFACE_INFO);
+        ioctl.setFsctl(true);
+        ioctl.setFileId(NO_FILE_ID);
+        ioctl.setMaxOutputResponse(maxOutputResponse);
+        return ioctl;
+    }
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        try {
+            if (response instanceof Smb2IoctlResponse ioctl && ioctl.header().status() == SmbError.STATUS_SUCCESS) {
+                completeFuture.set(ioctl.output() instanceof List<?> interfaces
+                    ? interfaces.stream().map(Smb2NetworkInterfaceInfo.class::cast).toList() : List.of());
+                return;
+            }
+            throw new SmbException("Network interfaces query failed with status " + response.header().status());
+
+        } catch (SmbException e) {
+            completeFuture.setException(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import static java.util.Objects.requireNonNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
+
+/**
+ * Single READ request flow. Addresses MS-SMB2 (#3.2.4.6 Application Requests Reading from a File or Named Pipe).
+ *
+ * <p>Completes with retained slice of the response data (the caller is responsible for the release) or with
+ * empty buffer if requested offset is beyond the end of file.
+ */
+public class ClientReadFlow extends AbstractClientFlow<ByteBuf> {
+    private static final int CREDIT_SIZE = 65536;
+
+    final UUID fileId;
+    final long offset;
+    final int length;
+    final boolean multiCredit;
+
+    public ClientReadFlow(final RequestSender requestSender, final UUID fileId, final long offset, final int length,
+        final boolean multiCredit) {
+
+        super(requestSender);
+        this.fileId = requireNonNull(fileId);
+        this.offset = offset;
+        this.length = length;
+        this.multiCredit = multiCredit;
+    }
+
+    @Override
+    protected Smb2Request initialRequest() {
+        final var request = new Smb2ReadRequest();
+        request.setFileId(fileId);
+        request.setFlags(new Flags<>());
+        request.setOffset(offset);
+        request.setLength(length);
+        if (multiCredit) {
+            // MS-SMB2 (#3.2.4.1.5 Sending Multi-Credit Requests)
+            request.header().setCreditCharge(creditCharge(length));
+        }
+        return request;
+    }
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        try {
+            if (response instanceof Smb2ReadResponse read) {
+                final var status = read.header().status();
+                switch (status) {
+                    case STATUS_SUCCESS, STATUS_BUFFER_OVERFLOW -> completeFuture.set(
+                        read.data() == null ? Unpooled.EMPTY_BUFFER : read.data());
+                    case STATUS_END_OF_FILE -> completeFuture.set(Unpooled.EMPTY_BUFFER);
+                    default -> throw new SmbException("Read failed with status " + status);
+                }
+                return;
+            }
+            throw new SmbException("Unexpected Read response" + response);
+
+        } catch (SmbException e) {
+            completeFuture.setException(e);
+        }
+    }
+
+    public static int creditCharge(final int payloadSize) {
+        return payloadSize > 0 ? 1 + (payloadSize - 1) / CREDIT_SIZE : 1;
+    }
+}
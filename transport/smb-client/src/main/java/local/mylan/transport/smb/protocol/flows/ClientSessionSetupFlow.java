@@ -19,47 +19,77 @@ import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Objects.requireNonNull;
 import static local.mylan.transport.smb.SecurityUtils.kdfcm;
 
+import io.netty.buffer.Unpooled;
 import java.util.Arrays;
+import java.util.Objects;
+import local.mylan.transport.smb.SecurityUtils;
 import local.mylan.transport.smb.exceptions.SmbSessionSetupException;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2PacketCipher;
 import local.mylan.transport.smb.protocol.Smb2PacketSigner;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
 import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ChannelDetails;
 import local.mylan.transport.smb.protocol.details.ConnectionDetails;
 import local.mylan.transport.smb.protocol.details.Session;
 import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCipher;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionRequestFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionResponseFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningAlgorithm;
 import local.mylan.transport.smb.protocol.spnego.NegToken;
 import local.mylan.transport.smb.protocol.spnego.NegTokenInit;
 
 /**
  * Addresses MS-SMB2 (#3.2.4.2.3 Authenticating the User and #3.2.5.3 Receiving an SMB2 SESSION_SETUP Response).
+ *
+ * <p>If channel is provided the existing session is bound to the channel connection (multichannel), otherwise
+ * the session is established (or re-authenticated) via its own connection.
  */
 public class ClientSessionSetupFlow extends AbstractClientFlow<Session> {
 
-    private static final byte[] SIGN_LABEL_3X = "SMB2AESCMAC\u0000".getBytes(US_ASCII);
-    private static final byte[] SIGN_CTX_3X = "SmbSign\u0000".getBytes(US_ASCII);
-    private static final byte[] SIGN_LABEL_311 = "SMBSigningKey\u0000".getBytes(US_ASCII);
+    private static final byte[] CIPHER_LABEL_3X = "SMB2AESCCM\u0000".getBytes(US_ASCII);
+    private static final byte[] ENCRYPT_CTX_3X = "ServerIn \u0000".getBytes(US_ASCII);
+    private static final byte[] DECRYPT_CTX_3X = "ServerOut\u0000".getBytes(US_ASCII);
+    private static final byte[] ENCRYPT_LABEL_311 = "SMBC2SCipherKey\u0000".getBytes(US_ASCII);
+    private static final byte[] DECRYPT_LABEL_311 = "SMBS2CCipherKey\u0000".getBytes(US_ASCII);
 
     private final Session session;
     private final SessionDetails sessDetails;
+    private final ChannelDetails channel;
     private final ConnectionDetails connDetails;
     private final AuthMechanism authMech;
+    private Smb2SessionSetupRequest lastRequest;
 
     public ClientSessionSetupFlow(final Session session, final RequestSender requestSender,
         final AuthMechanism authMech) {
+        this(session, null, requestSender, authMech);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param session the session
+     * @param channel the channel to bind the session to, null if session is set up via own connection
+     * @param requestSender request sender of the connection the session setup is performed over
+     * @param authMech authentication mechanism
+     */
+    public ClientSessionSetupFlow(final Session session, final ChannelDetails channel,
+        final RequestSender requestSender, final AuthMechanism authMech) {
 
         super(requestSender);
         this.session = requireNonNull(session);
         sessDetails = requireNonNull(session.details());
         requireNonNull(sessDetails.connection(), "connection is required");
-        connDetails = requireNonNull(sessDetails.connection().details(), "connection details is missing");
+        this.channel = channel;
+        final var connection = channel == null ? sessDetails.connection()
+            : requireNonNull(channel.connection(), "channel connection is required");
+        connDetails = requireNonNull(connection.details(), "connection details is missing");
         requireNonNull(connDetails.negotiateToken(), "negotiation token is missing");
         if (connDetails.negotiateToken() instanceof NegTokenInit negTokenInit
             && negTokenInit.mechTypes().contains(requireNonNull(authMech).mechType())) {
@@ -67,10 +97,47 @@ public class ClientSessionSetupFlow extends AbstractClientFlow<Session> {
         } else {
             throw new SmbSessionSetupException("%s Authentication is not supported by server".formatted(authMech));
         }
+        if (channel != null) {
+            validateBinding();
+        }
+    }
+
+    /**
+     * Checks the session can be bound to the channel connection. Addresses MS-SMB2
+     * (#3.2.4.2.3 Authenticating the User), binding requirements.
+     */
+    private void validateBinding() {
+        final var sessConnDetails = sessDetails.connection().details();
+        if (sessDetails.sessionId() == null || sessDetails.signingKey() == null
+            || sessDetails.anonymous() || sessDetails.guest()) {
+            throw new SmbSessionSetupException("Only established session of authenticated user can be bound");
+        }
+        if (!connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)
+            || connDetails.dialect() != sessConnDetails.dialect()) {
+            throw new SmbSessionSetupException("Channel dialect %s does not match session dialect %s"
+                .formatted(connDetails.dialect(), sessConnDetails.dialect()));
+        }
+        if (!connDetails.supportsMultiChannel() || !sessConnDetails.supportsMultiChannel()) {
+            throw new SmbSessionSetupException("Multichannel is not supported");
+        }
+        if (!Objects.equals(connDetails.serverGuid(), sessConnDetails.serverGuid())
+            || !Objects.equals(connDetails.cipherId(), sessConnDetails.cipherId())
+            || !Objects.equals(connDetails.signingAlgorithmId(), sessConnDetails.signingAlgorithmId())) {
+            throw new SmbSessionSetupException("Channel connection parameters do not match the session ones");
+        }
     }
 
     @Override
     protected Smb2Request initialRequest() {
+        if (connDetails.dialect() == Smb2Dialect.SMB3_1_1) {
+            // session (channel) hash chain continues the connection one
+            setPreauthIntegrityHashValue(
+                requireNonNull(connDetails.preauthIntegrityHashValue(), "connection preauth hash is missing"));
+        }
+        if (channel != null) {
+            // binding requests are signed with the session key, MS-SMB2 (#3.2.4.1.1 Signing the Message)
+            connDetails.packetSigners().put(sessDetails.sessionId(), packetSigner(sessDetails.signingKey()));
+        }
         return sessionSetupRequest(authMech.init());
     }
 
@@ -83,11 +150,18 @@ public class ClientSessionSetupFlow extends AbstractClientFlow<Session> {
                 throw new SmbSessionSetupException("Unexpected Session Setup response: " + response);
             }
         } catch (Exception e) {
+            if (channel != null) {
+                connDetails.packetSigners().remove(sessDetails.sessionId());
+                connDetails.preauthSessions().remove(sessDetails.sessionId());
+            }
             completeFuture.setException(e);
         }
     }
 
     private void process(final Smb2SessionSetupResponse response) {
+        if (connDetails.dialect() == Smb2Dialect.SMB3_1_1) {
+            updatePreauthIntegrityHash(response);
+        }
 
         if (response.header().status() == SmbError.STATUS_MORE_PROCESSING_REQUIRED) {
             sessDetails.setSessionId(response.header().sessionId());
@@ -101,8 +175,18 @@ public class ClientSessionSetupFlow extends AbstractClientFlow<Session> {
             if (!authMech.verify(response.token())) {
                 throw new SmbSessionSetupException("Session setup completed but token verification failed.");
             }
+            if (sessDetails.sessionId() == null) {
+                // session setup completed with the first response (e.g. guest or re-authentication over new
+                // connection), the session id is assigned by this response
+                sessDetails.setSessionId(response.header().sessionId());
+            } else {
+                connDetails.preauthSessions().remove(sessDetails.sessionId());
+            }
+            if (channel != null) {
+                completeBinding(response);
+                return;
+            }
             // set session as authenticated
-            connDetails.preauthSessions().remove(sessDetails.sessionId());
             connDetails.sessions().put(sessDetails.sessionId(), session);
             // session keys
             setSessionKeys();
@@ -122,14 +206,27 @@ public class ClientSessionSetupFlow extends AbstractClientFlow<Session> {
             // encryption
             if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)
                 && response.sessionFlags().get(Smb2SessionResponseFlags.SMB2_SESSION_FLAG_ENCRYPT_DATA)) {
+                if (sessDetails.encryptionKey() == null) {
+                    throw new SmbSessionSetupException("Session requires encryption, but no cipher is negotiated");
+                }
                 sessDetails.setEncryptData(true);
                 sessDetails.setSigningRequired(false);
-                // TODO encryption keys etc
+            }
+            // final response of SMB 3.1.1 is always signed, it proves the preauth integrity
+            if (connDetails.dialect() == Smb2Dialect.SMB3_1_1 && sessDetails.signingKey() != null
+                && !verifyFinalResponse(response)) {
+                throw new SmbSessionSetupException("Session setup response signature verification failed");
             }
             // assign packet signer for session
             if (sessDetails.signingRequired()) {
-                final var signer = new Smb2PacketSigner(connDetails.dialect(), sessDetails);
-                connDetails.packetSigners().put(sessDetails.sessionId(), signer);
+                connDetails.packetSigners().put(sessDetails.sessionId(), packetSigner());
+            }
+            // assign packet cipher, it's used for encrypted shares even if session is not encrypted
+            if (sessDetails.encryptionKey() != null && !sessDetails.anonymous()) {
+                final var cipher = new Smb2PacketCipher(Smb2EncryptionCipher.fromId(connDetails.cipherId()),
+                    sessDetails.encryptionKey(), sessDetails.decryptionKey());
+                cipher.setEncryptData(sessDetails.encryptData());
+                connDetails.packetCiphers().put(sessDetails.sessionId(), cipher);
             }
             sessDetails.opens().clear();
             completeFuture.set(session);
@@ -138,34 +235,138 @@ public class ClientSessionSetupFlow extends AbstractClientFlow<Session> {
         throw new SmbSessionSetupException("Error unexpected message status: " + response.header().status());
     }
 
+    /**
+     * Completes the session binding: channel signing key is derived from the new authentication,
+     * the encryption keys remain session wide. Addresses MS-SMB2 (#3.2.5.3.1 Handling a New Authentication).
+     */
+    private void completeBinding(final Smb2SessionSetupResponse response) {
+        final var sessionKey = authMech.sessionKey();
+        if (sessionKey == null) {
+            throw new SmbSessionSetupException("Session binding completed but no session key was obtained");
+        }
+        final var key = sessionKey.length == 16 ? sessionKey : Arrays.copyOf(sessionKey, 16);
+        channel.setSigningKey(
+            Smb2PacketSigner.deriveSigningKey(connDetails.dialect(), key, channel.preauthIntegrityHashValue()));
+        // final response is signed with the channel key, it proves the binding
+        final var signer = packetSigner(channel.signingKey());
+        if (!response.header().isSigned() || response.messageBytes() == null
+            || !signer.verifyInboundSignature(Unpooled.wrappedBuffer(response.messageBytes()))) {
+            throw new SmbSessionSetupException("Session binding response signature verification failed");
+        }
+        final var sessionId = sessDetails.sessionId();
+        if (sessDetails.signingRequired()) {
+            connDetails.packetSigners().put(sessionId, signer);
+        } else {
+            connDetails.packetSigners().remove(sessionId);
+        }
+        // cipher is shared by channels, so the nonces remain unique per key
+        final var cipher = sessDetails.connection().details().packetCiphers().get(sessionId);
+        if (cipher != null) {
+            connDetails.packetCiphers().put(sessionId, cipher);
+        }
+        final var compressor = connDetails.packetCompressor();
+        if (compressor != null) {
+            for (var treeConnect : sessDetails.treeConnects().values()) {
+                if (treeConnect.details().compressData()) {
+                    compressor.compressTree(sessionId, treeConnect.details().treeConnectId());
+                }
+            }
+        }
+        connDetails.sessions().put(sessionId, session);
+        completeFuture.set(session);
+    }
+
     private void setSessionKeys() {
         final var sessionKey = authMech.sessionKey();
         if (sessionKey == null) {
             return;
         }
+        sessDetails.setFullSessionKey(sessionKey);
         sessDetails.setSessionKey(sessionKey.length == 16 ? sessionKey : Arrays.copyOf(sessionKey, 16));
 
+        if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)) {
+            sessDetails.setSigningKey(Smb2PacketSigner.deriveSigningKey(connDetails.dialect(),
+                sessDetails.sessionKey(), sessDetails.preauthIntegrityHashValue()));
+        }
+        setEncryptionKeys();
+    }
+
+    /**
+     * Addresses MS-SMB2 (#3.2.5.3.1 Handling a New Authentication), encryption and decryption keys.
+     */
+    private void setEncryptionKeys() {
+        final var cipher = Smb2EncryptionCipher.fromId(connDetails.cipherId());
+        if (cipher == null || !connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)) {
+            return;
+        }
         if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
-            // FIXME calculate preauth hash, verify key length
-            sessDetails.setSigningKey(
-                kdfcm(sessDetails.sessionKey(), SIGN_LABEL_311, sessDetails.preauthIntegrityHashValue(), 128));
+            // 256-bit keys are derived from full session key
+            final var keyBits = cipher.keyLength() * 8;
+            final var key = cipher.keyLength() > 16 ? sessDetails.fullSessionKey() : sessDetails.sessionKey();
+            final var context = sessDetails.preauthIntegrityHashValue();
+            sessDetails.setEncryptionKey(kdfcm(key, ENCRYPT_LABEL_311, context, keyBits));
+            sessDetails.setDecryptionKey(kdfcm(key, DECRYPT_LABEL_311, context, keyBits));
+        } else {
+            sessDetails.setEncryptionKey(kdfcm(sessDetails.sessionKey(), CIPHER_LABEL_3X, ENCRYPT_CTX_3X, 128));
+            sessDetails.setDecryptionKey(kdfcm(sessDetails.sessionKey(), CIPHER_LABEL_3X, DECRYPT_CTX_3X, 128));
+        }
+    }
+
+    /**
+     * Updates session preauth integrity hash with messages exchanged. Final (successful) response is excluded.
+     * Addresses MS-SMB2 (#3.2.5.3.1 Handling a New Authentication).
+     */
+    private void updatePreauthIntegrityHash(final Smb2SessionSetupResponse response) {
+        var hash = SecurityUtils.sha512(preauthIntegrityHashValue(),
+            requireNonNull(lastRequest.messageBytes(), "request message is missing"));
+        if (response.header().status() == SmbError.STATUS_MORE_PROCESSING_REQUIRED) {
+            hash = SecurityUtils.sha512(hash, requireNonNull(response.messageBytes(), "response message is missing"));
+        }
+        setPreauthIntegrityHashValue(hash);
+    }
+
+    private byte[] preauthIntegrityHashValue() {
+        return channel == null ? sessDetails.preauthIntegrityHashValue() : channel.preauthIntegrityHashValue();
+    }
 
-        } else if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)) {
-            sessDetails.setSigningKey(
-                kdfcm(sessDetails.sessionKey(), SIGN_LABEL_3X, SIGN_CTX_3X, 128));
+    private void setPreauthIntegrityHashValue(final byte[] hash) {
+        if (channel == null) {
+            sessDetails.setPreauthIntegrityHashValue(hash);
+        } else {
+            channel.setPreauthIntegrityHashValue(hash);
         }
     }
 
+    private boolean verifyFinalResponse(final Smb2SessionSetupResponse response) {
+        return response.header().isSigned() && response.messageBytes() != null
+            && packetSigner().verifyInboundSignature(Unpooled.wrappedBuffer(response.messageBytes()));
+    }
+
+    private Smb2PacketSigner packetSigner() {
+        final var signingAlgorithm = Smb2SigningAlgorithm.fromId(connDetails.signingAlgorithmId());
+        return new Smb2PacketSigner(connDetails.dialect(), signingAlgorithm, sessDetails);
+    }
+
+    private Smb2PacketSigner packetSigner(final byte[] signingKey) {
+        final var signingAlgorithm = Smb2SigningAlgorithm.fromId(connDetails.signingAlgorithmId());
+        return new Smb2PacketSigner(connDetails.dialect(), signingAlgorithm, signingKey);
+    }
+
     private Smb2Request sessionSetupRequest(final NegToken token) {
         final var request = new Smb2SessionSetupRequest();
         request.setCapabilities(connDetails.clientCapabilities());
         request.setSecurityMode(connDetails.clientSecurityMode());
         request.setSessionFlags(new Flags<Smb2SessionRequestFlags>());
-        if (token instanceof NegTokenInit && sessDetails.previousSessionId() != null) {
-            request.setPreviousSessionId(sessDetails.previousSessionId());
+        if (channel != null) {
+            // binding request carries the existing session id, the connection sender does not set it
+            request.header().setSessionId(sessDetails.sessionId());
             request.sessionFlags().set(Smb2SessionRequestFlags.SMB2_SESSION_FLAG_BINDING, true);
+        } else if (token instanceof NegTokenInit && sessDetails.previousSessionId() != null) {
+            // reconnect, the server expires the previous session
+            request.setPreviousSessionId(sessDetails.previousSessionId());
         }
         request.setToken(token);
+        lastRequest = request;
         return request;
     }
 }
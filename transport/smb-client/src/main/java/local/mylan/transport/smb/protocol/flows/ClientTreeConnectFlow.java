@@ -86,11 +86,24 @@ public final class ClientTreeConnectFlow extends AbstractClientFlow<TreeConnect>
         if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_0)) {
             treeConnect.details().setEncryptData(connDetails.supportsEncryption()
                 && response.shareFlags().get(Smb2ShareFlags.SMB2_SHAREFLAG_ENCRYPT_DATA));
+            if (treeConnect.details().encryptData()) {
+                final var cipher = connDetails.packetCiphers().get(sessDetails.sessionId());
+                if (cipher == null) {
+                    throw new SmbException("Share requires encryption, but session has no encryption keys");
+                }
+                cipher.encryptTree(response.header().treeId());
+            }
             treeConnect.details().setScaleoutShare(
                 response.capabilities().get(Smb2ShareCapabilitiesFlags.SMB2_SHARE_CAP_SCALEOUT));
         }
         if (connDetails.dialect().equalsOrHigher(Smb2Dialect.SMB3_1_1)) {
-            // TODO compressData and isolatedTransport flags
+            final var compressor = connDetails.packetCompressor();
+            treeConnect.details().setCompressData(compressor != null
+                && response.shareFlags().get(Smb2ShareFlags.SMB2_SHAREFLAG_COMPRESS_DATA));
+            if (treeConnect.details().compressData()) {
+                compressor.compressTree(sessDetails.sessionId(), response.header().treeId());
+            }
+            // TODO isolatedTransport flag
         }
         sessDetails.treeConnects().put(treeConnect.details().shareName(), treeConnect);
         completeFuture.set(treeConnect);
@@ -51,6 +51,16 @@ public class ClientTreeDisconnectFlow extends AbstractClientFlow<Void> {
                 && response.header().status() == SmbError.STATUS_SUCCESS) {
 
                 sessDetails.treeConnects().remove(treeConnect.details().shareName());
+                final var connDetails = sessDetails.connection() == null ? null : sessDetails.connection().details();
+                final var cipher = connDetails == null ? null
+                    : connDetails.packetCiphers().get(sessDetails.sessionId());
+                if (cipher != null) {
+                    cipher.releaseTree(treeConnect.details().treeConnectId());
+                }
+                final var compressor = connDetails == null ? null : connDetails.packetCompressor();
+                if (compressor != null && treeConnect.details().compressData()) {
+                    compressor.releaseTree(sessDetails.sessionId(), treeConnect.details().treeConnectId());
+                }
                 completeFuture.set(null);
                 return;
             }
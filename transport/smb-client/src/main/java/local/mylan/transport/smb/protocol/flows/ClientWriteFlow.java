@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.flows;
+
+import static java.util.Objects.requireNonNull;
+
+import io.netty.buffer.ByteBuf;
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteResponse;
+
+/**
+ * Pipelined WRITE flow. Addresses MS-SMB2 (#3.2.4.7 Application Requests Writing to a File or Named Pipe).
+ *
+ * <p>Data is split into chunks of max write size, up to window size WRITE requests are kept in flight
+ * (limited by credits available). Chunks are sent as slices of the source buffer, so no data copy is made
+ * before encoding. Flow completes with number of bytes written when all outstanding requests are acknowledged.
+ * The source buffer is released on flow completion.
+ */
+public class ClientWriteFlow extends AbstractClientFlow<Long> {
+    private static final int SINGLE_CREDIT_WRITE_SIZE = 65536;
+
+    final UUID fileId;
+    final long offset;
+    final ByteBuf data;
+    final ConnectionDetails connDetails;
+    final int chunkSize;
+    final int windowSize;
+
+    private int nextPosition;
+    private int outstanding;
+    private long written;
+
+    public ClientWriteFlow(final RequestSender requestSender, final ConnectionDetails connDetails,
+        final UUID fileId, final long offset, final ByteBuf data, final int windowSize) {
+
+        super(requestSender);
+        this.connDetails = requireNonNull(connDetails);
+        this.fileId = requireNonNull(fileId);
+        this.offset = offset;
+        this.data = requireNonNull(data);
+        this.windowSize = Math.max(1, windowSize);
+        chunkSize = maxWriteSize(connDetails);
+    }
+
+    public static int maxWriteSize(final ConnectionDetails connDetails) {
+        final var maxWriteSize = connDetails.maxWriteSize() > 0 ? connDetails.maxWriteSize()
+            : SINGLE_CREDIT_WRITE_SIZE;
+        return connDetails.supportsMultiCredit() ? maxWriteSize : Math.min(maxWriteSize, SINGLE_CREDIT_WRITE_SIZE);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!data.isReadable()) {
+            complete();
+            return;
+        }
+        super.start();
+        fillWindow();
+    }
+
+    @Override
+    protected Smb2WriteRequest initialRequest() {
+        // first chunk, the following ones are sent as the window allows, see fillWindow()
+        return nextRequest();
+    }
+
+    @Override
+    protected void sendRequest(final Smb2Request request) {
+        final var writeRequest = (Smb2WriteRequest) request;
+        requestSender.send(writeRequest, response -> handleWriteResponse(writeRequest, response));
+    }
+
+    private Smb2WriteRequest nextRequest() {
+        final var length = Math.min(chunkSize, data.readableBytes() - nextPosition);
+        final var request = writeRequest(nextPosition, length);
+        nextPosition += length;
+        outstanding++;
+        return request;
+    }
+
+    private Smb2WriteRequest writeRequest(final int position, final int length) {
+        final var request = new Smb2WriteRequest();
+        request.setFileId(fileId);
+        request.setFlags(new Flags<>());
+        request.setOffset(offset + position);
+        request.setData(data.retainedSlice(data.readerIndex() + position, length));
+        if (connDetails.supportsMultiCredit()) {
+            // MS-SMB2 (#3.2.4.1.5 Sending Multi-Credit Requests)
+            request.header().setCreditCharge(ClientReadFlow.creditCharge(length));
+        }
+        return request;
+    }
+
+    private void fillWindow() {
+        final var charge = connDetails.supportsMultiCredit() ? ClientReadFlow.creditCharge(chunkSize) : 1;
+        while (!completeFuture.isDone() && nextPosition < data.readableBytes() && outstanding < windowSize) {
+            // first request is sent anyway, others only if there are enough credits
+            // to avoid them stuck in pending state
+            if (outstanding > 0 && requestSender.creditsAvailable() < charge) {
+                return;
+            }
+            sendRequest(nextRequest());
+        }
+    }
+
+    @Override
+    public void handleResponse(@Nonnull final Smb2Response response) {
+        completeFuture.setException(new SmbException("Unexpected Write response" + response));
+    }
+
+    private synchronized void handleWriteResponse(final Smb2WriteRequest request, final Smb2Response response) {
+        outstanding--;
+        final var length = request.data().readableBytes();
+        request.data().release();
+        try {
+            if (response instanceof Smb2WriteResponse write) {
+                final var status = write.header().status();
+                if (status != SmbError.STATUS_SUCCESS) {
+                    throw new SmbException("Write failed with status " + status);
+                }
+                if (write.count() < length) {
+                    throw new SmbException("Incomplete write at offset %d: %d of %d bytes written"
+                        .formatted(request.offset(), write.count(), length));
+                }
+                written += write.count();
+                if (nextPosition < data.readableBytes()) {
+                    fillWindow();
+                } else if (outstanding == 0) {
+                    complete();
+                }
+                return;
+            }
+            throw new SmbException("Unexpected Write response" + response);
+
+        } catch (SmbException e) {
+            if (completeFuture.setException(e)) {
+                data.release();
+            }
+        }
+    }
+
+    private void complete() {
+        if (completeFuture.set(written)) {
+            data.release();
+        }
+    }
+}
@@ -17,7 +17,6 @@ package local.mylan.transport.smb.protocol.flows;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.nio.charset.StandardCharsets.US_ASCII;
-import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.util.Arrays.copyOf;
 import static java.util.Arrays.copyOfRange;
 import static java.util.Objects.requireNonNull;
@@ -50,6 +49,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import local.mylan.transport.smb.SecurityUtils;
 import local.mylan.transport.smb.Utils;
 import local.mylan.transport.smb.exceptions.SmbAuthorizationException;
 import local.mylan.transport.smb.protocol.Flags;
@@ -256,7 +256,7 @@ public class NtlmAuthMechanism implements AuthMechanism {
         final var creds = sessDetails.userCredentials();
 
         // anonymous handling is same for both NTLM v1 and v2
-        if (sessDetails.anonymous() || creds == null || creds.password() == null || creds.password().isEmpty()) {
+        if (sessDetails.anonymous() || !hasSecret(creds)) {
             authMsg.setNtChallengeResponse(null);
             authMsg.setLmChallengeResponse(new LmChallengeResponse.EncodedLmChallengeResponse(new byte[1]));
             return null;
@@ -299,7 +299,7 @@ public class NtlmAuthMechanism implements AuthMechanism {
             final var ntProofStr = hmacMd5(responseKeyNt, challengeMsg.serverChallenge(), temp);
             authMsg.setNtChallengeResponse(new NtlmV2ChallengeResponse(ntProofStr, cc));
 
-            final var responseKeyLm = lmOWFv2(creds);
+            final var responseKeyLm = responseKeyNt; // LMOWFv2 is same as NTOWFv2
             final var lmResponse = hmacMd5(responseKeyLm, challengeMsg.serverChallenge(), clientChallenge);
             authMsg.setLmChallengeResponse(new LmV2ChallengeResponse(lmResponse, clientChallenge));
 
@@ -310,7 +310,6 @@ public class NtlmAuthMechanism implements AuthMechanism {
         // MS-NLMP (#3.3.1 NTLM v1 Authentication)
 
         final var responseKeyNt = ntOWFv1(creds);
-        final var responseKeyLm = lmOWFv1(creds);
         if (details.negFlags().get(NTLMSSP_NEGOTIATE_EXTENDED_SESSION_SECURITY)) {
             authMsg.setNtChallengeResponse(new NtlmV1ChallengeResponse(
                 desl(responseKeyNt, copyOf(md5(challengeMsg.serverChallenge(), clientChallenge), 8))
@@ -322,14 +321,22 @@ public class NtlmAuthMechanism implements AuthMechanism {
             authMsg.setNtChallengeResponse(ntResponse);
             authMsg.setLmChallengeResponse(new LmV1ChallengeResponse(
                 details.noLMResponseNTLMv1()
-                    ? ntResponse.response() : desl(responseKeyLm, challengeMsg.serverChallenge())
+                    ? ntResponse.response() : desl(lmOWFv1(creds), challengeMsg.serverChallenge())
             ));
         }
         // SessionBaseKey
         return md4(responseKeyNt);
     }
 
+    private static boolean hasSecret(final UserCredentials creds) {
+        return creds instanceof UserCredentials.HashedUserCredentials
+            || creds != null && creds.password() != null && !creds.password().isEmpty();
+    }
+
     private static byte[] lmOWFv1(final UserCredentials creds) {
+        if (creds instanceof UserCredentials.HashedUserCredentials) {
+            throw new SmbAuthorizationException("LM response requires plaintext password");
+        }
         final var passwFixed = new byte[14];
         try {
             final var passw = nonnullPassw(creds).toUpperCase(Locale.US).getBytes(US_ASCII);
@@ -346,32 +353,20 @@ public class NtlmAuthMechanism implements AuthMechanism {
     }
 
     private static byte[] ntOWFv1(final UserCredentials creds) {
-        return md4(nonnullPassw(creds).getBytes(UTF_16LE));
-    }
-
-    private static byte[] lmOWFv2(final UserCredentials creds) {
-        return ntOWFv2(creds);
+        return creds instanceof UserCredentials.HashedUserCredentials hashed
+            ? hashed.ntOwfV1() : SecurityUtils.ntOwfV1(nonnullPassw(creds));
     }
 
     private static byte[] ntOWFv2(final UserCredentials creds) {
-        return hmacMd5(
-            md4(nonnullPassw(creds).getBytes(UTF_16LE)),
-            nonnullUser(creds).toUpperCase().getBytes(UTF_16LE),
-            nonnullDomain(creds).getBytes(UTF_16LE)
-        );
-    }
-
-    private static String nonnullUser(final UserCredentials creds) {
-        return creds == null || creds.username() == null ? "" : creds.username();
+        // credentials are non-null, anonymous access is handled before
+        return creds instanceof UserCredentials.HashedUserCredentials hashed ? hashed.ntOwfV2()
+            : SecurityUtils.ntOwfV2(ntOWFv1(creds), creds.username(), creds.domain());
     }
 
     private static String nonnullPassw(final UserCredentials creds) {
         return creds == null || creds.password() == null ? "" : creds.password();
     }
 
-    private static String nonnullDomain(final UserCredentials creds) {
-        return creds == null || creds.domain() == null ? "" : creds.domain();
-    }
 
     private byte[] kxKey(final byte[] sessionBaseKey, final byte[] lmChallengeResponse, final byte[] serverChallenge) {
         // MS-NLMP (#3.4.5.1 KXKEY)
@@ -454,7 +449,13 @@ public class NtlmAuthMechanism implements AuthMechanism {
         return mac(MECH_LIST_ENCODED);
     }
 
-    private static byte[] mechListEncoded(final MechType mechType) {
+    /**
+     * Encodes the mechanism list being the input for mechListMIC.
+     *
+     * @param mechType single mechanism of the list
+     * @return DER encoded MechTypeList
+     */
+    public static byte[] mechListEncoded(final MechType mechType) {
         // addresses https://www.rfc-editor.org/rfc/rfc4178.html#section-5 (Processing of mechListMIC)
 
         final var seq = new DERSequence(new ASN1Encodable[]{new ASN1ObjectIdentifier(mechType.oid())});
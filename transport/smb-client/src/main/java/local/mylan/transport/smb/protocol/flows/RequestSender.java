@@ -23,4 +23,12 @@ import local.mylan.transport.smb.protocol.Smb2Response;
 public interface RequestSender {
 
     void send(Smb2Request request, Consumer<Smb2Response> callback);
+
+    /**
+     * Returns the number of credits available for requests to be sent without waiting. Pipelined flows use it
+     * to avoid requests being stuck in pending state.
+     */
+    default long creditsAvailable() {
+        return Long.MAX_VALUE;
+    }
 }
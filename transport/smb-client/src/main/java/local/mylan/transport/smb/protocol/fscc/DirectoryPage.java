@@ -0,0 +1,274 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.fscc;
+
+import static java.util.Objects.requireNonNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Page of directory entries (QUERY_DIRECTORY output buffer) read on demand. Addresses MS-FSCC (#2.4.8
+ * FileBothDirectoryInformation, #2.4.10 FileDirectoryInformation, #2.4.14 FileFullDirectoryInformation,
+ * #2.4.17 FileIdBothDirectoryInformation, #2.4.19 FileIdFullDirectoryInformation).
+ *
+ * <p>Page is a flyweight cursor over the response buffer: {@link #next()} moves to the next entry, accessors read
+ * the fields of current entry directly from the buffer, so no objects are created per entry unless requested
+ * explicitly (file name string, {@link #toFileInformation()}). The page owns the buffer, it's released on
+ * {@link #close()}; the page is not thread safe.
+ */
+public final class DirectoryPage implements AutoCloseable {
+    // field offsets common for all directory information classes
+    private static final int NEXT_ENTRY_OFFSET = 0;
+    private static final int FILE_INDEX = 4;
+    private static final int CREATION_TIME = 8;
+    private static final int LAST_ACCESS_TIME = 16;
+    private static final int LAST_WRITE_TIME = 24;
+    private static final int CHANGE_TIME = 32;
+    private static final int END_OF_FILE = 40;
+    private static final int ALLOCATION_SIZE = 48;
+    private static final int FILE_ATTRIBUTES = 56;
+    private static final int FILE_NAME_LENGTH = 60;
+    private static final int EA_SIZE = 64;
+    private static final int SHORT_NAME_LENGTH = 68;
+    private static final int SHORT_NAME = 70;
+
+    private final ByteBuf data;
+    private final FileInformationClass fic;
+    private final int fileNameOffset;
+    private final int fileIdOffset;
+    private int position = -1;
+    private int nextPosition;
+
+    /**
+     * Constructor.
+     *
+     * @param data the buffer containing entries, ownership is passed to the page
+     * @param fic the directory information class of entries
+     * @throws IllegalArgumentException if information class is not supported
+     */
+    public DirectoryPage(final ByteBuf data, final FileInformationClass fic) {
+        this.data = requireNonNull(data);
+        this.fic = requireNonNull(fic);
+        fileNameOffset = switch (fic) {
+            case FileDirectoryInformation -> 64;
+            case FileFullDirectoryInformation -> 68;
+            case FileBothDirectoryInformation -> 94;
+            case FileIdFullDirectoryInformation -> 80;
+            case FileIdBothDirectoryInformation -> 104;
+            default -> throw new IllegalArgumentException("Unsupported directory information class " + fic);
+        };
+        fileIdOffset = switch (fic) {
+            case FileIdFullDirectoryInformation -> 72;
+            case FileIdBothDirectoryInformation -> 96;
+            default -> -1;
+        };
+        rewind();
+    }
+
+    /**
+     * Returns a page with no entries.
+     *
+     * @param fic the directory information class
+     * @return empty page
+     */
+    public static DirectoryPage empty(final FileInformationClass fic) {
+        return new DirectoryPage(Unpooled.EMPTY_BUFFER, fic);
+    }
+
+    public FileInformationClass fileInformationClass() {
+        return fic;
+    }
+
+    public boolean isEmpty() {
+        return !data.isReadable();
+    }
+
+    /**
+     * Moves the cursor to the next entry.
+     *
+     * @return true if moved, false if there are no more entries
+     * @throws SmbException if the entry exceeds the buffer bounds
+     */
+    public boolean next() {
+        if (nextPosition < 0) {
+            return false;
+        }
+        position = nextPosition;
+        if (position + fileNameOffset > data.writerIndex()
+            || position + fileNameOffset + data.getIntLE(position + FILE_NAME_LENGTH) > data.writerIndex()) {
+            nextPosition = -1;
+            throw new SmbException("Directory entry at %d exceeds the buffer bounds"
+                .formatted(position - data.readerIndex()));
+        }
+        final var nextEntryOffset = data.getIntLE(position + NEXT_ENTRY_OFFSET);
+        nextPosition = nextEntryOffset > 0 ? position + nextEntryOffset : -1;
+        return true;
+    }
+
+    /**
+     * Moves the cursor before the first entry.
+     */
+    public void rewind() {
+        position = -1;
+        nextPosition = data.isReadable() ? data.readerIndex() : -1;
+    }
+
+    public int fileIndex() {
+        return data.getIntLE(current() + FILE_INDEX);
+    }
+
+    public long creationTime() {
+        return data.getLongLE(current() + CREATION_TIME);
+    }
+
+    public long lastAccessTime() {
+        return data.getLongLE(current() + LAST_ACCESS_TIME);
+    }
+
+    public long lastWriteTime() {
+        return data.getLongLE(current() + LAST_WRITE_TIME);
+    }
+
+    public long changeTime() {
+        return data.getLongLE(current() + CHANGE_TIME);
+    }
+
+    public long endOfFile() {
+        return data.getLongLE(current() + END_OF_FILE);
+    }
+
+    public long allocationSize() {
+        return data.getLongLE(current() + ALLOCATION_SIZE);
+    }
+
+    public int fileAttributes() {
+        return data.getIntLE(current() + FILE_ATTRIBUTES);
+    }
+
+    public boolean hasAttribute(final FileAttributeFlags attribute) {
+        return (fileAttributes() & attribute.mask()) != 0;
+    }
+
+    public boolean isDirectory() {
+        return hasAttribute(FileAttributeFlags.FILE_ATTRIBUTE_DIRECTORY);
+    }
+
+    public boolean hasFileId() {
+        return fileIdOffset > 0;
+    }
+
+    /**
+     * Returns the file id. Available for FileIdFullDirectoryInformation and FileIdBothDirectoryInformation only.
+     *
+     * @return file id
+     * @throws IllegalStateException if information class has no file id
+     */
+    public long fileId() {
+        if (fileIdOffset < 0) {
+            throw new IllegalStateException("No file id within " + fic);
+        }
+        return data.getLongLE(current() + fileIdOffset);
+    }
+
+    /**
+     * Returns file name length in characters.
+     */
+    public int fileNameLength() {
+        return data.getIntLE(current() + FILE_NAME_LENGTH) / 2;
+    }
+
+    public char fileNameCharAt(final int index) {
+        return (char) data.getShortLE(current() + fileNameOffset + index * 2);
+    }
+
+    public String fileName() {
+        final var pos = current();
+        return data.toString(pos + fileNameOffset, data.getIntLE(pos + FILE_NAME_LENGTH), StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * Compares file name with given one, without decoding the name.
+     *
+     * @param name the name to compare with
+     * @param ignoreCase true if names are compared case-insensitive (as SMB servers usually do)
+     * @return true if names are equal
+     */
+    public boolean fileNameEquals(final CharSequence name, final boolean ignoreCase) {
+        final var length = fileNameLength();
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final var ch = fileNameCharAt(i);
+            final var other = name.charAt(i);
+            if (ch != other && (!ignoreCase || Character.toUpperCase(ch) != Character.toUpperCase(other))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds entry object of current entry.
+     *
+     * @return {@link FileIdBothDirectoryInformation} or {@link FileIdFullDirectoryInformation} if information
+     *     class contains file id, {@link FileDirectoryInformation} otherwise
+     */
+    public FileDirectoryInformation toFileInformation() {
+        final var pos = current();
+        final FileDirectoryInformation info = switch (fic) {
+            case FileIdBothDirectoryInformation -> {
+                final var idBoth = new FileIdBothDirectoryInformation();
+                final var shortNameLength = data.getUnsignedByte(pos + SHORT_NAME_LENGTH);
+                idBoth.setShortName(data.toString(pos + SHORT_NAME, Math.min(shortNameLength, 24),
+                    StandardCharsets.UTF_16LE));
+                yield idBoth;
+            }
+            case FileIdFullDirectoryInformation -> new FileIdFullDirectoryInformation();
+            default -> new FileDirectoryInformation();
+        };
+        if (info instanceof FileIdFullDirectoryInformation idFull) {
+            idFull.setEaSize(data.getIntLE(pos + EA_SIZE));
+            idFull.setFileId(data.getLongLE(pos + fileIdOffset));
+        }
+        info.setFileIndex(fileIndex());
+        info.setCreationTime(creationTime());
+        info.setLastAccessTime(lastAccessTime());
+        info.setLastWriteTime(lastWriteTime());
+        info.setChangeTime(changeTime());
+        info.setEndOfFile(endOfFile());
+        info.setAllocationSize(allocationSize());
+        info.setFileAttributes(new Flags<>(fileAttributes()));
+        info.setFileName(fileName());
+        return info;
+    }
+
+    private int current() {
+        if (position < 0) {
+            throw new IllegalStateException("No current entry, next() is expected to be called first");
+        }
+        return position;
+    }
+
+    @Override
+    public void close() {
+        data.release();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.fscc;
+
+/**
+ * Change action. Addresses MS-FSCC (#2.7.1 FILE_NOTIFY_INFORMATION).
+ */
+public enum FileAction {
+
+    FILE_ACTION_ADDED(0x00000001),
+    FILE_ACTION_REMOVED(0x00000002),
+    FILE_ACTION_MODIFIED(0x00000003),
+    FILE_ACTION_RENAMED_OLD_NAME(0x00000004),
+    FILE_ACTION_RENAMED_NEW_NAME(0x00000005),
+    FILE_ACTION_ADDED_STREAM(0x00000006),
+    FILE_ACTION_REMOVED_STREAM(0x00000007),
+    FILE_ACTION_MODIFIED_STREAM(0x00000008),
+    FILE_ACTION_REMOVED_BY_DELETE(0x00000009),
+    FILE_ACTION_ID_NOT_TUNNELLED(0x0000000A),
+    FILE_ACTION_TUNNELLED_ID_COLLISION(0x0000000B);
+
+    private final int code;
+
+    FileAction(final int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static FileAction fromCode(final int code) {
+        for (var action : values()) {
+            if (action.code == code) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("Unknown FileAction code " + code);
+    }
+}
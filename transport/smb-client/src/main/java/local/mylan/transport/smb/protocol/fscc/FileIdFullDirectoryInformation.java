@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.fscc;
+
+/**
+ * Addresses MS-FSCC (#2.4.19 FileIdFullDirectoryInformation).
+ *
+ * <p>File id is unique within the volume and remains same for the file lifetime (including renames).
+ */
+public class FileIdFullDirectoryInformation extends FileDirectoryInformation {
+    private int eaSize;
+    private long fileId;
+
+    public int eaSize() {
+        return eaSize;
+    }
+
+    public void setEaSize(final int eaSize) {
+        this.eaSize = eaSize;
+    }
+
+    public long fileId() {
+        return fileId;
+    }
+
+    public void setFileId(final long fileId) {
+        this.fileId = fileId;
+    }
+}
@@ -42,9 +42,9 @@ public enum FileInformationClass {
     FileId64ExtdDirectoryInformation(78, Use.QUERY),
     FileIdAllExtdBothDirectoryInformation(81, Use.QUERY),
     FileIdAllExtdDirectoryInformation(80, Use.QUERY),
-    FileIdBothDirectoryInformation(37, Use.QUERY),
+    FileIdBothDirectoryInformation(37, Use.QUERY, FileIdBothDirectoryInformation.class),
     FileIdExtdDirectoryInformation(60, Use.QUERY),
-    FileIdFullDirectoryInformation(38, Use.QUERY),
+    FileIdFullDirectoryInformation(38, Use.QUERY, FileIdFullDirectoryInformation.class),
     FileIdGlobalTxDirectoryInformation(50, Use.LOCAL),
     FileIdInformation(59, Use.QUERY),
     FileInternalInformation(6, Use.QUERY),
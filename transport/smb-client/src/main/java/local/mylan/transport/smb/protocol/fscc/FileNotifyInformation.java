@@ -0,0 +1,25 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.fscc;
+
+/**
+ * Directory change. Addresses MS-FSCC (#2.7.1 FILE_NOTIFY_INFORMATION).
+ *
+ * @param action change action
+ * @param fileName name of the file changed, relative to the directory watched
+ */
+public record FileNotifyInformation(FileAction action, String fileName) {
+}
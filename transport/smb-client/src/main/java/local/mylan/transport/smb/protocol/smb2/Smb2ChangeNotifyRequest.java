@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Request;
+
+/**
+ * Addresses MS-SMB2 (#2.2.35 SMB2 CHANGE_NOTIFY Request).
+ */
+public class Smb2ChangeNotifyRequest extends Smb2Request {
+
+    private Flags<Smb2ChangeNotifyFlags> flags;
+    private int outputBufferLength;
+    private UUID fileId;
+    private Flags<Smb2CompletionFilterFlags> completionFilter;
+
+    public Smb2ChangeNotifyRequest() {
+        // default
+    }
+
+    public Smb2ChangeNotifyRequest(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_CHANGE_NOTIFY;
+    }
+
+    public Flags<Smb2ChangeNotifyFlags> flags() {
+        return flags;
+    }
+
+    public void setFlags(final Flags<Smb2ChangeNotifyFlags> flags) {
+        this.flags = flags;
+    }
+
+    public int outputBufferLength() {
+        return outputBufferLength;
+    }
+
+    public void setOutputBufferLength(final int outputBufferLength) {
+        this.outputBufferLength = outputBufferLength;
+    }
+
+    public UUID fileId() {
+        return fileId;
+    }
+
+    public void setFileId(final UUID fileId) {
+        this.fileId = fileId;
+    }
+
+    public Flags<Smb2CompletionFilterFlags> completionFilter() {
+        return completionFilter;
+    }
+
+    public void setCompletionFilter(final Flags<Smb2CompletionFilterFlags> completionFilter) {
+        this.completionFilter = completionFilter;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.List;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
+
+/**
+ * Addresses MS-SMB2 (#2.2.36 SMB2 CHANGE_NOTIFY Response).
+ */
+public class Smb2ChangeNotifyResponse extends Smb2Response {
+
+    private List<FileNotifyInformation> changes = List.of();
+
+    public Smb2ChangeNotifyResponse() {
+        // default
+    }
+
+    public Smb2ChangeNotifyResponse(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_CHANGE_NOTIFY;
+    }
+
+    public List<FileNotifyInformation> changes() {
+        return changes;
+    }
+
+    public void setChanges(final List<FileNotifyInformation> changes) {
+        this.changes = changes;
+    }
+}
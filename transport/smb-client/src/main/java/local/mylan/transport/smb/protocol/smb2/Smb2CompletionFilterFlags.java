@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Completion Filter. Addresses MS-SMB2 (#2.2.35 SMB2 CHANGE_NOTIFY Request).
+ */
+public enum Smb2CompletionFilterFlags implements Flags.BitMaskProvider {
+    FILE_NOTIFY_CHANGE_FILE_NAME(0x00000001),
+    FILE_NOTIFY_CHANGE_DIR_NAME(0x00000002),
+    FILE_NOTIFY_CHANGE_ATTRIBUTES(0x00000004),
+    FILE_NOTIFY_CHANGE_SIZE(0x00000008),
+    FILE_NOTIFY_CHANGE_LAST_WRITE(0x00000010),
+    FILE_NOTIFY_CHANGE_LAST_ACCESS(0x00000020),
+    FILE_NOTIFY_CHANGE_CREATION(0x00000040),
+    FILE_NOTIFY_CHANGE_EA(0x00000080),
+    FILE_NOTIFY_CHANGE_SECURITY(0x00000100),
+    FILE_NOTIFY_CHANGE_STREAM_NAME(0x00000200),
+    FILE_NOTIFY_CHANGE_STREAM_SIZE(0x00000400),
+    FILE_NOTIFY_CHANGE_STREAM_WRITE(0x00000800);
+
+    private final int mask;
+
+    Smb2CompletionFilterFlags(int mask) {
+        this.mask = mask;
+    }
+
+    @Override
+    public int mask() {
+        return mask;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.List;
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+
+/**
+ * Requests sent within a single transport frame chained by NextCommand header field.
+ * Header of compound request is the header of the first request in chain.
+ * Addresses MS-SMB2 (#3.2.4.1.4 Sending Compounded Requests).
+ */
+public final class Smb2CompoundRequest extends Smb2Request {
+
+    /**
+     * File ID to be used by related operations referring the file opened by preceding CREATE request.
+     */
+    public static final UUID RELATED_FILE_ID = new UUID(-1L, -1L);
+
+    private final List<Smb2Request> requests;
+
+    public Smb2CompoundRequest(final List<Smb2Request> requests) {
+        super(requests.getFirst().header());
+        this.requests = List.copyOf(requests);
+    }
+
+    /**
+     * Builds compound of related requests. Each request except the first one is flagged as related operation,
+     * so it inherits session, tree connect and file ID of the previous request.
+     *
+     * @param requests requests to compound
+     * @return compound request
+     */
+    public static Smb2CompoundRequest related(final List<Smb2Request> requests) {
+        for (int i = 1; i < requests.size(); i++) {
+            final var header = requests.get(i).header();
+            header.flags().set(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS, true);
+        }
+        return new Smb2CompoundRequest(requests);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return header.command();
+    }
+
+    public List<Smb2Request> requests() {
+        return requests;
+    }
+
+    /**
+     * Total credit charge of compounded requests, each request consumes at least one credit.
+     *
+     * @return credit charge
+     */
+    public int creditCharge() {
+        int charge = 0;
+        for (var request : requests) {
+            charge += Math.max(1, request.header().creditCharge());
+        }
+        return charge;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+/**
+ * Compression algorithm. Addresses MS-SMB2 (#2.2.3.1.3 SMB2_COMPRESSION_CAPABILITIES).
+ */
+public enum Smb2CompressionAlgorithm {
+
+    NONE(0x0000, "None"),
+    LZNT1(0x0001, "LZNT1"),
+    LZ77(0x0002, "LZ77"),
+    LZ77_HUFFMAN(0x0003, "LZ77+Huffman"),
+    PATTERN_V1(0x0004, "Pattern_V1"),
+    LZ4(0x0005, "LZ4");
+
+    private final int code;
+    private final String id;
+
+    Smb2CompressionAlgorithm(final int code, final String id) {
+        this.code = code;
+        this.id = id;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public static Smb2CompressionAlgorithm fromCode(final int code) {
+        for (var algorithm : values()) {
+            if (algorithm.code == code) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    public static Smb2CompressionAlgorithm fromId(final String id) {
+        for (var algorithm : values()) {
+            if (algorithm.id.equals(id)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+}
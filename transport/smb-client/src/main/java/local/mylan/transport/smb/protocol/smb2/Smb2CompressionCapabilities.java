@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import com.google.common.base.Objects;
+import java.util.List;
+
+/**
+ * Compression capabilities negotiate context. Addresses MS-SMB2 (#2.2.3.1.3 SMB2_COMPRESSION_CAPABILITIES).
+ */
+public class Smb2CompressionCapabilities extends Smb2NegotiateContext {
+
+    private List<Smb2CompressionAlgorithm> compressionAlgorithms;
+    private boolean chained;
+
+    public Smb2CompressionCapabilities() {
+    }
+
+    public Smb2CompressionCapabilities(final List<Smb2CompressionAlgorithm> compressionAlgorithms,
+        final boolean chained) {
+
+        this.compressionAlgorithms = compressionAlgorithms;
+        this.chained = chained;
+    }
+
+    @Override
+    public Smb2NegotiateContextType type() {
+        return Smb2NegotiateContextType.SMB2_COMPRESSION_CAPABILITIES;
+    }
+
+    public List<Smb2CompressionAlgorithm> compressionAlgorithms() {
+        return compressionAlgorithms;
+    }
+
+    public void setCompressionAlgorithms(final List<Smb2CompressionAlgorithm> compressionAlgorithms) {
+        this.compressionAlgorithms = compressionAlgorithms;
+    }
+
+    /**
+     * Indicates chained compression support (SMB2_COMPRESSION_CAPABILITIES_FLAG_CHAINED).
+     */
+    public boolean chained() {
+        return chained;
+    }
+
+    public void setChained(final boolean chained) {
+        this.chained = chained;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Smb2CompressionCapabilities that)) {
+            return false;
+        }
+        return chained == that.chained && Objects.equal(compressionAlgorithms, that.compressionAlgorithms);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(compressionAlgorithms, chained);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+/**
+ * SMB2 Create Context. Addresses MS-SMB2 (#2.2.13.2 SMB2_CREATE_CONTEXT Request Values)
+ * and (#2.2.14.2 SMB2_CREATE_CONTEXT Response Values).
+ */
+public abstract class Smb2CreateContext {
+
+    /**
+     * Returns the context name (tag), e.g. "RqLs" for lease context.
+     *
+     * @return context name
+     */
+    public abstract String name();
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Durable handle v2 reconnect create context. Addresses MS-SMB2
+ * (#2.2.13.2.12 SMB2_CREATE_DURABLE_HANDLE_RECONNECT_V2).
+ */
+public class Smb2CreateDurableHandleReconnectV2Context extends Smb2CreateContext {
+    public static final String NAME = "DH2C";
+
+    private UUID fileId;
+    private UUID createGuid;
+    private Flags<Smb2DurableHandleFlags> flags;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    public UUID fileId() {
+        return fileId;
+    }
+
+    public void setFileId(final UUID fileId) {
+        this.fileId = fileId;
+    }
+
+    public UUID createGuid() {
+        return createGuid;
+    }
+
+    public void setCreateGuid(final UUID createGuid) {
+        this.createGuid = createGuid;
+    }
+
+    public Flags<Smb2DurableHandleFlags> flags() {
+        return flags;
+    }
+
+    public void setFlags(final Flags<Smb2DurableHandleFlags> flags) {
+        this.flags = flags;
+    }
+}
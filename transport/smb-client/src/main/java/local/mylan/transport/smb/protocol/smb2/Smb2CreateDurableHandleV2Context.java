@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Durable handle v2 create context. Addresses MS-SMB2 (#2.2.13.2.11 SMB2_CREATE_DURABLE_HANDLE_REQUEST_V2,
+ * #2.2.14.2.12 SMB2_CREATE_DURABLE_HANDLE_RESPONSE_V2).
+ *
+ * <p>Create GUID is only present in request, the response carries timeout and flags granted.
+ */
+public class Smb2CreateDurableHandleV2Context extends Smb2CreateContext {
+    public static final String NAME = "DH2Q";
+
+    private int timeout;
+    private Flags<Smb2DurableHandleFlags> flags;
+    private UUID createGuid;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    /**
+     * Returns the time (in milliseconds) the open is preserved by the server after the connection loss,
+     * zero means the timeout is selected by the server.
+     *
+     * @return timeout in milliseconds
+     */
+    public int timeout() {
+        return timeout;
+    }
+
+    public void setTimeout(final int timeout) {
+        this.timeout = timeout;
+    }
+
+    public Flags<Smb2DurableHandleFlags> flags() {
+        return flags;
+    }
+
+    public void setFlags(final Flags<Smb2DurableHandleFlags> flags) {
+        this.flags = flags;
+    }
+
+    public UUID createGuid() {
+        return createGuid;
+    }
+
+    public void setCreateGuid(final UUID createGuid) {
+        this.createGuid = createGuid;
+    }
+}
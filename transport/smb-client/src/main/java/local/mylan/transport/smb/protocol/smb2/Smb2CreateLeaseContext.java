@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Lease create context. Addresses MS-SMB2 (#2.2.13.2.8 SMB2_CREATE_REQUEST_LEASE,
+ * #2.2.13.2.10 SMB2_CREATE_REQUEST_LEASE_V2, #2.2.14.2.10 SMB2_CREATE_RESPONSE_LEASE,
+ * #2.2.14.2.11 SMB2_CREATE_RESPONSE_LEASE_V2).
+ */
+public class Smb2CreateLeaseContext extends Smb2CreateContext {
+    public static final String NAME = "RqLs";
+
+    private UUID leaseKey;
+    private Flags<Smb2LeaseStateFlags> leaseState;
+    private Flags<Smb2LeaseFlags> leaseFlags;
+    // V2 only
+    private boolean v2;
+    private UUID parentLeaseKey;
+    private int epoch;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    public UUID leaseKey() {
+        return leaseKey;
+    }
+
+    public void setLeaseKey(final UUID leaseKey) {
+        this.leaseKey = leaseKey;
+    }
+
+    public Flags<Smb2LeaseStateFlags> leaseState() {
+        return leaseState;
+    }
+
+    public void setLeaseState(final Flags<Smb2LeaseStateFlags> leaseState) {
+        this.leaseState = leaseState;
+    }
+
+    public Flags<Smb2LeaseFlags> leaseFlags() {
+        return leaseFlags;
+    }
+
+    public void setLeaseFlags(final Flags<Smb2LeaseFlags> leaseFlags) {
+        this.leaseFlags = leaseFlags;
+    }
+
+    public boolean v2() {
+        return v2;
+    }
+
+    public void setV2(final boolean v2) {
+        this.v2 = v2;
+    }
+
+    public UUID parentLeaseKey() {
+        return parentLeaseKey;
+    }
+
+    public void setParentLeaseKey(final UUID parentLeaseKey) {
+        this.parentLeaseKey = parentLeaseKey;
+    }
+
+    public int epoch() {
+        return epoch;
+    }
+
+    public void setEpoch(final int epoch) {
+        this.epoch = epoch;
+    }
+}
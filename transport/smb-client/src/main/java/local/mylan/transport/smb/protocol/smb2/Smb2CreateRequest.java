@@ -15,6 +15,7 @@
  */
 package local.mylan.transport.smb.protocol.smb2;
 
+import java.util.List;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Command;
 import local.mylan.transport.smb.protocol.Smb2Header;
@@ -34,6 +35,7 @@ public final class Smb2CreateRequest extends Smb2Request {
     private Flags<Smb2ShareAccessFlags> shareAccess;
     private Smb2CreateDisposition createDisposition;
     private Flags<Smb2CreateOptionsFlags> createOptions;
+    private List<Smb2CreateContext> createContexts = List.of();
 
     public Smb2CreateRequest() {
         // default
@@ -115,4 +117,12 @@ public final class Smb2CreateRequest extends Smb2Request {
         final Flags<Smb2CreateOptionsFlags> createOptions) {
         this.createOptions = createOptions;
     }
+
+    public List<Smb2CreateContext> createContexts() {
+        return createContexts;
+    }
+
+    public void setCreateContexts(final List<Smb2CreateContext> createContexts) {
+        this.createContexts = createContexts;
+    }
 }
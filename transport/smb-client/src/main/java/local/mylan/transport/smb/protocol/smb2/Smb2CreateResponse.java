@@ -15,6 +15,7 @@
  */
 package local.mylan.transport.smb.protocol.smb2;
 
+import java.util.List;
 import java.util.UUID;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Command;
@@ -38,6 +39,7 @@ public final class Smb2CreateResponse extends Smb2Response {
     private long endOfFile;
     private Flags<FileAttributeFlags> fileAttributes;
     private UUID fileId;
+    private List<Smb2CreateContext> createContexts = List.of();
 
     public Smb2CreateResponse() {
         // default
@@ -140,4 +142,12 @@ public final class Smb2CreateResponse extends Smb2Response {
     public void setFileId(final UUID fileId) {
         this.fileId = fileId;
     }
+
+    public List<Smb2CreateContext> createContexts() {
+        return createContexts;
+    }
+
+    public void setCreateContexts(final List<Smb2CreateContext> createContexts) {
+        this.createContexts = createContexts;
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Durable Handle Flags. Addresses MS-SMB2 (#2.2.13.2.11 SMB2_CREATE_DURABLE_HANDLE_REQUEST_V2).
+ */
+public enum Smb2DurableHandleFlags implements Flags.BitMaskProvider {
+    SMB2_DHANDLE_FLAG_PERSISTENT(0x02);
+
+    private final int mask;
+
+    Smb2DurableHandleFlags(int mask) {
+        this.mask = mask;
+    }
+
+    @Override
+    public int mask() {
+        return mask;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+/**
+ * Encryption cipher. Addresses MS-SMB2 (#2.2.3.1.2 SMB2_ENCRYPTION_CAPABILITIES).
+ */
+public enum Smb2EncryptionCipher {
+
+    AES_128_CCM(0x0001, "AES-128-CCM", 16, 11),
+    AES_128_GCM(0x0002, "AES-128-GCM", 16, 12),
+    AES_256_CCM(0x0003, "AES-256-CCM", 32, 11),
+    AES_256_GCM(0x0004, "AES-256-GCM", 32, 12);
+
+    private final int code;
+    private final String id;
+    private final int keyLength;
+    private final int nonceLength;
+
+    Smb2EncryptionCipher(final int code, final String id, final int keyLength, final int nonceLength) {
+        this.code = code;
+        this.id = id;
+        this.keyLength = keyLength;
+        this.nonceLength = nonceLength;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public int keyLength() {
+        return keyLength;
+    }
+
+    public int nonceLength() {
+        return nonceLength;
+    }
+
+    public boolean isGcm() {
+        return this == AES_128_GCM || this == AES_256_GCM;
+    }
+
+    public static Smb2EncryptionCipher fromCode(final int code) {
+        for (var cipher : values()) {
+            if (cipher.code == code) {
+                return cipher;
+            }
+        }
+        return null;
+    }
+
+    public static Smb2EncryptionCipher fromId(final String id) {
+        for (var cipher : values()) {
+            if (cipher.id.equals(id)) {
+                return cipher;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Request;
+
+/**
+ * Addresses MS-SMB2 (#2.2.24.2 Lease Break Acknowledgment).
+ */
+public final class Smb2LeaseBreakAcknowledgment extends Smb2Request {
+
+    private UUID leaseKey;
+    private Flags<Smb2LeaseStateFlags> leaseState;
+
+    public Smb2LeaseBreakAcknowledgment() {
+        // default
+    }
+
+    public Smb2LeaseBreakAcknowledgment(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_OPLOCK_BREAK;
+    }
+
+    public UUID leaseKey() {
+        return leaseKey;
+    }
+
+    public void setLeaseKey(final UUID leaseKey) {
+        this.leaseKey = leaseKey;
+    }
+
+    public Flags<Smb2LeaseStateFlags> leaseState() {
+        return leaseState;
+    }
+
+    public void setLeaseState(final Flags<Smb2LeaseStateFlags> leaseState) {
+        this.leaseState = leaseState;
+    }
+}
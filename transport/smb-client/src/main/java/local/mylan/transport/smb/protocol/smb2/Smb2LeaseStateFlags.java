@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import local.mylan.transport.smb.protocol.Flags;
+
+/**
+ * Lease State. Addresses MS-SMB2 (#2.2.13.2.8 SMB2_CREATE_REQUEST_LEASE).
+ */
+public enum Smb2LeaseStateFlags implements Flags.BitMaskProvider {
+    SMB2_LEASE_READ_CACHING(0x01),
+    SMB2_LEASE_HANDLE_CACHING(0x02),
+    SMB2_LEASE_WRITE_CACHING(0x04);
+
+    private final int mask;
+
+    Smb2LeaseStateFlags(int mask) {
+        this.mask = mask;
+    }
+
+    @Override
+    public int mask() {
+        return mask;
+    }
+}
@@ -21,7 +21,5 @@ package local.mylan.transport.smb.protocol.smb2;
  */
 public abstract class Smb2NegotiateContext {
 
-    abstract Smb2NegotiateContextType type();
-
-
+    public abstract Smb2NegotiateContextType type();
 }
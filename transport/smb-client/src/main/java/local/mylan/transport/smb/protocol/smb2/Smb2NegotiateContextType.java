@@ -35,7 +35,7 @@ public enum Smb2NegotiateContextType {
         this.code = code;
     }
 
-    int code() {
+    public int code() {
         return code;
     }
 
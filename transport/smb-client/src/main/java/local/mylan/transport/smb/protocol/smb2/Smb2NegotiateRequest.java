@@ -34,6 +34,7 @@ public class Smb2NegotiateRequest extends Smb2Request {
     private Flags<Smb2CapabilitiesFlags> capabilities;
     private UUID clientGuid;
     private List<Smb2NegotiateContext> negotiateContexts;
+    private byte[] messageBytes; // as transmitted, preauth integrity hash input
 
     public Smb2NegotiateRequest() {
     }
@@ -88,6 +89,14 @@ public class Smb2NegotiateRequest extends Smb2Request {
         this.negotiateContexts = negotiateContexts;
     }
 
+    public byte[] messageBytes() {
+        return messageBytes;
+    }
+
+    public void setMessageBytes(final byte[] messageBytes) {
+        this.messageBytes = messageBytes;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
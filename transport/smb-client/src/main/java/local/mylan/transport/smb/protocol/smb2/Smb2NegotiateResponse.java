@@ -15,6 +15,7 @@
  */
 package local.mylan.transport.smb.protocol.smb2;
 
+import java.util.List;
 import java.util.UUID;
 import local.mylan.transport.smb.protocol.Flags;
 import local.mylan.transport.smb.protocol.Smb2Command;
@@ -39,6 +40,8 @@ public class Smb2NegotiateResponse extends Smb2Response {
     private long serverStartTime;
 
     private NegToken token;
+    private List<Smb2NegotiateContext> negotiateContexts;
+    private byte[] messageBytes; // as transmitted, preauth integrity hash input
 
     public Smb2NegotiateResponse() {
     }
@@ -133,4 +136,20 @@ public class Smb2NegotiateResponse extends Smb2Response {
     public void setToken(final NegToken token) {
         this.token = token;
     }
+
+    public List<Smb2NegotiateContext> negotiateContexts() {
+        return negotiateContexts;
+    }
+
+    public void setNegotiateContexts(final List<Smb2NegotiateContext> negotiateContexts) {
+        this.negotiateContexts = negotiateContexts;
+    }
+
+    public byte[] messageBytes() {
+        return messageBytes;
+    }
+
+    public void setMessageBytes(final byte[] messageBytes) {
+        this.messageBytes = messageBytes;
+    }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.net.InetAddress;
+
+/**
+ * Server network interface. Addresses MS-SMB2 (#2.2.32.5 NETWORK_INTERFACE_INFO Response).
+ *
+ * @param ifIndex network interface index
+ * @param rssCapable true if the interface is RSS-capable, such interface may serve several channels
+ * @param rdmaCapable true if the interface is RDMA-capable
+ * @param linkSpeed link speed in bits per second
+ * @param address interface address
+ */
+public record Smb2NetworkInterfaceInfo(int ifIndex, boolean rssCapable, boolean rdmaCapable, long linkSpeed,
+    InetAddress address) {
+}
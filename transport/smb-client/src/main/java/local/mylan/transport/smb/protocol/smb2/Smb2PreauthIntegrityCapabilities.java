@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import com.google.common.base.Objects;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Preauth integrity negotiate context. Addresses MS-SMB2 (#2.2.3.1.1 SMB2_PREAUTH_INTEGRITY_CAPABILITIES).
+ */
+public class Smb2PreauthIntegrityCapabilities extends Smb2NegotiateContext {
+
+    private List<Smb2HashAlgorithm> hashAlgorithms;
+    private byte[] salt;
+
+    public Smb2PreauthIntegrityCapabilities() {
+    }
+
+    public Smb2PreauthIntegrityCapabilities(final List<Smb2HashAlgorithm> hashAlgorithms, final byte[] salt) {
+        this.hashAlgorithms = hashAlgorithms;
+        this.salt = salt;
+    }
+
+    @Override
+    public Smb2NegotiateContextType type() {
+        return Smb2NegotiateContextType.SMB2_PREAUTH_INTEGRITY_CAPABILITIES;
+    }
+
+    public List<Smb2HashAlgorithm> hashAlgorithms() {
+        return hashAlgorithms;
+    }
+
+    public void setHashAlgorithms(final List<Smb2HashAlgorithm> hashAlgorithms) {
+        this.hashAlgorithms = hashAlgorithms;
+    }
+
+    public byte[] salt() {
+        return salt;
+    }
+
+    public void setSalt(final byte[] salt) {
+        this.salt = salt;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Smb2PreauthIntegrityCapabilities that)) {
+            return false;
+        }
+        return Objects.equal(hashAlgorithms, that.hashAlgorithms) && Arrays.equals(salt, that.salt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hashAlgorithms, Arrays.hashCode(salt));
+    }
+}
@@ -15,6 +15,7 @@
  */
 package local.mylan.transport.smb.protocol.smb2;
 
+import io.netty.buffer.ByteBuf;
 import java.util.List;
 import local.mylan.transport.smb.protocol.Smb2Command;
 import local.mylan.transport.smb.protocol.Smb2Header;
@@ -23,10 +24,13 @@ import local.mylan.transport.smb.protocol.fscc.FileInformation;
 
 /**
  * Addresses MS-SMB2 (#2.2.34 SMB2 QUERY_DIRECTORY Response).
+ *
+ * <p>Decoded data is a retained slice of the inbound packet buffer, it's a responsibility of the consumer
+ * to release it. Entries to be encoded are set as objects.
  */
 public class Smb2QueryDirectoryResponse extends Smb2Response {
 
-    private byte[] encoded;
+    private ByteBuf data;
     private List<FileInformation> decoded;
 
     public Smb2QueryDirectoryResponse() {
@@ -42,12 +46,12 @@ public class Smb2QueryDirectoryResponse extends Smb2Response {
         return Smb2Command.SMB2_QUERY_DIRECTORY;
     }
 
-    public byte[] encoded() {
-        return encoded;
+    public ByteBuf data() {
+        return data;
     }
 
-    public void setEncoded(final byte[] encoded) {
-        this.encoded = encoded;
+    public void setData(final ByteBuf data) {
+        this.data = data;
     }
 
     public List<FileInformation> decoded() {
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Request;
+
+/**
+ * Addresses MS-SMB2 (#2.2.19 SMB2 READ Request).
+ */
+public class Smb2ReadRequest extends Smb2Request {
+
+    private Flags<Smb2ReadFlags> flags;
+    private int length;
+    private long offset;
+    private UUID fileId;
+    private int minimumCount;
+    private int remainingBytes;
+
+    public Smb2ReadRequest() {
+        // default
+    }
+
+    public Smb2ReadRequest(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_READ;
+    }
+
+    public Flags<Smb2ReadFlags> flags() {
+        return flags;
+    }
+
+    public void setFlags(final Flags<Smb2ReadFlags> flags) {
+        this.flags = flags;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void setLength(final int length) {
+        this.length = length;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public void setOffset(final long offset) {
+        this.offset = offset;
+    }
+
+    public UUID fileId() {
+        return fileId;
+    }
+
+    public void setFileId(final UUID fileId) {
+        this.fileId = fileId;
+    }
+
+    public int minimumCount() {
+        return minimumCount;
+    }
+
+    public void setMinimumCount(final int minimumCount) {
+        this.minimumCount = minimumCount;
+    }
+
+    public int remainingBytes() {
+        return remainingBytes;
+    }
+
+    public void setRemainingBytes(final int remainingBytes) {
+        this.remainingBytes = remainingBytes;
+    }
+}
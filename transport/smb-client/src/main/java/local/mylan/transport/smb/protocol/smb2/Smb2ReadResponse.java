@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Response;
+
+/**
+ * Addresses MS-SMB2 (#2.2.20 SMB2 READ Response).
+ *
+ * <p>Decoded data is a retained slice of the inbound packet buffer, it's a responsibility of the consumer
+ * to release it.
+ *
+ * <p>Data region is an alternative to data buffer used by the server for zero-copy transfer: the message
+ * is encoded with data length of the region, the region itself is written to the channel right after
+ * the encoded message.
+ */
+public class Smb2ReadResponse extends Smb2Response {
+
+    private int dataRemaining;
+    private ByteBuf data;
+    private FileRegion dataRegion;
+
+    public Smb2ReadResponse() {
+        // default
+    }
+
+    public Smb2ReadResponse(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_READ;
+    }
+
+    public int dataRemaining() {
+        return dataRemaining;
+    }
+
+    public void setDataRemaining(final int dataRemaining) {
+        this.dataRemaining = dataRemaining;
+    }
+
+    public ByteBuf data() {
+        return data;
+    }
+
+    public void setData(final ByteBuf data) {
+        this.data = data;
+    }
+
+    public FileRegion dataRegion() {
+        return dataRegion;
+    }
+
+    public void setDataRegion(final FileRegion dataRegion) {
+        this.dataRegion = dataRegion;
+    }
+}
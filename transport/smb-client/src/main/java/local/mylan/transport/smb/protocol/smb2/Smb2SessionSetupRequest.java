@@ -31,6 +31,7 @@ public class Smb2SessionSetupRequest extends Smb2Request {
     private Flags<Smb2CapabilitiesFlags> capabilities;
     private long previousSessionId;
     private NegToken token;
+    private byte[] messageBytes; // as transmitted, preauth integrity hash input
 
     public Smb2SessionSetupRequest() {
     }
@@ -83,4 +84,12 @@ public class Smb2SessionSetupRequest extends Smb2Request {
     public void setToken(final NegToken token) {
         this.token = token;
     }
+
+    public byte[] messageBytes() {
+        return messageBytes;
+    }
+
+    public void setMessageBytes(final byte[] messageBytes) {
+        this.messageBytes = messageBytes;
+    }
 }
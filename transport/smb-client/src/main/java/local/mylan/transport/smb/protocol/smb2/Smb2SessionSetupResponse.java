@@ -27,6 +27,7 @@ import local.mylan.transport.smb.protocol.spnego.NegToken;
 public class Smb2SessionSetupResponse extends Smb2Response {
     private Flags<Smb2SessionResponseFlags> sessionFlags;
     private NegToken token;
+    private byte[] messageBytes; // as transmitted, preauth integrity hash input
 
     public Smb2SessionSetupResponse() {
     }
@@ -55,4 +56,12 @@ public class Smb2SessionSetupResponse extends Smb2Response {
     public void setToken(final NegToken token) {
         this.token = token;
     }
+
+    public byte[] messageBytes() {
+        return messageBytes;
+    }
+
+    public void setMessageBytes(final byte[] messageBytes) {
+        this.messageBytes = messageBytes;
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+/**
+ * Signing algorithm. Addresses MS-SMB2 (#2.2.3.1.7 SMB2_SIGNING_CAPABILITIES).
+ */
+public enum Smb2SigningAlgorithm {
+
+    HMAC_SHA256(0x0000, "HMAC-SHA256"),
+    AES_CMAC(0x0001, "AES-CMAC"),
+    AES_GMAC(0x0002, "AES-GMAC");
+
+    private final int code;
+    private final String id;
+
+    Smb2SigningAlgorithm(final int code, final String id) {
+        this.code = code;
+        this.id = id;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public static Smb2SigningAlgorithm fromCode(final int code) {
+        for (var algorithm : values()) {
+            if (algorithm.code == code) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    public static Smb2SigningAlgorithm fromId(final String id) {
+        for (var algorithm : values()) {
+            if (algorithm.id.equals(id)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import com.google.common.base.Objects;
+import java.util.List;
+
+/**
+ * Signing capabilities negotiate context. Addresses MS-SMB2 (#2.2.3.1.7 SMB2_SIGNING_CAPABILITIES).
+ */
+public class Smb2SigningCapabilities extends Smb2NegotiateContext {
+
+    private List<Smb2SigningAlgorithm> signingAlgorithms;
+
+    public Smb2SigningCapabilities() {
+    }
+
+    public Smb2SigningCapabilities(final List<Smb2SigningAlgorithm> signingAlgorithms) {
+        this.signingAlgorithms = signingAlgorithms;
+    }
+
+    @Override
+    public Smb2NegotiateContextType type() {
+        return Smb2NegotiateContextType.SMB2_SIGNING_CAPABILITIES;
+    }
+
+    public List<Smb2SigningAlgorithm> signingAlgorithms() {
+        return signingAlgorithms;
+    }
+
+    public void setSigningAlgorithms(final List<Smb2SigningAlgorithm> signingAlgorithms) {
+        this.signingAlgorithms = signingAlgorithms;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Smb2SigningCapabilities that)) {
+            return false;
+        }
+        return Objects.equal(signingAlgorithms, that.signingAlgorithms);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(signingAlgorithms);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.SmbError;
+
+/**
+ * Request of the command having no decoder. Only the header is decoded, so the server is able to reply
+ * with an error (e.g. STATUS_NOT_SUPPORTED) instead of leaving the request unanswered.
+ *
+ * <p>Request rejected by the codec (e.g. due to signature verification failure) is also substituted with
+ * this one, the status it's expected to be failed with is provided then.
+ */
+public class Smb2UnsupportedRequest extends Smb2Request {
+    private final SmbError status;
+
+    public Smb2UnsupportedRequest(final Smb2Header header) {
+        this(header, null);
+    }
+
+    public Smb2UnsupportedRequest(final Smb2Header header, final SmbError status) {
+        super(header);
+        this.status = status;
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return header.command();
+    }
+
+    /**
+     * Returns the status the request is to be failed with.
+     *
+     * @return error status, null if not defined
+     */
+    public SmbError status() {
+        return status;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import io.netty.buffer.ByteBuf;
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Request;
+
+/**
+ * Addresses MS-SMB2 (#2.2.21 SMB2 WRITE Request).
+ *
+ * <p>Data buffer is not consumed nor released on encoding, it remains under control of the request owner.
+ */
+public class Smb2WriteRequest extends Smb2Request {
+
+    private Flags<Smb2WriteFlags> flags;
+    private long offset;
+    private UUID fileId;
+    private int remainingBytes;
+    private ByteBuf data;
+
+    public Smb2WriteRequest() {
+        // default
+    }
+
+    public Smb2WriteRequest(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_WRITE;
+    }
+
+    public Flags<Smb2WriteFlags> flags() {
+        return flags;
+    }
+
+    public void setFlags(final Flags<Smb2WriteFlags> flags) {
+        this.flags = flags;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public void setOffset(final long offset) {
+        this.offset = offset;
+    }
+
+    public UUID fileId() {
+        return fileId;
+    }
+
+    public void setFileId(final UUID fileId) {
+        this.fileId = fileId;
+    }
+
+    public int remainingBytes() {
+        return remainingBytes;
+    }
+
+    public void setRemainingBytes(final int remainingBytes) {
+        this.remainingBytes = remainingBytes;
+    }
+
+    public ByteBuf data() {
+        return data;
+    }
+
+    public void setData(final ByteBuf data) {
+        this.data = data;
+    }
+}
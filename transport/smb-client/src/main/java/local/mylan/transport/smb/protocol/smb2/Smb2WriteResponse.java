@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.smb2;
+
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
+import local.mylan.transport.smb.protocol.Smb2Response;
+
+/**
+ * Addresses MS-SMB2 (#2.2.22 SMB2 WRITE Response).
+ */
+public class Smb2WriteResponse extends Smb2Response {
+
+    private int count;
+
+    public Smb2WriteResponse() {
+        // default
+    }
+
+    public Smb2WriteResponse(final Smb2Header header) {
+        super(header);
+    }
+
+    @Override
+    protected Smb2Command command() {
+        return Smb2Command.SMB2_WRITE;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public void setCount(final int count) {
+        this.count = count;
+    }
+}
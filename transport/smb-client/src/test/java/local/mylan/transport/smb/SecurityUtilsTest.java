@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HexFormat;
+import local.mylan.transport.smb.protocol.details.UserCredentials;
+import org.junit.jupiter.api.Test;
+
+class SecurityUtilsTest {
+    // MS-NLMP (#4.2.2.1.2 NTOWFv1, #4.2.4.1.1 NTOWFv2 and LMOWFv2)
+    private static final byte[] NTOWF_V1 = HexFormat.of().parseHex("a4f49c406510bdcab6824ee7c30fd852");
+    private static final byte[] NTOWF_V2 = HexFormat.of().parseHex("0c868a403bfd7a93a3001ef22ef02e3f");
+
+    @Test
+    void ntOwf() {
+        // repeated to ensure pooled instances are reset between invocations
+        for (int i = 0; i < 2; i++) {
+            assertArrayEquals(NTOWF_V1, SecurityUtils.ntOwfV1("Password"));
+            assertArrayEquals(NTOWF_V2, SecurityUtils.ntOwfV2(NTOWF_V1, "User", "Domain"));
+        }
+    }
+
+    @Test
+    void hashedCredentials() {
+        final var creds = assertInstanceOf(UserCredentials.HashedUserCredentials.class,
+            UserCredentials.hashed("User", "Domain", "Password"));
+        assertNull(creds.password());
+        assertArrayEquals(NTOWF_V1, creds.ntOwfV1());
+        assertArrayEquals(NTOWF_V2, creds.ntOwfV2());
+    }
+}
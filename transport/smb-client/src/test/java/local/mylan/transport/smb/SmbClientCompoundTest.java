@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.details.Connection;
+import local.mylan.transport.smb.protocol.details.OpenDetails;
+import local.mylan.transport.smb.protocol.flows.ClientCompoundQueryDirectoryFlow;
+import local.mylan.transport.smb.protocol.flows.ServerRequestDispatcher;
+import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDisposition;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectRequest;
+import org.junit.jupiter.api.Test;
+
+class SmbClientCompoundTest {
+
+    @Test
+    void listDirectory() throws Exception {
+        final var server = new TestServer();
+        final var received = new ArrayList<Smb2Request>();
+        final var flow = newListFlow(server, request -> {
+            received.add(request);
+            return null;
+        });
+        flow.start();
+
+        final var files = flow.completeFuture().get(1, TimeUnit.SECONDS);
+        assertEquals(TestServer.DIRECTORY_ENTRIES, files.stream()
+            .map(file -> ((FileDirectoryInformation) file).fileName()).toList());
+
+        // single frame of related requests
+        assertEquals(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_QUERY_DIRECTORY,
+                Smb2Command.SMB2_QUERY_DIRECTORY, Smb2Command.SMB2_CLOSE),
+            received.stream().skip(1).map(request -> request.header().command()).toList());
+        final var create = received.get(1);
+        assertFalse(create.header().flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        for (var related : received.subList(2, received.size())) {
+            assertTrue(related.header().flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        }
+        final var queryDir = (Smb2QueryDirectoryRequest) received.get(2);
+        assertEquals(Smb2CompoundRequest.RELATED_FILE_ID, queryDir.fileId());
+        assertEquals(create.header().messageId() + 1, queryDir.header().messageId());
+    }
+
+    @Test
+    void listDirectoryIncomplete() throws Exception {
+        final var server = new TestServer();
+        // every QUERY_DIRECTORY returns entries, so the compound cannot confirm the end of listing
+        final var flow = newListFlow(server, request -> request instanceof Smb2QueryDirectoryRequest
+            ? TestServer.directoryEntriesResponse() : null);
+        flow.start();
+
+        assertNull(flow.completeFuture().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void listDirectorySmb202() throws Exception {
+        final var server = new TestServer(
+            ConfUtils.loadConfiguration(TestServerConf.class, "server.dialect=SMB2_0_2"));
+        final var received = new ArrayList<Smb2Request>();
+        // SMB 2.0.2 server grants the credits requested only, NEGOTIATE leaves single credit available
+        final var dispatcher = server.asDispatcher(request -> {
+            received.add(request);
+            return null;
+        });
+        final ServerRequestDispatcher grantRequested = request -> Futures.transform(dispatcher.dispatch(request),
+            response -> {
+                response.header().setCreditResponse(Math.max(1, request.header().creditRequest()));
+                return response;
+            }, MoreExecutors.directExecutor());
+        final var channel = TestUtils.channelToServer(grantRequested);
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        final var sender = channel.pipeline().get(Smb2ClientHandler.class);
+        assertEquals(1, sender.creditsAvailable());
+
+        // compound of 4 requests awaits credits, request of other tree connect asks for those
+        final var flow = newListFlow(sender, connection);
+        flow.start();
+        final var treeConnect = new Smb2TreeConnectRequest();
+        treeConnect.header().setSessionId(1L);
+        treeConnect.setFlags(new Flags<>());
+        treeConnect.setPath("\\\\" + TestServer.NAME + "\\share");
+        sender.send(treeConnect, response -> { });
+        assertEquals(1 + 4, treeConnect.header().creditRequest());
+
+        final var files = flow.completeFuture().get(1, TimeUnit.SECONDS);
+        assertEquals(TestServer.DIRECTORY_ENTRIES, files.stream()
+            .map(file -> ((FileDirectoryInformation) file).fileName()).toList());
+        assertEquals(List.of(Smb2Command.SMB2_TREE_CONNECT, Smb2Command.SMB2_CREATE,
+                Smb2Command.SMB2_QUERY_DIRECTORY, Smb2Command.SMB2_QUERY_DIRECTORY, Smb2Command.SMB2_CLOSE),
+            received.stream().skip(1).map(request -> request.header().command()).toList());
+        assertEquals(received.get(2).header().messageId() + 1, received.get(3).header().messageId());
+    }
+
+    private static ClientCompoundQueryDirectoryFlow newListFlow(final TestServer server,
+        final Function<Smb2Request, Smb2Response> overrides) throws Exception {
+
+        final var channel = TestUtils.channelToServer(server.asDispatcher(overrides));
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        return newListFlow(channel.pipeline().get(Smb2ClientHandler.class), connection);
+    }
+
+    private static ClientCompoundQueryDirectoryFlow newListFlow(final Smb2ClientHandler sender,
+        final Connection connection) {
+
+        final var openDetails = new OpenDetails();
+        openDetails.setFileName("dir");
+        openDetails.setCreateOptions(new Flags<>());
+        openDetails.setFileAttributes(new Flags<>());
+        openDetails.setDesiredAccess(new Flags<>());
+        openDetails.setShareAccess(new Flags<>());
+        openDetails.setCreateDisposition(Smb2CreateDisposition.FILE_OPEN);
+        openDetails.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
+        return new ClientCompoundQueryDirectoryFlow(sender, openDetails,
+            FileInformationClass.FileDirectoryInformation, "*",
+            ClientCompoundQueryDirectoryFlow.outputBufferLength(connection.details()));
+    }
+}
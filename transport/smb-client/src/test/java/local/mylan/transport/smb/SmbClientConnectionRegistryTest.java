@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.netty.bootstrap.Bootstrap;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.smb.protocol.details.Connection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SmbClientConnectionRegistryTest {
+    private static final int THREADS = 8;
+
+    @TempDir
+    private Path shareDir;
+
+    private SmbServer server;
+    private CountingClient client;
+
+    /**
+     * Client counting the connection attempts made.
+     */
+    private static final class CountingClient extends SmbClient {
+        private final AtomicInteger bootstraps = new AtomicInteger();
+
+        @Override
+        synchronized Bootstrap newBootstrap() {
+            bootstraps.incrementAndGet();
+            return super.newBootstrap();
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        final var conf = ConfUtils.loadConfiguration(SmbServerConf.class, """
+            tcp.port=0
+            smb.server.username=user
+            smb.server.password=pass
+            """);
+        server = new SmbServer(conf, () -> Map.of("share", shareDir));
+        server.start();
+        client = new CountingClient();
+    }
+
+    @AfterEach
+    void afterEach() throws Exception {
+        client.close().get(1, TimeUnit.SECONDS);
+        server.stop();
+    }
+
+    @Test
+    void concurrentCallsShareConnection() throws Exception {
+        final var start = new CountDownLatch(1);
+        final var executor = Executors.newFixedThreadPool(THREADS);
+        final var futures = new ArrayList<Future<ListenableFuture<Connection>>>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return client.getOrCreateConnection(server.localAddress());
+                }));
+            }
+            start.countDown();
+            final var connection = futures.getFirst().get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS);
+            for (var future : futures) {
+                assertSame(connection, future.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+            }
+            assertEquals(1, client.bootstraps.get());
+            assertEquals(1, client.details().connections().size());
+
+            // established connection is reused, closed one is replaced
+            assertSame(connection, client.getOrCreateConnection(server.localAddress()).get(1, TimeUnit.SECONDS));
+            assertEquals(1, client.bootstraps.get());
+            connection.close().get(1, TimeUnit.SECONDS);
+            final var next = client.getOrCreateConnection(server.localAddress()).get(1, TimeUnit.SECONDS);
+            assertNotSame(connection, next);
+            assertEquals(2, client.bootstraps.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedCreationNotCached() throws Exception {
+        final InetSocketAddress address;
+        try (var socket = new ServerSocket(0)) {
+            // port is not listened once the socket is closed
+            address = new InetSocketAddress("127.0.0.1", socket.getLocalPort());
+        }
+        final var failed = client.getOrCreateConnection(address);
+        assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertEquals(1, client.bootstraps.get());
+
+        final var retried = client.getOrCreateConnection(address);
+        assertNotSame(failed, retried);
+        assertThrows(ExecutionException.class, () -> retried.get(1, TimeUnit.SECONDS));
+        assertEquals(2, client.bootstraps.get());
+        assertEquals(0, client.details().connections().size());
+    }
+}
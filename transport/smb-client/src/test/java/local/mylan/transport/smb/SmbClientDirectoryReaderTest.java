@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.flows.ClientCompoundQueryDirectoryFlow;
+import local.mylan.transport.smb.protocol.fscc.FileIdBothDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
+import org.junit.jupiter.api.Test;
+
+class SmbClientDirectoryReaderTest {
+
+    private static final UUID FILE_ID = UUID.randomUUID();
+
+    @Test
+    void pageRequestedOnDemand() throws Exception {
+        final var received = new ArrayList<Smb2QueryDirectoryRequest>();
+        final var channel = TestUtils.channelToServer(new TestServer().asDispatcher(request -> {
+            if (request instanceof Smb2QueryDirectoryRequest queryDir) {
+                received.add(queryDir);
+            }
+            return null;
+        }));
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        final var sender = channel.pipeline().get(Smb2ClientHandler.class);
+        final var bufferLength = ClientCompoundQueryDirectoryFlow.outputBufferLength(connection.details());
+        final var reader = new SmbClientDirectoryReader(sender, FILE_ID,
+            FileInformationClass.FileIdBothDirectoryInformation, "*", bufferLength);
+
+        // nothing requested until asked
+        assertEquals(0, received.size());
+        try (var page = reader.next().get(1, TimeUnit.SECONDS)) {
+            final var names = new ArrayList<String>();
+            while (page.next()) {
+                names.add(page.fileName());
+                assertEquals(names.size(), page.fileId());
+                assertTrue(page.fileNameEquals(page.fileName().toUpperCase(), true));
+                assertFalse(page.fileNameEquals(page.fileName().toUpperCase(), false));
+            }
+            assertEquals(TestServer.DIRECTORY_ENTRIES, names);
+
+            // page can be re-read, entries are materialized on demand
+            page.rewind();
+            assertTrue(page.next());
+            final var entry = (FileIdBothDirectoryInformation) page.toFileInformation();
+            assertEquals(TestServer.DIRECTORY_ENTRIES.getFirst(), entry.fileName());
+            assertEquals(1, entry.fileId());
+        }
+        assertEquals(1, received.size());
+        assertEquals(bufferLength, received.getFirst().outputBufferLength());
+
+        // end of directory is reported once
+        assertTrue(reader.next().get(1, TimeUnit.SECONDS).isEmpty());
+        assertTrue(reader.next().get(1, TimeUnit.SECONDS).isEmpty());
+        assertEquals(2, received.size());
+
+        reader.close();
+        assertThrows(ExecutionException.class, () -> reader.next().get(1, TimeUnit.SECONDS));
+        assertEquals(2, received.size());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.fscc.FileAction;
+import local.mylan.transport.smb.protocol.fscc.FileNotifyInformation;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ChangeNotifyResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import org.junit.jupiter.api.Test;
+
+class SmbClientDirectoryWatchTest {
+
+    @Test
+    void changesReportedUntilClosed() throws Exception {
+        final var received = new ArrayList<Smb2Request>();
+        final var channel = TestUtils.channelToServer(new TestServer().asDispatcher(request -> {
+            received.add(request);
+            if (request instanceof Smb2ChangeNotifyRequest) {
+                // request is going to be completed asynchronously
+                final var interim = new Smb2ErrorResponse(Smb2Command.SMB2_CHANGE_NOTIFY);
+                interim.header().setStatus(SmbError.STATUS_PENDING);
+                interim.header().setFlags(new Flags<Smb2Flags>().set(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND, true));
+                return interim;
+            }
+            return null;
+        }));
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        connection.details().server().setServerName(TestServer.NAME);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionId(1L);
+        sessDetails.setConnection(connection);
+        final var session = new SmbClientSession(sessDetails, channel.pipeline().get(Smb2ClientHandler.class));
+        final var treeConnect = new SmbClientTreeConnect("share", session, session);
+        treeConnect.details().setTreeConnectId(1);
+
+        // directory is open and change notification requested
+        received.clear();
+        final var notified = new ArrayList<List<FileNotifyInformation>>();
+        final var watch = treeConnect.watchDirectory("dir", false, notified::add).get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_CHANGE_NOTIFY), commands(received));
+        assertTrue(treeConnect.details().opens().isEmpty());
+
+        // change is delivered to the listener, next notification requested
+        final var change = new FileNotifyInformation(FileAction.FILE_ACTION_ADDED, "file3.txt");
+        final var response = new Smb2ChangeNotifyResponse();
+        response.header().setStatus(SmbError.STATUS_SUCCESS);
+        response.header().setFlags(new Flags<Smb2Flags>()
+            .set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true)
+            .set(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND, true));
+        response.header().setMessageId(received.getLast().header().messageId());
+        response.header().setCreditResponse(1);
+        response.header().setSessionId(1L);
+        response.setChanges(List.of(change));
+        received.clear();
+        TestUtils.serverChannel(channel).writeOutbound(response);
+        assertEquals(List.of(List.of(change)), notified);
+        assertEquals(List.of(Smb2Command.SMB2_CHANGE_NOTIFY), commands(received));
+        assertFalse(watch.closeFuture().isDone());
+
+        // handle is closed on watch close
+        received.clear();
+        watch.close();
+        assertTrue(watch.closeFuture().isDone());
+        assertEquals(List.of(Smb2Command.SMB2_CLOSE), commands(received));
+    }
+
+    private static List<Smb2Command> commands(final List<Smb2Request> requests) {
+        return requests.stream().map(request -> request.header().command()).toList();
+    }
+}
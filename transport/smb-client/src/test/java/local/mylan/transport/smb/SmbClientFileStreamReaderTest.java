@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.details.FileStreamReader;
+import org.junit.jupiter.api.Test;
+
+class SmbClientFileStreamReaderTest {
+
+    private static final TestServer SERVER = new TestServer();
+    private static final UUID FILE_ID = UUID.randomUUID();
+
+    @Test
+    void readWholeFile() throws Exception {
+        try (var reader = newReader(0, -1, 4)) {
+            assertArrayEquals(TestServer.FILE_CONTENT, readAll(reader));
+        }
+    }
+
+    @Test
+    void readRange() throws Exception {
+        try (var reader = newReader(100_000, 150_000, 2)) {
+            assertArrayEquals(Arrays.copyOfRange(TestServer.FILE_CONTENT, 100_000, 250_000), readAll(reader));
+        }
+    }
+
+    @Test
+    void readBeyondEndOfFile() throws Exception {
+        try (var reader = newReader(TestServer.FILE_CONTENT.length, 1000, 2)) {
+            assertFalse(reader.next().get(1, TimeUnit.SECONDS).isReadable());
+        }
+    }
+
+    private static FileStreamReader newReader(final long offset, final long length, final int windowSize)
+        throws Exception {
+
+        final var channel = TestUtils.channelToServer(SERVER.asDispatcher());
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        final var sender = channel.pipeline().get(Smb2ClientHandler.class);
+        return new SmbClientFileStreamReader(sender, connection.details(), FILE_ID, offset, length, windowSize);
+    }
+
+    private static byte[] readAll(final FileStreamReader reader) throws Exception {
+        final var out = new ByteArrayOutputStream();
+        while (true) {
+            final var chunk = reader.next().get(1, TimeUnit.SECONDS);
+            if (!chunk.isReadable()) {
+                return out.toByteArray();
+            }
+            chunk.readBytes(out, chunk.readableBytes());
+            chunk.release();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakNotification;
+import org.junit.jupiter.api.Test;
+
+class SmbClientHandleCacheTest {
+
+    @Test
+    void handleReusedUntilLeaseBreakOrIdle() throws Exception {
+        final var received = new ArrayList<Smb2Request>();
+        final var channel = TestUtils.channelToServer(new TestServer().asDispatcher(request -> {
+            received.add(request);
+            return null;
+        }));
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        connection.details().server().setServerName(TestServer.NAME);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionId(1L);
+        sessDetails.setConnection(connection);
+        final var session = new SmbClientSession(sessDetails, channel.pipeline().get(Smb2ClientHandler.class));
+        final var treeConnect = new SmbClientTreeConnect("share", session, session);
+        treeConnect.details().setTreeConnectId(1);
+
+        // handle opened with lease requested, kept open on release
+        received.clear();
+        final var first = treeConnect.openFile("dir").get(1, TimeUnit.SECONDS);
+        final var fileId = first.details().fileId();
+        assertEquals(List.of(Smb2Command.SMB2_CREATE), commands(received));
+        final var lease = assertInstanceOf(Smb2CreateLeaseContext.class,
+            ((Smb2CreateRequest) received.getFirst()).createContexts().getFirst());
+        first.close().get(1, TimeUnit.SECONDS);
+        first.close().get(1, TimeUnit.SECONDS);
+
+        // reused, restarting the enumeration
+        received.clear();
+        final var second = treeConnect.openFile("DIR").get(1, TimeUnit.SECONDS);
+        assertEquals(fileId, second.details().fileId());
+        assertEquals(TestServer.DIRECTORY_ENTRIES.size(), second.queryDirectory().get(1, TimeUnit.SECONDS).size());
+        assertEquals(TestServer.DIRECTORY_ENTRIES.size(), second.queryDirectory().get(1, TimeUnit.SECONDS).size());
+        assertTrue(commands(received).stream().allMatch(Smb2Command.SMB2_QUERY_DIRECTORY::equals));
+
+        // directory handle in use is not shared
+        received.clear();
+        final var concurrent = treeConnect.openFile("dir").get(1, TimeUnit.SECONDS);
+        assertNotEquals(fileId, concurrent.details().fileId());
+        concurrent.close().get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_CLOSE), commands(received));
+        second.close().get(1, TimeUnit.SECONDS);
+
+        // lease break closes idle handle
+        received.clear();
+        final var notification = new Smb2LeaseBreakNotification();
+        notification.header().setFlags(new Flags<Smb2Flags>().set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true));
+        notification.header().setStatus(SmbError.STATUS_SUCCESS);
+        notification.header().setMessageId(-1L);
+        notification.setFlags(new Flags<Smb2LeaseBreakFlags>()
+            .set(Smb2LeaseBreakFlags.SMB2_NOTIFY_BREAK_LEASE_FLAG_ACK_REQUIRED, true));
+        notification.setLeaseKey(lease.leaseKey());
+        notification.setCurrentLeaseState(lease.leaseState());
+        notification.setNewLeaseState(new Flags<>());
+        TestUtils.serverChannel(channel).writeOutbound(notification);
+        assertEquals(List.of(Smb2Command.SMB2_OPLOCK_BREAK, Smb2Command.SMB2_CLOSE), commands(received));
+
+        // new handle, closed on idle timeout followed by idle tree disconnect
+        received.clear();
+        final var third = treeConnect.openFile("dir").get(1, TimeUnit.SECONDS);
+        assertNotEquals(fileId, third.details().fileId());
+        third.close().get(1, TimeUnit.SECONDS);
+        assertFalse(treeConnect.reapIdle(System.nanoTime()));
+        assertTrue(treeConnect.reapIdle(System.nanoTime() + TimeUnit.HOURS.toNanos(1)));
+        assertEquals(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_CLOSE, Smb2Command.SMB2_TREE_DISCONNECT),
+            commands(received));
+    }
+
+    private static List<Smb2Command> commands(final List<Smb2Request> requests) {
+        return requests.stream().map(request -> request.header().command()).toList();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakNotification;
+import org.junit.jupiter.api.Test;
+
+class SmbClientLeaseCacheTest {
+
+    @Test
+    void directoryListingCachedUntilLeaseBreak() throws Exception {
+        final var server = new TestServer(
+            ConfUtils.loadConfiguration(TestServerConf.class, "server.directoryLeasing=true"));
+        final var received = new ArrayList<Smb2Request>();
+        final var channel = TestUtils.channelToServer(server.asDispatcher(request -> {
+            received.add(request);
+            return null;
+        }));
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        connection.details().server().setServerName(TestServer.NAME);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionId(1L);
+        sessDetails.setConnection(connection);
+        final var session = new SmbClientSession(sessDetails, channel.pipeline().get(Smb2ClientHandler.class));
+        final var treeConnect = new SmbClientTreeConnect("share", session, session);
+        treeConnect.details().setTreeConnectId(1);
+
+        // listing with lease requested, the handle is kept open
+        received.clear();
+        assertEquals(TestServer.DIRECTORY_ENTRIES, fileNames(treeConnect.listDirectory("dir")));
+        assertEquals(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_QUERY_DIRECTORY,
+            Smb2Command.SMB2_QUERY_DIRECTORY), commands(received));
+        final var lease = assertInstanceOf(Smb2CreateLeaseContext.class,
+            ((Smb2CreateRequest) received.getFirst()).createContexts().getFirst());
+
+        // served from cache
+        received.clear();
+        assertEquals(TestServer.DIRECTORY_ENTRIES, fileNames(treeConnect.listDirectory("dir")));
+        final var info = treeConnect.fileInformation("dir\\file1.txt").get(1, TimeUnit.SECONDS);
+        assertEquals("file1.txt", assertInstanceOf(FileDirectoryInformation.class, info).fileName());
+        assertEquals(List.of(), commands(received));
+
+        // lease break is acknowledged, the handle is closed
+        final var notification = new Smb2LeaseBreakNotification();
+        notification.header().setFlags(new Flags<Smb2Flags>().set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true));
+        notification.header().setStatus(SmbError.STATUS_SUCCESS);
+        notification.header().setMessageId(-1L);
+        notification.setFlags(new Flags<Smb2LeaseBreakFlags>()
+            .set(Smb2LeaseBreakFlags.SMB2_NOTIFY_BREAK_LEASE_FLAG_ACK_REQUIRED, true));
+        notification.setLeaseKey(lease.leaseKey());
+        notification.setCurrentLeaseState(lease.leaseState());
+        notification.setNewLeaseState(new Flags<>());
+        TestUtils.serverChannel(channel).writeOutbound(notification);
+        assertEquals(List.of(Smb2Command.SMB2_OPLOCK_BREAK, Smb2Command.SMB2_CLOSE), commands(received));
+
+        // cache invalidated
+        received.clear();
+        assertEquals(TestServer.DIRECTORY_ENTRIES, fileNames(treeConnect.listDirectory("dir")));
+        assertEquals(Smb2Command.SMB2_CREATE, received.getFirst().header().command());
+    }
+
+    private static List<String> fileNames(final ListenableFuture<List<FileInformation>> future)
+        throws Exception {
+        return future.get(1, TimeUnit.SECONDS).stream()
+            .map(file -> ((FileDirectoryInformation) file).fileName()).toList();
+    }
+
+    private static List<Smb2Command> commands(final List<Smb2Request> requests) {
+        return requests.stream().map(request -> request.header().command()).toList();
+    }
+}
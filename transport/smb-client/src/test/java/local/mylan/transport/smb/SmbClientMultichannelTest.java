@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.details.ChannelDetails;
+import local.mylan.transport.smb.protocol.details.Connection;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.flows.ClientQueryNetworkInterfacesFlow;
+import local.mylan.transport.smb.protocol.flows.ClientWriteFlow;
+import local.mylan.transport.smb.protocol.flows.RequestSender;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import org.junit.jupiter.api.Test;
+
+class SmbClientMultichannelTest {
+
+    private static final UUID FILE_ID = UUID.randomUUID();
+
+    @Test
+    void transferSpreadAcrossChannels() throws Exception {
+        final var server = new TestServer();
+        final var client = new SmbClient();
+        final var counters = new AtomicInteger[]{new AtomicInteger(), new AtomicInteger()};
+        final var channel1 = TestUtils.channelToServer(server.asDispatcher(countingTransfer(counters[0])));
+        final var channel2 = TestUtils.channelToServer(server.asDispatcher(countingTransfer(counters[1])));
+        final var connection1 = client.connect(channel1).get(1, TimeUnit.SECONDS);
+        final var connection2 = client.connect(channel2).get(1, TimeUnit.SECONDS);
+        final var sender1 = channel1.pipeline().get(Smb2ClientHandler.class);
+        final var sender2 = channel2.pipeline().get(Smb2ClientHandler.class);
+
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionId(1L);
+        sessDetails.setConnection(connection1);
+        final var session = new SmbClientSession(sessDetails, sender1);
+        session.addChannel(channelDetails(connection1), sender1);
+        session.addChannel(channelDetails(connection2), sender2);
+        assertEquals(2, sessDetails.channels().size());
+
+        // write
+        final var content = TestServer.FILE_CONTENT;
+        final var writeFlow = new ClientWriteFlow(session, connection1.details(), FILE_ID, 0,
+            Unpooled.wrappedBuffer(content), 8);
+        writeFlow.start();
+        assertEquals(content.length, writeFlow.completeFuture().get(1, TimeUnit.SECONDS));
+        assertArrayEquals(content, server.writeContent());
+        assertTrue(counters[0].get() > 0 && counters[1].get() > 0);
+
+        // read
+        counters[0].set(0);
+        counters[1].set(0);
+        final var out = new ByteArrayOutputStream();
+        try (var reader = new SmbClientFileStreamReader(session, connection1.details(), FILE_ID, 0, -1, 8)) {
+            while (true) {
+                final var chunk = reader.next().get(1, TimeUnit.SECONDS);
+                if (!chunk.isReadable()) {
+                    break;
+                }
+                chunk.readBytes(out, chunk.readableBytes());
+                chunk.release();
+            }
+        }
+        assertArrayEquals(content, out.toByteArray());
+        assertTrue(counters[0].get() > 0 && counters[1].get() > 0);
+
+        // channel removed on connection loss
+        session.removeChannel(connection2);
+        assertEquals(List.of(connection1), sessDetails.channels().stream().map(ChannelDetails::connection).toList());
+    }
+
+    @Test
+    void queryNetworkInterfaces() throws Exception {
+        final var server = new TestServer();
+        final var channel = TestUtils.channelToServer(server.asDispatcher());
+        new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        final RequestSender sender = channel.pipeline().get(Smb2ClientHandler.class);
+        final var flow = new ClientQueryNetworkInterfacesFlow(sender, 65536);
+        flow.start();
+        assertEquals(TestServer.NETWORK_INTERFACES, flow.completeFuture().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void channelAddresses() {
+        final var primary = new InetSocketAddress(TestServer.address("10.0.0.1"), 445);
+        final var interfaces = List.of(
+            new Smb2NetworkInterfaceInfo(1, true, false, 1_000_000_000L, TestServer.address("10.0.0.1")),
+            new Smb2NetworkInterfaceInfo(2, false, false, 10_000_000_000L, TestServer.address("10.0.1.1")),
+            new Smb2NetworkInterfaceInfo(3, true, false, 10_000_000_000L, TestServer.address("fe80::1")),
+            new Smb2NetworkInterfaceInfo(4, true, false, 10_000_000_000L, TestServer.address("169.254.0.1")));
+        assertEquals(List.of(address("10.0.1.1"), address("10.0.0.1"), address("10.0.0.1")),
+            SmbClient.channelAddresses(interfaces, primary, 3));
+        assertEquals(List.of(address("10.0.1.1")), SmbClient.channelAddresses(interfaces, primary, 1));
+    }
+
+    private static InetSocketAddress address(final String literal) {
+        return new InetSocketAddress(TestServer.address(literal), 445);
+    }
+
+    private static ChannelDetails channelDetails(final Connection connection) {
+        final var channel = new ChannelDetails();
+        channel.setConnection(connection);
+        return channel;
+    }
+
+    private static Function<Smb2Request, Smb2Response> countingTransfer(final AtomicInteger counter) {
+        return request -> {
+            if (request instanceof Smb2ReadRequest || request instanceof Smb2WriteRequest) {
+                counter.incrementAndGet();
+            }
+            return null;
+        };
+    }
+}
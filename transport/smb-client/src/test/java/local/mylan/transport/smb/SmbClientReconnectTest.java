@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.flows.AuthMechanism;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDurableHandleReconnectV2Context;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupResponse;
+import local.mylan.transport.smb.protocol.spnego.MechType;
+import local.mylan.transport.smb.protocol.spnego.NegToken;
+import local.mylan.transport.smb.protocol.spnego.NegTokenInit;
+import local.mylan.transport.smb.protocol.spnego.NegTokenResp;
+import org.junit.jupiter.api.Test;
+
+class SmbClientReconnectTest {
+
+    @Test
+    void readReplayedOverDurableHandleAfterReconnect() throws Exception {
+        final var server = new TestServer();
+        final var client = new SmbClient();
+        // READ is never answered, so it's in flight when the connection is lost
+        final var channel1 = TestUtils.channelToServer(request -> request instanceof Smb2ReadRequest
+            ? SettableFuture.create() : server.asDispatcher().dispatch(request));
+        final var connection1 = client.connect(channel1).get(1, TimeUnit.SECONDS);
+        connection1.details().server().setServerName(TestServer.NAME);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionId(1L);
+        sessDetails.setConnection(connection1);
+        final var session = new SmbClientSession(sessDetails, channel1.pipeline().get(Smb2ClientHandler.class));
+        final var treeConnect = session.getOrConnectTree("share").get(1, TimeUnit.SECONDS);
+
+        final var file = treeConnect.openFile("file").get(1, TimeUnit.SECONDS);
+        final var fileId = file.details().fileId();
+        assertTrue(file.details().durable());
+        final var read = file.read(0, 1000);
+
+        // connection loss, the READ failed is held until reconnect
+        session.beginReconnect();
+        channel1.close();
+        assertFalse(read.isDone());
+
+        final var received = new ArrayList<Smb2Request>();
+        final var channel2 = TestUtils.channelToServer(server.asDispatcher(request -> {
+            received.add(request);
+            if (request instanceof Smb2SessionSetupRequest) {
+                final var response = new Smb2SessionSetupResponse();
+                response.header().setSessionId(2L);
+                response.setSessionFlags(new Flags<>());
+                return response;
+            }
+            return null;
+        }));
+        final var connection2 = (SmbClientConnection) client.connect(channel2).get(1, TimeUnit.SECONDS);
+        connection2.details().server().setServerName(TestServer.NAME);
+        final var negToken = new NegTokenInit();
+        negToken.setMechTypes(List.of(MechType.NTLMSSP));
+        connection2.details().setNegotiateToken(negToken);
+        received.clear();
+        session.reconnect(connection2, channel2.pipeline().get(Smb2ClientHandler.class), new TestAuthMechanism())
+            .get(1, TimeUnit.SECONDS);
+
+        // session set up replacing the previous one, tree connected, durable handle re-established, READ replayed
+        final var data = read.get(1, TimeUnit.SECONDS);
+        assertEquals(1000, data.readableBytes());
+        data.release();
+        assertEquals(List.of(Smb2Command.SMB2_SESSION_SETUP, Smb2Command.SMB2_TREE_CONNECT, Smb2Command.SMB2_CREATE,
+            Smb2Command.SMB2_READ), received.stream().map(request -> request.header().command()).toList());
+        assertEquals(1L, ((Smb2SessionSetupRequest) received.getFirst()).previousSessionId());
+        assertEquals(2L, sessDetails.sessionId());
+        final var reconnect = ((Smb2CreateRequest) received.get(2)).createContexts().stream()
+            .filter(Smb2CreateDurableHandleReconnectV2Context.class::isInstance).findFirst().orElseThrow();
+        assertEquals(fileId, assertInstanceOf(Smb2CreateDurableHandleReconnectV2Context.class, reconnect).fileId());
+        final var replayed = (Smb2ReadRequest) received.get(3);
+        assertNotEquals(fileId, replayed.fileId());
+        assertEquals(file.details().fileId(), replayed.fileId());
+        assertEquals(2L, replayed.header().sessionId());
+        assertEquals(treeConnect.details().treeConnectId(), replayed.header().treeId());
+        file.close().get(1, TimeUnit.SECONDS);
+    }
+
+    private static final class TestAuthMechanism implements AuthMechanism {
+
+        @Override
+        public MechType mechType() {
+            return MechType.NTLMSSP;
+        }
+
+        @Override
+        public NegTokenInit init() {
+            final var token = new NegTokenInit();
+            token.setMechTypes(List.of(MechType.NTLMSSP));
+            return token;
+        }
+
+        @Override
+        public NegTokenResp next(final NegToken response) {
+            throw new IllegalStateException("single round trip is expected");
+        }
+
+        @Override
+        public boolean verify(final NegToken response) {
+            return true;
+        }
+
+        @Override
+        public byte[] sessionKey() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.smb2.Smb2CancelRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import org.junit.jupiter.api.Test;
+
+class SmbClientRequestTimeoutTest {
+
+    @Test
+    void requestCancelledOnTimeout() throws Exception {
+        final var cancelled = new ArrayList<Smb2CancelRequest>();
+        final var dispatcher = new TestServer().asDispatcher();
+        final var channel = TestUtils.channelToServer(request -> {
+            if (request instanceof Smb2CancelRequest cancel) {
+                cancelled.add(cancel);
+            }
+            // no response for READ (server is stuck) and CANCEL (by protocol)
+            return request instanceof Smb2ReadRequest || request instanceof Smb2CancelRequest
+                ? SettableFuture.create() : dispatcher.dispatch(request);
+        });
+        final var client = new SmbClient();
+        // short deadline is set once connected, so the negotiation is not affected
+        client.connect(channel).get(1, TimeUnit.SECONDS).details().setRequestTimeoutMillis(100);
+        final var sender = channel.pipeline().get(Smb2ClientHandler.class);
+
+        final var read = new Smb2ReadRequest();
+        read.setFileId(UUID.randomUUID());
+        read.setLength(1024);
+        final var callbackCount = new AtomicInteger();
+        final var responseFuture = SettableFuture.<Smb2Response>create();
+        sender.send(read, response -> {
+            callbackCount.incrementAndGet();
+            responseFuture.set(response);
+        });
+
+        // caller is notified on timeout, server is asked to cancel the request
+        final var response = responseFuture.get(2, TimeUnit.SECONDS);
+        assertEquals(SmbError.STATUS_IO_TIMEOUT, response.header().status());
+        assertEquals(List.of(read.header().messageId()),
+            cancelled.stream().map(cancel -> cancel.header().messageId()).toList());
+
+        // late response of cancelled request is discarded
+        final var late = new Smb2ErrorResponse(Smb2Command.SMB2_READ);
+        late.header().setStatus(SmbError.STATUS_CANCELLED);
+        late.header().setFlags(new Flags<Smb2Flags>().set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true));
+        late.header().setMessageId(read.header().messageId());
+        late.header().setCreditResponse(1);
+        TestUtils.serverChannel(channel).writeOutbound(late);
+        assertEquals(1, callbackCount.get());
+    }
+
+    @Test
+    void closeWhileConnecting() throws Exception {
+        final var server = new TestServer();
+        final var dispatcher = server.asDispatcher();
+        // NEGOTIATE is answered on demand
+        final var negotiate = SettableFuture.<Void>create();
+        final var channel = TestUtils.channelToServer(request -> request instanceof Smb2NegotiateRequest
+            ? Futures.transformAsync(negotiate, ignored -> dispatcher.dispatch(request),
+                MoreExecutors.directExecutor())
+            : dispatcher.dispatch(request));
+        final var client = new SmbClient();
+        final var connectFuture = client.connect(channel);
+
+        // connection being negotiated keeps the timer and the event loop group until it's completed
+        final var closeFuture = client.close();
+        assertFalse(closeFuture.isDone());
+        negotiate.set(null);
+        closeFuture.get(1, TimeUnit.SECONDS);
+        assertFalse(connectFuture.get(1, TimeUnit.SECONDS).isActive());
+    }
+}
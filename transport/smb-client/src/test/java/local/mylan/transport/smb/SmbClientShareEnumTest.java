@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.handler.codec.PceTestUtils;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.pcerpc.PceBind;
+import local.mylan.transport.smb.protocol.pcerpc.PceRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2IoctlRequest;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareInfo;
+import org.junit.jupiter.api.Test;
+
+class SmbClientShareEnumTest {
+    private static final int FRAGMENTS = PceTestUtils.responseFragments(1, TestServer.shareEnumResponse(),
+        TestServer.PIPE_FRAGMENT_SIZE).size();
+
+    private final List<Smb2Request> received = new ArrayList<>();
+    private final AtomicBoolean failNext = new AtomicBoolean();
+
+    @Test
+    void fragmentedResponse() throws Exception {
+        assertTrue(FRAGMENTS > 2);
+        final var session = session(request -> false);
+
+        // IPC$ tree connect, pipe open and bind, then the call, the rest of fragments are read from the pipe
+        assertEquals(TestServer.SHARE_NAMES, shareNames(session));
+        assertEquals(concat(List.of(Smb2Command.SMB2_TREE_CONNECT, Smb2Command.SMB2_CREATE, Smb2Command.SMB2_IOCTL),
+            callCommands()), commands());
+
+        // binding is reused
+        received.clear();
+        assertEquals(TestServer.SHARE_NAMES, shareNames(session));
+        assertEquals(callCommands(), commands());
+    }
+
+    @Test
+    void retryOnStaleBinding() throws Exception {
+        final var session = session(SmbClientShareEnumTest::isShareEnum);
+        assertEquals(TestServer.SHARE_NAMES, shareNames(session));
+
+        // pipe closed by server, the call is repeated once over new binding
+        received.clear();
+        failNext.set(true);
+        assertEquals(TestServer.SHARE_NAMES, shareNames(session));
+        assertEquals(concat(List.of(Smb2Command.SMB2_IOCTL, Smb2Command.SMB2_CREATE, Smb2Command.SMB2_IOCTL),
+            callCommands()), commands());
+    }
+
+    @Test
+    void noRetryOverNewBinding() throws Exception {
+        final var session = session(SmbClientShareEnumTest::isShareEnum);
+
+        // the call failed over binding just made is not repeated
+        failNext.set(true);
+        final var ex = assertThrows(ExecutionException.class,
+            () -> session.enumerateShares().get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SmbException.class, ex.getCause());
+        assertEquals(List.of(Smb2Command.SMB2_TREE_CONNECT, Smb2Command.SMB2_CREATE, Smb2Command.SMB2_IOCTL,
+            Smb2Command.SMB2_IOCTL), commands());
+
+        // failed binding is dropped, next call binds again
+        received.clear();
+        assertEquals(TestServer.SHARE_NAMES, shareNames(session));
+        assertEquals(concat(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_IOCTL), callCommands()), commands());
+    }
+
+    @Test
+    void bindFailureNotRetried() throws Exception {
+        final var session = session(request -> request instanceof Smb2IoctlRequest ioctl
+            && ioctl.input() instanceof PceBind);
+
+        // bind failure is reported, new binding is not retried
+        failNext.set(true);
+        final var ex = assertThrows(ExecutionException.class,
+            () -> session.enumerateShares().get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SmbException.class, ex.getCause());
+        assertEquals(List.of(Smb2Command.SMB2_TREE_CONNECT, Smb2Command.SMB2_CREATE, Smb2Command.SMB2_IOCTL),
+            commands());
+
+        // next call binds again
+        received.clear();
+        assertEquals(TestServer.SHARE_NAMES, shareNames(session));
+        assertEquals(concat(List.of(Smb2Command.SMB2_CREATE, Smb2Command.SMB2_IOCTL), callCommands()), commands());
+    }
+
+    private SmbClientSession session(final Predicate<Smb2Request> failOn) throws Exception {
+        final var channel = TestUtils.channelToServer(new TestServer().asDispatcher(request -> {
+            received.add(request);
+            return failOn.test(request) && failNext.compareAndSet(true, false) ? pipeClosed() : null;
+        }));
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        connection.details().server().setServerName(TestServer.NAME);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionId(1L);
+        sessDetails.setConnection(connection);
+        received.clear();
+        return new SmbClientSession(sessDetails, channel.pipeline().get(Smb2ClientHandler.class));
+    }
+
+    private static boolean isShareEnum(final Smb2Request request) {
+        return request instanceof Smb2IoctlRequest ioctl && ioctl.input() instanceof PceRequest;
+    }
+
+    private static Smb2Response pipeClosed() {
+        final var response = new Smb2ErrorResponse(Smb2Command.SMB2_IOCTL);
+        response.header().setStatus(SmbError.STATUS_FILE_CLOSED);
+        return response;
+    }
+
+    private static List<String> shareNames(final SmbClientSession session) throws Exception {
+        return session.enumerateShares().get(1, TimeUnit.SECONDS).stream().map(SrvsShareInfo::netName).toList();
+    }
+
+    private static List<Smb2Command> callCommands() {
+        final var commands = new ArrayList<Smb2Command>();
+        commands.add(Smb2Command.SMB2_IOCTL);
+        commands.addAll(Collections.nCopies(FRAGMENTS - 1, Smb2Command.SMB2_READ));
+        return commands;
+    }
+
+    private static List<Smb2Command> concat(final List<Smb2Command> first, final List<Smb2Command> second) {
+        final var result = new ArrayList<>(first);
+        result.addAll(second);
+        return result;
+    }
+
+    private List<Smb2Command> commands() {
+        return received.stream().map(request -> request.header().command()).toList();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.handler.Smb2ClientHandler;
+import local.mylan.transport.smb.protocol.flows.ClientWriteFlow;
+import org.junit.jupiter.api.Test;
+
+class SmbClientWriteTest {
+
+    private static final UUID FILE_ID = UUID.randomUUID();
+
+    @Test
+    void writeFile() throws Exception {
+        final var server = new TestServer();
+        final var content = TestServer.FILE_CONTENT;
+        final var data = Unpooled.wrappedBuffer(content);
+        final var flow = newWriteFlow(server, 0, data.retain());
+        flow.start();
+
+        assertEquals(content.length, flow.completeFuture().get(1, TimeUnit.SECONDS));
+        assertArrayEquals(content, server.writeContent());
+        assertEquals(1, data.refCnt());
+    }
+
+    @Test
+    void writeRange() throws Exception {
+        final var server = new TestServer();
+        final var content = Arrays.copyOfRange(TestServer.FILE_CONTENT, 0, 100_000);
+        final var flow = newWriteFlow(server, 50_000, Unpooled.wrappedBuffer(content));
+        flow.start();
+
+        assertEquals(content.length, flow.completeFuture().get(1, TimeUnit.SECONDS));
+        assertArrayEquals(content, Arrays.copyOfRange(server.writeContent(), 50_000, 150_000));
+    }
+
+    @Test
+    void writeFailure() throws Exception {
+        final var server = new TestServer();
+        final var flow = newWriteFlow(server, TestServer.FILE_CONTENT.length,
+            Unpooled.wrappedBuffer(new byte[1000]));
+        flow.start();
+
+        final var exception = assertThrows(ExecutionException.class,
+            () -> flow.completeFuture().get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SmbException.class, exception.getCause());
+    }
+
+    private static ClientWriteFlow newWriteFlow(final TestServer server, final long offset,
+        final ByteBuf data) throws Exception {
+
+        final var channel = TestUtils.channelToServer(server.asDispatcher());
+        final var connection = new SmbClient().connect(channel).get(1, TimeUnit.SECONDS);
+        final var sender = channel.pipeline().get(Smb2ClientHandler.class);
+        return new ClientWriteFlow(sender, connection.details(), FILE_ID, offset, data, 4);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.smb.protocol.details.UserCredentials;
+import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SmbServerTest {
+    private static final String SHARE = "share";
+    private static final byte[] FILE_CONTENT = new byte[300_000];
+
+    static {
+        new Random(0).nextBytes(FILE_CONTENT);
+    }
+
+    @TempDir
+    private Path shareDir;
+
+    private SmbServer server;
+    private SmbClient client;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        Files.write(shareDir.resolve("file.bin"), FILE_CONTENT);
+        Files.createDirectory(shareDir.resolve("subdir"));
+        server = startServer("");
+        client = new SmbClient();
+    }
+
+    private SmbServer startServer(final String extraConf) {
+        final var conf = ConfUtils.loadConfiguration(SmbServerConf.class, """
+            tcp.port=0
+            smb.server.username=user
+            smb.server.password=pass
+            """ + extraConf);
+        final var smbServer = new SmbServer(conf, () -> Map.of(SHARE, shareDir));
+        smbServer.start();
+        return smbServer;
+    }
+
+    @AfterEach
+    void afterEach() throws Exception {
+        client.close().get(1, TimeUnit.SECONDS);
+        server.stop();
+    }
+
+    @Test
+    void listAndRead() throws Exception {
+        // SMB 3.1.1 and signing by default
+        listAndRead(server);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "SMB3_0_2,true", "SMB3_0_2,false", "SMB3_0,true",
+        "SMB2_1,true", "SMB2_1,false", "SMB2_0_2,true", "SMB2_0_2,false"
+    })
+    void listAndReadDialect(final String dialect, final boolean signingRequired) throws Exception {
+        // unsigned READ is sent from file region, signed one is read to memory
+        final var dialectServer = startServer("""
+            smb.server.dialect.max=%s
+            smb.server.signing-required=%s
+            """.formatted(dialect, signingRequired));
+        try {
+            listAndRead(dialectServer);
+        } finally {
+            dialectServer.stop();
+        }
+    }
+
+    private void listAndRead(final SmbServer smbServer) throws Exception {
+        final var connection = client.connect(smbServer.localAddress()).get(1, TimeUnit.SECONDS);
+        try {
+            final var session = connection.newSession(UserCredentials.plaintext("user", "pass"))
+                .get(1, TimeUnit.SECONDS);
+            final var tree = session.getOrConnectTree(SHARE).get(1, TimeUnit.SECONDS);
+
+            final var entries = tree.listDirectory("").get(1, TimeUnit.SECONDS);
+            assertEquals(List.of("file.bin", "subdir"), entries.stream()
+                .map(entry -> ((FileDirectoryInformation) entry).fileName()).toList());
+
+            // file is larger than single READ of SMB 2.0.2, so it's read as a stream
+            final var openFile = tree.openFile("file.bin").get(1, TimeUnit.SECONDS);
+            final var data = Unpooled.buffer(FILE_CONTENT.length);
+            try (var reader = openFile.readStream(0, -1)) {
+                var chunk = reader.next().get(1, TimeUnit.SECONDS);
+                while (chunk.isReadable()) {
+                    data.writeBytes(chunk);
+                    chunk.release();
+                    chunk = reader.next().get(1, TimeUnit.SECONDS);
+                }
+                chunk.release();
+                assertArrayEquals(FILE_CONTENT, ByteBufUtil.getBytes(data));
+            } finally {
+                data.release();
+            }
+            openFile.close().get(1, TimeUnit.SECONDS);
+        } finally {
+            // the session is closed while the server is running, so no reconnect is attempted once it's stopped
+            connection.close().get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void openOutsideShare() throws Exception {
+        final var connection = client.connect(server.localAddress()).get(1, TimeUnit.SECONDS);
+        final var session = connection.newSession(UserCredentials.plaintext("user", "pass"))
+            .get(1, TimeUnit.SECONDS);
+        final var tree = session.getOrConnectTree(SHARE).get(1, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> tree.openFile("..\\file.bin").get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void wrongPassword() throws Exception {
+        final var connection = client.connect(server.localAddress()).get(1, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class,
+            () -> connection.newSession(UserCredentials.plaintext("user", "wrong")).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void unknownUser() throws Exception {
+        // not accepted as guest unless explicitly enabled
+        final var connection = client.connect(server.localAddress()).get(1, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class,
+            () -> connection.newSession(UserCredentials.plaintext("other", "pass")).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fileId() throws Exception {
+        final var file = shareDir.resolve("file.bin");
+        final var dir = shareDir.resolve("subdir");
+        final var fileId = server.fileId(file, Files.readAttributes(file, BasicFileAttributes.class));
+        final var dirId = server.fileId(dir, Files.readAttributes(dir, BasicFileAttributes.class));
+        assertNotEquals(fileId, dirId);
+        // stable across the queries
+        assertEquals(fileId, server.fileId(file, Files.readAttributes(file, BasicFileAttributes.class)));
+        if (file.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            assertEquals(((Number) Files.getAttribute(file, "unix:ino")).longValue(), fileId);
+        }
+    }
+
+    @Test
+    void noUserNoGuest() {
+        final var conf = ConfUtils.loadConfiguration(SmbServerConf.class, "tcp.port=0");
+        final var noUserServer = new SmbServer(conf, () -> Map.of(SHARE, shareDir));
+        assertThrows(IllegalStateException.class, noUserServer::start);
+    }
+}
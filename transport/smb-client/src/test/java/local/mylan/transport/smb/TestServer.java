@@ -16,18 +16,81 @@
 package local.mylan.transport.smb;
 
 import com.google.common.util.concurrent.Futures;
+import io.netty.buffer.Unpooled;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import local.mylan.common.utils.ConfUtils;
+import local.mylan.transport.smb.handler.codec.PceTestUtils;
 import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Header;
 import local.mylan.transport.smb.protocol.Smb2Request;
 import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
 import local.mylan.transport.smb.protocol.flows.ServerRequestDispatcher;
+import local.mylan.transport.smb.protocol.fscc.FileAttributeFlags;
+import local.mylan.transport.smb.protocol.fscc.FileDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileIdFullDirectoryInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformation;
+import local.mylan.transport.smb.protocol.fscc.FileInformationClass;
+import local.mylan.transport.smb.protocol.fscc.FsctlCode;
+import local.mylan.transport.smb.protocol.pcerpc.PceBind;
+import local.mylan.transport.smb.protocol.pcerpc.PceBindAck;
+import local.mylan.transport.smb.protocol.pcerpc.PceMessage;
+import local.mylan.transport.smb.protocol.pcerpc.PceRequest;
+import local.mylan.transport.smb.protocol.pcerpc.PceResponse;
+import local.mylan.transport.smb.protocol.pcerpc.PduDataTypes;
 import local.mylan.transport.smb.protocol.smb2.Smb2CapabilitiesFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CloseResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompoundRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateAction;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateDurableHandleV2Context;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateLeaseContext;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2CreateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import local.mylan.transport.smb.protocol.smb2.Smb2IoctlRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2IoctlResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakAcknowledgment;
+import local.mylan.transport.smb.protocol.smb2.Smb2LeaseBreakResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateFlags;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
 import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NetworkInterfaceInfo;
+import local.mylan.transport.smb.protocol.smb2.Smb2OpLockLevel;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryFlags;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2QueryDirectoryResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadResponse;
 import local.mylan.transport.smb.protocol.smb2.Smb2SessionSetupRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ShareType;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeConnectResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2WriteResponse;
+import local.mylan.transport.smb.protocol.srvs.SrvShareEnumStruct;
+import local.mylan.transport.smb.protocol.srvs.SrvsError;
+import local.mylan.transport.smb.protocol.srvs.SrvsNetrShareEnum;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareInfo;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareInfoLevel;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,8 +99,27 @@ class TestServer {
 
     static final UUID GUID = UUID.randomUUID();
     static final String NAME = "TestServer";
+    static final byte[] FILE_CONTENT = new byte[300_000];
+    static final List<String> DIRECTORY_ENTRIES = List.of("file1.txt", "file2.txt", "subdir");
+    static final List<Smb2NetworkInterfaceInfo> NETWORK_INTERFACES = List.of(
+        new Smb2NetworkInterfaceInfo(1, true, false, 1_000_000_000L, address("127.0.0.1")),
+        new Smb2NetworkInterfaceInfo(2, false, false, 10_000_000_000L, address("::1")));
+    static final List<String> SHARE_NAMES = IntStream.rangeClosed(1, 50).mapToObj(num -> "share" + num).toList();
+    // NetrShareEnum response is split to fragments of given stub size, the first one is sent within IOCTL
+    // response, the rest are to be read from the pipe
+    static final int PIPE_FRAGMENT_SIZE = 1024;
+
+    static {
+        new Random(0).nextBytes(FILE_CONTENT);
+    }
 
     private final TestServerConf conf;
+    private final byte[] writeContent = new byte[FILE_CONTENT.length];
+    private final Set<UUID> enumerated = new HashSet<>();
+    private final Deque<PceResponse> pipeFragments = new ArrayDeque<>();
+    private UUID pipeFileId;
+    private UUID lastCreatedFileId;
+    private int lastTreeId;
 
     TestServer() {
         conf = ConfUtils.loadConfiguration(TestServerConf.class);
@@ -51,6 +133,10 @@ class TestServer {
         return conf;
     }
 
+    byte[] writeContent() {
+        return writeContent;
+    }
+
     ServerRequestDispatcher asDispatcher() {
         return asDispatcher(request -> null);
     }
@@ -70,6 +156,15 @@ class TestServer {
         return switch (request) {
             case Smb2NegotiateRequest req -> negotiateResponse(req);
             case Smb2SessionSetupRequest req -> sessionSetupResponse(req);
+            case Smb2ReadRequest req -> readResponse(req);
+            case Smb2WriteRequest req -> writeResponse(req);
+            case Smb2CreateRequest req -> createResponse(req);
+            case Smb2QueryDirectoryRequest req -> queryDirectoryResponse(req);
+            case Smb2CloseRequest req -> closeResponse(req);
+            case Smb2IoctlRequest req -> ioctlResponse(req);
+            case Smb2LeaseBreakAcknowledgment req -> leaseBreakResponse(req);
+            case Smb2TreeConnectRequest req -> treeConnectResponse();
+            case Smb2TreeDisconnectRequest req -> new Smb2TreeDisconnectResponse();
             default -> null;
         };
     }
@@ -86,6 +181,7 @@ class TestServer {
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_DFS, true)
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LEASING, true)
             .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_LARGE_MTU, true)
+            .set(Smb2CapabilitiesFlags.SMB2_GLOBAL_CAP_DIRECTORY_LEASING, conf.directoryLeasing())
         );
         response.setSecurityMode(new Flags<Smb2NegotiateFlags>()
             .set(Smb2NegotiateFlags.SMB2_NEGOTIATE_SIGNING_ENABLED, conf.signEnabled())
@@ -95,9 +191,203 @@ class TestServer {
         response.setMaxReadSize(size);
         response.setMaxWriteSize(size);
         response.setMaxTransactSize(size);
+        response.header().setCreditResponse(conf.creditsGranted());
+        return response;
+    }
+
+    Smb2Response readResponse(final Smb2ReadRequest request) {
+        final var response = new Smb2ReadResponse();
+        if (request.fileId().equals(pipeFileId)) {
+            final var fragment = pipeFragments.poll();
+            if (fragment == null) {
+                response.header().setStatus(SmbError.STATUS_PIPE_EMPTY);
+            } else {
+                response.setData(Unpooled.wrappedBuffer(PceTestUtils.encode(fragment)));
+            }
+            return response;
+        }
+        if (request.offset() >= FILE_CONTENT.length) {
+            response.header().setStatus(SmbError.STATUS_END_OF_FILE);
+            return response;
+        }
+        final var length = (int) Math.min(request.length(), FILE_CONTENT.length - request.offset());
+        response.setData(Unpooled.wrappedBuffer(FILE_CONTENT, (int) request.offset(), length));
+        return response;
+    }
+
+    Smb2Response writeResponse(final Smb2WriteRequest request) {
+        final var response = new Smb2WriteResponse();
+        final var data = request.data();
+        if (request.offset() + data.readableBytes() > writeContent.length) {
+            response.header().setStatus(SmbError.STATUS_DISK_FULL);
+        } else {
+            response.setCount(data.readableBytes());
+            data.readBytes(writeContent, (int) request.offset(), data.readableBytes());
+        }
+        data.release();
+        return response;
+    }
+
+    Smb2Response createResponse(final Smb2CreateRequest request) {
+        final var response = new Smb2CreateResponse();
+        response.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_NONE);
+        response.setFlags(new Flags<>());
+        response.setCreateAction(Smb2CreateAction.FILE_OPENED);
+        response.setFileAttributes(new Flags<FileAttributeFlags>()
+            .set(FileAttributeFlags.FILE_ATTRIBUTE_DIRECTORY, true));
+        lastCreatedFileId = UUID.randomUUID();
+        response.setFileId(lastCreatedFileId);
+        if ("srvsvc".equals(request.name())) {
+            pipeFileId = lastCreatedFileId;
+            pipeFragments.clear();
+        }
+        final var contexts = new ArrayList<Smb2CreateContext>();
+        // requested lease is granted as is
+        request.createContexts().stream().filter(Smb2CreateLeaseContext.class::isInstance).findFirst()
+            .ifPresent(lease -> {
+                response.setOpLockLevel(Smb2OpLockLevel.SMB2_OPLOCK_LEVEL_LEASE);
+                contexts.add(lease);
+            });
+        // requested durability is granted, re-established handle gets new file id
+        request.createContexts().stream().filter(Smb2CreateDurableHandleV2Context.class::isInstance)
+            .map(Smb2CreateDurableHandleV2Context.class::cast).findFirst()
+            .ifPresent(durable -> {
+                final var granted = new Smb2CreateDurableHandleV2Context();
+                granted.setTimeout(durable.timeout());
+                granted.setFlags(new Flags<>());
+                contexts.add(granted);
+            });
+        if (!contexts.isEmpty()) {
+            response.setCreateContexts(contexts);
+        }
+        return response;
+    }
+
+    Smb2Response treeConnectResponse() {
+        final var response = new Smb2TreeConnectResponse();
+        response.header().setTreeId(++lastTreeId);
+        response.setShareType(Smb2ShareType.SMB2_SHARE_TYPE_DISK);
+        response.setShareFlags(new Flags<>());
+        response.setCapabilities(new Flags<>());
+        response.setMaxAccess(new Flags<>());
+        return response;
+    }
+
+    Smb2Response leaseBreakResponse(final Smb2LeaseBreakAcknowledgment request) {
+        final var response = new Smb2LeaseBreakResponse();
+        response.setLeaseKey(request.leaseKey());
+        response.setLeaseState(request.leaseState());
+        return response;
+    }
+
+    Smb2Response queryDirectoryResponse(final Smb2QueryDirectoryRequest request) {
+        final var fileId = fileId(request.header(), request.fileId());
+        if (request.flags().get(Smb2QueryDirectoryFlags.SMB2_RESTART_SCANS)) {
+            enumerated.remove(fileId);
+        }
+        if (!enumerated.add(fileId)) {
+            final var response = new Smb2ErrorResponse(Smb2Command.SMB2_QUERY_DIRECTORY);
+            response.header().setStatus(SmbError.STATUS_NO_MORE_FILES);
+            return response;
+        }
+        return directoryEntriesResponse(request.fileInformationClass());
+    }
+
+    static Smb2QueryDirectoryResponse directoryEntriesResponse() {
+        return directoryEntriesResponse(FileInformationClass.FileDirectoryInformation);
+    }
+
+    static Smb2QueryDirectoryResponse directoryEntriesResponse(final FileInformationClass fic) {
+        final var entries = new ArrayList<FileInformation>();
+        for (var name : DIRECTORY_ENTRIES) {
+            final var entry = (FileDirectoryInformation) fic.newInstance();
+            entry.setFileName(name);
+            entry.setFileAttributes(new Flags<>());
+            if (entry instanceof FileIdFullDirectoryInformation idFull) {
+                idFull.setFileId(DIRECTORY_ENTRIES.indexOf(name) + 1);
+            }
+            entries.add(entry);
+        }
+        final var response = new Smb2QueryDirectoryResponse();
+        response.setDecoded(entries);
         return response;
     }
 
+    Smb2Response closeResponse(final Smb2CloseRequest request) {
+        enumerated.remove(fileId(request.header(), request.fileId()));
+        final var response = new Smb2CloseResponse();
+        response.setFlags(new Flags<>());
+        response.setFileAttributes(new Flags<>());
+        return response;
+    }
+
+    Smb2Response ioctlResponse(final Smb2IoctlRequest request) {
+        final Object output = switch (request.ctlCode()) {
+            case FSCTL_QUERY_NETWORK_INTERFACE_INFO -> NETWORK_INTERFACES;
+            case FSCTL_PIPE_TRANSCEIVE -> pipeTransceiveOutput(request.input());
+            default -> null;
+        };
+        if (output == null) {
+            return null;
+        }
+        final var response = new Smb2IoctlResponse();
+        response.setCtlCode(request.ctlCode());
+        response.setFileId(request.fileId());
+        response.setOutput(output);
+        return response;
+    }
+
+    private PceMessage pipeTransceiveOutput(final Object input) {
+        return switch (input) {
+            case PceBind bind -> {
+                final var bindAck = new PceBindAck(bind.callId());
+                bindAck.setMaxTransmitFragmentSize(bind.maxReceiveFragmentSize());
+                bindAck.setMaxReceiveFragmentSize(bind.maxTransmitFragmentSize());
+                bindAck.setAssocGroupId(1);
+                bindAck.setSecAddress("\\PIPE\\srvsvc");
+                bindAck.setResults(List.of(new PduDataTypes.ResultElement(PduDataTypes.Result.acceptance,
+                    PduDataTypes.ProviderReason.reason_not_specified,
+                    bind.contexts().getFirst().transferSyntaxes().getFirst())));
+                yield bindAck;
+            }
+            case PceRequest request when request.object() instanceof SrvsNetrShareEnum -> {
+                pipeFragments.clear();
+                pipeFragments.addAll(
+                    PceTestUtils.responseFragments(request.callId(), shareEnumResponse(), PIPE_FRAGMENT_SIZE));
+                yield pipeFragments.poll();
+            }
+            default -> null;
+        };
+    }
+
+    static SrvsNetrShareEnum shareEnumResponse() {
+        final var infos = SHARE_NAMES.stream().map(name -> {
+            final var info = new SrvsShareInfo();
+            info.setNetName(name);
+            info.setType(new SrvsShareType(SrvsShareType.SType.STYPE_DISKTREE, false, false));
+            info.setRemark("Test share " + name);
+            return info;
+        }).toList();
+        final var shareEnum = new SrvsNetrShareEnum();
+        shareEnum.setInfoStruct(new SrvShareEnumStruct(SrvsShareInfoLevel.SHARE_INFO_1, infos));
+        shareEnum.setTotalEntries(infos.size());
+        shareEnum.setError(SrvsError.NERR_Success);
+        return shareEnum;
+    }
+
+    static InetAddress address(final String literal) {
+        try {
+            return InetAddress.getByName(literal);
+        } catch (UnknownHostException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UUID fileId(final Smb2Header header, final UUID fileId) {
+        return header.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS)
+            && Smb2CompoundRequest.RELATED_FILE_ID.equals(fileId) ? lastCreatedFileId : fileId;
+    }
+
     private Smb2Response sessionSetupResponse(final Smb2SessionSetupRequest request) {
         return null;
     }
@@ -29,5 +29,9 @@ public @interface TestServerConf {
     boolean anonimousEnabled() default true;
     @ConfProperty("server.maxReadWriteSize")
     int maxReadWriteSize() default 0x10000;
+    @ConfProperty("server.creditsGranted")
+    int creditsGranted() default 64;
+    @ConfProperty("server.directoryLeasing")
+    boolean directoryLeasing() default false;
 
 }
@@ -44,6 +44,14 @@ final class TestUtils {
         return clientChannel;
     }
 
+    /**
+     * Returns the server side channel connected to given client channel, messages written to it as outbound
+     * are delivered to the client, so the server initiated (unsolicited) messages can be emulated.
+     */
+    static EmbeddedChannel serverChannel(final Channel clientChannel) {
+        return clientChannel.pipeline().get(CrossChannelHandler.class).otherChannel;
+    }
+
     /**
      * Takes outbound message from assigned channel and puts it as inbound to another one.
       */
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import local.mylan.transport.smb.handler.PendingRequestQueue.PendingRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import org.junit.jupiter.api.Test;
+
+class PendingRequestQueueTest {
+
+    @Test
+    void roundRobin() {
+        final var queue = new PendingRequestQueue();
+        final var a1 = pending(1, 1, 0);
+        final var a2 = pending(1, 1, 0);
+        final var a3 = pending(1, 1, 0);
+        final var b1 = pending(1, 2, 0);
+        final var c1 = pending(2, 1, 0);
+        final var b2 = pending(1, 2, 0);
+        List.of(a1, a2, a3, b1, c1, b2).forEach(queue::add);
+        assertEquals(6, queue.size());
+
+        assertSame(a1, queue.peek());
+        assertSame(a1, queue.poll());
+        assertSame(b1, queue.poll());
+        assertSame(c1, queue.poll());
+        assertSame(a2, queue.poll());
+        assertSame(b2, queue.poll());
+        assertSame(a3, queue.poll());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void expiry() {
+        final var queue = new PendingRequestQueue();
+        final var a1 = pending(1, 1, 100);
+        final var a2 = pending(1, 1, 300);
+        final var b1 = pending(1, 2, 200);
+        List.of(a1, a2, b1).forEach(queue::add);
+        assertEquals(100, queue.oldestTimestamp());
+
+        assertEquals(List.of(a1, b1), queue.removeExpired(200));
+        assertEquals(1, queue.size());
+        assertEquals(300, queue.oldestTimestamp());
+        assertSame(a2, queue.poll());
+    }
+
+    @Test
+    void pollFittingCredits() {
+        final var queue = new PendingRequestQueue();
+        final var a1 = pending(1, 1, 0, 8);
+        final var a2 = pending(1, 1, 0, 1);
+        final var b1 = pending(1, 2, 0, 2);
+        final var c1 = pending(2, 1, 0, 0);
+        List.of(a1, a2, b1, c1).forEach(queue::add);
+        assertEquals(8 + 1 + 2 + 1, queue.creditCharge());
+
+        // group which does not fit is skipped, its order is kept
+        assertSame(b1, queue.poll(2));
+        assertSame(c1, queue.poll(2));
+        assertNull(queue.poll(2));
+        assertEquals(8 + 1, queue.creditCharge());
+        assertSame(a1, queue.poll(8));
+        assertSame(a2, queue.poll(8));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.creditCharge());
+    }
+
+    private static PendingRequest pending(final long sessionId, final int treeId, final long timestamp) {
+        return pending(sessionId, treeId, timestamp, 0);
+    }
+
+    private static PendingRequest pending(final long sessionId, final int treeId, final long timestamp,
+        final int creditCharge) {
+
+        final var request = new Smb2ReadRequest();
+        request.header().setSessionId(sessionId);
+        request.header().setTreeId(treeId);
+        request.header().setCreditCharge(creditCharge);
+        return new PendingRequest(request, response -> { }, timestamp);
+    }
+}
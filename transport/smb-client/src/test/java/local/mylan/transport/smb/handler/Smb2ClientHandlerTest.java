@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.Smb2Response;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.details.ClientDetails;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.details.ServerDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2ErrorResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2NegotiateRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2ReadRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class Smb2ClientHandlerTest {
+    private static final int MAX_CREDITS_REQUEST = 64;
+
+    private ConnectionDetails connDetails;
+    private Smb2ClientHandler handler;
+    private EmbeddedChannel channel;
+    private long negotiateMessageId;
+
+    @BeforeEach
+    void beforeEach() {
+        final var clientDetails = new ClientDetails();
+        clientDetails.setMinDialect(Smb2Dialect.SMB2_0_2);
+        clientDetails.setMaxDialect(Smb2Dialect.SMB2_1);
+        connDetails = new ConnectionDetails(UUID.randomUUID(), 1);
+        connDetails.setMaxCreditsRequest(MAX_CREDITS_REQUEST);
+        // multi-credit dialect as if negotiated
+        final var server = new ServerDetails();
+        server.setDialectRevision(Smb2Dialect.SMB2_1);
+        connDetails.setServer(server);
+        handler = new Smb2ClientHandler(clientDetails, connDetails, null);
+        channel = new EmbeddedChannel(handler);
+        // NEGOTIATE consumes the only credit available initially
+        final Smb2NegotiateRequest negotiate = channel.readOutbound();
+        negotiateMessageId = negotiate.header().messageId();
+        assertEquals(0, handler.creditsAvailable());
+    }
+
+    @AfterEach
+    void afterEach() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void drainOnCreditGrant() {
+        final var responses = new ArrayList<Smb2Response>();
+        // group of session 1 waits for 4 credits, the group of session 2 needs one
+        final var large = read(1, 4);
+        final var small = read(2, 1);
+        handler.send(large, responses::add);
+        handler.send(small, responses::add);
+        assertNull(channel.readOutbound());
+        assertEquals(2, connDetails.pendingRequests().size());
+
+        // 2 credits are not enough for the first group, it's skipped
+        channel.writeInbound(response(Smb2Command.SMB2_NEGOTIATE, negotiateMessageId, 2));
+        assertSame(small, channel.readOutbound());
+        assertNull(channel.readOutbound());
+        // credits requested cover the charge of the request awaiting
+        assertEquals(1 + 4, small.header().creditRequest());
+        assertEquals(List.of(large), List.copyOf(connDetails.pendingRequests()));
+
+        channel.writeInbound(response(Smb2Command.SMB2_READ, small.header().messageId(), 3));
+        assertSame(large, channel.readOutbound());
+        assertEquals(4, large.header().creditRequest());
+        assertTrue(connDetails.pendingRequests().isEmpty());
+        assertEquals(1, responses.size());
+    }
+
+    @Test
+    void sendNotBlockedByOtherGroup() {
+        final var large = read(1, 4);
+        handler.send(large, response -> { });
+        channel.writeInbound(response(Smb2Command.SMB2_NEGOTIATE, negotiateMessageId, 2));
+        assertNull(channel.readOutbound());
+
+        // request of another session fitting the credits is sent while the large one is awaiting
+        final var small = read(2, 1);
+        handler.send(small, response -> { });
+        assertSame(small, channel.readOutbound());
+        // request of the blocked group keeps the order
+        final var next = read(1, 1);
+        handler.send(next, response -> { });
+        assertNull(channel.readOutbound());
+        assertEquals(List.of(large, next), List.copyOf(connDetails.pendingRequests()));
+    }
+
+    @Test
+    void creditRequestCapped() {
+        for (var i = 0; i < 20; i++) {
+            handler.send(read(1, 8), response -> { });
+        }
+        // the first one is sent, remaining 19 x 8 credits exceed the limit
+        channel.writeInbound(response(Smb2Command.SMB2_NEGOTIATE, negotiateMessageId, 8));
+        final Smb2ReadRequest sent = channel.readOutbound();
+        assertEquals(MAX_CREDITS_REQUEST, sent.header().creditRequest());
+    }
+
+    @Test
+    void pendingExpiry() throws Exception {
+        connDetails.setPendingRequestTimeoutMillis(1);
+        final var responses = new ArrayList<Smb2Response>();
+        handler.send(read(1, 1), responses::add);
+        assertEquals(1, connDetails.pendingRequests().size());
+
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+        assertEquals(1, responses.size());
+        assertEquals(SmbError.STATUS_IO_TIMEOUT, responses.getFirst().header().status());
+        assertTrue(connDetails.pendingRequests().isEmpty());
+        assertNull(channel.readOutbound());
+    }
+
+    private static Smb2ReadRequest read(final long sessionId, final int creditCharge) {
+        final var request = new Smb2ReadRequest();
+        request.header().setSessionId(sessionId);
+        request.header().setTreeId(1);
+        request.header().setCreditCharge(creditCharge);
+        return request;
+    }
+
+    private static Smb2Response response(final Smb2Command command, final long messageId, final int granted) {
+        final var response = new Smb2ErrorResponse(command);
+        response.header().setStatus(SmbError.STATUS_SUCCESS);
+        response.header().setMessageId(messageId);
+        response.header().setCreditResponse(granted);
+        return response;
+    }
+}
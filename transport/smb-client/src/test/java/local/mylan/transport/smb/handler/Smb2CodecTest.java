@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.UUID;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Request;
+import local.mylan.transport.smb.protocol.details.ConnectionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2LogoffRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2TreeDisconnectRequest;
+import org.junit.jupiter.api.Test;
+
+class Smb2CodecTest {
+
+    @Test
+    void decodeFramesSplitAcrossReads() {
+        final var frames = Unpooled.wrappedBuffer(encode(new Smb2LogoffRequest(), 1),
+            encode(new Smb2TreeDisconnectRequest(), 2), encode(new Smb2LogoffRequest(), 3));
+        final var channel = new EmbeddedChannel(new Smb2ServerCodec());
+        // arbitrary read boundaries: within frame lead, within header, spanning multiple frames
+        for (var chunkSize : new int[]{2, 30, 100, Integer.MAX_VALUE}) {
+            final var length = Math.min(chunkSize, frames.readableBytes());
+            channel.writeInbound(frames.readRetainedSlice(length));
+        }
+        frames.release();
+
+        assertMessage(channel.readInbound(), Smb2LogoffRequest.class, 1);
+        assertMessage(channel.readInbound(), Smb2TreeDisconnectRequest.class, 2);
+        assertMessage(channel.readInbound(), Smb2LogoffRequest.class, 3);
+        assertNull(channel.readInbound());
+    }
+
+    private static ByteBuf encode(final Smb2Request request, final long messageId) {
+        request.header().setFlags(new Flags<>());
+        request.header().setMessageId(messageId);
+        final var channel = new EmbeddedChannel(new Smb2ClientCodec(new ConnectionDetails(UUID.randomUUID(), 1)));
+        channel.writeOutbound(request);
+        return channel.readOutbound();
+    }
+
+    private static void assertMessage(final Object message, final Class<? extends Smb2Request> expectedType,
+        final long expectedMessageId) {
+
+        final var request = assertInstanceOf(expectedType, message);
+        assertEquals(expectedMessageId, request.header().messageId());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import local.mylan.transport.smb.protocol.pcerpc.PceResponse;
+import local.mylan.transport.smb.protocol.pcerpc.PduDataTypes;
+import local.mylan.transport.smb.protocol.srvs.SrvShareEnumStruct;
+import local.mylan.transport.smb.protocol.srvs.SrvsError;
+import local.mylan.transport.smb.protocol.srvs.SrvsNetrShareEnum;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareInfo;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareInfoLevel;
+import local.mylan.transport.smb.protocol.srvs.SrvsShareType;
+import org.junit.jupiter.api.Test;
+
+class PceCodecUtilsTest {
+    private static final int CALL_ID = 7;
+    private static final List<String> SHARE_NAMES = IntStream.rangeClosed(1, 20)
+        .mapToObj(num -> "share" + num).toList();
+
+    @Test
+    void reassembleFragments() {
+        final var fragments = new ArrayList<PceResponse>();
+        for (var fragment : PceTestUtils.responseFragments(CALL_ID, shareEnum(), 100)) {
+            // fragments are decoded as received from the pipe
+            final var decoded = PceCodecUtils.decode(Unpooled.wrappedBuffer(PceTestUtils.encode(fragment)));
+            fragments.add(assertInstanceOf(PceResponse.class, decoded));
+        }
+        assertTrue(fragments.size() > 2);
+        assertTrue(fragments.getFirst().pfcFlags().get(PduDataTypes.PfcFlags.PFC_FIRST_FRAG));
+        assertTrue(fragments.getLast().pfcFlags().get(PduDataTypes.PfcFlags.PFC_LAST_FRAG));
+
+        final var stub = PceCodecUtils.reassemble(fragments);
+        final var decoded = assertInstanceOf(SrvsNetrShareEnum.class,
+            SrvsCodecUtils.decodeResponse(Unpooled.wrappedBuffer(stub.bytes()), SrvsNetrShareEnum.OPNUM));
+        assertEquals(SrvsError.NERR_Success, decoded.error());
+        assertEquals(SHARE_NAMES.size(), decoded.totalEntries());
+        assertEquals(SHARE_NAMES, decoded.infoStruct().infos().stream().map(SrvsShareInfo::netName).toList());
+    }
+
+    @Test
+    void reassembleSingleFragment() {
+        final var fragments = PceTestUtils.responseFragments(CALL_ID, shareEnum(), Integer.MAX_VALUE);
+        assertEquals(1, fragments.size());
+        assertSame(fragments.getFirst().object(), PceCodecUtils.reassemble(fragments));
+    }
+
+    @Test
+    void reassembleInvalidSequence() {
+        final var fragments = PceTestUtils.responseFragments(CALL_ID, shareEnum(), 100);
+        final var otherCall = PceTestUtils.responseFragments(CALL_ID + 1, shareEnum(), 100);
+        final var mixed = new ArrayList<>(fragments);
+        mixed.set(1, otherCall.get(1));
+        final var noStub = new ArrayList<>(fragments);
+        final var emptyFragment = new PceResponse(fragments.get(1).pduVersion(), fragments.get(1).pfcFlags(),
+            fragments.get(1).ndrFormatLabel(), CALL_ID);
+        noStub.set(1, emptyFragment);
+
+        assertThrows(IllegalArgumentException.class, () -> PceCodecUtils.reassemble(List.of()));
+        // first or last fragment missing
+        assertThrows(IllegalArgumentException.class,
+            () -> PceCodecUtils.reassemble(fragments.subList(1, fragments.size())));
+        assertThrows(IllegalArgumentException.class,
+            () -> PceCodecUtils.reassemble(fragments.subList(0, fragments.size() - 1)));
+        // fragment of other call, fragment without stub
+        assertThrows(IllegalArgumentException.class, () -> PceCodecUtils.reassemble(mixed));
+        assertThrows(IllegalArgumentException.class, () -> PceCodecUtils.reassemble(noStub));
+    }
+
+    private static SrvsNetrShareEnum shareEnum() {
+        final var infos = SHARE_NAMES.stream().map(name -> {
+            final var info = new SrvsShareInfo();
+            info.setNetName(name);
+            info.setType(new SrvsShareType(SrvsShareType.SType.STYPE_DISKTREE, false, false));
+            info.setRemark("Remark of " + name);
+            return info;
+        }).toList();
+        final var shareEnum = new SrvsNetrShareEnum();
+        shareEnum.setInfoStruct(new SrvShareEnumStruct(SrvsShareInfoLevel.SHARE_INFO_1, infos));
+        shareEnum.setTotalEntries(infos.size());
+        shareEnum.setError(SrvsError.NERR_Success);
+        return shareEnum;
+    }
+}
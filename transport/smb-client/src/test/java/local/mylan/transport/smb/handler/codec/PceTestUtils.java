@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler.codec;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.fscc.Blob;
+import local.mylan.transport.smb.protocol.pcerpc.NdrFormatLabel;
+import local.mylan.transport.smb.protocol.pcerpc.PceMessage;
+import local.mylan.transport.smb.protocol.pcerpc.PceResponse;
+import local.mylan.transport.smb.protocol.pcerpc.PduDataTypes;
+import local.mylan.transport.smb.protocol.srvs.SrvsMessage;
+
+public final class PceTestUtils {
+
+    private PceTestUtils() {
+        // utility class
+    }
+
+    /**
+     * Builds the response to given call split into fragments, each one carrying up to given number of stub bytes.
+     *
+     * @param callId PCE call ID
+     * @param message response object
+     * @param maxStubLength max stub length of a fragment
+     * @return response fragments in order
+     */
+    public static List<PceResponse> responseFragments(final int callId, final SrvsMessage message,
+        final int maxStubLength) {
+
+        final var buf = Unpooled.buffer();
+        SrvsCodecUtils.encodeResponse(buf, message);
+        final var stub = ByteBufUtil.getBytes(buf);
+        final var fragments = new ArrayList<PceResponse>();
+        for (int offset = 0; offset < stub.length; offset += maxStubLength) {
+            final var end = Math.min(offset + maxStubLength, stub.length);
+            final var flags = new Flags<PduDataTypes.PfcFlags>()
+                .set(PduDataTypes.PfcFlags.PFC_FIRST_FRAG, offset == 0)
+                .set(PduDataTypes.PfcFlags.PFC_LAST_FRAG, end == stub.length);
+            final var fragment = new PceResponse(new PduDataTypes.Version(5, 0), flags,
+                NdrFormatLabel.getDefault(), callId);
+            fragment.setObject(new Blob(Arrays.copyOfRange(stub, offset, end)));
+            fragments.add(fragment);
+        }
+        return List.copyOf(fragments);
+    }
+
+    public static byte[] encode(final PceMessage message) {
+        final var buf = Unpooled.buffer();
+        PceCodecUtils.encode(buf, message);
+        return ByteBufUtil.getBytes(buf);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.handler.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import local.mylan.transport.smb.protocol.Flags;
+import local.mylan.transport.smb.protocol.Smb2Command;
+import local.mylan.transport.smb.protocol.Smb2Dialect;
+import local.mylan.transport.smb.protocol.SmbError;
+import local.mylan.transport.smb.protocol.smb2.Smb2EchoRequest;
+import local.mylan.transport.smb.protocol.smb2.Smb2EchoResponse;
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class Smb2CodecUtilsTest {
+    private static final int HEADER_LENGTH = 64;
+    private static final int FLAGS_POSITION = 16;
+
+    @ParameterizedTest
+    @CsvSource({"SMB2_0_2, 0", "SMB2_1, 5", "SMB3_0, 5", "SMB3_1_1, 5"})
+    void requestHeader(final Smb2Dialect dialect, final int expectedCreditCharge) {
+        final var request = new Smb2EchoRequest();
+        final var header = request.header();
+        header.setFlags(new Flags<Smb2Flags>()
+            .set(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS, true)
+            .set(Smb2Flags.SMB2_FLAGS_SIGNED, true));
+        header.setCreditCharge(5);
+        header.setCreditRequest(10);
+        header.setChannelSequence(3);
+        header.setMessageId(0x1_0000_0001L);
+        header.setTreeId(7);
+        header.setSessionId(0x1234_5678_9ABCL);
+
+        final var buf = Unpooled.buffer();
+        Smb2CodecUtils.encodeRequest(request, buf, dialect);
+        assertEquals(HEADER_LENGTH + 4, buf.readableBytes());
+        assertEquals(header.flagsValue(), buf.getIntLE(FLAGS_POSITION));
+
+        final var decoded = assertInstanceOf(Smb2EchoRequest.class, Smb2CodecUtils.decodeRequest(buf, dialect))
+            .header();
+        assertEquals(Smb2Command.SMB2_ECHO, decoded.command());
+        assertEquals(expectedCreditCharge, decoded.creditCharge());
+        assertEquals(dialect.equalsOrHigher(Smb2Dialect.SMB3_0) ? 3 : 0, decoded.channelSequence());
+        assertEquals(10, decoded.creditRequest());
+        assertTrue(decoded.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        assertTrue(decoded.isSigned());
+        assertFalse(decoded.isAsync());
+        assertEquals(0x1_0000_0001L, decoded.messageId());
+        assertEquals(7, decoded.treeId());
+        assertEquals(0x1234_5678_9ABCL, decoded.sessionId());
+        buf.release();
+    }
+
+    @Test
+    void asyncResponseHeader() {
+        final var response = new Smb2EchoResponse();
+        final var header = response.header();
+        header.setFlags(new Flags<Smb2Flags>()
+            .set(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR, true)
+            .set(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND, true));
+        header.setStatus(SmbError.STATUS_PENDING);
+        header.setCreditCharge(2);
+        header.setCreditResponse(32);
+        header.setMessageId(11);
+        header.setAsyncId(0x7FFF_0000_0000_0001L);
+        header.setSessionId(5);
+
+        final var buf = Unpooled.buffer();
+        Smb2CodecUtils.encodeResponse(response, buf, Smb2Dialect.SMB3_0);
+        // header only decoding keeps the reader position
+        final var headerOnly = Smb2CodecUtils.decodeResponseHeader(buf, Smb2Dialect.SMB3_0);
+        assertEquals(0x7FFF_0000_0000_0001L, headerOnly.asyncId());
+        assertEquals(0, buf.readerIndex());
+
+        final var decoded = assertInstanceOf(Smb2EchoResponse.class,
+            Smb2CodecUtils.decodeResponse(buf, Smb2Dialect.SMB3_0)).header();
+        assertEquals(SmbError.STATUS_PENDING, decoded.status());
+        assertEquals(2, decoded.creditCharge());
+        assertEquals(32, decoded.creditResponse());
+        assertTrue(decoded.isAsync());
+        assertFalse(decoded.isSigned());
+        assertEquals(11, decoded.messageId());
+        // async id takes place of reserved field and tree id
+        assertEquals(0x7FFF_0000_0000_0001L, decoded.asyncId());
+        assertEquals(0, decoded.treeId());
+        assertEquals(5, decoded.sessionId());
+        buf.release();
+    }
+
+    @Test
+    void flagsRewrite() {
+        final var request = new Smb2EchoRequest();
+        request.header().setFlagsValue(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS.mask());
+        // view obtained after the value is set is the one encoded
+        request.header().flags().set(Smb2Flags.SMB2_FLAGS_SIGNED, true)
+            .set(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS, false);
+
+        final var buf = Unpooled.buffer();
+        Smb2CodecUtils.encodeRequest(request, buf, Smb2Dialect.SMB3_1_1);
+        assertEquals(Smb2Flags.SMB2_FLAGS_SIGNED.mask(), buf.getIntLE(FLAGS_POSITION));
+        final var decoded = Smb2CodecUtils.decodeRequest(buf, Smb2Dialect.SMB3_1_1).header();
+        assertTrue(decoded.isSigned());
+        assertFalse(decoded.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        buf.release();
+    }
+
+    @Test
+    void chainNextCommand() {
+        final var buf = Unpooled.buffer();
+        final var first = new Smb2EchoRequest();
+        first.header().setFlags(new Flags<>());
+        Smb2CodecUtils.encodeRequest(first, buf, Smb2Dialect.SMB3_0);
+        assertEquals(0, Smb2CodecUtils.nextCommandOffset(buf, 0));
+
+        // 68 bytes message padded to 8 bytes boundary
+        Smb2CodecUtils.chainNextCommand(buf, 0);
+        assertEquals(72, buf.writerIndex());
+        assertEquals(72, Smb2CodecUtils.nextCommandOffset(buf, 0));
+        final var second = new Smb2EchoRequest();
+        second.header().setFlags(new Flags<Smb2Flags>().set(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS, true));
+        Smb2CodecUtils.encodeRequest(second, buf, Smb2Dialect.SMB3_0);
+
+        assertEquals(72, Smb2CodecUtils.decodeRequest(buf, Smb2Dialect.SMB3_0).header().nextCommandOffset());
+        buf.readerIndex(72);
+        final var decoded = Smb2CodecUtils.decodeRequest(buf, Smb2Dialect.SMB3_0).header();
+        assertEquals(0, decoded.nextCommandOffset());
+        assertTrue(decoded.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        buf.release();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import local.mylan.transport.smb.protocol.smb2.Smb2Flags;
+import org.junit.jupiter.api.Test;
+
+class Smb2HeaderTest {
+    private static final int ASYNC_RESPONSE = Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR.mask()
+        | Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND.mask();
+
+    @Test
+    void flagsValue() {
+        final var header = new Smb2Header();
+        assertEquals(0, header.flagsValue());
+        assertNotNull(header.flags());
+
+        header.setFlagsValue(ASYNC_RESPONSE);
+        assertTrue(header.isResponse());
+        assertTrue(header.isAsync());
+        assertFalse(header.isSigned());
+        // flags view reflects the value set and is kept on subsequent access
+        final var flags = header.flags();
+        assertTrue(flags.get(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR));
+        assertTrue(flags.get(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND));
+        assertFalse(flags.get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        assertSame(flags, header.flags());
+    }
+
+    @Test
+    void flagsViewChanges() {
+        final var header = new Smb2Header();
+        header.setFlagsValue(ASYNC_RESPONSE);
+        // changes made through the view are reflected by the value
+        header.flags().set(Smb2Flags.SMB2_FLAGS_SIGNED, true).set(Smb2Flags.SMB2_FLAGS_ASYNC_COMMAND, false);
+        assertEquals(Smb2Flags.SMB2_FLAGS_SERVER_TO_REDIR.mask() | Smb2Flags.SMB2_FLAGS_SIGNED.mask(),
+            header.flagsValue());
+        assertTrue(header.isSigned());
+        assertFalse(header.isAsync());
+
+        // the value set replaces the view
+        header.setFlagsValue(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS.mask());
+        assertTrue(header.flags().get(Smb2Flags.SMB2_FLAGS_RELATED_OPERATIONS));
+        assertFalse(header.flags().get(Smb2Flags.SMB2_FLAGS_SIGNED));
+
+        header.setFlags(new Flags<Smb2Flags>().set(Smb2Flags.SMB2_FLAGS_DFS_OPERATIONS, true));
+        assertEquals(Smb2Flags.SMB2_FLAGS_DFS_OPERATIONS.mask(), header.flagsValue());
+        header.setFlags(null);
+        assertEquals(0, header.flagsValue());
+        assertNotNull(header.flags());
+    }
+}
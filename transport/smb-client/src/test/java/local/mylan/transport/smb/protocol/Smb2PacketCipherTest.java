@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.smb2.Smb2EncryptionCipher;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class Smb2PacketCipherTest {
+    private static final long SESSION_ID = 0x0102030405060708L;
+
+    @ParameterizedTest
+    @EnumSource(Smb2EncryptionCipher.class)
+    void encryptAndDecrypt(final Smb2EncryptionCipher cipher) {
+        final var random = new Random(0);
+        final var key1 = new byte[cipher.keyLength()];
+        final var key2 = new byte[cipher.keyLength()];
+        random.nextBytes(key1);
+        random.nextBytes(key2);
+        final var client = new Smb2PacketCipher(cipher, key1, key2);
+        final var server = new Smb2PacketCipher(cipher, key2, key1);
+
+        final var content = new byte[10_000];
+        random.nextBytes(content);
+        final var frame = Unpooled.directBuffer(content.length + Smb2PacketCipher.TRANSFORM_HEADER_LENGTH);
+        frame.writeZero(Smb2PacketCipher.TRANSFORM_HEADER_LENGTH).writeBytes(content);
+        client.encrypt(frame, 0, SESSION_ID);
+        assertTrue(Smb2PacketCipher.isTransformed(frame));
+        assertEquals(SESSION_ID, Smb2PacketCipher.sessionId(frame));
+        final var encrypted = ByteBufUtil.getBytes(frame);
+
+        // frame spread over two buffers is decrypted into separate one
+        final var composite = Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(encrypted, 0, 5000),
+            Unpooled.directBuffer(encrypted.length).writeBytes(encrypted, 5000, encrypted.length - 5000));
+        assertContent(content, server.decrypt(composite));
+        composite.release();
+
+        // contiguous frame is decrypted in place
+        assertContent(content, server.decrypt(frame));
+        frame.release();
+
+        // keys are directional
+        assertThrows(SmbException.class, () -> client.decrypt(Unpooled.wrappedBuffer(encrypted)));
+        // tampered
+        encrypted[encrypted.length - 1] ^= 1;
+        assertThrows(SmbException.class, () -> server.decrypt(Unpooled.wrappedBuffer(encrypted)));
+    }
+
+    private static void assertContent(final byte[] expected, final ByteBuf decrypted) {
+        assertEquals(Unpooled.wrappedBuffer(expected), decrypted);
+        decrypted.release();
+    }
+}
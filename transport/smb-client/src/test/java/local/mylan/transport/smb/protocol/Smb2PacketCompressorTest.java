@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import local.mylan.transport.smb.exceptions.SmbException;
+import local.mylan.transport.smb.protocol.smb2.Smb2CompressionAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class Smb2PacketCompressorTest {
+    private static final int PREFIX_LENGTH = 112;
+
+    @ParameterizedTest
+    @CsvSource({"LZ77,false", "LZ77,true", "LZ77_HUFFMAN,false", "LZ77_HUFFMAN,true"})
+    void compressAndDecompress(final Smb2CompressionAlgorithm algorithm, final boolean chained) {
+        final var compressor = new Smb2PacketCompressor(algorithm, chained, chained, false, 1024);
+        // random prefix, text data, zero-filled tail
+        final var random = new Random(0);
+        final var prefix = new byte[PREFIX_LENGTH];
+        random.nextBytes(prefix);
+        final var text = new StringBuilder();
+        while (text.length() < 200_000) {
+            text.append("file_").append(random.nextInt(1000)).append(".txt\t").append(random.nextLong()).append('\n');
+        }
+        final var content = Unpooled.buffer().writeBytes(prefix)
+            .writeBytes(text.toString().getBytes(StandardCharsets.UTF_8)).writeZero(70_000);
+        final var expected = ByteBufUtil.getBytes(content);
+
+        final var frame = Unpooled.directBuffer().writeZero(4).writeBytes(content);
+        assertTrue(compressor.compress(frame, 4, PREFIX_LENGTH));
+        frame.skipBytes(4);
+        assertTrue(frame.readableBytes() < expected.length / 2);
+        assertTrue(Smb2PacketCompressor.isCompressed(frame));
+        assertContent(expected, compressor.decompress(frame));
+
+        // truncated
+        frame.writerIndex(frame.writerIndex() - 100);
+        assertThrows(SmbException.class, () -> compressor.decompress(frame));
+        frame.release();
+    }
+
+    @Test
+    void patternOnly() {
+        final var compressor = new Smb2PacketCompressor(null, true, true, true, 1024);
+        // leading and trailing runs are replaced with patterns, data in between is left uncompressed
+        final var content = ByteBufUtil.getBytes(Unpooled.buffer()
+            .writeZero(30_000).writeBytes("0123456789".getBytes(StandardCharsets.US_ASCII)).writeZero(30_000));
+        final var frame = Unpooled.wrappedBuffer(content.clone());
+        assertTrue(compressor.compress(frame, 0, 0));
+        assertEquals(8 + 16 + 8 + 10 + 16, frame.readableBytes());
+        assertContent(content, compressor.decompress(frame));
+    }
+
+    @Test
+    void noGain() {
+        final var compressor = new Smb2PacketCompressor(Smb2CompressionAlgorithm.LZ77_HUFFMAN, true, true, true,
+            1024);
+        final var content = new byte[10_000];
+        new Random(0).nextBytes(content);
+        final var frame = Unpooled.wrappedBuffer(content.clone());
+        assertFalse(compressor.compress(frame, 0, PREFIX_LENGTH));
+        assertEquals(Unpooled.wrappedBuffer(content), frame);
+        // below threshold
+        final var small = Unpooled.wrappedBuffer(new byte[1000]);
+        assertFalse(compressor.compress(small, 0, 0));
+        assertEquals(1000, small.readableBytes());
+    }
+
+    private static void assertContent(final byte[] expected, final ByteBuf decompressed) {
+        assertEquals(Unpooled.wrappedBuffer(expected), decompressed);
+        decompressed.release();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import local.mylan.transport.smb.protocol.details.SessionDetails;
+import local.mylan.transport.smb.protocol.smb2.Smb2SigningAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class Smb2PacketSignerTest {
+
+    @ParameterizedTest
+    @EnumSource(value = Smb2Dialect.class, names = {"SMB2_1", "SMB3_0"})
+    void signAndVerify(final Smb2Dialect dialect) {
+        assertSignAndVerify(new Smb2PacketSigner(dialect, sessionDetails()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Smb2SigningAlgorithm.class)
+    void signAndVerify311(final Smb2SigningAlgorithm algorithm) {
+        assertSignAndVerify(new Smb2PacketSigner(Smb2Dialect.SMB3_1_1, algorithm, sessionDetails()));
+    }
+
+    @Test
+    void gmacNonceRole() {
+        final var signer = new Smb2PacketSigner(Smb2Dialect.SMB3_1_1, Smb2SigningAlgorithm.AES_GMAC,
+            sessionDetails());
+        final var message = message(1000);
+        signer.signOutbound(message);
+        // same message id and content treated as response has a different nonce
+        message.setByte(16, message.getByte(16) | 0x01);
+        assertFalse(signer.verifyInboundSignature(message));
+        message.setByte(16, message.getByte(16) & ~0x01);
+        assertTrue(signer.verifyInboundSignature(message));
+    }
+
+    private static void assertSignAndVerify(final Smb2PacketSigner signer) {
+        final var message = message(100_000);
+        signer.signOutbound(message);
+        assertTrue(signer.verifyInboundSignature(message));
+
+        // same content spread over heap and direct components
+        final var direct = Unpooled.directBuffer(60_000).writeBytes(message, 0, 60_000);
+        final var composite = Unpooled.wrappedBuffer(direct, message.retainedSlice(60_000, 40_000));
+        assertTrue(signer.verifyInboundSignature(composite));
+        composite.release();
+
+        message.setByte(99_999, message.getByte(99_999) + 1);
+        assertFalse(signer.verifyInboundSignature(message));
+    }
+
+    private static SessionDetails sessionDetails() {
+        final var key = new byte[16];
+        new Random(0).nextBytes(key);
+        final var sessDetails = new SessionDetails();
+        sessDetails.setSessionKey(key);
+        sessDetails.setSigningKey(key);
+        return sessDetails;
+    }
+
+    private static ByteBuf message(final int length) {
+        final var content = new byte[length];
+        new Random(1).nextBytes(content);
+        return Unpooled.wrappedBuffer(content);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.details;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SequenceWindowTest {
+
+    @Test
+    void multiCredit() {
+        final var window = new SequenceWindow();
+        assertEquals(1, window.available());
+        assertEquals(0, window.nextMessageId(0));
+        assertEquals(SequenceWindow.NO_MESSAGE_ID, window.nextMessageId(1));
+
+        window.acceptGranted(10);
+        assertEquals(1, window.nextMessageId(4));
+        assertEquals(5, window.nextMessageId(4));
+        // not enough credits for charge 4
+        assertEquals(SequenceWindow.NO_MESSAGE_ID, window.nextMessageId(4));
+        assertEquals(2, window.available());
+        assertEquals(9, window.nextMessageId(2));
+        assertEquals(0, window.available());
+    }
+
+    @Test
+    void outOfOrderCompletion() {
+        final var window = new SequenceWindow();
+        window.acceptGranted(99);
+        final var first = window.nextMessageId(2);
+        final var second = window.nextMessageId(1);
+        final var third = window.nextMessageId(3);
+        assertTrue(window.isOutstanding(first + 1));
+
+        assertTrue(window.complete(third, 3));
+        assertTrue(window.complete(first, 2));
+        assertFalse(window.isOutstanding(first + 1));
+        assertTrue(window.isOutstanding(second));
+        // repeated and unknown IDs
+        assertFalse(window.complete(third, 3));
+        assertFalse(window.complete(100, 1));
+        assertTrue(window.complete(second, 1));
+    }
+}
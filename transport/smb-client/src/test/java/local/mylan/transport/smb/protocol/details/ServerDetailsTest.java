@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Ruslan Kashapov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package local.mylan.transport.smb.protocol.details;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class ServerDetailsTest {
+    private static final List<String> NAMES = List.of("share1", "share2");
+    private static final long TTL_MILLIS = 500;
+    private static final int THREADS = 8;
+
+    private final List<SettableFuture<List<String>>> fetches = new CopyOnWriteArrayList<>();
+    private final Supplier<ListenableFuture<List<String>>> fetcher = () -> {
+        final var fetch = SettableFuture.<List<String>>create();
+        fetches.add(fetch);
+        return fetch;
+    };
+
+    @Test
+    void concurrentLookupsShareSingleFetch() throws Exception {
+        final var details = new ServerDetails();
+        final var start = new CountDownLatch(1);
+        final var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final var lookups = new ArrayList<Future<ListenableFuture<List<String>>>>();
+            for (int i = 0; i < THREADS; i++) {
+                lookups.add(executor.submit(() -> {
+                    start.await();
+                    return details.shareNames(false, TTL_MILLIS, fetcher);
+                }));
+            }
+            start.countDown();
+            final var results = new ArrayList<ListenableFuture<List<String>>>();
+            for (var lookup : lookups) {
+                results.add(lookup.get(1, TimeUnit.SECONDS));
+            }
+            // forced lookup joins the fetch in progress too
+            results.add(details.shareNames(true, TTL_MILLIS, fetcher));
+            assertEquals(1, fetches.size());
+
+            fetches.getFirst().set(NAMES);
+            for (var result : results) {
+                assertEquals(NAMES, result.get(1, TimeUnit.SECONDS));
+            }
+            assertEquals(NAMES, details.shares().stream().map(ShareDetails::pathName).toList());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void namesExpireAfterTtl() throws Exception {
+        final var details = new ServerDetails();
+        details.shareNames(false, TTL_MILLIS, fetcher);
+        fetches.getFirst().set(NAMES);
+
+        // cached, unless refresh is forced
+        assertEquals(NAMES, details.shareNames(false, TTL_MILLIS, fetcher).get(1, TimeUnit.SECONDS));
+        assertEquals(1, fetches.size());
+        details.shareNames(true, TTL_MILLIS, fetcher);
+        assertEquals(2, fetches.size());
+        fetches.getLast().set(NAMES);
+
+        // expired
+        Thread.sleep(TTL_MILLIS + 100);
+        final var expired = details.shareNames(false, TTL_MILLIS, fetcher);
+        assertEquals(3, fetches.size());
+        assertFalse(expired.isDone());
+        fetches.getLast().set(List.of("share3"));
+        assertEquals(List.of("share3"), expired.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failureNotCached() throws Exception {
+        final var details = new ServerDetails();
+        final var failed = details.shareNames(false, TTL_MILLIS, fetcher);
+        fetches.getFirst().setException(new IllegalStateException("fetch failed"));
+        assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+
+        final var next = details.shareNames(false, TTL_MILLIS, fetcher);
+        assertEquals(2, fetches.size());
+        fetches.getLast().set(NAMES);
+        assertEquals(NAMES, next.get(1, TimeUnit.SECONDS));
+    }
+}